@@ -0,0 +1,42 @@
+package com.fuzis.accountsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+
+@Entity
+@Table(name = "outbox_messages")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class OutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "om_id")
+    private Long omId;
+
+    @Column(name = "message_id")
+    private String messageId;
+
+    private String exchange;
+
+    @Column(name = "routing_key")
+    private String routingKey;
+
+    private String payload;
+
+    private Integer attempts;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private ZonedDateTime createdAt;
+
+    @Column(name = "next_attempt_at")
+    private ZonedDateTime nextAttemptAt;
+}
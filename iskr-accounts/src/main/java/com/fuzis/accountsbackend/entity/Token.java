@@ -26,6 +26,8 @@ public class Token {
 
     private ZonedDateTime till_date;
 
+    private ZonedDateTime redeemed_at;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "token_type")
     private TokenType tokenType;
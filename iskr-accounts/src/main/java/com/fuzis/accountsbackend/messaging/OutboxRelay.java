@@ -0,0 +1,204 @@
+package com.fuzis.accountsbackend.messaging;
+
+import com.fuzis.accountsbackend.entity.OutboxMessage;
+import com.fuzis.accountsbackend.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes outbox rows. A batch of due rows is locked, published back to back, and only then are
+ * the confirms awaited, so a burst costs one confirm round trip per batch rather than per message.
+ * Confirmed rows are deleted; the rest are retried with exponential backoff. Runs on one thread,
+ * woken after each commit that wrote a message and on a timer for retries and missed wake-ups.
+ * Rows are claimed with SKIP LOCKED, so several instances can relay side by side.
+ */
+@Component
+@EnableScheduling
+public class OutboxRelay implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+
+    private final Counter published;
+    private final Counter failed;
+    private final AtomicLong backlog = new AtomicLong();
+
+    @Value("${rabbitmq.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${rabbitmq.outbox.confirm-timeout:PT5S}")
+    private Duration confirmTimeout;
+
+    @Value("${rabbitmq.outbox.retry-initial:PT1S}")
+    private Duration retryInitial;
+
+    @Value("${rabbitmq.outbox.retry-max:PT5M}")
+    private Duration retryMax;
+
+    public OutboxRelay(RabbitTemplate rabbitTemplate,
+                       OutboxMessageRepository outboxMessageRepository,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.published = Counter.builder("accounts.outbox.published").register(meterRegistry);
+        this.failed = Counter.builder("accounts.outbox.failed").register(meterRegistry);
+        meterRegistry.gauge("accounts.outbox.backlog", backlog);
+    }
+
+    /**
+     * Requests a drain; calls made while one is already queued are coalesced into it.
+     */
+    public void wake() {
+        if (wakeRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeRequested.set(false);
+                drain();
+            });
+        }
+    }
+
+    @Scheduled(initialDelayString = "${rabbitmq.outbox.poll-interval:PT1S}", fixedDelayString = "${rabbitmq.outbox.poll-interval:PT1S}")
+    public void poll() {
+        wake();
+        try {
+            backlog.set(outboxMessageRepository.countPending());
+        } catch (Exception e) {
+            log.warn("Failed to count outbox backlog", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void drain() {
+        try {
+            Integer count;
+            do {
+                count = transactionTemplate.execute(status -> publishBatch());
+            } while (count != null && count == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay failed", e);
+        }
+    }
+
+    private int publishBatch() {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<OutboxMessage> due = outboxMessageRepository.lockDue(now, batchSize);
+        if (due.isEmpty()) {
+            return 0;
+        }
+        boolean confirms = rabbitTemplate.getConnectionFactory().isPublisherConfirms();
+
+        List<CorrelationData> correlations = new ArrayList<>(due.size());
+        AmqpException brokerDown = null;
+        for (OutboxMessage message : due) {
+            CorrelationData correlation = new CorrelationData(message.getMessageId());
+            if (brokerDown == null) {
+                try {
+                    rabbitTemplate.send(message.getExchange(), message.getRoutingKey(), toAmqp(message), correlation);
+                } catch (AmqpException e) {
+                    // The broker is unreachable; the rest of the batch stays due and is retried on the next run
+                    brokerDown = e;
+                    correlation = null;
+                }
+            } else {
+                correlation = null;
+            }
+            correlations.add(correlation);
+        }
+
+        long deadline = System.nanoTime() + confirmTimeout.toNanos();
+        List<Long> confirmed = new ArrayList<>(due.size());
+        for (int i = 0; i < due.size(); i++) {
+            OutboxMessage message = due.get(i);
+            CorrelationData correlation = correlations.get(i);
+            if (correlation != null && (!confirms || isConfirmed(correlation, deadline))) {
+                confirmed.add(message.getOmId());
+                continue;
+            }
+            int attempts = message.getAttempts() + 1;
+            message.setAttempts(attempts);
+            message.setNextAttemptAt(now.plus(backoff(attempts)));
+            failed.increment();
+            if (attempts % 10 == 1) {
+                log.warn("Outbox message {} to {}/{} not confirmed after {} attempts",
+                        message.getMessageId(), message.getExchange(), message.getRoutingKey(), attempts);
+            }
+        }
+        if (!confirmed.isEmpty()) {
+            outboxMessageRepository.deleteByIds(confirmed);
+            published.increment(confirmed.size());
+        }
+        if (brokerDown != null) {
+            log.warn("Broker unavailable, {} outbox messages rescheduled", due.size() - confirmed.size(), brokerDown);
+        }
+        return due.size();
+    }
+
+    private boolean isConfirmed(CorrelationData correlation, long deadline) {
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            CorrelationData.Confirm confirm = correlation.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+            // An unroutable message is acked by the broker but also returned to us
+            return confirm.isAck() && correlation.getReturned() == null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        long millis = retryInitial.toMillis() << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(millis, retryMax.toMillis()));
+    }
+
+    private static Message toAmqp(OutboxMessage message) {
+        return MessageBuilder.withBody(message.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId(message.getMessageId())
+                .build();
+    }
+}
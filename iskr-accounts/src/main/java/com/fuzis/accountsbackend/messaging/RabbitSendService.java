@@ -3,39 +3,50 @@ package com.fuzis.accountsbackend.messaging;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import com.fuzis.accountsbackend.entity.OutboxMessage;
+import com.fuzis.accountsbackend.repository.OutboxMessageRepository;
 import com.fuzis.accountsbackend.transfer.messaging.EmailDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.core.Message;
-import org.springframework.amqp.core.MessageBuilder;
-import org.springframework.amqp.core.MessageProperties;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.ZonedDateTime;
 import java.util.Optional;
+import java.util.UUID;
 
+/**
+ * Messages are not published directly: they are written to ACCOUNTS.OUTBOX_MESSAGES in the
+ * caller's transaction, so they exist if and only if the data they announce was committed, and
+ * {@link OutboxRelay} publishes them with publisher confirms after the commit.
+ */
 @Service
 public class RabbitSendService {
     @Value("${rabbitmq.messaging_exchange}")
     private String messaging_exchange;
 
 
-    private final RabbitTemplate rabbitTemplate;
     private final ObjectMapper objectMapper;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final OutboxRelay outboxRelay;
 
     @Autowired
-    private RabbitSendService(RabbitTemplate rabbitTemplate, ObjectMapper objectMapper) {
-        this.rabbitTemplate = rabbitTemplate;
+    private RabbitSendService(ObjectMapper objectMapper,
+                              OutboxMessageRepository outboxMessageRepository,
+                              OutboxRelay outboxRelay) {
         this.objectMapper = objectMapper;
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.outboxRelay = outboxRelay;
     }
 
     Logger log = LoggerFactory.getLogger(RabbitSendService.class);
 
     public Optional<String> objToJson(Object obj) {
         try {
-            String objJackson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
+            String objJackson = objectMapper.writeValueAsString(obj);
             return Optional.of(objJackson);
         } catch (JsonProcessingException e) {
             log.error("failed conversion: Object to Json", e);
@@ -45,14 +56,27 @@ public class RabbitSendService {
 
     public <T> void send_email(EmailDTO<T> message) {
         var msg_json = objToJson(message);
-        if (msg_json.isPresent()) {
-            Message msg = MessageBuilder.withBody(msg_json.get().getBytes())
-                    .setContentType(MessageProperties.CONTENT_TYPE_JSON)
-                    .build();
-            rabbitTemplate.send(messaging_exchange,message.getRouting_key(),msg);
+        if (msg_json.isEmpty()) {
+            throw new IllegalArgumentException("Message can not be serialized: " + message);
+        }
+        outboxMessageRepository.save(OutboxMessage.builder()
+                .messageId(UUID.randomUUID().toString())
+                .exchange(messaging_exchange)
+                .routingKey(message.getRouting_key())
+                .payload(msg_json.get())
+                .attempts(0)
+                .nextAttemptAt(ZonedDateTime.now())
+                .build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxRelay.wake();
+                }
+            });
         } else {
-            log.warn("Message was not sent to service: {}", message.toString());
+            outboxRelay.wake();
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.fuzis.accountsbackend.repository;
+
+import com.fuzis.accountsbackend.entity.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * Claims due messages for this relay; rows claimed by another instance are skipped, not waited on.
+     */
+    @Query(value = "SELECT * FROM ACCOUNTS.OUTBOX_MESSAGES WHERE next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxMessage> lockDue(@Param("now") ZonedDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.omId IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT COUNT(*) FROM ACCOUNTS.OUTBOX_MESSAGES", nativeQuery = true)
+    long countPending();
+}
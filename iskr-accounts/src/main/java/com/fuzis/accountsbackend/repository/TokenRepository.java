@@ -2,10 +2,71 @@ package com.fuzis.accountsbackend.repository;
 
 import com.fuzis.accountsbackend.entity.Token;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Optional;
 
 @Repository
 public interface TokenRepository extends JpaRepository<Token, Integer>
 {
     Token findByTokenKey(String token);
+
+    interface RedeemedToken {
+        Integer getCtId();
+        String getTtName();
+        String getTokenBody();
+    }
+
+    interface TokenStatus {
+        String getTtName();
+        Boolean getExpired();
+        Boolean getRedeemed();
+    }
+
+    /**
+     * Marks the token redeemed if it exists, has one of the given types, is not expired and was
+     * not redeemed before, all in one statement; empty when any of that does not hold.
+     */
+    @Transactional
+    @Query(value = "UPDATE ACCOUNTS.TOKENS t SET redeemed_at = NOW() FROM ACCOUNTS.TOKEN_TYPES tt " +
+            "WHERE t.token_key = :key AND tt.tt_id = t.token_type AND tt.tt_name IN (:types) " +
+            "AND t.till_date > NOW() AND t.redeemed_at IS NULL " +
+            "RETURNING t.ct_id AS \"ctId\", tt.tt_name AS \"ttName\", t.token_body AS \"tokenBody\"", nativeQuery = true)
+    Optional<RedeemedToken> redeem(@Param("key") String key, @Param("types") Collection<String> types);
+
+    @Query(value = "SELECT tt.tt_name AS \"ttName\", t.till_date <= NOW() AS \"expired\", t.redeemed_at IS NOT NULL AS \"redeemed\" " +
+            "FROM ACCOUNTS.TOKENS t JOIN ACCOUNTS.TOKEN_TYPES tt ON tt.tt_id = t.token_type " +
+            "WHERE t.token_key = :key", nativeQuery = true)
+    Optional<TokenStatus> findStatusByTokenKey(@Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE ACCOUNTS.TOKENS SET redeemed_at = NULL WHERE ct_id = :id", nativeQuery = true)
+    int unredeem(@Param("id") Integer id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE ACCOUNTS.TOKENS SET redeemed_at = NULL WHERE token_key = :key", nativeQuery = true)
+    int unredeemByKey(@Param("key") String key);
+
+    /**
+     * Deletes up to {@code limit} tokens that expired or were redeemed before the cutoff, together
+     * with the reset password requests that reference them. Both deletes are one statement, so the
+     * foreign key is only checked once the requests are gone.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "WITH spent AS (" +
+            "SELECT t.ct_id FROM ACCOUNTS.TOKENS t " +
+            "WHERE t.till_date < :cutoff OR t.redeemed_at < :cutoff " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED), " +
+            "requests AS (DELETE FROM ACCOUNTS.RESET_PASSWORD_REQUESTS r USING spent s WHERE r.token_id = s.ct_id) " +
+            "DELETE FROM ACCOUNTS.TOKENS WHERE ct_id IN (SELECT ct_id FROM spent)", nativeQuery = true)
+    int purge(@Param("cutoff") ZonedDateTime cutoff, @Param("limit") int limit);
 }
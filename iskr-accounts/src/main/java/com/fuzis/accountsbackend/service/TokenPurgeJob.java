@@ -0,0 +1,68 @@
+package com.fuzis.accountsbackend.service;
+
+import com.fuzis.accountsbackend.repository.TokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * Removes expired and redeemed tokens in small batches, each in its own short transaction,
+ * so the table and its unique token_key index only hold tokens that can still be used.
+ * Tokens are kept for {@code token.purge.retention} after expiry so that a late click
+ * still gets "expired" rather than "not found".
+ */
+@Service
+@EnableScheduling
+@Log4j2
+public class TokenPurgeJob {
+    private final TokenRepository tokenRepository;
+    private final Counter purged;
+
+    @Value("${token.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${token.purge.retention:PT24H}")
+    private Duration retention;
+
+    @Value("${token.purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${token.purge.max-batches:50}")
+    private int maxBatches;
+
+    public TokenPurgeJob(TokenRepository tokenRepository, MeterRegistry meterRegistry) {
+        this.tokenRepository = tokenRepository;
+        this.purged = Counter.builder("accounts.tokens.purged").register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${token.purge.initial-delay:PT1M}", fixedDelayString = "${token.purge.interval:PT15M}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        ZonedDateTime cutoff = ZonedDateTime.now().minus(retention);
+        int total = 0;
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                int deleted = tokenRepository.purge(cutoff, batchSize);
+                total += deleted;
+                if (deleted < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Token purge failed after " + total + " tokens", e);
+        }
+        purged.increment(total);
+        if (total > 0) {
+            log.info("Purged " + total + " expired or redeemed tokens");
+        }
+    }
+}
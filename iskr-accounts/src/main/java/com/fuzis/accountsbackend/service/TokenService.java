@@ -1,11 +1,11 @@
 package com.fuzis.accountsbackend.service;
 
 import com.fuzis.accountsbackend.entity.Token;
+import com.fuzis.accountsbackend.entity.TokenType;
 import com.fuzis.accountsbackend.entity.User;
 import com.fuzis.accountsbackend.entity.UserProfile;
 import com.fuzis.accountsbackend.messaging.RabbitSendService;
 import com.fuzis.accountsbackend.repository.TokenRepository;
-import com.fuzis.accountsbackend.repository.TokenTypeRepository;
 import com.fuzis.accountsbackend.repository.UserProfileRepository;
 import com.fuzis.accountsbackend.repository.UserRepository;
 import com.fuzis.accountsbackend.transfer.ChangeDTO;
@@ -20,12 +20,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestClientException;
 
 import java.io.IOException;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -37,7 +40,7 @@ public class TokenService {
     private final RabbitSendService  rabbitSendService;
     private final UserRepository userRepository;
     private final TokenGenerator tokenGenerator;
-    private final TokenTypeRepository tokenTypeRepository;
+    private final TokenTypeRegistry tokenTypeRegistry;
     private final IntegrationRequest integrationRequest;
     private final UserProfileRepository userProfileRepository;
 
@@ -49,27 +52,32 @@ public class TokenService {
                         RabbitSendService rabbitSendService,
                         UserRepository userRepository,
                         TokenGenerator tokenGenerator,
-                        TokenTypeRepository tokenTypeRepository,
+                        TokenTypeRegistry tokenTypeRegistry,
                         IntegrationRequest integrationRequest,
                         UserProfileRepository  userProfileRepository) {
         this.tokenRepository = tokenRepository;
         this.rabbitSendService = rabbitSendService;
         this.userRepository = userRepository;
         this.tokenGenerator = tokenGenerator;
-        this.tokenTypeRepository = tokenTypeRepository;
+        this.tokenTypeRegistry = tokenTypeRegistry;
         this.integrationRequest =  integrationRequest;
         this.userProfileRepository = userProfileRepository;
     }
 
+    private static final List<String> REDEEMABLE_TOKEN_TYPES = List.of("verify_email_token", "reset_password_token");
+
+    /**
+     * Redeems a token at most once: the lookup, type and expiry checks and the redeemed mark are one
+     * UPDATE, so two concurrent requests with the same token cannot both pass. The extra status query
+     * only runs when the token is rejected, to tell the caller why.
+     */
     public ChangeDTO<Object> redeemToken(String token_key) {
-        Token token = tokenRepository.findByTokenKey(token_key);
-        if (token == null) {
-            return new ChangeDTO<>(State.Fail_NotFound, "Not able to find the token to redeem", null);
+        Optional<TokenRepository.RedeemedToken> redeemed = tokenRepository.redeem(token_key, REDEEMABLE_TOKEN_TYPES);
+        if (redeemed.isEmpty()) {
+            return rejectRedeem(token_key);
         }
-        if(ZonedDateTime.now().isAfter(token.getTill_date())){
-            return new ChangeDTO<>(State.Fail_Expired, "Token is expired", null);
-        }
-        if(Objects.equals(token.getTokenType().getTtName(), "verify_email_token")){
+        TokenRepository.RedeemedToken token = redeemed.get();
+        if(Objects.equals(token.getTtName(), "verify_email_token")){
             try {
                 Optional<User> user = userRepository.findById(Integer.parseInt(token.getTokenBody()));
                 if(user.isPresent()) {
@@ -78,6 +86,7 @@ public class TokenService {
                     sso_request_body.add("Email-Verified", "true");
                     var response = integrationRequest.sendPostRequestIntegration("v1/accounts/verify-email-sso", sso_request_body);
                     if(response.getStatusCode() != HttpStatus.NO_CONTENT){
+                        tokenRepository.unredeem(token.getCtId());
                         return new ChangeDTO<>(State.Fail, "Unable to set email verification on sso", response.getBody());
                     }
                     user.get().getProfile().setEmail_verified(true);
@@ -89,24 +98,38 @@ public class TokenService {
                 }
             }
             catch (RestClientException e) {
+                // SSO is unreachable, so the token has to stay valid for another attempt
+                tokenRepository.unredeem(token.getCtId());
                 return new ChangeDTO<>(State.Fail_BadData, "Unable to connect to server, error: " + e.getMessage(), null);
             }
             catch (Exception e) {
                 return new ChangeDTO<>(State.Fail_BadData, "Invalid Token", null);
             }
         }
-        if(Objects.equals(token.getTokenType().getTtName(), "reset_password_token")){
-            Optional<User> user = userRepository.findById(Integer.parseInt(token.getTokenBody()));
-            if(user.isPresent()) {
-                return new ChangeDTO<>(State.OK, "Token granted", user);
-            }
-            else{
-                return new ChangeDTO<>(State.Fail_BadData, "Invalid Token, User Not Found", null);
-            }
+        Optional<User> user = userRepository.findById(Integer.parseInt(token.getTokenBody()));
+        if(user.isPresent()) {
+            return new ChangeDTO<>(State.OK, "Token granted", user);
+        }
+        else{
+            return new ChangeDTO<>(State.Fail_BadData, "Invalid Token, User Not Found", null);
         }
-        else return new ChangeDTO<>(State.Fail_Not_Implemented, "Unknown token to redeem", null);
     }
 
+    private ChangeDTO<Object> rejectRedeem(String token_key) {
+        Optional<TokenRepository.TokenStatus> status = tokenRepository.findStatusByTokenKey(token_key);
+        if (status.isEmpty()) {
+            return new ChangeDTO<>(State.Fail_NotFound, "Not able to find the token to redeem", null);
+        }
+        if (!REDEEMABLE_TOKEN_TYPES.contains(status.get().getTtName())) {
+            return new ChangeDTO<>(State.Fail_Not_Implemented, "Unknown token to redeem", null);
+        }
+        if (Boolean.TRUE.equals(status.get().getRedeemed())) {
+            return new ChangeDTO<>(State.Fail_Expired, "Token is already redeemed", null);
+        }
+        return new ChangeDTO<>(State.Fail_Expired, "Token is expired", null);
+    }
+
+    @Transactional
     public ChangeDTO<Token> createToken(Integer userId, String type) {
         log.warn("createToken request get: " + userId);
         Optional<User> user = userRepository.findById(userId);
@@ -116,13 +139,19 @@ public class TokenService {
         return createTokenInner(user.get(), type);
     }
 
+    /**
+     * The token row and the outbox row of its email are written in one transaction,
+     * so an email is only ever sent for a token that exists.
+     */
+    @Transactional
     public ChangeDTO<Token> createTokenInner(User user, String type) {
         try {
-            if(this.tokenTypeRepository.getTokenTypeByttName(type) == null){
+            Optional<TokenType> tokenType = tokenTypeRegistry.getByName(type);
+            if(tokenType.isEmpty()){
                 return new ChangeDTO<>(State.Fail_Not_Implemented, "Unknown token type to create", null);
             }
             Token token = tokenRepository.save(new Token(tokenGenerator.getTokenKey(), ZonedDateTime.now().plusSeconds(token_base_expire),
-                    this.tokenTypeRepository.getTokenTypeByttName(type), user.getUser_id().toString()));
+                    tokenType.get(), user.getUser_id().toString()));
             EmailType emailType = EmailType.getByTokenType(type);
             rabbitSendService.send_email(new EmailDTO<>(user.getProfile().getEmail(),
                     emailType,
@@ -130,10 +159,12 @@ public class TokenService {
             return new ChangeDTO<>(State.OK, "Token sent", token);
         }
         catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return new ChangeDTO<>(State.Fail, "Unknown error ("+e+") " + e.getMessage(), null);
         }
     }
 
+    @Transactional
     public ChangeDTO createResetToken(String login) {
         Optional<UserProfile> user = userProfileRepository.findByUsernameOrEmail(login);
         if(user.isEmpty()) {
@@ -143,7 +174,12 @@ public class TokenService {
         if(ret_val.getState() == State.OK)return new ChangeDTO<>(State.OK, "Token sent if user is present", null);
         return new ChangeDTO<>(State.Fail, "Unknown error", null);
     }
+    /**
+     * Redeems the token, then sets the new password on SSO. If SSO does not take the password the
+     * token is handed back, so the user can retry with the same link.
+     */
     public ChangeDTO redeemResetPasswordToken(String token, String password) {
+        boolean redeemed = false;
         try {
             MultiValueMap<String, String> redeem_token_body = new LinkedMultiValueMap<>();
             redeem_token_body.add("Token", token);
@@ -158,17 +194,22 @@ public class TokenService {
             }
             if(response.getBody() == null || response.getBody().get("key") == null)
                 return new ChangeDTO<>(State.Fail, "Unable to parse redeem token response", response.getBody());
+            redeemed = true;
             Integer res = (Integer)(((Map)response.getBody().get("key")).get("user_id"));
             MultiValueMap<String, String> sso_reset_password_body = new LinkedMultiValueMap<>();
             sso_reset_password_body.add("X-User-Id", res.toString());
             sso_reset_password_body.add("New-Password", password);
             var response_sso = integrationRequest.sendPostRequestIntegration("v1/accounts/change-password-sso", sso_reset_password_body);
             if (response_sso.getStatusCode() != HttpStatus.NO_CONTENT) {
+                tokenRepository.unredeemByKey(token);
                 return new ChangeDTO<>(State.Fail, "Unable to update password", response_sso.getBody());
             }
             return new ChangeDTO<>(State.OK, "Password successfully updated", response_sso.getBody());
         }
         catch (RestClientException e) {
+            if (redeemed) {
+                tokenRepository.unredeemByKey(token);
+            }
             return new ChangeDTO<>(State.Fail, "Unable to connect to server, error: " + e.getMessage(), null);
         }
         catch (Exception e) {
@@ -0,0 +1,50 @@
+package com.fuzis.accountsbackend.service;
+
+import com.fuzis.accountsbackend.entity.TokenType;
+import com.fuzis.accountsbackend.repository.TokenTypeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of ACCOUNTS.TOKEN_TYPES, which only changes through migrations. Loaded on first
+ * use; an unknown name reloads it at most once a minute, so a type added later is still picked up
+ * while requests with made-up types cannot turn every lookup into a query.
+ */
+@Component
+public class TokenTypeRegistry {
+    private static final long RELOAD_INTERVAL_MS = 60_000;
+
+    private final TokenTypeRepository tokenTypeRepository;
+
+    private volatile Map<String, TokenType> typesByName;
+
+    private volatile long loadedAt;
+
+    public TokenTypeRegistry(@Autowired TokenTypeRepository tokenTypeRepository) {
+        this.tokenTypeRepository = tokenTypeRepository;
+    }
+
+    public Optional<TokenType> getByName(String name) {
+        Map<String, TokenType> types = typesByName;
+        if (types == null || (!types.containsKey(name) && System.currentTimeMillis() - loadedAt > RELOAD_INTERVAL_MS)) {
+            types = reload();
+        }
+        return Optional.ofNullable(types.get(name));
+    }
+
+    private synchronized Map<String, TokenType> reload() {
+        if (typesByName != null && System.currentTimeMillis() - loadedAt <= RELOAD_INTERVAL_MS) {
+            return typesByName;
+        }
+        Map<String, TokenType> types = tokenTypeRepository.findAll().stream()
+                .collect(Collectors.toUnmodifiableMap(TokenType::getTtName, Function.identity()));
+        typesByName = types;
+        loadedAt = System.currentTimeMillis();
+        return types;
+    }
+}
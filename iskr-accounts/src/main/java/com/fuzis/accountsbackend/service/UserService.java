@@ -11,6 +11,8 @@ import com.fuzis.accountsbackend.transfer.ChangeDTO;
 import com.fuzis.accountsbackend.transfer.SelectDTO;
 import com.fuzis.accountsbackend.transfer.state.State;
 import com.fuzis.accountsbackend.util.IntegrationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -26,6 +28,8 @@ import java.util.Optional;
 @Service
 public class UserService
 {
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
 
     private final UserProfileRepository userProfileRepository;
@@ -92,6 +96,7 @@ public class UserService
         }
         user.get().setUsername(new_username);
         userRepository.save(user.get());
+        evictBooksUserDetail(userId);
         return updateUserSSO(userId, "New-Username", new_username, "update-user-sso");
     }
 
@@ -103,6 +108,7 @@ public class UserService
         var profile = user.get().getProfile();
         profile.setNickname(new_nickname);
         userProfileRepository.save(profile);
+        evictBooksUserDetail(userId);
         return updateUserSSO(userId, "New-Nickname", new_nickname, "update-user-sso");
     }
 
@@ -119,6 +125,7 @@ public class UserService
         profile.setEmail(new_email);
         profile.setEmail_verified(false);
         userProfileRepository.save(profile);
+        evictBooksUserDetail(userId);
         var sso_res = updateUserSSO(userId, "New-Email", new_email, "update-user-sso");
         if(sso_res.getState() != State.OK){
             return sso_res;
@@ -132,6 +139,23 @@ public class UserService
         return new ChangeDTO<>(State.OK, "Email changed, verification code sent", null);
     }
 
+    /**
+     * Asks books to drop its cached user detail page; best effort, books also expires it on its own.
+     */
+    private void evictBooksUserDetail(Integer userId) {
+        try {
+            MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+            body.add("X-User-ID", userId.toString());
+            var response = integrationRequest.sendPostRequestIntegration("v1/books/users/evict-detail", body);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                log.warn("Books user detail eviction for user {} returned {}", userId, response.getStatusCode());
+            }
+        }
+        catch (Exception e) {
+            log.warn("Books user detail eviction for user {} failed: {}", userId, e.getMessage());
+        }
+    }
+
     public ChangeDTO<Object> updateUserSSO(Integer userId, String key, String value, String endpoint){
         try {
             MultiValueMap<String, String> sso_change_body = new LinkedMultiValueMap<>();
@@ -159,6 +183,7 @@ public class UserService
         var profile = user.get().getProfile();
         profile.setStatus(UserStatus.banned);
         userProfileRepository.save(profile);
+        evictBooksUserDetail(userId);
         return updateUserSSO(userId, "X-Account-Banned", "true", "update-account-state-sso");
     }
 
@@ -170,6 +195,7 @@ public class UserService
         var profile = user.get().getProfile();
         profile.setStatus(UserStatus.notBanned);
         userProfileRepository.save(profile);
+        evictBooksUserDetail(userId);
         return updateUserSSO(userId, "X-Account-Banned", "false", "update-account-state-sso");
     }
 
@@ -181,6 +207,7 @@ public class UserService
         var profile = user.get().getProfile();
         profile.setProfile_description(new_description);
         userProfileRepository.save(profile);
+        evictBooksUserDetail(userId);
         return new  ChangeDTO<>(State.OK, "Field changed successfully", null);
     }
 
@@ -192,6 +219,7 @@ public class UserService
         var profile = user.get().getProfile();
         profile.setBirth_date(ZonedDateTime.parse(new_birth_date));
         userProfileRepository.save(profile);
+        evictBooksUserDetail(userId);
         return new  ChangeDTO<>(State.OK, "Field changed successfully", null);
     }
 
@@ -249,6 +277,7 @@ public class UserService
         var profile = user.get().getProfile();
         profile.setUser_imgl_id(imgl.get());
         userProfileRepository.save(profile);
+        evictBooksUserDetail(userId);
         return new  ChangeDTO<>(State.OK, "Field changed successfully", null);
     }
 }
@@ -0,0 +1,211 @@
+package com.fuzis.booksbackend.repository;
+
+import com.fuzis.booksbackend.entity.Book;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Latency of {@link BooksBookCollectionsRepository#findCollectionsCountByBookIds} for a visible-books
+ * page of 50 ids, called through the real Spring Data repository on a seeded Postgres: 200k books,
+ * 100k collections and 3M links with skewed popularity, indexed like changesets v12 and v14.
+ * Needs an empty database to create the BOOKS, ACCOUNTS and IMAGES schemas in and drops them afterwards, so
+ * it only runs with {@code -Dbenchmark.jdbc.url=jdbc:postgresql://...} (plus {@code benchmark.jdbc.user}
+ * and {@code benchmark.jdbc.password}); sizes are tunable through {@code benchmark.books},
+ * {@code benchmark.collections} and {@code benchmark.links}.
+ * Not part of {@code mvn test}; run it with {@code mvn -Pbenchmark test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BookCollectionsCountBenchmark {
+
+    private static final String[] PROPERTIES = {"benchmark.jdbc.url", "benchmark.jdbc.user", "benchmark.jdbc.password",
+            "benchmark.books", "benchmark.collections", "benchmark.links"};
+
+    private static final int PAGE = 50;
+
+    private static final int PAGES = 1024;
+
+    private ConfigurableApplicationContext context;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private BooksBookCollectionsRepository repository;
+
+    private List<List<Integer>> pages;
+
+    private int next;
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BooksBookCollectionsRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                    classes = BooksBookCollectionsRepository.class))
+    static class RepositoryConfiguration {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("benchmark.jdbc.url");
+        int books = Integer.getInteger("benchmark.books", 200_000);
+        int collections = Integer.getInteger("benchmark.collections", 100_000);
+        int links = Integer.getInteger("benchmark.links", 3_000_000);
+
+        Map<String, Object> properties = new HashMap<>();
+        // Без application.yml: он импортирует конфигурацию из Consul
+        properties.put("spring.config.name", "repository-benchmark");
+        properties.put("spring.cloud.consul.enabled", "false");
+        properties.put("spring.cloud.consul.config.import-check.enabled", "false");
+        properties.put("spring.datasource.url", url);
+        properties.put("spring.datasource.username", System.getProperty("benchmark.jdbc.user", ""));
+        properties.put("spring.datasource.password", System.getProperty("benchmark.jdbc.password", ""));
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.properties.hibernate.hbm2ddl.create_namespaces", "true");
+        properties.put("spring.main.banner-mode", "off");
+
+        JdbcTemplate probe = new JdbcTemplate(new DriverManagerDataSource(
+                url, System.getProperty("benchmark.jdbc.user", ""), System.getProperty("benchmark.jdbc.password", "")));
+        Integer existing = probe.queryForObject("SELECT COUNT(*) FROM information_schema.schemata " +
+                "WHERE schema_name IN ('books', 'accounts', 'images')", Integer.class);
+        if (existing != null && existing > 0) {
+            throw new IllegalStateException("benchmark.jdbc.url must point to an empty database, the schemas exist");
+        }
+
+        context = new SpringApplicationBuilder(RepositoryConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        repository = context.getBean(BooksBookCollectionsRepository.class);
+
+        seed(books, collections, links);
+        pages = samplePages(books);
+        verify(pages.get(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS BOOKS CASCADE");
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS ACCOUNTS CASCADE");
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS IMAGES CASCADE");
+        } finally {
+            context.close();
+        }
+    }
+
+    private void seed(int books, int collections, int links) {
+        jdbcTemplate.update("INSERT INTO ACCOUNTS.USERS(username, registered_date) VALUES ('benchmark', now())");
+        jdbcTemplate.update("INSERT INTO BOOKS.BOOKS(title, page_cnt) " +
+                "SELECT 'book ' || i, 100 FROM generate_series(1, ?) i", books);
+        jdbcTemplate.update("INSERT INTO BOOKS.BOOK_COLLECTIONS(owner_id, title, confidentiality, book_collection_type) " +
+                "SELECT (SELECT user_id FROM ACCOUNTS.USERS), 'collection ' || i, 'Public', 'Standard' " +
+                "FROM generate_series(1, ?) i", collections);
+        // Популярность книг сильно неравномерна: немногие книги лежат в большинстве коллекций
+        jdbcTemplate.update("INSERT INTO BOOKS.BOOKS_BOOK_COLLECTIONS(bcols_id, book_id) " +
+                "SELECT 1 + floor(random() * ?)::int, 1 + floor(power(random(), 3) * ?)::int " +
+                "FROM generate_series(1, ?)", collections, books, links);
+        jdbcTemplate.execute("CREATE INDEX ON BOOKS.BOOKS_BOOK_COLLECTIONS(bcols_id, book_id)");
+        jdbcTemplate.execute("CREATE INDEX ON BOOKS.BOOKS_BOOK_COLLECTIONS(book_id)");
+        // Как у давно заполненной таблицы: карта видимости актуальна, index-only scan не ходит в кучу
+        jdbcTemplate.execute("VACUUM ANALYZE BOOKS.BOOKS_BOOK_COLLECTIONS");
+    }
+
+    private static List<List<Integer>> samplePages(int books) {
+        Random random = new Random(42);
+        List<List<Integer>> pages = new ArrayList<>();
+        for (int i = 0; i < PAGES; i++) {
+            pages.add(random.ints(PAGE, 1, books + 1).boxed().toList());
+        }
+        return pages;
+    }
+
+    private void verify(List<Integer> bookIds) {
+        Map<Integer, Long> expected = new HashMap<>();
+        for (Integer bookId : bookIds) {
+            Long count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM BOOKS.BOOKS_BOOK_COLLECTIONS WHERE book_id = ?", Long.class, bookId);
+            if (count != null && count > 0) {
+                expected.put(bookId, count);
+            }
+        }
+        Map<Integer, Long> actual = new HashMap<>();
+        for (Object[] row : repository.findCollectionsCountByBookIds(bookIds)) {
+            actual.put((Integer) row[0], (Long) row[1]);
+        }
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("findCollectionsCountByBookIds disagrees with COUNT(*) per book");
+        }
+    }
+
+    @Benchmark
+    public List<Object[]> pageOfBooks() {
+        List<Integer> page = pages.get(next);
+        next = (next + 1) & (PAGES - 1);
+        return repository.findCollectionsCountByBookIds(page);
+    }
+
+    @Test
+    void pageOfBooksIsIndexBacked() throws Exception {
+        assumeTrue(System.getProperty("benchmark.jdbc.url") != null, "benchmark.jdbc.url is not set");
+        // Настройки базы и размеры передаются в форк JMH
+        List<String> jvmArgs = new ArrayList<>();
+        for (String property : PROPERTIES) {
+            if (System.getProperty(property) != null) {
+                jvmArgs.add("-D" + property + "=" + System.getProperty(property));
+            }
+        }
+        Options options = new OptionsBuilder()
+                .include(BookCollectionsCountBenchmark.class.getName())
+                .forks(1)
+                .jvmArgsAppend(jvmArgs.toArray(String[]::new))
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(2))
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        double time = results.iterator().next().getPrimaryResult().getScore();
+        System.out.printf("findCollectionsCountByBookIds, page of %d: %.3f ms/op%n", PAGE, time);
+
+        // С индексом по book_id около 5 мс, без него запрос сканирует всю таблицу: около 400 мс
+        assertTrue(time < 50);
+    }
+}
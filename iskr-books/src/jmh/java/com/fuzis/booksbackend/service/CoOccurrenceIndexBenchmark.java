@@ -0,0 +1,127 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.repository.BookRecommendationRepository.BookNeighbours;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cost of the recommendation job's in-memory part on a synthetic catalogue of 200k books in 100k
+ * collections with skewed popularity: a full run (neighbours of every book) and an incremental one
+ * (merging a thousand new links and recomputing the affected books). Reading and writing the
+ * database is not included. With skewed popularity new links usually touch a popular book, whose
+ * degree change reaches most of the catalogue, so the incremental run mostly saves the reading.
+ * The JUnit test runs a short JMH session with the GC profiler and prints time and bytes per op.
+ * Not part of {@code mvn test}; run it with {@code mvn -Pbenchmark test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CoOccurrenceIndexBenchmark {
+
+    private static final int BOOKS = 200_000;
+    private static final int BASKETS = 100_000;
+    private static final int TOP_N = 20;
+    private static final int MIN_CO_OCCURRENCE = 2;
+    private static final int MAX_BASKET_SIZE = 1000;
+
+    private ForkJoinPool pool;
+
+    private CoOccurrenceIndex index;
+
+    private CoOccurrenceIndex delta;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        Random random = new Random(42);
+        index = baskets(random, 0, BASKETS, 2, 20);
+        // Новые связи: часть в существующих подборках, часть в новых
+        delta = baskets(random, BASKETS - 500, BASKETS + 500, 1, 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    // Квадрат равномерной величины: популярные книги с малыми id встречаются на порядки чаще хвоста
+    private static CoOccurrenceIndex baskets(Random random, int fromId, int toId, int minSize, int maxSize) {
+        CoOccurrenceIndex.Builder builder = new CoOccurrenceIndex.Builder(MAX_BASKET_SIZE);
+        for (int id = fromId; id < toId; id++) {
+            int[] books = new int[minSize + random.nextInt(maxSize - minSize + 1)];
+            for (int i = 0; i < books.length; i++) {
+                double u = random.nextDouble();
+                books[i] = (int) (BOOKS * u * u);
+            }
+            Arrays.sort(books);
+            for (int book : books) {
+                builder.add(id, book);
+            }
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public BookNeighbours[] full() {
+        return index.neighbours(index.books(), TOP_N, MIN_CO_OCCURRENCE, pool);
+    }
+
+    @Benchmark
+    public BookNeighbours[] incremental() {
+        CoOccurrenceIndex merged = index.merge(delta);
+        return merged.neighbours(merged.affectedBy(delta), TOP_N, MIN_CO_OCCURRENCE, pool);
+    }
+
+    @Test
+    void fullRunFitsInTwoSeconds() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CoOccurrenceIndexBenchmark.class.getName())
+                .forks(1)
+                .jvmArgsAppend("-Xmx2g")
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(2))
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Double> time = new HashMap<>();
+        Map<String, Double> alloc = new HashMap<>();
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark();
+            name = name.substring(name.lastIndexOf('.') + 1);
+            time.put(name, result.getPrimaryResult().getScore());
+            alloc.put(name, result.getSecondaryResults().get("gc.alloc.rate.norm").getScore());
+        }
+        for (String name : time.keySet()) {
+            System.out.printf("%-12s %8.1f ms/op %12.0f B/op%n", name, time.get(name), alloc.get(name));
+        }
+
+        assertTrue(time.get("full") < 2000);
+    }
+}
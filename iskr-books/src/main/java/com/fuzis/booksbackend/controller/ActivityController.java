@@ -0,0 +1,29 @@
+package com.fuzis.booksbackend.controller;
+
+import com.fuzis.booksbackend.service.ActivityFeedService;
+import com.fuzis.booksbackend.transfer.ChangeDTO;
+import com.fuzis.booksbackend.util.HttpUtil;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+@Validated
+@RestController
+@RequestMapping("/api/v1/activity")
+@RequiredArgsConstructor
+public class ActivityController {
+
+    private final ActivityFeedService activityFeedService;
+    private final HttpUtil httpUtil;
+
+    @GetMapping("/feed")
+    public ResponseEntity<ChangeDTO<Object>> getFeed(
+            @RequestHeader @Min(1) Integer userId,
+            @RequestParam(required = false) @Min(1) Long before,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) Integer batch) {
+        return httpUtil.handleServiceResponse(activityFeedService.getFeed(userId, before, batch));
+    }
+}
@@ -1,5 +1,7 @@
 package com.fuzis.booksbackend.controller;
 
+import com.fuzis.booksbackend.service.BookImportService;
+import com.fuzis.booksbackend.service.BookRecommendationService;
 import com.fuzis.booksbackend.service.BookService;
 import com.fuzis.booksbackend.transfer.BookCreateDTO;
 import com.fuzis.booksbackend.transfer.BookReviewRequestDTO;
@@ -7,18 +9,26 @@ import com.fuzis.booksbackend.transfer.BookUpdateDTO;
 import com.fuzis.booksbackend.transfer.ChangeDTO;
 import com.fuzis.booksbackend.util.HttpUtil;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+
 @Validated
 @RestController
 @RequestMapping("/api/v1/books")
 @RequiredArgsConstructor
 public class BookController {
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookRecommendationService bookRecommendationService;
     private final HttpUtil httpUtil;
 
     @PostMapping
@@ -28,12 +38,30 @@ public class BookController {
         return httpUtil.handleServiceResponse(bookService.createBook(userId, bookCreateDTO));
     }
 
+    // Массовый импорт каталога: тело читается потоком, CSV или NDJSON
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ChangeDTO<Object>> importBooks(
+            @RequestHeader Integer userId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        return httpUtil.handleServiceResponse(bookImportService.importBooks(userId, contentType, body));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ChangeDTO<Object>> getBookById(
             @PathVariable @Min(1) Integer id) {
         return httpUtil.handleServiceResponse(bookService.getBookDetail(id));
     }
 
+    // Предрасчитанные соседи книги: "похожие" (по коллекциям) и "также добавляли" (по читателям)
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<ChangeDTO<Object>> getBookRecommendations(
+            @PathVariable @Min(1) Integer id,
+            @RequestParam(defaultValue = "similar") @Pattern(regexp = "similar|also-added") String kind,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(50) Integer limit) {
+        return httpUtil.handleServiceResponse(bookRecommendationService.getRecommendations(id, kind, limit));
+    }
+
     @GetMapping("/{id}/reviews")
     public ResponseEntity<ChangeDTO<Object>> getBookReviews(
             @PathVariable @Min(1) Integer id,
@@ -10,6 +10,8 @@
     import org.springframework.validation.annotation.Validated;
     import org.springframework.web.bind.annotation.*;
     
+    import java.util.List;
+    
     @Validated
     @RestController
     @RequestMapping("/api/v1/collections")
@@ -153,6 +155,15 @@
             );
         }
     
+        @GetMapping("/membership")
+        public ResponseEntity<ChangeDTO<Object>> getBooksMembership(
+                @RequestHeader(required = false) Integer userId,
+                @RequestParam List<Integer> bookIds) {
+            return httpUtil.handleServiceResponse(
+                    collectionService.getBooksMembership(userId, bookIds)
+            );
+        }
+
         @GetMapping("/{collectionId}/books/{bookId}/exists")
         public ResponseEntity<ChangeDTO<Object>> checkBookInCollection(
                 @RequestHeader(required = false) Integer userId,
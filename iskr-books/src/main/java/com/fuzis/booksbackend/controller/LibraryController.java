@@ -3,11 +3,15 @@ package com.fuzis.booksbackend.controller;
 import com.fuzis.booksbackend.service.LibraryService;
 import com.fuzis.booksbackend.transfer.ChangeDTO;
 import com.fuzis.booksbackend.util.HttpUtil;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Validated
 @RestController
@@ -20,19 +24,54 @@ public class LibraryController {
 
     @GetMapping("/visible-collections")
     public ResponseEntity<ChangeDTO<Object>> getVisibleCollections(
-            @RequestHeader @Min(1) Integer userId) {
-        return httpUtil.handleServiceResponse(libraryService.getVisibleCollections(userId));
+            @RequestHeader @Min(1) Integer userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") @Pattern(regexp = "id|title") String sort,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) Integer batch) {
+        return httpUtil.handleServiceResponse(libraryService.getVisibleCollections(userId, cursor, sort, batch));
     }
 
     @GetMapping("/visible-books")
     public ResponseEntity<ChangeDTO<Object>> getVisibleBooks(
-            @RequestHeader @Min(1) Integer userId) {
-        return httpUtil.handleServiceResponse(libraryService.getVisibleBooks(userId));
+            @RequestHeader @Min(1) Integer userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") @Pattern(regexp = "id|title") String sort,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) Integer batch) {
+        return httpUtil.handleServiceResponse(libraryService.getVisibleBooks(userId, cursor, sort, batch));
     }
 
     @GetMapping("/wishlist-books")
     public ResponseEntity<ChangeDTO<Object>> getWishlistBooks(
-            @RequestHeader @Min(1) Integer userId) {
-        return httpUtil.handleServiceResponse(libraryService.getWishlistBooks(userId));
+            @RequestHeader @Min(1) Integer userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "added") @Pattern(regexp = "added|title") String sort,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) Integer batch) {
+        return httpUtil.handleServiceResponse(libraryService.getWishlistBooks(userId, cursor, sort, batch));
     }
-}
\ No newline at end of file
+
+    // Полные ленты построчно в NDJSON, без накопления в памяти
+    @GetMapping(value = "/visible-collections/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVisibleCollections(
+            @RequestHeader @Min(1) Integer userId,
+            @RequestParam(defaultValue = "id") @Pattern(regexp = "id|title") String sort) {
+        return ndjson(libraryService.streamVisibleCollections(userId, sort));
+    }
+
+    @GetMapping(value = "/visible-books/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVisibleBooks(
+            @RequestHeader @Min(1) Integer userId,
+            @RequestParam(defaultValue = "id") @Pattern(regexp = "id|title") String sort) {
+        return ndjson(libraryService.streamVisibleBooks(userId, sort));
+    }
+
+    @GetMapping(value = "/wishlist-books/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamWishlistBooks(
+            @RequestHeader @Min(1) Integer userId,
+            @RequestParam(defaultValue = "added") @Pattern(regexp = "added|title") String sort) {
+        return ndjson(libraryService.streamWishlistBooks(userId, sort));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -3,6 +3,7 @@ package com.fuzis.booksbackend.controller;
 import com.fuzis.booksbackend.service.SubscriberService;
 import com.fuzis.booksbackend.transfer.ChangeDTO;
 import com.fuzis.booksbackend.util.HttpUtil;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -55,6 +56,14 @@ public class SubscriberController {
         return httpUtil.handleServiceResponse(subscriberService.isSubscriber(userId, userOnId));
     }
 
+    @GetMapping("/mutual-subscribers")
+    public ResponseEntity<ChangeDTO<Object>> getMutualSubscribers(
+            @RequestHeader @Min(1) Integer userId,
+            @RequestParam @Min(1) Integer userOnId,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(500) Integer limit) {
+        return httpUtil.handleServiceResponse(subscriberService.getMutualSubscribers(userId, userOnId, limit));
+    }
+
     @GetMapping("/subscribers-count/{userId}")
     public ResponseEntity<ChangeDTO<Object>> countSubscribers(
             @PathVariable @Min(1) Integer userId) {
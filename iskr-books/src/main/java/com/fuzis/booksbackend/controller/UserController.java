@@ -22,6 +22,12 @@ public class UserController {
         return httpUtil.handleServiceResponse(userService.getUserDetail(userId));
     }
 
+    @PostMapping("/{userId}/detail/evict")
+    public ResponseEntity<ChangeDTO<Object>> evictUserDetail(
+            @PathVariable @Min(1) Integer userId) {
+        return httpUtil.handleServiceResponse(userService.evictUserDetail(userId));
+    }
+
     @GetMapping("/{userId}/subscribers")
     public ResponseEntity<ChangeDTO<Object>> getUserSubscribers(
             @PathVariable @Min(1) Integer userId,
@@ -0,0 +1,29 @@
+package com.fuzis.booksbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "BOOK_REVIEW_STATS", schema = "BOOKS")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookReviewStats {
+    @Id
+    @Column(name = "book_id")
+    private Integer bookId;
+
+    @Column(name = "reviews_count", nullable = false)
+    private Integer reviewsCount;
+
+    @Column(name = "score_sum", nullable = false)
+    private Long scoreSum;
+
+    // Количество оценок 1..10, элемент i — оценка i + 1
+    @Column(name = "histogram", nullable = false)
+    private int[] histogram;
+}
@@ -33,4 +33,10 @@ public class ImageData {
 
     @Column(name = "extension", nullable = false, length = 10)
     private String extension;
+
+    @Column(name = "variant_widths")
+    private Integer[] variantWidths;
+
+    @Column(name = "variant_format", length = 10)
+    private String variantFormat;
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.fuzis.booksbackend.entity.enumerate;
+
+public enum ActivityType {
+    CollectionCreated,
+    BookAddedToCollection,
+    BookReviewed
+}
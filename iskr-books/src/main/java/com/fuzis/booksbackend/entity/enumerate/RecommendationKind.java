@@ -0,0 +1,6 @@
+package com.fuzis.booksbackend.entity.enumerate;
+
+public enum RecommendationKind {
+    Similar,
+    AlsoAdded
+}
@@ -0,0 +1,144 @@
+package com.fuzis.booksbackend.repository;
+
+import com.fuzis.booksbackend.entity.enumerate.ActivityType;
+import com.fuzis.booksbackend.transfer.ActivityEventDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Activity events and the per-subscriber timelines they are fanned out to. An event of a user with
+ * few subscribers is copied into every subscriber's timeline at write time; an event of a user with
+ * many subscribers is stored once ({@code fanned_out = false}) and merged into each reader's feed
+ * at read time. Feed pages are keyset-paged by event id, newest first.
+ */
+@Repository
+public class ActivityRepository {
+
+    // Обе ветки ограничены страницей: таймлайн читается по PK, события популярных авторов —
+    // по частичному индексу, не больше страницы на каждую подписку
+    private static final String FEED_QUERY =
+            "SELECT e.event_id, e.activity_type, e.actor_id, u.username, e.created_at, " +
+            "       e.bcols_id, c.title, e.book_id, b.title, e.rvw_id, r.score " +
+            "FROM ((SELECT t.event_id FROM BOOKS.ACTIVITY_TIMELINES t " +
+            "       JOIN BOOKS.ACTIVITY_EVENTS e ON e.event_id = t.event_id " +
+            "       LEFT JOIN BOOKS.BOOK_COLLECTIONS c ON c.bcols_id = e.bcols_id " +
+            "       WHERE t.user_id = ? AND t.event_id < ? " +
+            "         AND (e.bcols_id IS NULL OR c.confidentiality = 'Public') " +
+            "       ORDER BY t.event_id DESC LIMIT ?) " +
+            "      UNION " +
+            "      (SELECT p.event_id FROM BOOKS.SUBSCRIBERS s " +
+            "       CROSS JOIN LATERAL (SELECT e.event_id FROM BOOKS.ACTIVITY_EVENTS e " +
+            "           LEFT JOIN BOOKS.BOOK_COLLECTIONS c ON c.bcols_id = e.bcols_id " +
+            "           WHERE e.actor_id = s.subs_user_on_id AND NOT e.fanned_out AND e.event_id < ? " +
+            "             AND (e.bcols_id IS NULL OR c.confidentiality = 'Public') " +
+            "           ORDER BY e.event_id DESC LIMIT ?) p " +
+            "       WHERE s.subs_user_id = ? " +
+            "       ORDER BY p.event_id DESC LIMIT ?)) ids " +
+            "JOIN BOOKS.ACTIVITY_EVENTS e ON e.event_id = ids.event_id " +
+            "JOIN ACCOUNTS.USERS u ON u.user_id = e.actor_id " +
+            "LEFT JOIN BOOKS.BOOK_COLLECTIONS c ON c.bcols_id = e.bcols_id " +
+            "LEFT JOIN BOOKS.BOOKS b ON b.book_id = e.book_id " +
+            "LEFT JOIN BOOKS.BOOK_REVIEWS r ON r.rvw_id = e.rvw_id " +
+            "ORDER BY e.event_id DESC LIMIT ?";
+
+    private static final RowMapper<ActivityEventDTO> EVENT_MAPPER = (rs, rowNum) -> {
+        Timestamp createdAt = rs.getTimestamp(5);
+        return new ActivityEventDTO(
+                rs.getLong(1),
+                rs.getString(2),
+                rs.getInt(3),
+                rs.getString(4),
+                createdAt != null ? createdAt.toLocalDateTime() : null,
+                rs.getObject(6, Integer.class),
+                rs.getString(7),
+                rs.getObject(8, Integer.class),
+                rs.getString(9),
+                rs.getObject(10, Integer.class),
+                rs.getObject(11, Integer.class));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ActivityRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long insertEvent(Integer actorId, ActivityType type, Integer collectionId, Integer bookId,
+                            Integer reviewId, boolean fannedOut) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO BOOKS.ACTIVITY_EVENTS(actor_id, activity_type, bcols_id, book_id, rvw_id, fanned_out) " +
+                        "VALUES (?, ?, ?, ?, ?, ?) RETURNING event_id",
+                Long.class, actorId, type.name(), nullableInt(collectionId), nullableInt(bookId),
+                nullableInt(reviewId), fannedOut);
+    }
+
+    /**
+     * Copies the event into the timeline of every current subscriber of the actor in one statement.
+     *
+     * @return the number of timelines written
+     */
+    public int fanOut(long eventId, Integer actorId) {
+        return jdbcTemplate.update(
+                "INSERT INTO BOOKS.ACTIVITY_TIMELINES(user_id, event_id) " +
+                        "SELECT DISTINCT s.subs_user_id, ? FROM BOOKS.SUBSCRIBERS s WHERE s.subs_user_on_id = ? " +
+                        "ON CONFLICT DO NOTHING",
+                eventId, actorId);
+    }
+
+    /**
+     * @param beforeEventId exclusive upper bound, {@link Long#MAX_VALUE} for the first page
+     */
+    public List<ActivityEventDTO> findFeedPage(Integer userId, long beforeEventId, int limit) {
+        return jdbcTemplate.query(FEED_QUERY, EVENT_MAPPER,
+                userId, beforeEventId, limit, beforeEventId, limit, userId, limit, limit);
+    }
+
+    public long findLastEventId() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(event_id), 0) FROM BOOKS.ACTIVITY_EVENTS", Long.class);
+    }
+
+    /**
+     * @return the users whose timelines received an event in {@code (afterEventId, upToEventId]}
+     */
+    public List<Integer> findTimelineUsersBetween(long afterEventId, long upToEventId) {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM BOOKS.ACTIVITY_TIMELINES WHERE event_id > ? AND event_id <= ?",
+                Integer.class, afterEventId, upToEventId);
+    }
+
+    /**
+     * Drops the timeline rows of the given users that are older than their {@code maxSize}-th newest.
+     * The cutoff of each user is read from the end of its primary key range and the delete is a range
+     * on the same key, so the cost depends on the users trimmed, not on the table.
+     *
+     * @return the number of rows deleted
+     */
+    public int trimTimelines(List<Integer> userIds, int maxSize) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM BOOKS.ACTIVITY_TIMELINES t USING (" +
+                            "  SELECT u.user_id, (SELECT k.event_id FROM BOOKS.ACTIVITY_TIMELINES k " +
+                            "                     WHERE k.user_id = u.user_id " +
+                            "                     ORDER BY k.event_id DESC OFFSET ? LIMIT 1) AS cutoff " +
+                            "  FROM unnest(?) AS u(user_id)) c " +
+                            "WHERE t.user_id = c.user_id AND t.event_id < c.cutoff");
+            statement.setInt(1, maxSize - 1);
+            statement.setArray(2, connection.createArrayOf("integer", userIds.toArray()));
+            return statement;
+        });
+    }
+
+    private static Object nullableInt(Integer value) {
+        return value != null ? value : new SqlParameterValue(Types.INTEGER, null);
+    }
+}
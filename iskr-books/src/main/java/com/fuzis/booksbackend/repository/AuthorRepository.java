@@ -2,6 +2,7 @@ package com.fuzis.booksbackend.repository;
 
 import com.fuzis.booksbackend.entity.Author;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +10,7 @@ import java.util.List;
 @Repository
 public interface AuthorRepository extends JpaRepository<Author, Integer> {
     List<Author> findByAuthorIdIn(List<Integer> ids);
+
+    @Query("SELECT a.authorId, a.name FROM Author a")
+    List<Object[]> findAllIdsAndNames();
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.fuzis.booksbackend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batched JDBC writes for the bulk book import. Book ids are taken from the BOOKS sequence up front,
+ * so author/genre links can be batched right after the books without reading generated keys back.
+ * Books are inserted with ON CONFLICT DO NOTHING, so a clash with an existing book skips that row
+ * instead of failing the whole batch.
+ */
+@Repository
+public class BookImportRepository {
+
+    public record ImportedBook(int bookId, String isbn, String title, String subtitle,
+                               String description, Integer pageCnt, Integer addedBy) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Integer> allocateBookIds(int count) {
+        return jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('BOOKS.BOOKS', 'book_id'))::int FROM generate_series(1, ?)",
+                Integer.class, count);
+    }
+
+    /**
+     * @return per book, whether it was inserted
+     */
+    public boolean[] insertBooks(List<ImportedBook> books) {
+        int[] counts = jdbcTemplate.batchUpdate(
+                "INSERT INTO BOOKS.BOOKS(book_id, isbn, title, subtitle, description, page_cnt, added_by) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING",
+                books, books.size(), (ps, book) -> {
+                    ps.setInt(1, book.bookId());
+                    ps.setString(2, book.isbn());
+                    ps.setString(3, book.title());
+                    ps.setString(4, book.subtitle());
+                    ps.setString(5, book.description());
+                    ps.setInt(6, book.pageCnt());
+                    ps.setObject(7, book.addedBy(), Types.INTEGER);
+                })[0];
+        boolean[] inserted = new boolean[books.size()];
+        boolean unknown = false;
+        for (int i = 0; i < counts.length; i++) {
+            inserted[i] = counts[i] > 0;
+            unknown |= counts[i] == Statement.SUCCESS_NO_INFO;
+        }
+        if (unknown) {
+            // Драйвер не вернул счётчики по строкам (reWriteBatchedInserts) — смотрим, какие id появились
+            Set<Integer> present = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT book_id FROM BOOKS.BOOKS WHERE book_id = ANY (?)", Integer.class,
+                    (Object) books.stream().map(ImportedBook::bookId).toArray(Integer[]::new)));
+            for (int i = 0; i < books.size(); i++) {
+                inserted[i] = present.contains(books.get(i).bookId());
+            }
+        }
+        return inserted;
+    }
+
+    public void insertAuthorLinks(Collection<int[]> links) {
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO BOOKS.BOOKS_AUTHORS(book_id, author_id) VALUES (?, ?)",
+                    links, links.size(), (ps, link) -> {
+                        ps.setInt(1, link[0]);
+                        ps.setInt(2, link[1]);
+                    });
+        }
+    }
+
+    public void insertGenreLinks(Collection<int[]> links) {
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO BOOKS.BOOKS_GENRES(book_id, genre_id) VALUES (?, ?)",
+                    links, links.size(), (ps, link) -> {
+                        ps.setInt(1, link[0]);
+                        ps.setInt(2, link[1]);
+                    });
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.fuzis.booksbackend.repository;
+
+import com.fuzis.booksbackend.entity.enumerate.RecommendationKind;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Inputs and output of the item-to-item recommendation job. Baskets are read as one ordered stream of
+ * (basket, book) rows: a basket is a collection for {@link RecommendationKind#Similar} and a user
+ * (books in their collections plus their reading statuses) for {@link RecommendationKind#AlsoAdded};
+ * passing the previous run's watermarks reads only the rows added since, zero reads everything. The top neighbours of a book are
+ * stored as parallel arrays in one row, so serving them is a single primary key lookup.
+ */
+@Repository
+public class BookRecommendationRepository {
+
+    public record BookNeighbours(int bookId, int[] similarIds, float[] scores) {
+    }
+
+    @FunctionalInterface
+    public interface BasketRowHandler {
+        void row(int basketId, int bookId);
+    }
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookRecommendationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long findMaxCollectionLinkId() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(c_book_bcol_id), 0) FROM BOOKS.BOOKS_BOOK_COLLECTIONS", Long.class);
+    }
+
+    public long findMaxReadingStatusId() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(brs_id), 0) FROM BOOKS.BOOK_READING_STATUS", Long.class);
+    }
+
+    /**
+     * Streams collection links newer than {@code linkWatermark} ordered by collection and book. Must run
+     * inside a transaction, otherwise the driver ignores the fetch size and buffers the whole result.
+     */
+    public void forEachCollectionBasketRow(long linkWatermark, BasketRowHandler handler) {
+        stream("SELECT bbc.bcols_id, bbc.book_id FROM BOOKS.BOOKS_BOOK_COLLECTIONS bbc " +
+                        "WHERE bbc.c_book_bcol_id > ? ORDER BY 1, 2",
+                handler, linkWatermark);
+    }
+
+    /**
+     * Streams user basket rows newer than the watermarks ordered by user and book; same transaction
+     * requirement as above.
+     */
+    public void forEachUserBasketRow(long linkWatermark, long readingStatusWatermark, BasketRowHandler handler) {
+        stream("SELECT c.owner_id, bbc.book_id FROM BOOKS.BOOKS_BOOK_COLLECTIONS bbc " +
+                        "JOIN BOOKS.BOOK_COLLECTIONS c ON c.bcols_id = bbc.bcols_id " +
+                        "WHERE bbc.c_book_bcol_id > ? " +
+                        "UNION ALL " +
+                        "SELECT brs.user_id, brs.book_id FROM BOOKS.BOOK_READING_STATUS brs " +
+                        "WHERE brs.brs_id > ? " +
+                        "ORDER BY 1, 2",
+                handler, linkWatermark, readingStatusWatermark);
+    }
+
+    /**
+     * Upserts the lists; books deleted since the baskets were read are skipped.
+     */
+    public void saveNeighbours(RecommendationKind kind, List<BookNeighbours> neighbours, Timestamp computedAt) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO BOOKS.BOOK_RECOMMENDATIONS(book_id, kind, similar_ids, scores, computed_at) " +
+                        "SELECT ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM BOOKS.BOOKS WHERE book_id = ?) " +
+                        "ON CONFLICT (book_id, kind) DO UPDATE " +
+                        "SET similar_ids = EXCLUDED.similar_ids, scores = EXCLUDED.scores, computed_at = EXCLUDED.computed_at",
+                neighbours, neighbours.size(), (ps, n) -> {
+                    Connection connection = ps.getConnection();
+                    Integer[] ids = new Integer[n.similarIds().length];
+                    Float[] scores = new Float[n.scores().length];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = n.similarIds()[i];
+                        scores[i] = n.scores()[i];
+                    }
+                    ps.setInt(1, n.bookId());
+                    ps.setString(2, kind.name());
+                    ps.setArray(3, connection.createArrayOf("integer", ids));
+                    ps.setArray(4, connection.createArrayOf("real", scores));
+                    ps.setTimestamp(5, computedAt);
+                    ps.setInt(6, n.bookId());
+                });
+    }
+
+    /**
+     * Removes the rows a full run did not rewrite, i.e. books that no longer share any basket.
+     */
+    public int deleteComputedBefore(RecommendationKind kind, Timestamp computedAt) {
+        return jdbcTemplate.update(
+                "DELETE FROM BOOKS.BOOK_RECOMMENDATIONS WHERE kind = ? AND computed_at < ?",
+                kind.name(), computedAt);
+    }
+
+    public Optional<BookNeighbours> findNeighbours(Integer bookId, RecommendationKind kind) {
+        return jdbcTemplate.query(
+                "SELECT similar_ids, scores FROM BOOKS.BOOK_RECOMMENDATIONS WHERE book_id = ? AND kind = ?",
+                rs -> {
+                    if (!rs.next()) {
+                        return Optional.empty();
+                    }
+                    Integer[] ids = (Integer[]) rs.getArray(1).getArray();
+                    Float[] scores = (Float[]) rs.getArray(2).getArray();
+                    int[] similarIds = new int[ids.length];
+                    float[] similarScores = new float[scores.length];
+                    for (int i = 0; i < ids.length; i++) {
+                        similarIds[i] = ids[i];
+                        similarScores[i] = scores[i];
+                    }
+                    return Optional.of(new BookNeighbours(bookId, similarIds, similarScores));
+                },
+                bookId, kind.name());
+    }
+
+    /**
+     * Holds a session-level advisory lock on a dedicated connection while {@code action} runs,
+     * so only one instance computes recommendations at a time.
+     *
+     * @return false if another instance holds the lock
+     */
+    public boolean runExclusively(long lockKey, Runnable action) {
+        Boolean ran = jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement lock = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                lock.setLong(1, lockKey);
+                try (var rs = lock.executeQuery()) {
+                    rs.next();
+                    if (!rs.getBoolean(1)) {
+                        return false;
+                    }
+                }
+            }
+            try {
+                action.run();
+                return true;
+            } finally {
+                try (PreparedStatement unlock = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                    unlock.setLong(1, lockKey);
+                    unlock.execute();
+                }
+            }
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    private void stream(String sql, BasketRowHandler handler, Object... args) {
+        RowCallbackHandler callback = rs -> handler.row(rs.getInt(1), rs.getInt(2));
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, callback);
+    }
+}
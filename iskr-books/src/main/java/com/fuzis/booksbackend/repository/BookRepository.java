@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +29,9 @@ public interface BookRepository extends JpaRepository<Book, Integer> {
 
     boolean existsByIsbn(String isbn);
 
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
     boolean existsByPhotoLink_ImglId(Integer photoLink);
 
     @Query("SELECT CASE WHEN COUNT(b) > 0 THEN true ELSE false END " +
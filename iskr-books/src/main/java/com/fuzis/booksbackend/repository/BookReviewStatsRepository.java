@@ -0,0 +1,27 @@
+package com.fuzis.booksbackend.repository;
+
+import com.fuzis.booksbackend.entity.BookReviewStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BookReviewStatsRepository extends JpaRepository<BookReviewStats, Integer> {
+
+    @Modifying
+    @Query(value = "INSERT INTO BOOKS.BOOK_REVIEW_STATS(book_id) VALUES (:bookId) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    void ensureExists(@Param("bookId") Integer bookId);
+
+    // Атомарный инкремент в строке агрегата: конкурентные отзывы на одну книгу сериализуются блокировкой строки
+    @Modifying
+    @Query(value = "UPDATE BOOKS.BOOK_REVIEW_STATS " +
+            "SET reviews_count = reviews_count + :delta, " +
+            "    score_sum = score_sum + :delta * :score, " +
+            "    histogram[:score] = histogram[:score] + :delta " +
+            "WHERE book_id = :bookId",
+            nativeQuery = true)
+    int addScore(@Param("bookId") Integer bookId, @Param("score") Integer score, @Param("delta") Integer delta);
+}
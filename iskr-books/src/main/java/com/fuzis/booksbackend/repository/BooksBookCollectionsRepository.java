@@ -4,12 +4,15 @@ import com.fuzis.booksbackend.entity.BooksBookCollections;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Repository
 public interface BooksBookCollectionsRepository extends JpaRepository<BooksBookCollections, Integer> {
@@ -26,6 +29,13 @@ public interface BooksBookCollectionsRepository extends JpaRepository<BooksBookC
             "GROUP BY bbc.bookCollection.bcolsId")
     List<Object[]> findBookCountsByCollectionIds(@Param("collectionIds") List<Integer> collectionIds);
 
+    // Количество коллекций по книгам, тот же запрос, что и в синхронизации поиска (индекс по book_id)
+    @Query("SELECT bbc.book.bookId, COUNT(bbc) as collectionsCount " +
+            "FROM BooksBookCollections bbc " +
+            "WHERE bbc.book.bookId IN :bookIds " +
+            "GROUP BY bbc.book.bookId")
+    List<Object[]> findCollectionsCountByBookIds(@Param("bookIds") List<Integer> bookIds);
+
     List<BooksBookCollections> findByBook_BookIdIn(List<Integer> bookIds);
 
     @Query("SELECT bbc FROM BooksBookCollections bbc " +
@@ -47,4 +57,31 @@ public interface BooksBookCollectionsRepository extends JpaRepository<BooksBookC
     @Query("SELECT COUNT(bc) FROM BooksBookCollections bc WHERE bc.bookCollection.bcolsId = :bcolsId")
     long countByBookCollectionId(@Param("bcolsId") Integer bcolsId);
 
-}
\ No newline at end of file
+    // Проверки принадлежности книги коллекции по индексу (bcols_id, book_id), без загрузки всех связей книги
+    @Query("SELECT COUNT(bbc) > 0 FROM BooksBookCollections bbc " +
+            "WHERE bbc.bookCollection.bcolsId = :collectionId AND bbc.book.bookId = :bookId")
+    boolean existsInCollection(@Param("collectionId") Integer collectionId, @Param("bookId") Integer bookId);
+
+    @Query("SELECT bbc.cBookBcolId FROM BooksBookCollections bbc " +
+            "WHERE bbc.bookCollection.bcolsId = :collectionId AND bbc.book.bookId = :bookId")
+    List<Integer> findLinkIds(@Param("collectionId") Integer collectionId, @Param("bookId") Integer bookId);
+
+    default Optional<Integer> findLinkId(Integer collectionId, Integer bookId) {
+        return findLinkIds(collectionId, bookId).stream().findFirst();
+    }
+
+    @Modifying
+    @Query("DELETE FROM BooksBookCollections bbc " +
+            "WHERE bbc.bookCollection.bcolsId = :collectionId AND bbc.book.bookId = :bookId")
+    int deleteFromCollection(@Param("collectionId") Integer collectionId, @Param("bookId") Integer bookId);
+
+    @Query("SELECT bbc.book.bookId FROM BooksBookCollections bbc WHERE bbc.bookCollection.bcolsId = :collectionId")
+    List<Integer> findBookIdsByCollectionId(@Param("collectionId") Integer collectionId);
+
+    // Принадлежность пачки книг коллекциям пользователя: bookId, bcolsId, тип коллекции
+    @Query("SELECT bbc.book.bookId, bc.bcolsId, bc.collectionType " +
+            "FROM BooksBookCollections bbc JOIN bbc.bookCollection bc " +
+            "WHERE bc.owner.userId = :userId AND bbc.book.bookId IN :bookIds")
+    List<Object[]> findMembershipsByOwner(@Param("userId") Integer userId, @Param("bookIds") Collection<Integer> bookIds);
+
+}
@@ -3,6 +3,7 @@ package com.fuzis.booksbackend.repository;
 
 import com.fuzis.booksbackend.entity.Genre;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +13,7 @@ public interface GenreRepository extends JpaRepository<Genre, Integer> {
     List<Genre> findByGenreIdIn(List<Integer> ids);
     boolean existsByName(String name);
     boolean existsByNameAndGenreIdNot(String name, Integer genreId);
+
+    @Query("SELECT g.genreId, g.name FROM Genre g")
+    List<Object[]> findAllIdsAndNames();
 }
\ No newline at end of file
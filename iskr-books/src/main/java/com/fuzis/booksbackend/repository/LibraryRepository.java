@@ -1,23 +1,96 @@
 package com.fuzis.booksbackend.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.fuzis.booksbackend.entity.Book;
 import com.fuzis.booksbackend.entity.BookCollection;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface LibraryRepository extends JpaRepository<Book, Integer> {
 
-    @Query(value = "SELECT * FROM BOOKS.GET_VISIBLE_COLLECTIONS_FOR_USER(:userId)", nativeQuery = true)
-    List<Object[]> findVisibleCollectionsForUser(@Param("userId") Integer userId);
+    // Ленты библиотеки с keyset-пагинацией. Каждая строка: id сущности, title, seq (ключ для курсора).
+    // Сортировка либо по seq, либо по (title, seq); :afterTitle/:afterSeq — позиция последней отданной строки.
 
-    @Query(value = "SELECT * FROM BOOKS.GET_VISIBLE_BOOKS_FOR_USER(:userId)", nativeQuery = true)
-    List<Object[]> findVisibleBooksForUser(@Param("userId") Integer userId);
+    String VISIBLE_BOOKS_FEED = """
+        SELECT b.book_id, b.title, b.book_id AS seq FROM BOOKS.BOOKS b
+        WHERE (b.added_by = :userId
+               OR EXISTS (SELECT 1 FROM BOOKS.BOOK_READING_STATUS brs
+                          WHERE brs.user_id = :userId AND brs.book_id = b.book_id))
+          AND CASE WHEN :sort = 'title' THEN (b.title, b.book_id) > (:afterTitle, :afterSeq)
+                   ELSE b.book_id > :afterSeq END
+        ORDER BY CASE WHEN :sort = 'title' THEN b.title END, b.book_id
+        LIMIT :limit
+        """;
+
+    String VISIBLE_COLLECTIONS_FEED = """
+        SELECT v.bcols_id, v.title, v.bcols_id AS seq FROM (
+            SELECT bc.bcols_id, bc.title FROM BOOKS.BOOK_COLLECTIONS bc
+            WHERE bc.owner_id = :userId
+            UNION
+            SELECT bc.bcols_id, bc.title FROM BOOKS.LIKED_COLLECTIONS lc
+            JOIN BOOKS.BOOK_COLLECTIONS bc ON lc.bcols_id = bc.bcols_id
+            WHERE lc.user_id = :userId
+              AND BOOKS.CAN_VIEW_COLLECTION(:userId, bc.bcols_id) = TRUE
+        ) v
+        WHERE CASE WHEN :sort = 'title' THEN (v.title, v.bcols_id) > (:afterTitle, :afterSeq)
+                   ELSE v.bcols_id > :afterSeq END
+        ORDER BY CASE WHEN :sort = 'title' THEN v.title END, v.bcols_id
+        LIMIT :limit
+        """;
+
+    String WISHLIST_BOOKS_FEED = """
+        SELECT b.book_id, b.title, bbc.c_book_bcol_id AS seq FROM BOOKS.BOOKS_BOOK_COLLECTIONS bbc
+        JOIN BOOKS.BOOKS b ON b.book_id = bbc.book_id
+        WHERE bbc.bcols_id = :wishlistId
+          AND CASE WHEN :sort = 'title' THEN (b.title, bbc.c_book_bcol_id) > (:afterTitle, :afterSeq)
+                   ELSE bbc.c_book_bcol_id > :afterSeq END
+        ORDER BY CASE WHEN :sort = 'title' THEN b.title END, bbc.c_book_bcol_id
+        LIMIT :limit
+        """;
+
+    String STREAM_FETCH_SIZE = "256";
 
     @Query("SELECT bc FROM BookCollection bc WHERE bc.owner.userId = :userId AND bc.collectionType = 'Wishlist'")
     List<BookCollection> findWishlistByUserId(@Param("userId") Integer userId);
-}
\ No newline at end of file
+
+    @Query(value = VISIBLE_BOOKS_FEED, nativeQuery = true)
+    List<Object[]> findVisibleBooksPage(@Param("userId") Integer userId, @Param("sort") String sort,
+                                        @Param("afterTitle") String afterTitle, @Param("afterSeq") Integer afterSeq,
+                                        @Param("limit") int limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(value = VISIBLE_BOOKS_FEED, nativeQuery = true)
+    Stream<Object[]> streamVisibleBooks(@Param("userId") Integer userId, @Param("sort") String sort,
+                                        @Param("afterTitle") String afterTitle, @Param("afterSeq") Integer afterSeq,
+                                        @Param("limit") int limit);
+
+    @Query(value = VISIBLE_COLLECTIONS_FEED, nativeQuery = true)
+    List<Object[]> findVisibleCollectionsPage(@Param("userId") Integer userId, @Param("sort") String sort,
+                                              @Param("afterTitle") String afterTitle, @Param("afterSeq") Integer afterSeq,
+                                              @Param("limit") int limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(value = VISIBLE_COLLECTIONS_FEED, nativeQuery = true)
+    Stream<Object[]> streamVisibleCollections(@Param("userId") Integer userId, @Param("sort") String sort,
+                                              @Param("afterTitle") String afterTitle, @Param("afterSeq") Integer afterSeq,
+                                              @Param("limit") int limit);
+
+    @Query(value = WISHLIST_BOOKS_FEED, nativeQuery = true)
+    List<Object[]> findWishlistBooksPage(@Param("wishlistId") Integer wishlistId, @Param("sort") String sort,
+                                         @Param("afterTitle") String afterTitle, @Param("afterSeq") Integer afterSeq,
+                                         @Param("limit") int limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(value = WISHLIST_BOOKS_FEED, nativeQuery = true)
+    Stream<Object[]> streamWishlistBooks(@Param("wishlistId") Integer wishlistId, @Param("sort") String sort,
+                                         @Param("afterTitle") String afterTitle, @Param("afterSeq") Integer afterSeq,
+                                         @Param("limit") int limit);
+}
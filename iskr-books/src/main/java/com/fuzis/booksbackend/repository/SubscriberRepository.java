@@ -2,6 +2,7 @@ package com.fuzis.booksbackend.repository;
 
 import com.fuzis.booksbackend.entity.Subscriber;
 import com.fuzis.booksbackend.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -20,6 +21,19 @@ public interface SubscriberRepository extends JpaRepository<Subscriber, Integer>
 
     boolean existsBySubsUserAndSubsUserOn(User subsUser, User subsUserOn);
 
+    boolean existsBySubsUser_UserIdAndSubsUserOn_UserId(Integer userId, Integer userOnId);
+
+    @Query("SELECT s.subsUserOn.userId FROM Subscriber s WHERE s.subsUser.userId = :userId")
+    List<Integer> findSubscriptionIds(@Param("userId") Integer userId, Limit limit);
+
+    @Query("SELECT s.subsUser.userId FROM Subscriber s WHERE s.subsUserOn.userId = :userId")
+    List<Integer> findSubscriberIds(@Param("userId") Integer userId, Limit limit);
+
+    @Query("SELECT a.subsUser.userId FROM Subscriber a, Subscriber b " +
+            "WHERE a.subsUserOn.userId = :userId AND b.subsUserOn.userId = :otherUserId " +
+            "AND b.subsUser.userId = a.subsUser.userId")
+    List<Integer> findMutualSubscriberIds(@Param("userId") Integer userId, @Param("otherUserId") Integer otherUserId);
+
     @Modifying
     @Query("DELETE FROM Subscriber s WHERE s.subsUser = :subsUser AND s.subsUserOn = :subsUserOn")
     void deleteBySubsUserAndSubsUserOn(@Param("subsUser") User subsUser,
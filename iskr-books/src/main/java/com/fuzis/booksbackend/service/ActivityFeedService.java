@@ -0,0 +1,105 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.entity.BookCollection;
+import com.fuzis.booksbackend.entity.BookReview;
+import com.fuzis.booksbackend.entity.enumerate.ActivityType;
+import com.fuzis.booksbackend.entity.enumerate.CollectionType;
+import com.fuzis.booksbackend.entity.enumerate.Confidentiality;
+import com.fuzis.booksbackend.repository.ActivityRepository;
+import com.fuzis.booksbackend.transfer.ActivityEventDTO;
+import com.fuzis.booksbackend.transfer.ChangeDTO;
+import com.fuzis.booksbackend.transfer.state.State;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ActivityFeedService {
+
+    private final ActivityRepository activityRepository;
+    private final SocialGraphCache socialGraphCache;
+
+    // Выше этого порога события не копируются подписчикам, а подмешиваются в ленту при чтении
+    @Value("${activity.fan-out.max-subscribers:1000}")
+    private int maxFanOutSubscribers;
+
+    /**
+     * Records that a public standard collection was created. Called inside the write transaction,
+     * so the event and the timeline rows commit or roll back together with the collection.
+     */
+    public void collectionCreated(BookCollection collection) {
+        if (isShared(collection)) {
+            record(collection.getOwner().getUserId(), ActivityType.CollectionCreated,
+                    collection.getBcolsId(), null, null);
+        }
+    }
+
+    public void bookAddedToCollection(BookCollection collection, Integer bookId) {
+        if (isShared(collection)) {
+            record(collection.getOwner().getUserId(), ActivityType.BookAddedToCollection,
+                    collection.getBcolsId(), bookId, null);
+        }
+    }
+
+    public void bookReviewed(BookReview review) {
+        record(review.getUser().getUserId(), ActivityType.BookReviewed,
+                null, review.getBook().getBookId(), review.getRvwId());
+    }
+
+    @Transactional(readOnly = true)
+    public ChangeDTO<Object> getFeed(Integer userId, Long before, Integer batch) {
+        try {
+            log.debug("Getting activity feed for user {}, before: {}, batch: {}", userId, before, batch);
+
+            List<ActivityEventDTO> events = new ArrayList<>(activityRepository.findFeedPage(
+                    userId, before != null ? before : Long.MAX_VALUE, batch + 1));
+            boolean hasMore = events.size() > batch;
+            if (hasMore) {
+                events.subList(batch, events.size()).clear();
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("userId", userId);
+            response.put("batch", batch);
+            response.put("events", events);
+            response.put("hasMore", hasMore);
+            response.put("nextCursor", hasMore ? events.get(events.size() - 1).getEventId() : null);
+
+            if (events.isEmpty()) {
+                return new ChangeDTO<>(State.OK, "No activity found", response);
+            }
+            return new ChangeDTO<>(State.OK, "Activity feed retrieved successfully", response);
+
+        } catch (Exception e) {
+            log.error("Error retrieving activity feed for user {}: ", userId, e);
+            return new ChangeDTO<>(State.Fail, "Error retrieving activity feed: " + e.getMessage(), null);
+        }
+    }
+
+    private void record(Integer actorId, ActivityType type, Integer collectionId, Integer bookId, Integer reviewId) {
+        int subscribers = socialGraphCache.countSubscribers(actorId);
+        boolean fanOut = subscribers <= maxFanOutSubscribers;
+        long eventId = activityRepository.insertEvent(actorId, type, collectionId, bookId, reviewId, fanOut);
+        if (fanOut && subscribers > 0) {
+            int written = activityRepository.fanOut(eventId, actorId);
+            log.debug("Activity {} of user {} fanned out to {} timelines", eventId, actorId, written);
+        } else if (!fanOut) {
+            log.debug("Activity {} of user {} ({} subscribers) left for fan-out on read", eventId, actorId, subscribers);
+        }
+    }
+
+    private static boolean isShared(BookCollection collection) {
+        return collection.getOwner() != null
+                && collection.getConfidentiality() == Confidentiality.Public
+                && collection.getCollectionType() == CollectionType.Standard;
+    }
+}
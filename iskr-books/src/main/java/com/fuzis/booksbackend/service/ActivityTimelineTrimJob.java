@@ -0,0 +1,60 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.repository.ActivityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Keeps every activity timeline at its newest {@code activity.timeline.max-size} entries. Fan-out
+ * only appends, so a timeline can only outgrow the cap when it is written to: each run trims just
+ * the users whose timelines received events since the previous run, found through the event_id
+ * index. Users written before the service started are trimmed on their next write.
+ */
+@Slf4j
+@Service
+@EnableScheduling
+public class ActivityTimelineTrimJob {
+
+    private final ActivityRepository activityRepository;
+
+    @Value("${activity.timeline.max-size:500}")
+    private int maxSize;
+
+    @Value("${activity.trim.batch-size:500}")
+    private int batchSize;
+
+    // Последнее событие, после которого таймлайны уже подрезаны; -1 до первого запуска
+    private long trimmedUpTo = -1;
+
+    public ActivityTimelineTrimJob(ActivityRepository activityRepository) {
+        this.activityRepository = activityRepository;
+    }
+
+    @Scheduled(initialDelayString = "${activity.trim.initial-delay:PT1M}", fixedDelayString = "${activity.trim.interval:PT10M}")
+    public void trim() {
+        int total = 0;
+        try {
+            long upTo = activityRepository.findLastEventId();
+            if (trimmedUpTo < 0) {
+                trimmedUpTo = upTo;
+                return;
+            }
+            List<Integer> userIds = activityRepository.findTimelineUsersBetween(trimmedUpTo, upTo);
+            for (int from = 0; from < userIds.size(); from += batchSize) {
+                total += activityRepository.trimTimelines(
+                        userIds.subList(from, Math.min(from + batchSize, userIds.size())), maxSize);
+            }
+            trimmedUpTo = upTo;
+        } catch (Exception e) {
+            log.warn("Activity timeline trim failed after {} rows", total, e);
+        }
+        if (total > 0) {
+            log.info("Trimmed {} activity timeline rows", total);
+        }
+    }
+}
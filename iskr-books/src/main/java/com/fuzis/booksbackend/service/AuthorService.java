@@ -25,6 +25,7 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AuthorService {
     private final AuthorRepository authorRepository;
+    private final DetailCache detailCache;
 
     @Transactional
     public ChangeDTO<Object> createAuthor(AuthorCreateDTO dto) {
@@ -95,6 +96,8 @@ public class AuthorService {
                         }
 
                         Author updatedAuthor = authorRepository.save(author);
+                        // Имя входит в детали всех книг — сбрасываем их разом
+                        detailCache.invalidateAll(DetailCache.Kind.Book);
                         log.info("Author updated successfully with ID: {}", id);
                         return new ChangeDTO<>(State.OK,
                                 "Author updated successfully", (Object) updatedAuthor);
@@ -127,6 +130,7 @@ public class AuthorService {
             }
 
             authorRepository.deleteById(id);
+            detailCache.invalidateAll(DetailCache.Kind.Book);
             log.info("Author deleted successfully with ID: {}", id);
             return new ChangeDTO<>(State.OK,
                     "Author deleted successfully", null);
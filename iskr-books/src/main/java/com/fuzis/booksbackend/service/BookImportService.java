@@ -0,0 +1,368 @@
+package com.fuzis.booksbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuzis.booksbackend.repository.AuthorRepository;
+import com.fuzis.booksbackend.repository.BookImportRepository;
+import com.fuzis.booksbackend.repository.BookImportRepository.ImportedBook;
+import com.fuzis.booksbackend.repository.BookRepository;
+import com.fuzis.booksbackend.repository.GenreRepository;
+import com.fuzis.booksbackend.repository.UserRepository;
+import com.fuzis.booksbackend.transfer.BookImportErrorDTO;
+import com.fuzis.booksbackend.transfer.BookImportResultDTO;
+import com.fuzis.booksbackend.transfer.BookImportRowDTO;
+import com.fuzis.booksbackend.transfer.ChangeDTO;
+import com.fuzis.booksbackend.transfer.state.State;
+import com.fuzis.booksbackend.util.CsvReader;
+import com.fuzis.booksbackend.util.IntegrationRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.LinkedMultiValueMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk catalogue import from CSV (header row; authors and genres separated by ';') or NDJSON
+ * (one {@link BookImportRowDTO} per line). The body is read row by row and written in chunks,
+ * each in its own transaction: authors and genres are resolved by name from maps loaded once per
+ * import, ISBNs are checked against the catalogue with one query per chunk, and books and their
+ * links go in as JDBC batches. Rows that fail are reported with their number and do not stop the
+ * import. Search is asked to reindex once, after the last chunk.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookImportService {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private record ParsedRow(int row, BookImportRowDTO book, String error) {
+    }
+
+    private record PendingBook(int row, BookImportRowDTO book, List<Integer> authorIds, List<Integer> genreIds) {
+    }
+
+    private interface RowSource {
+        ParsedRow next() throws IOException;
+    }
+
+    private final BookImportRepository bookImportRepository;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final GenreRepository genreRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IntegrationRequest integrationRequest;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${books.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${books.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public ChangeDTO<Object> importBooks(Integer userId, String contentType, InputStream body) {
+        try {
+            if (userId == null || !userRepository.existsById(userId)) {
+                return new ChangeDTO<>(State.Fail_NotFound, "User not found", null);
+            }
+            MediaType mediaType = contentType != null ? MediaType.parseMediaType(contentType) : null;
+            boolean csv = mediaType != null && TEXT_CSV.includes(mediaType);
+            boolean ndjson = mediaType != null && MediaType.APPLICATION_NDJSON.includes(mediaType);
+            if (!csv && !ndjson) {
+                return new ChangeDTO<>(State.Fail_BadData, "Import body must be text/csv or application/x-ndjson", null);
+            }
+            log.info("Starting book import by user {} ({})", userId, mediaType);
+
+            Map<String, Integer> authors = lookup(authorRepository.findAllIdsAndNames());
+            Map<String, Integer> genres = lookup(genreRepository.findAllIdsAndNames());
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            RowSource source = csv ? csvRows(reader) : ndjsonRows(reader);
+
+            int total = 0;
+            int imported = 0;
+            List<BookImportErrorDTO> errors = new ArrayList<>();
+            int[] failed = {0};
+            Set<String> seenIsbns = new HashSet<>();
+            List<PendingBook> chunk = new ArrayList<>(chunkSize);
+
+            ParsedRow parsed;
+            while ((parsed = source.next()) != null) {
+                total++;
+                String error = parsed.error() != null ? parsed.error()
+                        : validate(parsed.book(), authors, genres, seenIsbns);
+                if (error != null) {
+                    reportError(errors, failed, parsed.row(), parsed.book(), error);
+                    continue;
+                }
+                chunk.add(new PendingBook(parsed.row(), parsed.book(),
+                        resolve(parsed.book().getAuthors(), authors), resolve(parsed.book().getGenres(), genres)));
+                if (chunk.size() == chunkSize) {
+                    imported += writeChunk(chunk, userId, errors, failed);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                imported += writeChunk(chunk, userId, errors, failed);
+            }
+
+            log.info("Book import by user {} finished: {} of {} rows imported", userId, imported, total);
+            if (imported > 0) {
+                requestReindex();
+            }
+
+            BookImportResultDTO result = new BookImportResultDTO(total, imported, failed[0], errors,
+                    failed[0] > errors.size());
+            return new ChangeDTO<>(State.OK, "Imported " + imported + " of " + total + " books", result);
+
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Book import body could not be read: {}", e.getMessage());
+            return new ChangeDTO<>(State.Fail_BadData, "Import body could not be read: " + e.getMessage(), null);
+        } catch (Exception e) {
+            log.error("Error importing books: ", e);
+            return new ChangeDTO<>(State.Fail, "Error importing books: " + e.getMessage(), null);
+        }
+    }
+
+    private int writeChunk(List<PendingBook> chunk, Integer userId, List<BookImportErrorDTO> errors, int[] failed) {
+        Map<PendingBook, String> rejected = new LinkedHashMap<>();
+        try {
+            Integer imported = transactionTemplate.execute(status -> {
+                // Одна проверка ISBN на весь чанк вместо existsByIsbn на каждую книгу
+                Set<String> isbns = chunk.stream()
+                        .map(pending -> pending.book().getIsbn())
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet());
+                Set<String> existing = isbns.isEmpty() ? Set.of() : new HashSet<>(bookRepository.findExistingIsbns(isbns));
+
+                List<PendingBook> accepted = new ArrayList<>(chunk.size());
+                for (PendingBook pending : chunk) {
+                    if (pending.book().getIsbn() != null && existing.contains(pending.book().getIsbn())) {
+                        rejected.put(pending, "Book with this ISBN already exists");
+                    } else {
+                        accepted.add(pending);
+                    }
+                }
+                if (accepted.isEmpty()) {
+                    return 0;
+                }
+
+                List<Integer> ids = bookImportRepository.allocateBookIds(accepted.size());
+                List<ImportedBook> books = new ArrayList<>(accepted.size());
+                for (int i = 0; i < accepted.size(); i++) {
+                    BookImportRowDTO book = accepted.get(i).book();
+                    books.add(new ImportedBook(ids.get(i), book.getIsbn(), book.getTitle(), book.getSubtitle(),
+                            book.getDescription(), book.getPageCnt(), userId));
+                }
+                boolean[] inserted = bookImportRepository.insertBooks(books);
+
+                List<int[]> authorLinks = new ArrayList<>();
+                List<int[]> genreLinks = new ArrayList<>();
+                int count = 0;
+                for (int i = 0; i < accepted.size(); i++) {
+                    PendingBook pending = accepted.get(i);
+                    if (!inserted[i]) {
+                        rejected.put(pending, "A book with this title and subtitle combination already exists");
+                        continue;
+                    }
+                    int bookId = ids.get(i);
+                    pending.authorIds().forEach(authorId -> authorLinks.add(new int[]{bookId, authorId}));
+                    pending.genreIds().forEach(genreId -> genreLinks.add(new int[]{bookId, genreId}));
+                    count++;
+                }
+                bookImportRepository.insertAuthorLinks(authorLinks);
+                bookImportRepository.insertGenreLinks(genreLinks);
+                return count;
+            });
+            rejected.forEach((pending, error) -> reportError(errors, failed, pending.row(), pending.book(), error));
+            return imported != null ? imported : 0;
+        } catch (Exception e) {
+            // Чанк откатился целиком — ни одна его строка не записана
+            log.error("Book import chunk failed: ", e);
+            for (PendingBook pending : chunk) {
+                reportError(errors, failed, pending.row(), pending.book(), "Chunk failed: " + e.getMessage());
+            }
+            return 0;
+        }
+    }
+
+    private String validate(BookImportRowDTO book, Map<String, Integer> authors, Map<String, Integer> genres,
+                            Set<String> seenIsbns) {
+        if (book.getIsbn() != null && book.getIsbn().isBlank()) {
+            book.setIsbn(null);
+        }
+        if (book.getIsbn() != null) {
+            book.setIsbn(book.getIsbn().trim());
+        }
+        Set<ConstraintViolation<BookImportRowDTO>> violations = validator.validate(book);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+        }
+        String unknownAuthor = firstUnresolved(book.getAuthors(), authors);
+        if (unknownAuthor != null) {
+            return "Author not found or ambiguous: " + unknownAuthor;
+        }
+        String unknownGenre = firstUnresolved(book.getGenres(), genres);
+        if (unknownGenre != null) {
+            return "Genre not found: " + unknownGenre;
+        }
+        if (book.getIsbn() != null && !seenIsbns.add(book.getIsbn())) {
+            return "Duplicate ISBN in import";
+        }
+        return null;
+    }
+
+    private void reportError(List<BookImportErrorDTO> errors, int[] failed, int row, BookImportRowDTO book, String error) {
+        failed[0]++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new BookImportErrorDTO(row,
+                    book != null ? book.getIsbn() : null,
+                    book != null ? book.getTitle() : null,
+                    error));
+        }
+    }
+
+    private void requestReindex() {
+        try {
+            var response = integrationRequest.sendPostRequestIntegration("v1/search/reindex", new LinkedMultiValueMap<>());
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                log.warn("Search reindex request after import returned {}", response.getStatusCode());
+            }
+        } catch (Exception e) {
+            // Не критично: плановая синхронизация поиска подхватит книги позже
+            log.warn("Search reindex request after import failed: {}", e.getMessage());
+        }
+    }
+
+    // Имя → id; имена, встречающиеся несколько раз, помечаются как неоднозначные (null)
+    private static Map<String, Integer> lookup(List<Object[]> idsAndNames) {
+        Map<String, Integer> lookup = new HashMap<>(idsAndNames.size() * 2);
+        for (Object[] row : idsAndNames) {
+            String key = key((String) row[1]);
+            if (lookup.containsKey(key)) {
+                lookup.put(key, null);
+            } else {
+                lookup.put(key, (Integer) row[0]);
+            }
+        }
+        return lookup;
+    }
+
+    private static String firstUnresolved(List<String> names, Map<String, Integer> lookup) {
+        if (names == null) {
+            return null;
+        }
+        for (String name : names) {
+            if (name != null && !name.isBlank() && lookup.get(key(name)) == null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static List<Integer> resolve(List<String> names, Map<String, Integer> lookup) {
+        if (names == null) {
+            return List.of();
+        }
+        return names.stream()
+                .filter(name -> name != null && !name.isBlank())
+                .map(name -> lookup.get(key(name)))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private RowSource ndjsonRows(BufferedReader reader) {
+        int[] row = {0};
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                row[0]++;
+            } while (line.isBlank());
+            try {
+                return new ParsedRow(row[0], objectMapper.readValue(line, BookImportRowDTO.class), null);
+            } catch (JsonProcessingException e) {
+                return new ParsedRow(row[0], null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    private RowSource csvRows(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRecord();
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+            }
+        }
+        if (header != null && !columns.containsKey("title")) {
+            throw new IllegalStateException("CSV header must contain a title column");
+        }
+        int[] row = {0};
+        return () -> {
+            List<String> record;
+            do {
+                record = csv.readRecord();
+                if (record == null) {
+                    return null;
+                }
+                row[0]++;
+            } while (record.size() == 1 && record.get(0).isBlank());
+            String pageCnt = column(record, columns, "pagecnt");
+            BookImportRowDTO book = BookImportRowDTO.builder()
+                    .title(column(record, columns, "title"))
+                    .subtitle(column(record, columns, "subtitle"))
+                    .isbn(column(record, columns, "isbn"))
+                    .description(column(record, columns, "description"))
+                    .authors(split(column(record, columns, "authors")))
+                    .genres(split(column(record, columns, "genres")))
+                    .build();
+            if (pageCnt != null) {
+                try {
+                    book.setPageCnt(Integer.valueOf(pageCnt.trim()));
+                } catch (NumberFormatException e) {
+                    return new ParsedRow(row[0], book, "Page count must be a number");
+                }
+            }
+            return new ParsedRow(row[0], book, null);
+        };
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static List<String> split(String value) {
+        if (value == null) {
+            return null;
+        }
+        return Arrays.stream(value.split(";")).map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toList());
+    }
+}
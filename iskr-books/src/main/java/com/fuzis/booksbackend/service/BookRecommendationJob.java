@@ -0,0 +1,145 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.entity.enumerate.RecommendationKind;
+import com.fuzis.booksbackend.repository.BookRecommendationRepository;
+import com.fuzis.booksbackend.repository.BookRecommendationRepository.BasketRowHandler;
+import com.fuzis.booksbackend.repository.BookRecommendationRepository.BookNeighbours;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Recomputes the "similar books" (co-occurrence in collections) and "readers also added"
+ * (co-occurrence in one user's collections and reading statuses) neighbour lists.
+ * Baskets are streamed into a {@link CoOccurrenceIndex} that is kept between runs. An incremental run
+ * reads only the rows added since the previous run, merges them into the kept index and recomputes the
+ * books of the changed baskets plus every book sharing a basket with one of them, since their scores
+ * depend on the changed degrees. Every {@code recommendations.full-rebuild-interval} (and on the first
+ * run after start) everything is read and recomputed, which also picks up removed links. A Postgres advisory lock keeps it to one instance.
+ */
+@Slf4j
+@Service
+@EnableScheduling
+public class BookRecommendationJob {
+
+    private static final long LOCK_KEY = 0x6973_6b72_7265_63L;
+
+    private final BookRecommendationRepository recommendationRepository;
+    private final TransactionTemplate readTransaction;
+    private final ForkJoinPool pool;
+
+    @Value("${recommendations.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendations.top-n:20}")
+    private int topN;
+
+    @Value("${recommendations.min-co-occurrence:2}")
+    private int minCoOccurrence;
+
+    @Value("${recommendations.max-basket-size:1000}")
+    private int maxBasketSize;
+
+    @Value("${recommendations.write-batch-size:1000}")
+    private int writeBatchSize;
+
+    @Value("${recommendations.full-rebuild-interval:PT24H}")
+    private Duration fullRebuildInterval;
+
+    // Водяные знаки предыдущего прогона; пока полного прогона не было, считаем всё заново
+    private long linkWatermark;
+    private long readingStatusWatermark;
+    private Instant lastFullRun;
+    private final Map<RecommendationKind, CoOccurrenceIndex> indexes = new EnumMap<>(RecommendationKind.class);
+
+    public BookRecommendationJob(BookRecommendationRepository recommendationRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${recommendations.parallelism:0}") int parallelism) {
+        this.recommendationRepository = recommendationRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Scheduled(initialDelayString = "${recommendations.initial-delay:PT2M}", fixedDelayString = "${recommendations.interval:PT1H}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!recommendationRepository.runExclusively(LOCK_KEY, this::compute)) {
+                log.debug("Recommendations are being computed by another instance");
+            }
+        } catch (Exception e) {
+            log.warn("Recommendation job failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void compute() {
+        Instant started = Instant.now();
+        boolean full = lastFullRun == null || indexes.size() < RecommendationKind.values().length
+                || Duration.between(lastFullRun, started).compareTo(fullRebuildInterval) >= 0;
+        long linkMark = recommendationRepository.findMaxCollectionLinkId();
+        long statusMark = recommendationRepository.findMaxReadingStatusId();
+        if (!full && linkMark == linkWatermark && statusMark == readingStatusWatermark) {
+            log.debug("No new collection links or reading statuses since the last recommendation run");
+            return;
+        }
+        Timestamp computedAt = Timestamp.from(started);
+
+        long linkAfter = full ? 0 : linkWatermark;
+        long statusAfter = full ? 0 : readingStatusWatermark;
+        int similar = computeKind(RecommendationKind.Similar, full, computedAt,
+                rows -> recommendationRepository.forEachCollectionBasketRow(linkAfter, rows));
+        int alsoAdded = computeKind(RecommendationKind.AlsoAdded, full, computedAt,
+                rows -> recommendationRepository.forEachUserBasketRow(linkAfter, statusAfter, rows));
+
+        // Строки, добавленные во время прогона, прочитаются ещё раз в следующем; слияние их не задвоит
+        linkWatermark = linkMark;
+        readingStatusWatermark = statusMark;
+        if (full) {
+            lastFullRun = started;
+        }
+        log.info("Recommendations {} run: {} similar, {} also-added lists in {} ms",
+                full ? "full" : "incremental", similar, alsoAdded, Duration.between(started, Instant.now()).toMillis());
+    }
+
+    private int computeKind(RecommendationKind kind, boolean full, Timestamp computedAt,
+                            Consumer<BasketRowHandler> reader) {
+        CoOccurrenceIndex.Builder builder = new CoOccurrenceIndex.Builder(maxBasketSize);
+        readTransaction.executeWithoutResult(status -> reader.accept(builder::add));
+        CoOccurrenceIndex read = builder.build();
+        CoOccurrenceIndex index = full ? read : indexes.get(kind).merge(read);
+        indexes.put(kind, index);
+        int[] books = full ? index.books() : index.affectedBy(read);
+        BookNeighbours[] neighbours = index.neighbours(books, topN, minCoOccurrence, pool);
+        for (int from = 0; from < neighbours.length; from += writeBatchSize) {
+            int to = Math.min(from + writeBatchSize, neighbours.length);
+            recommendationRepository.saveNeighbours(kind, Arrays.asList(neighbours).subList(from, to), computedAt);
+        }
+        if (full) {
+            int removed = recommendationRepository.deleteComputedBefore(kind, computedAt);
+            log.debug("Removed {} stale {} recommendation lists", removed, kind);
+        }
+        return neighbours.length;
+    }
+}
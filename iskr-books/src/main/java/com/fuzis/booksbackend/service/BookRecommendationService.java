@@ -0,0 +1,134 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.entity.Book;
+import com.fuzis.booksbackend.entity.ImageData;
+import com.fuzis.booksbackend.entity.ImageLink;
+import com.fuzis.booksbackend.entity.enumerate.RecommendationKind;
+import com.fuzis.booksbackend.repository.BookRecommendationRepository;
+import com.fuzis.booksbackend.repository.BookRecommendationRepository.BookNeighbours;
+import com.fuzis.booksbackend.repository.BookRepository;
+import com.fuzis.booksbackend.repository.BookReviewRepository;
+import com.fuzis.booksbackend.repository.ImageLinkRepository;
+import com.fuzis.booksbackend.transfer.ChangeDTO;
+import com.fuzis.booksbackend.transfer.ImageDataDTO;
+import com.fuzis.booksbackend.transfer.ImageLinkDTO;
+import com.fuzis.booksbackend.transfer.RecommendedBookDTO;
+import com.fuzis.booksbackend.transfer.state.State;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookRecommendationService {
+
+    private final BookRecommendationRepository recommendationRepository;
+    private final BookRepository bookRepository;
+    private final BookReviewRepository bookReviewRepository;
+    private final ImageLinkRepository imageLinkRepository;
+
+    @Transactional(readOnly = true)
+    public ChangeDTO<Object> getRecommendations(Integer bookId, String kind, Integer limit) {
+        try {
+            log.debug("Getting {} recommendations for book {}, limit: {}", kind, bookId, limit);
+
+            RecommendationKind recommendationKind = "also-added".equals(kind)
+                    ? RecommendationKind.AlsoAdded : RecommendationKind.Similar;
+
+            // Готовый список соседей — одна выборка по первичному ключу
+            Optional<BookNeighbours> neighboursOpt = recommendationRepository.findNeighbours(bookId, recommendationKind);
+            if (neighboursOpt.isEmpty() && !bookRepository.existsById(bookId)) {
+                log.warn("Book not found with ID: {}", bookId);
+                return new ChangeDTO<>(State.Fail_NotFound, "Book not found", null);
+            }
+
+            List<RecommendedBookDTO> books = neighboursOpt
+                    .map(neighbours -> hydrate(neighbours, limit))
+                    .orElseGet(ArrayList::new);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("bookId", bookId);
+            response.put("kind", kind);
+            response.put("books", books);
+
+            if (books.isEmpty()) {
+                return new ChangeDTO<>(State.OK, "No recommendations found", response);
+            }
+            return new ChangeDTO<>(State.OK, "Recommendations retrieved successfully", response);
+
+        } catch (Exception e) {
+            log.error("Error retrieving recommendations for book {}: ", bookId, e);
+            return new ChangeDTO<>(State.Fail, "Error retrieving recommendations: " + e.getMessage(), null);
+        }
+    }
+
+    private List<RecommendedBookDTO> hydrate(BookNeighbours neighbours, int limit) {
+        int size = Math.min(limit, neighbours.similarIds().length);
+        List<Integer> bookIds = new ArrayList<>(size);
+        Map<Integer, Float> scores = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            bookIds.add(neighbours.similarIds()[i]);
+            scores.put(neighbours.similarIds()[i], neighbours.scores()[i]);
+        }
+        if (bookIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Book> booksMap = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Book::getBookId, b -> b));
+
+        Map<Integer, Double> averageRatingsMap = bookReviewRepository.findAverageRatingsByBookIds(bookIds).stream()
+                .collect(Collectors.toMap(row -> (Integer) row[0], row -> (Double) row[1]));
+
+        List<Integer> imageIds = booksMap.values().stream()
+                .map(Book::getPhotoLink)
+                .filter(Objects::nonNull)
+                .map(ImageLink::getImglId)
+                .collect(Collectors.toList());
+        Map<Integer, ImageLink> imageLinksMap = imageIds.isEmpty() ? new HashMap<>()
+                : imageLinkRepository.findByIdsWithImageData(imageIds).stream()
+                .collect(Collectors.toMap(ImageLink::getImglId, il -> il));
+
+        // Порядок — по убыванию близости; удалённые с момента расчёта книги пропускаем
+        List<RecommendedBookDTO> result = new ArrayList<>();
+        for (Integer id : bookIds) {
+            Book book = booksMap.get(id);
+            if (book == null) {
+                continue;
+            }
+            RecommendedBookDTO dto = new RecommendedBookDTO();
+            dto.setBookId(book.getBookId());
+            dto.setTitle(book.getTitle());
+            dto.setSubtitle(book.getSubtitle());
+            dto.setIsbn(book.getIsbn());
+            dto.setPageCnt(book.getPageCnt());
+            Double avgRating = averageRatingsMap.get(id);
+            dto.setAverageRating(avgRating != null ? Math.round(avgRating * 100.0) / 100.0 : null);
+            dto.setScore(scores.get(id));
+
+            if (book.getPhotoLink() != null) {
+                ImageLink fullImageLink = imageLinksMap.get(book.getPhotoLink().getImglId());
+                if (fullImageLink != null && fullImageLink.getImageData() != null) {
+                    ImageData imageData = fullImageLink.getImageData();
+                    ImageDataDTO imageDataDTO = new ImageDataDTO(
+                            imageData.getImgdId(),
+                            imageData.getUuid(),
+                            imageData.getSize(),
+                            imageData.getMimeType(),
+                            imageData.getExtension(),
+                            imageData.getVariantWidths(),
+                            imageData.getVariantFormat()
+                    );
+                    dto.setPhotoLink(new ImageLinkDTO(fullImageLink.getImglId(), imageDataDTO));
+                }
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+}
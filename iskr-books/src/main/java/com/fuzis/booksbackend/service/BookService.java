@@ -29,6 +29,10 @@ public class BookService {
     private final BooksBookCollectionsRepository booksBookCollectionsRepository;
     private final BookReviewRepository bookReviewRepository;
     private final SubscriberRepository subscriberRepository;
+    private final ActivityFeedService activityFeedService;
+    private final BookReviewStatsRepository bookReviewStatsRepository;
+    private final ReviewStatsCache reviewStatsCache;
+    private final DetailCache detailCache;
 
     @Transactional
     public ChangeDTO<Object> createBook(Integer userId, BookCreateDTO dto) {
@@ -265,6 +269,7 @@ public class BookService {
                         }
 
                         Book updatedBook = bookRepository.save(book);
+                        detailCache.invalidate(DetailCache.Kind.Book, id);
                         log.info("Book updated successfully with ID: {}", id);
                         return new ChangeDTO<>(State.OK,
                                 "Book updated successfully", (Object) updatedBook);
@@ -308,6 +313,7 @@ public class BookService {
             }
 
             bookRepository.deleteById(id);
+            detailCache.invalidate(DetailCache.Kind.Book, id);
             log.info("Book deleted successfully with ID: {}", id);
             return new ChangeDTO<>(State.OK,
                     "Book deleted successfully", null);
@@ -396,7 +402,9 @@ public class BookService {
                     .build();
 
             BookReview savedReview = bookReviewRepository.save(bookReview);
+            applyScoreChange(bookId, null, savedReview.getScore());
             log.info("Book review created with ID: {}", savedReview.getRvwId());
+            activityFeedService.bookReviewed(savedReview);
 
             // Преобразуем в DTO для ответа
             BookReviewDTO reviewDTO = convertToBookReviewDTO(savedReview);
@@ -429,6 +437,7 @@ public class BookService {
             }
 
             BookReview review = reviewOpt.get();
+            Integer oldScore = review.getScore();
 
             // Обновляем поля
             if (dto.getScore() != null) {
@@ -439,6 +448,9 @@ public class BookService {
             }
 
             BookReview updatedReview = bookReviewRepository.save(review);
+            if (!oldScore.equals(updatedReview.getScore())) {
+                applyScoreChange(bookId, oldScore, updatedReview.getScore());
+            }
             log.info("Book review updated with ID: {}", updatedReview.getRvwId());
 
             // Преобразуем в DTO для ответа
@@ -472,6 +484,7 @@ public class BookService {
             }
 
             bookReviewRepository.delete(reviewOpt.get());
+            applyScoreChange(bookId, reviewOpt.get().getScore(), null);
             log.info("Book review deleted for user {} and book {}", userId, bookId);
 
             return new ChangeDTO<>(State.OK, "Review deleted successfully", null);
@@ -512,6 +525,22 @@ public class BookService {
         }
     }
 
+    /**
+     * Moves one score between histogram buckets of the book's review aggregate, in the caller's transaction;
+     * {@code oldScore} is null for a new review, {@code newScore} is null for a deleted one.
+     */
+    private void applyScoreChange(Integer bookId, Integer oldScore, Integer newScore) {
+        if (oldScore != null) {
+            bookReviewStatsRepository.addScore(bookId, oldScore, -1);
+        }
+        if (newScore != null) {
+            bookReviewStatsRepository.ensureExists(bookId);
+            bookReviewStatsRepository.addScore(bookId, newScore, 1);
+        }
+        reviewStatsCache.invalidate(bookId);
+        detailCache.invalidate(DetailCache.Kind.Book, bookId);
+    }
+
     private ChangeDTO<Object> handleDataIntegrityViolation(DataIntegrityViolationException e) {
         String message = e.getMostSpecificCause().getMessage();
 
@@ -539,8 +568,11 @@ public class BookService {
         }
     }
 
-    @Transactional(readOnly = true)
     public ChangeDTO<Object> getBookDetail(Integer id) {
+        return detailCache.get(DetailCache.Kind.Book, id, () -> loadBookDetail(id));
+    }
+
+    private ChangeDTO<Object> loadBookDetail(Integer id) {
         try {
             log.debug("Fetching detailed book with ID: {}", id);
 
@@ -555,14 +587,12 @@ public class BookService {
             // Получаем количество добавлений в коллекции
             Long collectionsCount = getCollectionsCountForBook(id);
 
-            // Получаем средний рейтинг (используем исправленный метод)
-            Double averageRating = bookReviewRepository.findAverageRatingByBookId(id).orElse(null);
-
-            // Получаем количество отзывов (используем новый метод)
-            Long reviewsCount = bookReviewRepository.countByBookId(id);
+            // Средний рейтинг, количество отзывов и гистограмма — из агрегата, без обхода BOOK_REVIEWS
+            ReviewStatsCache.ReviewStats reviewStats = reviewStatsCache.get(id);
 
             // Преобразуем в DTO
-            BookDetailDTO bookDetailDTO = convertToBookDetailDTO(book, collectionsCount, averageRating, reviewsCount.intValue());
+            BookDetailDTO bookDetailDTO = convertToBookDetailDTO(book, collectionsCount, reviewStats.average(), reviewStats.count());
+            bookDetailDTO.setRatingHistogram(Arrays.stream(reviewStats.histogram()).boxed().collect(Collectors.toList()));
 
             log.debug("Book detail retrieved for ID: {}", id);
             return new ChangeDTO<>(State.OK, "Book detail retrieved successfully", bookDetailDTO);
@@ -591,21 +621,17 @@ public class BookService {
                 batch = 10;
             }
 
+            // Общее количество берём из агрегата, поэтому страница читается без COUNT-запроса
             Pageable pageable = PageRequest.of(page, batch);
-            Page<BookReview> reviewsPage = bookReviewRepository.findByBook_BookId(bookId, pageable);
+            List<BookReview> reviews = bookReviewRepository.findPageByBookId(bookId, pageable);
 
             // Преобразуем в DTO
-            List<BookReviewDTO> reviewDTOs = reviewsPage.getContent().stream()
+            List<BookReviewDTO> reviewDTOs = reviews.stream()
                     .map(this::convertToBookReviewDTO)
                     .collect(Collectors.toList());
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("bookId", bookId);
-            response.put("page", page);
-            response.put("batch", batch);
-            response.put("totalPages", reviewsPage.getTotalPages());
-            response.put("totalElements", reviewsPage.getTotalElements());
-            response.put("reviews", reviewDTOs);
+            Map<String, Object> response = createReviewsResponse(bookId, page, batch, reviewDTOs,
+                    reviewStatsCache.get(bookId).count());
 
             if (reviewDTOs.isEmpty()) {
                 log.debug("No reviews found for book {}", bookId);
@@ -656,7 +682,9 @@ public class BookService {
                             imageData.getUuid(),
                             imageData.getSize(),
                             imageData.getMimeType(),
-                            imageData.getExtension()
+                            imageData.getExtension(),
+                            imageData.getVariantWidths(),
+                            imageData.getVariantFormat()
                     );
                     ImageLinkDTO imageLinkDTO = new ImageLinkDTO(imageLink.getImglId(), imageDataDTO);
                     dto.setPhotoLink(imageLinkDTO);
@@ -690,7 +718,9 @@ public class BookService {
                                         imageData.getUuid(),
                                         imageData.getSize(),
                                         imageData.getMimeType(),
-                                        imageData.getExtension()
+                                        imageData.getExtension(),
+                                        imageData.getVariantWidths(),
+                                        imageData.getVariantFormat()
                                 );
                                 ImageLinkDTO imageLinkDTO = new ImageLinkDTO(profileImageLink.getImglId(), imageDataDTO);
                                 userDTO.setProfileImage(imageLinkDTO);
@@ -776,7 +806,9 @@ public class BookService {
                                     imageData.getUuid(),
                                     imageData.getSize(),
                                     imageData.getMimeType(),
-                                    imageData.getExtension()
+                                    imageData.getExtension(),
+                                    imageData.getVariantWidths(),
+                                    imageData.getVariantFormat()
                             );
                             ImageLinkDTO imageLinkDTO = new ImageLinkDTO(imageLink.getImglId(), imageDataDTO);
                             userDTO.setProfileImage(imageLinkDTO);
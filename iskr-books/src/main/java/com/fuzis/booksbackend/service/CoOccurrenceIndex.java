@@ -0,0 +1,354 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.repository.BookRecommendationRepository.BookNeighbours;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Books-by-basket incidence matrix in compressed sparse row form, in both directions
+ * (basket to books and book to baskets), built from a stream of rows ordered by basket and book.
+ * The neighbours of a book are its co-occurring books ranked by cosine similarity
+ * {@code co(a, b) / sqrt(baskets(a) * baskets(b))}. Everything is held in primitive int arrays,
+ * so the whole catalogue fits in a few tens of megabytes, and the per-book work runs in parallel
+ * on a fork-join pool, each worker reusing a dense counter array for the duration of the call.
+ * <p>
+ * Every basket is kept as read, so an index of newly added rows can be {@link #merge merged} in
+ * without reading the old ones again; baskets with fewer than two or more than {@code maxBasketSize}
+ * books are only left out of the book-to-basket direction, i.e. out of scoring and degrees.
+ */
+class CoOccurrenceIndex {
+
+    private final int maxBasketSize;
+    private final int[] basketIds;
+    private final int[] basketOffsets;
+    private final int[] basketBooks;
+    private final int[] bookOffsets;
+    private final int[] bookBaskets;
+
+    private CoOccurrenceIndex(int maxBasketSize, int[] basketIds, int[] basketOffsets, int[] basketBooks) {
+        this.maxBasketSize = maxBasketSize;
+        this.basketIds = basketIds;
+        this.basketOffsets = basketOffsets;
+        this.basketBooks = basketBooks;
+
+        int maxBookId = -1;
+        for (int book : basketBooks) {
+            maxBookId = Math.max(maxBookId, book);
+        }
+        // Обратный индекс книга -> корзины подсчётом (counting sort по id книги), только по годным корзинам
+        int[] offsets = new int[maxBookId + 2];
+        for (int basket = 0; basket < basketIds.length; basket++) {
+            if (eligible(basket)) {
+                for (int j = basketOffsets[basket]; j < basketOffsets[basket + 1]; j++) {
+                    offsets[basketBooks[j] + 1]++;
+                }
+            }
+        }
+        for (int b = 0; b <= maxBookId; b++) {
+            offsets[b + 1] += offsets[b];
+        }
+        int[] fill = Arrays.copyOf(offsets, maxBookId + 1);
+        int[] baskets = new int[offsets[maxBookId + 1]];
+        for (int basket = 0; basket < basketIds.length; basket++) {
+            if (eligible(basket)) {
+                for (int j = basketOffsets[basket]; j < basketOffsets[basket + 1]; j++) {
+                    baskets[fill[basketBooks[j]]++] = basket;
+                }
+            }
+        }
+        this.bookOffsets = offsets;
+        this.bookBaskets = baskets;
+    }
+
+    private boolean eligible(int basket) {
+        int size = basketOffsets[basket + 1] - basketOffsets[basket];
+        return size >= 2 && size <= maxBasketSize;
+    }
+
+    /**
+     * @return ids of all books that are in at least one scored basket
+     */
+    int[] books() {
+        int n = 0;
+        int[] books = new int[bookOffsets.length - 1];
+        for (int book = 0; book < books.length; book++) {
+            if (bookOffsets[book + 1] > bookOffsets[book]) {
+                books[n++] = book;
+            }
+        }
+        return Arrays.copyOf(books, n);
+    }
+
+    /**
+     * This index with the rows of {@code delta} added; rows already present are not duplicated.
+     */
+    CoOccurrenceIndex merge(CoOccurrenceIndex delta) {
+        Builder merged = new Builder(maxBasketSize);
+        int i = 0;
+        int j = 0;
+        while (i < basketIds.length || j < delta.basketIds.length) {
+            if (j == delta.basketIds.length || (i < basketIds.length && basketIds[i] < delta.basketIds[j])) {
+                copyBasket(this, i++, merged);
+            } else if (i == basketIds.length || delta.basketIds[j] < basketIds[i]) {
+                copyBasket(delta, j++, merged);
+            } else {
+                // Слияние двух отсортированных списков книг; повторы отбрасывает Builder
+                int id = basketIds[i];
+                int a = basketOffsets[i];
+                int aEnd = basketOffsets[i + 1];
+                int b = delta.basketOffsets[j];
+                int bEnd = delta.basketOffsets[j + 1];
+                while (a < aEnd || b < bEnd) {
+                    if (b == bEnd || (a < aEnd && basketBooks[a] <= delta.basketBooks[b])) {
+                        merged.add(id, basketBooks[a++]);
+                    } else {
+                        merged.add(id, delta.basketBooks[b++]);
+                    }
+                }
+                i++;
+                j++;
+            }
+        }
+        return merged.build();
+    }
+
+    private static void copyBasket(CoOccurrenceIndex index, int basket, Builder target) {
+        int id = index.basketIds[basket];
+        for (int k = index.basketOffsets[basket]; k < index.basketOffsets[basket + 1]; k++) {
+            target.add(id, index.basketBooks[k]);
+        }
+    }
+
+    /**
+     * Books whose neighbour lists can differ after {@code delta} was merged into this index: the books
+     * of the baskets it touched, whose co-occurrences and degrees changed, and every book sharing a
+     * scored basket with one of them, whose scores depend on those degrees.
+     */
+    int[] affectedBy(CoOccurrenceIndex delta) {
+        boolean[] affected = new boolean[bookOffsets.length - 1];
+        boolean[] changed = new boolean[affected.length];
+        for (int j = 0; j < delta.basketIds.length; j++) {
+            int basket = Arrays.binarySearch(basketIds, delta.basketIds[j]);
+            if (basket < 0) {
+                continue;
+            }
+            for (int k = basketOffsets[basket]; k < basketOffsets[basket + 1]; k++) {
+                int book = basketBooks[k];
+                if (changed[book]) {
+                    continue;
+                }
+                changed[book] = true;
+                affected[book] = true;
+                for (int m = bookOffsets[book]; m < bookOffsets[book + 1]; m++) {
+                    int other = bookBaskets[m];
+                    for (int n = basketOffsets[other]; n < basketOffsets[other + 1]; n++) {
+                        affected[basketBooks[n]] = true;
+                    }
+                }
+            }
+        }
+        int n = 0;
+        int[] books = new int[affected.length];
+        for (int book = 0; book < affected.length; book++) {
+            if (affected[book]) {
+                books[n++] = book;
+            }
+        }
+        return Arrays.copyOf(books, n);
+    }
+
+    /**
+     * @return the top neighbours of every given book, in the same order
+     */
+    BookNeighbours[] neighbours(int[] books, int topN, int minCoOccurrence, ForkJoinPool pool) {
+        BookNeighbours[] result = new BookNeighbours[books.length];
+        // Счётчики на весь диапазон id, по набору на занятый поток; живут только до конца вызова
+        Queue<int[][]> scratch = new ConcurrentLinkedQueue<>();
+        pool.invoke(new Partition(books, 0, books.length, topN, minCoOccurrence, result, scratch));
+        return result;
+    }
+
+    private class Partition extends RecursiveAction {
+
+        private static final int LEAF_SIZE = 256;
+
+        private final int[] books;
+        private final int from;
+        private final int to;
+        private final int topN;
+        private final int minCoOccurrence;
+        private final BookNeighbours[] result;
+        private final Queue<int[][]> scratch;
+
+        Partition(int[] books, int from, int to, int topN, int minCoOccurrence, BookNeighbours[] result,
+                  Queue<int[][]> scratch) {
+            this.books = books;
+            this.from = from;
+            this.to = to;
+            this.topN = topN;
+            this.minCoOccurrence = minCoOccurrence;
+            this.result = result;
+            this.scratch = scratch;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Partition(books, from, mid, topN, minCoOccurrence, result, scratch),
+                        new Partition(books, mid, to, topN, minCoOccurrence, result, scratch));
+                return;
+            }
+            // Тронутые ячейки счётчиков обнуляются по ходу, так что буфер возвращается чистым
+            int[][] buffers = scratch.poll();
+            if (buffers == null) {
+                buffers = new int[][]{new int[bookOffsets.length - 1], new int[bookOffsets.length - 1]};
+            }
+            int[] counts = buffers[0];
+            int[] touched = buffers[1];
+            int[] heapIds = new int[topN];
+            float[] heapScores = new float[topN];
+            try {
+                for (int i = from; i < to; i++) {
+                    result[i] = neighboursOf(books[i], counts, touched, heapIds, heapScores);
+                }
+            } finally {
+                scratch.offer(buffers);
+            }
+        }
+
+        private BookNeighbours neighboursOf(int book, int[] counts, int[] touched, int[] heapIds, float[] heapScores) {
+            int touchedCount = 0;
+            for (int k = bookOffsets[book]; k < bookOffsets[book + 1]; k++) {
+                int basket = bookBaskets[k];
+                for (int j = basketOffsets[basket]; j < basketOffsets[basket + 1]; j++) {
+                    int other = basketBooks[j];
+                    if (other != book && counts[other]++ == 0) {
+                        touched[touchedCount++] = other;
+                    }
+                }
+            }
+            double degree = bookOffsets[book + 1] - bookOffsets[book];
+            int size = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int other = touched[t];
+                int co = counts[other];
+                counts[other] = 0;
+                if (co < minCoOccurrence) {
+                    continue;
+                }
+                float score = (float) (co / Math.sqrt(degree * (bookOffsets[other + 1] - bookOffsets[other])));
+                if (size < topN) {
+                    heapIds[size] = other;
+                    heapScores[size] = score;
+                    siftUp(heapIds, heapScores, size++);
+                } else if (better(score, other, heapScores[0], heapIds[0])) {
+                    heapIds[0] = other;
+                    heapScores[0] = score;
+                    siftDown(heapIds, heapScores, size);
+                }
+            }
+            // Минимальная куча разбирается с конца — получаем порядок по убыванию
+            int[] ids = new int[size];
+            float[] scores = new float[size];
+            for (int n = size; n > 0; n--) {
+                ids[n - 1] = heapIds[0];
+                scores[n - 1] = heapScores[0];
+                heapIds[0] = heapIds[n - 1];
+                heapScores[0] = heapScores[n - 1];
+                siftDown(heapIds, heapScores, n - 1);
+            }
+            return new BookNeighbours(book, ids, scores);
+        }
+    }
+
+    // Порядок кучи: меньший score наверху, при равенстве — больший id (уступает меньшему)
+    private static boolean better(float score, int id, float otherScore, int otherId) {
+        return score > otherScore || (score == otherScore && id < otherId);
+    }
+
+    private static void siftUp(int[] ids, float[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(scores[parent], ids[parent], scores[i], ids[i])) {
+                break;
+            }
+            swap(ids, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, float[] scores, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && better(scores[left], ids[left], scores[right], ids[right])) {
+                worst = right;
+            }
+            if (!better(scores[i], ids[i], scores[worst], ids[worst])) {
+                return;
+            }
+            swap(ids, scores, i, worst);
+            i = worst;
+        }
+    }
+
+    private static void swap(int[] ids, float[] scores, int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    /**
+     * Accumulates rows ordered by basket and book; duplicate rows are dropped. Baskets larger than
+     * {@code maxBasketSize} are kept but not scored: they add quadratic work but carry almost no signal.
+     */
+    static class Builder {
+
+        private final int maxBasketSize;
+
+        private int[] ids = new int[1024];
+        private int[] offsets = new int[1025];
+        private int[] books = new int[1 << 16];
+        private int basketCount;
+        private int bookCount;
+
+        Builder(int maxBasketSize) {
+            this.maxBasketSize = maxBasketSize;
+        }
+
+        void add(int basketId, int bookId) {
+            if (basketCount == 0 || ids[basketCount - 1] != basketId) {
+                if (basketCount == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                ids[basketCount++] = basketId;
+            } else if (books[bookCount - 1] == bookId) {
+                return;
+            }
+            if (bookCount == books.length) {
+                books = Arrays.copyOf(books, books.length * 2);
+            }
+            books[bookCount++] = bookId;
+            offsets[basketCount] = bookCount;
+        }
+
+        CoOccurrenceIndex build() {
+            return new CoOccurrenceIndex(maxBasketSize, Arrays.copyOf(ids, basketCount),
+                    Arrays.copyOf(offsets, basketCount + 1), Arrays.copyOf(books, bookCount));
+        }
+    }
+}
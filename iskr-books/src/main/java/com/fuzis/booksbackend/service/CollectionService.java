@@ -24,6 +24,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CollectionService {
 
+    private static final int MAX_MEMBERSHIP_BATCH = 200;
+
     private final BookCollectionRepository bookCollectionRepository;
     private final BooksBookCollectionsRepository booksBookCollectionsRepository;
     private final LikedCollectionRepository likedCollectionRepository;
@@ -35,19 +37,45 @@ public class CollectionService {
     private final AuthorRepository authorRepository;
     private final GenreRepository genreRepository;
     private final CollectionAccessRepository collectionAccessRepository;
+    private final WishlistMembershipCache wishlistMembershipCache;
+    private final ActivityFeedService activityFeedService;
+    private final DetailCache detailCache;
 
-    @Transactional(readOnly = true)
     public ChangeDTO<Object> getCollectionDetail(Integer collectionId, Integer userId) {
-        try {
-            log.debug("Getting collection details for ID: {}, userId: {}", collectionId, userId);
+        log.debug("Getting collection details for ID: {}, userId: {}", collectionId, userId);
+
+        // Детали одинаковы для всех, кому коллекция видна, поэтому кэшируются без учёта userId;
+        // доступ проверяется по закэшированным владельцу и приватности
+        ChangeDTO<Object> detail = detailCache.get(DetailCache.Kind.Collection, collectionId,
+                () -> loadCollectionDetail(collectionId));
+        if (detail.getState() == State.Fail_NotFound
+                || (detail.getState() == State.OK && !canView((CollectionDetailDTO) detail.getKey(), userId))) {
+            log.warn("Access denied to collection {} for user {}", collectionId, userId);
+            return new ChangeDTO<>(State.Fail_Forbidden, "Access to collection denied", null);
+        }
+        return detail;
+    }
 
-            // Проверяем доступ к коллекции
-            Boolean canView = checkCollectionAccess(collectionId, userId);
-            if (Boolean.FALSE.equals(canView)) {
-                log.warn("Access denied to collection {} for user {}", collectionId, userId);
-                return new ChangeDTO<>(State.Fail_Forbidden, "Access to collection denied", null);
-            }
+    private boolean canView(CollectionDetailDTO collection, Integer userId) {
+        if (userId == null || "Public".equalsIgnoreCase(collection.getConfidentiality())) {
+            return true;
+        }
+        if (userId == -1) {
+            return false;
+        }
+        if (userId.equals(collection.getOwnerId())) {
+            return true;
+        }
+        try {
+            return collectionAccessRepository.canViewCollection(userId, collection.getCollectionId());
+        } catch (Exception e) {
+            log.error("Error checking collection access: ", e);
+            return false;
+        }
+    }
 
+    private ChangeDTO<Object> loadCollectionDetail(Integer collectionId) {
+        try {
             // Получаем коллекцию с владельцем и фото
             Optional<BookCollection> collectionOpt = bookCollectionRepository.findByIdWithOwnerAndPhoto(collectionId);
             if (collectionOpt.isEmpty()) {
@@ -93,7 +121,9 @@ public class CollectionService {
                                 imageData.getUuid(),
                                 imageData.getSize(),
                                 imageData.getMimeType(),
-                                imageData.getExtension()
+                                imageData.getExtension(),
+                                imageData.getVariantWidths(),
+                                imageData.getVariantFormat()
                         );
                         photoLinkDTO = new ImageLinkDTO(imageLink.getImglId(), imageDataDTO);
                     }
@@ -211,7 +241,9 @@ public class CollectionService {
                                         imageData.getUuid(),
                                         imageData.getSize(),
                                         imageData.getMimeType(),
-                                        imageData.getExtension()
+                                        imageData.getExtension(),
+                                        imageData.getVariantWidths(),
+                                        imageData.getVariantFormat()
                                 );
                                 ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
                                         fullImageLink.getImglId(),
@@ -360,6 +392,8 @@ public class CollectionService {
 
             BookCollection savedCollection = bookCollectionRepository.save(collection);
             log.info("Collection created with ID: {}", savedCollection.getBcolsId());
+            detailCache.invalidate(DetailCache.Kind.User, userOpt.get().getUserId());
+            activityFeedService.collectionCreated(savedCollection);
 
             // Возвращаем детали созданной коллекции
             return getCollectionDetail(savedCollection.getBcolsId(), userId);
@@ -464,6 +498,7 @@ public class CollectionService {
             }
 
             BookCollection updatedCollection = bookCollectionRepository.save(collection);
+            detailCache.invalidate(DetailCache.Kind.Collection, collectionId);
             log.info("Collection updated with ID: {}", collectionId);
 
             // Для админа передаем null в getCollectionDetail
@@ -509,7 +544,13 @@ public class CollectionService {
             }
 
             // Удаляем коллекцию
+            List<Integer> bookIds = booksBookCollectionsRepository.findBookIdsByCollectionId(collectionId);
             bookCollectionRepository.delete(collection);
+            invalidateIfWishlist(collection);
+            invalidateDetails(collectionId, bookIds);
+            if (collection.getOwner() != null) {
+                detailCache.invalidate(DetailCache.Kind.User, collection.getOwner().getUserId());
+            }
             log.info("Collection deleted with ID: {}", collectionId);
 
             return new ChangeDTO<>(State.OK, "Collection deleted successfully", null);
@@ -561,9 +602,7 @@ public class CollectionService {
             }
 
             // Проверяем, не добавлена ли уже книга в коллекцию
-            boolean alreadyExists = booksBookCollectionsRepository.findByBook_BookIdIn(List.of(bookId))
-                    .stream()
-                    .anyMatch(bbc -> bbc.getBookCollection().getBcolsId().equals(collectionId));
+            boolean alreadyExists = booksBookCollectionsRepository.existsInCollection(collectionId, bookId);
 
             if (alreadyExists) {
                 log.warn("Book {} already exists in collection {}", bookId, collectionId);
@@ -577,6 +616,9 @@ public class CollectionService {
                     .build();
 
             booksBookCollectionsRepository.save(booksBookCollections);
+            invalidateIfWishlist(collection);
+            invalidateDetails(collectionId, List.of(bookId));
+            activityFeedService.bookAddedToCollection(collection, bookId);
             log.info("Book {} added to collection {}", bookId, collectionId);
 
             return new ChangeDTO<>(State.OK, "Book added to collection successfully", null);
@@ -620,19 +662,14 @@ public class CollectionService {
                 return new ChangeDTO<>(State.Fail_Forbidden, "Unauthorized access", null);
             }
 
-            // Находим связь книги с коллекцией
-            List<BooksBookCollections> booksInCollection = booksBookCollectionsRepository.findByBook_BookIdIn(List.of(bookId));
-            Optional<BooksBookCollections> bbcOpt = booksInCollection.stream()
-                    .filter(bbc -> bbc.getBookCollection().getBcolsId().equals(collectionId))
-                    .findFirst();
-
-            if (bbcOpt.isEmpty()) {
+            // Удаляем связь книги с коллекцией
+            int removed = booksBookCollectionsRepository.deleteFromCollection(collectionId, bookId);
+            if (removed == 0) {
                 log.warn("Book {} not found in collection {}", bookId, collectionId);
                 return new ChangeDTO<>(State.Fail_NotFound, "Book not found in collection", null);
             }
-
-            // Удаляем связь
-            booksBookCollectionsRepository.delete(bbcOpt.get());
+            invalidateIfWishlist(collection);
+            invalidateDetails(collectionId, List.of(bookId));
             log.info("Book {} removed from collection {}", bookId, collectionId);
 
             return new ChangeDTO<>(State.OK, "Book removed from collection successfully", null);
@@ -834,6 +871,7 @@ public class CollectionService {
                     .build();
 
             likedCollectionRepository.save(likedCollection);
+            detailCache.invalidate(DetailCache.Kind.Collection, collectionId);
             log.info("User {} liked collection {}", userId, collectionId);
 
             return new ChangeDTO<>(State.OK, "Collection liked successfully", null);
@@ -869,6 +907,7 @@ public class CollectionService {
 
             // Удаляем лайк
             likedCollectionRepository.delete(likedCollectionOpt.get());
+            detailCache.invalidate(DetailCache.Kind.Collection, collectionId);
             log.info("User {} unliked collection {}", userId, collectionId);
 
             return new ChangeDTO<>(State.OK, "Collection unliked successfully", null);
@@ -1088,7 +1127,9 @@ public class CollectionService {
                                         imageData.getUuid(),
                                         imageData.getSize(),
                                         imageData.getMimeType(),
-                                        imageData.getExtension()
+                                        imageData.getExtension(),
+                                        imageData.getVariantWidths(),
+                                        imageData.getVariantFormat()
                                 );
                                 ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
                                         fullImageLink.getImglId(),
@@ -1159,11 +1200,8 @@ public class CollectionService {
             }
 
             // Проверяем, есть ли книга в коллекции
-            List<BooksBookCollections> booksInCollection = booksBookCollectionsRepository
-                    .findByBook_BookIdIn(List.of(bookId));
-
-            boolean exists = booksInCollection.stream()
-                    .anyMatch(bbc -> bbc.getBookCollection().getBcolsId().equals(collectionId));
+            Optional<Integer> linkId = booksBookCollectionsRepository.findLinkId(collectionId, bookId);
+            boolean exists = linkId.isPresent();
 
             // Создаем подробный ответ
             Map<String, Object> response = new HashMap<>();
@@ -1173,14 +1211,7 @@ public class CollectionService {
 
             // Если книга есть в коллекции, добавляем дополнительную информацию
             if (exists) {
-                Optional<BooksBookCollections> bbcOpt = booksInCollection.stream()
-                        .filter(bbc -> bbc.getBookCollection().getBcolsId().equals(collectionId))
-                        .findFirst();
-
-                if (bbcOpt.isPresent()) {
-                    BooksBookCollections bbc = bbcOpt.get();
-                    response.put("bookCollectionId", bbc.getCBookBcolId()); // ID связи
-                }
+                response.put("bookCollectionId", linkId.get()); // ID связи
 
                 // Добавляем информацию о книге
                 Book book = bookOpt.get();
@@ -1211,6 +1242,58 @@ public class CollectionService {
         }
     }
 
+    /**
+     * Membership of a page of books in the user's own collections, for grids that would otherwise
+     * call checkBookInCollection / checkBookInWishlist per card. Answered by a single query over the
+     * owner and (bcols_id, book_id) indexes; unknown book ids simply come back with no collections.
+     */
+    @Transactional(readOnly = true)
+    public ChangeDTO<Object> getBooksMembership(Integer userId, List<Integer> bookIds) {
+        try {
+            log.debug("Checking membership of {} books for user {}", bookIds == null ? 0 : bookIds.size(), userId);
+
+            // Проверяем, что userId не null и не -1
+            if (userId == null || userId == -1) {
+                log.warn("User ID is null or -1 for membership check");
+                return new ChangeDTO<>(State.Fail_Forbidden, "User ID is required and must be registered", null);
+            }
+
+            if (bookIds == null || bookIds.isEmpty()) {
+                return new ChangeDTO<>(State.Fail_BadData, "Book IDs are required", null);
+            }
+
+            Set<Integer> uniqueIds = new LinkedHashSet<>(bookIds);
+            uniqueIds.remove(null);
+            if (uniqueIds.size() > MAX_MEMBERSHIP_BATCH) {
+                return new ChangeDTO<>(State.Fail_BadData,
+                        "At most " + MAX_MEMBERSHIP_BATCH + " book IDs per request", null);
+            }
+
+            Map<Integer, BookMembershipDTO> memberships = new LinkedHashMap<>();
+            for (Integer bookId : uniqueIds) {
+                memberships.put(bookId, new BookMembershipDTO(bookId, false, new ArrayList<>()));
+            }
+
+            for (Object[] row : booksBookCollectionsRepository.findMembershipsByOwner(userId, uniqueIds)) {
+                BookMembershipDTO membership = memberships.get((Integer) row[0]);
+                membership.getCollectionIds().add((Integer) row[1]);
+                if (row[2] == CollectionType.Wishlist) {
+                    membership.setInWishlist(true);
+                }
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("userId", userId);
+            response.put("books", new ArrayList<>(memberships.values()));
+
+            return new ChangeDTO<>(State.OK, "Books membership retrieved successfully", response);
+
+        } catch (Exception e) {
+            log.error("Error checking books membership: ", e);
+            return new ChangeDTO<>(State.Fail, "Error checking books membership: " + e.getMessage(), null);
+        }
+    }
+
     // Методы для работы с вишлистами
 
     private Optional<BookCollection> getWishlistByUserId(Integer userId) {
@@ -1309,9 +1392,7 @@ public class CollectionService {
             }
 
             // Проверяем, не добавлена ли уже книга в вишлист
-            boolean alreadyExists = booksBookCollectionsRepository.findByBook_BookIdIn(List.of(bookId))
-                    .stream()
-                    .anyMatch(bbc -> bbc.getBookCollection().getBcolsId().equals(wishlist.getBcolsId()));
+            boolean alreadyExists = booksBookCollectionsRepository.existsInCollection(wishlist.getBcolsId(), bookId);
 
             if (alreadyExists) {
                 log.warn("Book {} already exists in wishlist for user {}", bookId, userId);
@@ -1325,6 +1406,8 @@ public class CollectionService {
                     .build();
 
             booksBookCollectionsRepository.save(booksBookCollections);
+            wishlistMembershipCache.invalidate(userId);
+            invalidateDetails(wishlist.getBcolsId(), List.of(bookId));
             log.info("Book {} added to wishlist for user {}", bookId, userId);
 
             // Возвращаем информацию о добавлении
@@ -1365,21 +1448,14 @@ public class CollectionService {
 
             BookCollection wishlist = wishlistOpt.get();
 
-            // Находим связь книги с вишлистом
-            List<BooksBookCollections> booksInWishlist = booksBookCollectionsRepository
-                    .findByBook_BookIdIn(List.of(bookId));
-
-            Optional<BooksBookCollections> bbcOpt = booksInWishlist.stream()
-                    .filter(bbc -> bbc.getBookCollection().getBcolsId().equals(wishlist.getBcolsId()))
-                    .findFirst();
-
-            if (bbcOpt.isEmpty()) {
+            // Удаляем связь книги с вишлистом
+            int removed = booksBookCollectionsRepository.deleteFromCollection(wishlist.getBcolsId(), bookId);
+            if (removed == 0) {
                 log.warn("Book {} not found in wishlist for user {}", bookId, userId);
                 return new ChangeDTO<>(State.Fail_NotFound, "Book not found in wishlist", null);
             }
-
-            // Удаляем связь
-            booksBookCollectionsRepository.delete(bbcOpt.get());
+            wishlistMembershipCache.invalidate(userId);
+            invalidateDetails(wishlist.getBcolsId(), List.of(bookId));
             log.info("Book {} removed from wishlist for user {}", bookId, userId);
 
             Map<String, Object> response = new HashMap<>();
@@ -1427,6 +1503,10 @@ public class CollectionService {
             int booksCount = booksInWishlist.size();
 
             // Удаляем все связи
+            wishlistMembershipCache.invalidate(userId);
+            invalidateDetails(wishlist.getBcolsId(), booksInWishlist.stream()
+                    .map(link -> link.getBook().getBookId())
+                    .collect(Collectors.toList()));
             if (!booksInWishlist.isEmpty()) {
                 booksBookCollectionsRepository.deleteAll(booksInWishlist);
                 log.info("Cleared {} books from wishlist for user {}", booksCount, userId);
@@ -1562,6 +1642,18 @@ public class CollectionService {
         }
     }
 
+    private void invalidateIfWishlist(BookCollection collection) {
+        if (collection.getCollectionType() == CollectionType.Wishlist && collection.getOwner() != null) {
+            wishlistMembershipCache.invalidate(collection.getOwner().getUserId());
+        }
+    }
+
+    // Состав коллекции изменился: устаревают её детали и число добавлений у затронутых книг
+    private void invalidateDetails(Integer collectionId, List<Integer> bookIds) {
+        detailCache.invalidate(DetailCache.Kind.Collection, collectionId);
+        detailCache.invalidate(DetailCache.Kind.Book, bookIds);
+    }
+
     private Page<BooksBookCollections> getBooksInCollectionPage(Integer collectionId, Pageable pageable) {
         return booksBookCollectionsRepository.findByBookCollection_BcolsId(collectionId, pageable);
     }
@@ -1614,25 +1706,15 @@ public class CollectionService {
             response.put("wishlistTitle", wishlist.getTitle());
             response.put("confidentiality", wishlist.getConfidentiality());
 
-            // Проверяем, есть ли книга в вишлисте
-            List<BooksBookCollections> booksInWishlist = booksBookCollectionsRepository
-                    .findByBook_BookIdIn(List.of(bookId));
-
-            boolean exists = booksInWishlist.stream()
-                    .anyMatch(bbc -> bbc.getBookCollection().getBcolsId().equals(wishlist.getBcolsId()));
+            // Проверяем, есть ли книга в вишлисте (по кэшу множества книг вишлиста пользователя)
+            boolean exists = wishlistMembershipCache.contains(userId, wishlist.getBcolsId(), bookId);
 
             response.put("existsInWishlist", exists);
 
             // Если книга есть в вишлисте, добавляем дополнительную информацию
             if (exists) {
-                Optional<BooksBookCollections> bbcOpt = booksInWishlist.stream()
-                        .filter(bbc -> bbc.getBookCollection().getBcolsId().equals(wishlist.getBcolsId()))
-                        .findFirst();
-
-                if (bbcOpt.isPresent()) {
-                    BooksBookCollections bbc = bbcOpt.get();
-                    response.put("bookCollectionId", bbc.getCBookBcolId()); // ID связи
-                }
+                booksBookCollectionsRepository.findLinkId(wishlist.getBcolsId(), bookId)
+                        .ifPresent(id -> response.put("bookCollectionId", id)); // ID связи
 
                 // Добавляем информацию о книге
                 Book book = bookOpt.get();
@@ -1685,7 +1767,9 @@ public class CollectionService {
                                     imageData.getUuid(),
                                     imageData.getSize(),
                                     imageData.getMimeType(),
-                                    imageData.getExtension()
+                                    imageData.getExtension(),
+                                    imageData.getVariantWidths(),
+                                    imageData.getVariantFormat()
                             );
                             ImageLinkDTO imageLinkDTO = new ImageLinkDTO(fullImageLink.getImglId(), imageDataDTO);
                             response.put("bookCover", imageLinkDTO);
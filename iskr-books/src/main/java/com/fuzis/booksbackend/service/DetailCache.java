@@ -0,0 +1,387 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.transfer.ChangeDTO;
+import com.fuzis.booksbackend.transfer.state.State;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Ready-made responses of the book, collection and user detail endpoints, so a hot entity is served
+ * without rebuilding its DTO from half a dozen queries.
+ * <p>
+ * Eviction is W-TinyLFU: new entries land in a small LRU window, and an entry leaving the window only
+ * displaces the LRU victim of the main segment if a count-min sketch of recent requests (halved every
+ * {@code 10 * max-entries} requests, so old popularity fades) says it is requested more often. One-off
+ * lookups therefore cannot flush the hot set.
+ * <p>
+ * Keys are versioned: a write bumps the version of the entity's stripe (now and again after its
+ * transaction completes), and an entry or an in-flight load stamped with an older version is ignored.
+ * Concurrent misses on one key share a single load. Hits take no lock: entries are looked up in a
+ * concurrent map, the frequency sketch is lock-free, and the LRU order is only touched when the policy
+ * lock happens to be free. Entries also expire after {@code books.detail-cache.ttl},
+ * which bounds staleness for changes this service is not told about.
+ */
+@Slf4j
+@Component
+public class DetailCache {
+
+    public enum Kind {
+        Book, Collection, User
+    }
+
+    private record Key(Kind kind, int id) {
+
+        // Хэш enum-а зависит от запуска JVM; от порядкового номера — нет
+        @Override
+        public int hashCode() {
+            return kind.ordinal() * 0x61C88647 + id;
+        }
+    }
+
+    private record Entry(ChangeDTO<Object> value, long version, long loadedAt) {
+    }
+
+    private record Load(long version, CompletableFuture<ChangeDTO<Object>> result) {
+    }
+
+    private static final int STRIPES = 1 << 12;
+
+    private final TransactionTemplate readTransaction;
+    private final FrequencySketch sketch;
+    private final int windowMax;
+    private final int mainMax;
+    private final long ttlMs;
+    private final long loadWaitMs;
+
+    // Записи читаются без замка; окно и основной сегмент — только порядок LRU ключей, под замком политики
+    private final ConcurrentHashMap<Key, Entry> data = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Key, Boolean> window = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<Key, Boolean> main = new LinkedHashMap<>(1024, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Версия ключа = версия его полосы + эпоха вида (сбрасывает весь вид разом)
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray epochs = new AtomicLongArray(Kind.values().length);
+
+    private final ConcurrentHashMap<Key, Load> loads = new ConcurrentHashMap<>();
+
+    private final Counter[] hits = new Counter[Kind.values().length];
+    private final Counter[] misses = new Counter[Kind.values().length];
+    private final Counter coalesced;
+    private final Counter evicted;
+    private final Counter rejected;
+
+    public DetailCache(PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${books.detail-cache.max-entries:20000}") int maxEntries,
+                       @Value("${books.detail-cache.ttl:PT10M}") Duration ttl,
+                       @Value("${books.detail-cache.load-wait:PT5S}") Duration loadWait) {
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.sketch = new FrequencySketch(maxEntries);
+        this.windowMax = Math.max(1, maxEntries / 100);
+        this.mainMax = Math.max(1, maxEntries - windowMax);
+        this.ttlMs = ttl.toMillis();
+        this.loadWaitMs = loadWait.toMillis();
+
+        for (Kind kind : Kind.values()) {
+            String tag = kind.name().toLowerCase();
+            Counter hit = Counter.builder("books.detail.cache.requests").tag("kind", tag).tag("result", "hit")
+                    .register(meterRegistry);
+            Counter miss = Counter.builder("books.detail.cache.requests").tag("kind", tag).tag("result", "miss")
+                    .register(meterRegistry);
+            hits[kind.ordinal()] = hit;
+            misses[kind.ordinal()] = miss;
+            Gauge.builder("books.detail.cache.hit.ratio", () -> ratio(hit.count(), miss.count()))
+                    .tag("kind", tag)
+                    .register(meterRegistry);
+        }
+        this.coalesced = Counter.builder("books.detail.cache.coalesced").register(meterRegistry);
+        this.evicted = Counter.builder("books.detail.cache.evictions").tag("cause", "size").register(meterRegistry);
+        this.rejected = Counter.builder("books.detail.cache.evictions").tag("cause", "rejected").register(meterRegistry);
+        Gauge.builder("books.detail.cache.size", this::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached response for the entity, or runs {@code loader} in a read-only transaction.
+     * Only {@link State#OK} responses are cached; callers waiting on the same key get the loader's result
+     * whatever its state.
+     */
+    public ChangeDTO<Object> get(Kind kind, Integer id, Supplier<ChangeDTO<Object>> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Внутри пишущей транзакции видны незакоммиченные данные — их не кэшируем
+            return loader.get();
+        }
+        Key key = new Key(kind, id);
+        long version = version(key);
+        sketch.increment(key.hashCode());
+        Entry entry = data.get(key);
+        if (entry != null && entry.version() == version && System.currentTimeMillis() - entry.loadedAt() <= ttlMs) {
+            touch(key);
+            hits[kind.ordinal()].increment();
+            return entry.value();
+        }
+        misses[kind.ordinal()].increment();
+
+        Load own = new Load(version, new CompletableFuture<>());
+        Load running = loads.putIfAbsent(key, own);
+        if (running != null) {
+            if (running.version() == version) {
+                ChangeDTO<Object> shared = await(running);
+                if (shared != null) {
+                    coalesced.increment();
+                    return shared;
+                }
+            }
+            // Загрузка начата до записи (или зависла) — читаем сами, в обход кэша
+            return load(loader);
+        }
+
+        try {
+            ChangeDTO<Object> value = load(loader);
+            if (value.getState() == State.OK && version(key) == version) {
+                put(key, new Entry(value, version, System.currentTimeMillis()));
+            }
+            own.result().complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            own.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, own);
+        }
+    }
+
+    /**
+     * Makes the entities' entries stale now and again after the current transaction completes.
+     */
+    public void invalidate(Kind kind, Integer id) {
+        invalidate(kind, List.of(id));
+    }
+
+    public void invalidate(Kind kind, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Key> keys = ids.stream().map(id -> new Key(kind, id)).toList();
+        keys.forEach(this::bump);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    keys.forEach(DetailCache.this::bump);
+                }
+            });
+        }
+    }
+
+    /**
+     * Makes every entry of the kind stale, for writes shared by many entities (an author or genre rename).
+     */
+    public void invalidateAll(Kind kind) {
+        epochs.incrementAndGet(kind.ordinal());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    epochs.incrementAndGet(kind.ordinal());
+                }
+            });
+        }
+    }
+
+    private ChangeDTO<Object> load(Supplier<ChangeDTO<Object>> loader) {
+        return readTransaction.execute(status -> loader.get());
+    }
+
+    private ChangeDTO<Object> await(Load running) {
+        try {
+            return running.result().get(loadWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Timed out waiting for a concurrent detail load");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void bump(Key key) {
+        stripes.incrementAndGet(stripe(key));
+        lock.lock();
+        try {
+            data.remove(key);
+            window.remove(key);
+            main.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Порядок LRU двигаем, только если замок свободен: пропущенное касание лишь чуть сдвигает выбор жертвы
+    private void touch(Key key) {
+        if (lock.tryLock()) {
+            try {
+                if (window.get(key) == null) {
+                    main.get(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private long version(Key key) {
+        // Эпоха в старших битах: полосы никогда не дорастут до 2^40 сбросов
+        return (epochs.get(key.kind().ordinal()) << 40) + stripes.get(stripe(key));
+    }
+
+    private static int stripe(Key key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private void put(Key key, Entry entry) {
+        lock.lock();
+        try {
+            data.put(key, entry);
+            if (main.get(key) != null) {
+                return;
+            }
+            window.put(key, Boolean.TRUE);
+            if (window.size() <= windowMax) {
+                return;
+            }
+            Iterator<Key> windowIt = window.keySet().iterator();
+            Key candidate = windowIt.next();
+            windowIt.remove();
+            if (main.size() < mainMax) {
+                main.put(candidate, Boolean.TRUE);
+                return;
+            }
+            Iterator<Key> mainIt = main.keySet().iterator();
+            Key victim = mainIt.next();
+            // Допуск TinyLFU: вытесняем жертву, только если кандидат запрашивают чаще
+            if (sketch.frequency(candidate.hashCode()) > sketch.frequency(victim.hashCode())) {
+                mainIt.remove();
+                data.remove(victim);
+                main.put(candidate, Boolean.TRUE);
+                evicted.increment();
+            } else {
+                data.remove(candidate);
+                rejected.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        return data.size();
+    }
+
+    private static double ratio(double hit, double miss) {
+        double total = hit + miss;
+        return total > 0 ? hit / total : 0;
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, four rows, sixteen counters packed in a long. Increments are
+     * lock-free compare-and-set, so concurrent hits never wait on each other; aging takes the sketch's
+     * own monitor and may lose a few concurrent increments, which an estimate can afford.
+     */
+    static class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97CB3127, 0xB8F7C9A5, 0x6A3B4C75, 0xC2B2AE35};
+        private static final long HALF_MASK = 0x7777_7777_7777_7777L;
+
+        private final AtomicLongArray table;
+        private final int wordsPerRow;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        FrequencySketch(int maxEntries) {
+            int width = Integer.highestOneBit(Math.max(16, maxEntries - 1) << 1);
+            this.wordsPerRow = width / 16;
+            this.table = new AtomicLongArray(SEEDS.length * wordsPerRow);
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, maxEntries);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(hash, i);
+                int word = i * wordsPerRow + (index >>> 4);
+                int shift = (index & 15) << 2;
+                long value;
+                do {
+                    value = table.get(word);
+                    if (((value >>> shift) & 0xF) == 15) {
+                        break;
+                    }
+                } while (!table.compareAndSet(word, value, value + (1L << shift)));
+                added |= ((value >>> shift) & 0xF) < 15;
+            }
+            if (added && additions.incrementAndGet() >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(hash, i);
+                long value = table.get(i * wordsPerRow + (index >>> 4));
+                frequency = Math.min(frequency, (int) ((value >>> ((index & 15) << 2)) & 0xF));
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash + SEEDS[row]) * SEEDS[row];
+            return (h ^ (h >>> 17)) & mask;
+        }
+
+        // Старение: все счётчики пополам, чтобы былая популярность не держала записи вечно
+        private synchronized void reset() {
+            if (additions.get() < sampleSize) {
+                // Уже состарил другой поток
+                return;
+            }
+            for (int i = 0; i < table.length(); i++) {
+                long value;
+                do {
+                    value = table.get(i);
+                } while (!table.compareAndSet(i, value, (value >>> 1) & HALF_MASK));
+            }
+            additions.updateAndGet(a -> a / 2);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class GenreService {
     private final GenreRepository genreRepository;
+    private final DetailCache detailCache;
 
     @Transactional
     public ChangeDTO<Object> createGenre(GenreCreateDTO dto) {
@@ -101,6 +102,7 @@ public class GenreService {
                         }
 
                         Genre updatedGenre = genreRepository.save(genre);
+                        detailCache.invalidateAll(DetailCache.Kind.Book);
                         log.info("Genre updated successfully with ID: {}", id);
                         return new ChangeDTO<>(State.OK,
                                 "Genre updated successfully", (Object) updatedGenre);
@@ -133,6 +135,7 @@ public class GenreService {
             }
 
             genreRepository.deleteById(id);
+            detailCache.invalidateAll(DetailCache.Kind.Book);
             log.info("Genre deleted successfully with ID: {}", id);
             return new ChangeDTO<>(State.OK,
                     "Genre deleted successfully", null);
@@ -1,17 +1,36 @@
 package com.fuzis.booksbackend.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fuzis.booksbackend.entity.*;
 import com.fuzis.booksbackend.repository.*;
 import com.fuzis.booksbackend.transfer.*;
 import com.fuzis.booksbackend.transfer.state.State;
+import com.fuzis.booksbackend.util.FeedCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-
+import java.util.stream.Stream;
+
+/**
+ * Library feeds of a user. Pages are keyset-paginated over (title, id) or id, so a page costs the
+ * same regardless of how deep into the library it is; the opaque {@code nextCursor} of a page is
+ * passed back to get the next one. The stream variants write the whole feed as NDJSON from a
+ * server-side cursor, hydrating and flushing it in chunks, so memory per request stays constant.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -27,124 +46,40 @@ public class LibraryService {
     private final AuthorRepository authorRepository;
     private final GenreRepository genreRepository;
     private final BooksBookCollectionsRepository bbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
 
-    @Transactional(readOnly = true)
-    public ChangeDTO<Object> getVisibleCollections(Integer userId) {
-        try {
-            log.debug("Getting visible collections for user {}", userId);
-
-            // Получаем коллекции из функции БД
-            List<Object[]> visibleCollections = libraryRepository.findVisibleCollectionsForUser(userId);
-
-            if (visibleCollections.isEmpty()) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("collections", new ArrayList<>());
-                response.put("count", 0);
-
-                return new ChangeDTO<>(State.OK,
-                        "No visible collections found", response);
-            }
-
-            // Извлекаем ID коллекций
-            List<Integer> collectionIds = visibleCollections.stream()
-                    .map(row -> (Integer) row[0]) // bcols_id - первый столбец
-                    .collect(Collectors.toList());
-
-            // Получаем полную информацию о коллекциях
-            List<BookCollection> collections = bookCollectionRepository.findByIdsWithPhotoLinks(collectionIds);
-
-            // Получаем количество книг в каждой коллекции
-            List<Object[]> bookCounts = booksBookCollectionsRepository.findBookCountsByCollectionIds(collectionIds);
-            Map<Integer, Long> bookCountsMap = bookCounts.stream()
-                    .collect(Collectors.toMap(
-                            row -> (Integer) row[0],
-                            row -> (Long) row[1]
-                    ));
-
-            // Получаем владельцев
-            List<Integer> ownerIds = collections.stream()
-                    .map(bc -> bc.getOwner().getUserId())
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            Map<Integer, User> ownersMap = userRepository.findByIdsWithProfiles(ownerIds).stream()
-                    .collect(Collectors.toMap(User::getUserId, u -> u));
-
-            // Получаем изображения коллекций
-            List<Integer> imageIds = collections.stream()
-                    .map(BookCollection::getPhotoLink)
-                    .filter(Objects::nonNull)
-                    .map(ImageLink::getImglId)
-                    .collect(Collectors.toList());
-
-            Map<Integer, ImageLink> imageLinksMap;
-            if (!imageIds.isEmpty()) {
-                List<ImageLink> imageLinks = imageLinkRepository.findByIdsWithImageData(imageIds);
-                imageLinksMap = imageLinks.stream()
-                        .collect(Collectors.toMap(ImageLink::getImglId, il -> il));
-            } else {
-                imageLinksMap = new HashMap<>();
-            }
+    @PersistenceContext
+    private EntityManager entityManager;
 
-            // Создаем DTO
-            List<LibraryCollectionDTO> collectionDTOs = collections.stream()
-                    .map(collection -> {
-                        LibraryCollectionDTO dto = new LibraryCollectionDTO();
-                        dto.setBcolsId(collection.getBcolsId());
-                        dto.setTitle(collection.getTitle());
-                        dto.setDescription(collection.getDescription());
-                        dto.setConfidentiality(collection.getConfidentiality().name());
-                        dto.setBookCollectionType(collection.getCollectionType().name());
-
-                        // Владелец
-                        User owner = collection.getOwner();
-                        if (owner != null) {
-                            dto.setOwnerId(owner.getUserId());
-                            User fullOwner = ownersMap.get(owner.getUserId());
-                            if (fullOwner != null && fullOwner.getProfile() != null) {
-                                dto.setOwnerNickname(fullOwner.getProfile().getNickname());
-                            }
-                        }
+    @Value("${library.stream.chunk-size:100}")
+    private int streamChunkSize;
 
-                        // Количество книг
-                        dto.setBookCount(bookCountsMap.getOrDefault(collection.getBcolsId(), 0L));
-
-                        // Фото
-                        ImageLink photoLink = collection.getPhotoLink();
-                        if (photoLink != null) {
-                            ImageLink fullImageLink = imageLinksMap.get(photoLink.getImglId());
-                            if (fullImageLink != null && fullImageLink.getImageData() != null) {
-                                ImageData imageData = fullImageLink.getImageData();
-                                ImageDataDTO imageDataDTO = new ImageDataDTO(
-                                        imageData.getImgdId(),
-                                        imageData.getUuid(),
-                                        imageData.getSize(),
-                                        imageData.getMimeType(),
-                                        imageData.getExtension()
-                                );
-                                ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
-                                        fullImageLink.getImglId(),
-                                        imageDataDTO
-                                );
-                                dto.setPhotoLink(imageLinkDTO);
-                            }
-                        }
+    private record FeedPage(List<Integer> ids, boolean hasMore, String nextCursor) {
+    }
 
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public ChangeDTO<Object> getVisibleCollections(Integer userId, String cursor, String sort, Integer batch) {
+        try {
+            log.debug("Getting visible collections for user {} after {} by {}", userId, cursor, sort);
 
-            // Сортируем по ID, чтобы сохранить порядок из функции
-            collectionDTOs.sort(Comparator.comparing(LibraryCollectionDTO::getBcolsId));
+            FeedCursor after = FeedCursor.decode(cursor);
+            FeedPage page = toPage(libraryRepository.findVisibleCollectionsPage(
+                    userId, sort, after.title(), after.seq(), batch + 1), batch);
+            List<LibraryCollectionDTO> collectionDTOs = buildCollectionDTOs(page.ids());
 
-            Map<String, Object> response = new HashMap<>();
+            Map<String, Object> response = pageResponse(page, sort);
             response.put("collections", collectionDTOs);
             response.put("count", collectionDTOs.size());
 
             log.debug("Found {} visible collections for user {}", collectionDTOs.size(), userId);
             return new ChangeDTO<>(State.OK,
-                    "Visible collections retrieved successfully", response);
+                    collectionDTOs.isEmpty() && cursor == null ? "No visible collections found"
+                            : "Visible collections retrieved successfully", response);
 
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid library cursor {}", cursor);
+            return new ChangeDTO<>(State.Fail_BadData, "Invalid cursor", null);
         } catch (Exception e) {
             log.error("Error retrieving visible collections: ", e);
             return new ChangeDTO<>(State.Fail,
@@ -153,144 +88,27 @@ public class LibraryService {
     }
 
     @Transactional(readOnly = true)
-    public ChangeDTO<Object> getVisibleBooks(Integer userId) {
+    public ChangeDTO<Object> getVisibleBooks(Integer userId, String cursor, String sort, Integer batch) {
         try {
-            log.debug("Getting visible books for user {}", userId);
-
-            // Получаем книги из функции БД
-            List<Object[]> visibleBooks = libraryRepository.findVisibleBooksForUser(userId);
-
-            if (visibleBooks.isEmpty()) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("books", new ArrayList<>());
-                response.put("count", 0);
-
-                return new ChangeDTO<>(State.OK,
-                        "No visible books found", response);
-            }
+            log.debug("Getting visible books for user {} after {} by {}", userId, cursor, sort);
 
-            // Извлекаем ID книг
-            List<Integer> bookIds = visibleBooks.stream()
-                    .map(row -> (Integer) row[0]) // book_id - первый столбец
-                    .collect(Collectors.toList());
-
-            // Получаем полную информацию о книгах с авторами и жанрами
-            List<Book> books = bookRepository.findAllById(bookIds);
-
-            // Для получения авторов и жанров нужно использовать отдельный запрос
-            // или изменить текущую логику. Сначала получим книги, потом отдельно авторов и жанры.
-
-            // Получаем средние рейтинги
-            List<Object[]> averageRatings = bookReviewRepository.findAverageRatingsByBookIds(bookIds);
-            Map<Integer, Double> averageRatingsMap = averageRatings.stream()
-                    .collect(Collectors.toMap(
-                            row -> (Integer) row[0],
-                            row -> (Double) row[1]
-                    ));
-
-            // Получаем количество коллекций для книг
-            List<Object[]> collectionsCounts = bbcRepository.findBookCountsByCollectionIds(bookIds);
-            Map<Integer, Long> collectionsCountMap = collectionsCounts.stream()
-                    .collect(Collectors.toMap(
-                            row -> (Integer) row[0],
-                            row -> (Long) row[1]
-                    ));
-
-            // Получаем изображения книг
-            List<Integer> imageIds = books.stream()
-                    .map(Book::getPhotoLink)
-                    .filter(Objects::nonNull)
-                    .map(ImageLink::getImglId)
-                    .collect(Collectors.toList());
-
-            Map<Integer, ImageLink> imageLinksMap;
-            if (!imageIds.isEmpty()) {
-                List<ImageLink> imageLinks = imageLinkRepository.findByIdsWithImageData(imageIds);
-                imageLinksMap = imageLinks.stream()
-                        .collect(Collectors.toMap(ImageLink::getImglId, il -> il));
-            } else {
-                imageLinksMap = new HashMap<>();
-            }
-
-            // Создаем DTO
-            List<LibraryBookDTO> bookDTOs = books.stream()
-                    .map(book -> {
-                        LibraryBookDTO dto = new LibraryBookDTO();
-                        dto.setBookId(book.getBookId());
-                        dto.setTitle(book.getTitle());
-                        dto.setSubtitle(book.getSubtitle());
-                        dto.setIsbn(book.getIsbn());
-                        dto.setPageCnt(book.getPageCnt());
-                        dto.setAddedBy(book.getAddedBy() != null ? book.getAddedBy().getUserId() : null);
-
-                        // Средний рейтинг
-                        Double avgRating = averageRatingsMap.get(book.getBookId());
-                        if (avgRating != null) {
-                            dto.setAverageRating(Math.round(avgRating * 100.0) / 100.0);
-                        }
-
-                        // Количество коллекций
-                        dto.setCollectionsCount(collectionsCountMap.getOrDefault(book.getBookId(), 0L));
-
-                        // Фото
-                        ImageLink photoLink = book.getPhotoLink();
-                        if (photoLink != null) {
-                            ImageLink fullImageLink = imageLinksMap.get(photoLink.getImglId());
-                            if (fullImageLink != null && fullImageLink.getImageData() != null) {
-                                ImageData imageData = fullImageLink.getImageData();
-                                ImageDataDTO imageDataDTO = new ImageDataDTO(
-                                        imageData.getImgdId(),
-                                        imageData.getUuid(),
-                                        imageData.getSize(),
-                                        imageData.getMimeType(),
-                                        imageData.getExtension()
-                                );
-                                ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
-                                        fullImageLink.getImglId(),
-                                        imageDataDTO
-                                );
-                                dto.setPhotoLink(imageLinkDTO);
-                            }
-                        }
-
-                        // Авторы (нужно дополнительно загрузить)
-                        if (book.getAuthors() != null) {
-                            dto.setAuthors(book.getAuthors().stream()
-                                    .map(author -> new AuthorDTO(
-                                            author.getAuthorId(),
-                                            author.getName(),
-                                            author.getBirthDate(),
-                                            author.getDescription(),
-                                            author.getRealName()
-                                    ))
-                                    .collect(Collectors.toList()));
-                        }
-
-                        // Жанры (нужно дополнительно загрузить)
-                        if (book.getGenres() != null) {
-                            dto.setGenres(book.getGenres().stream()
-                                    .map(genre -> new GenreDTO(
-                                            genre.getGenreId(),
-                                            genre.getName()
-                                    ))
-                                    .collect(Collectors.toList()));
-                        }
-
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+            FeedCursor after = FeedCursor.decode(cursor);
+            FeedPage page = toPage(libraryRepository.findVisibleBooksPage(
+                    userId, sort, after.title(), after.seq(), batch + 1), batch);
+            List<LibraryBookDTO> bookDTOs = buildBookDTOs(page.ids(), true);
 
-            // Сортируем по ID
-            bookDTOs.sort(Comparator.comparing(LibraryBookDTO::getBookId));
-
-            Map<String, Object> response = new HashMap<>();
+            Map<String, Object> response = pageResponse(page, sort);
             response.put("books", bookDTOs);
             response.put("count", bookDTOs.size());
 
             log.debug("Found {} visible books for user {}", bookDTOs.size(), userId);
             return new ChangeDTO<>(State.OK,
-                    "Visible books retrieved successfully", response);
+                    bookDTOs.isEmpty() && cursor == null ? "No visible books found"
+                            : "Visible books retrieved successfully", response);
 
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid library cursor {}", cursor);
+            return new ChangeDTO<>(State.Fail_BadData, "Invalid cursor", null);
         } catch (Exception e) {
             log.error("Error retrieving visible books: ", e);
             return new ChangeDTO<>(State.Fail,
@@ -299,15 +117,17 @@ public class LibraryService {
     }
 
     @Transactional(readOnly = true)
-    public ChangeDTO<Object> getWishlistBooks(Integer userId) {
+    public ChangeDTO<Object> getWishlistBooks(Integer userId, String cursor, String sort, Integer batch) {
         try {
-            log.debug("Getting wishlist books for user {}", userId);
+            log.debug("Getting wishlist books for user {} after {} by {}", userId, cursor, sort);
+
+            FeedCursor after = FeedCursor.decode(cursor);
 
             // Получаем вишлист пользователя
             List<BookCollection> wishlists = libraryRepository.findWishlistByUserId(userId);
 
             if (wishlists.isEmpty()) {
-                Map<String, Object> response = new HashMap<>();
+                Map<String, Object> response = pageResponse(new FeedPage(List.of(), false, null), sort);
                 response.put("books", new ArrayList<>());
                 response.put("count", 0);
 
@@ -318,116 +138,11 @@ public class LibraryService {
             // Вишлист должен быть один, берем первый
             BookCollection wishlist = wishlists.get(0);
 
-            // Получаем книги из вишлиста
-            List<BooksBookCollections> booksInWishlist = bbcRepository.findByBookCollection_BcolsId(wishlist.getBcolsId(), null).getContent();
-
-            if (booksInWishlist.isEmpty()) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("books", new ArrayList<>());
-                response.put("count", 0);
+            FeedPage page = toPage(libraryRepository.findWishlistBooksPage(
+                    wishlist.getBcolsId(), sort, after.title(), after.seq(), batch + 1), batch);
+            List<LibraryBookDTO> bookDTOs = buildBookDTOs(page.ids(), false);
 
-                return new ChangeDTO<>(State.OK,
-                        "Wishlist is empty", response);
-            }
-
-            // Извлекаем ID книг
-            List<Integer> bookIds = booksInWishlist.stream()
-                    .map(bbc -> bbc.getBook().getBookId())
-                    .collect(Collectors.toList());
-
-            // Получаем полную информацию о книгах
-            List<Book> books = bookRepository.findAllById(bookIds);
-
-            // Получаем средние рейтинги
-            List<Object[]> averageRatings = bookReviewRepository.findAverageRatingsByBookIds(bookIds);
-            Map<Integer, Double> averageRatingsMap = averageRatings.stream()
-                    .collect(Collectors.toMap(
-                            row -> (Integer) row[0],
-                            row -> (Double) row[1]
-                    ));
-
-            // Получаем изображения книг
-            List<Integer> imageIds = books.stream()
-                    .map(Book::getPhotoLink)
-                    .filter(Objects::nonNull)
-                    .map(ImageLink::getImglId)
-                    .collect(Collectors.toList());
-
-            Map<Integer, ImageLink> imageLinksMap;
-            if (!imageIds.isEmpty()) {
-                List<ImageLink> imageLinks = imageLinkRepository.findByIdsWithImageData(imageIds);
-                imageLinksMap = imageLinks.stream()
-                        .collect(Collectors.toMap(ImageLink::getImglId, il -> il));
-            } else {
-                imageLinksMap = new HashMap<>();
-            }
-
-            // Создаем DTO
-            List<LibraryBookDTO> bookDTOs = books.stream()
-                    .map(book -> {
-                        LibraryBookDTO dto = new LibraryBookDTO();
-                        dto.setBookId(book.getBookId());
-                        dto.setTitle(book.getTitle());
-                        dto.setSubtitle(book.getSubtitle());
-                        dto.setIsbn(book.getIsbn());
-                        dto.setPageCnt(book.getPageCnt());
-                        dto.setAddedBy(book.getAddedBy() != null ? book.getAddedBy().getUserId() : null);
-
-                        // Средний рейтинг
-                        Double avgRating = averageRatingsMap.get(book.getBookId());
-                        if (avgRating != null) {
-                            dto.setAverageRating(Math.round(avgRating * 100.0) / 100.0);
-                        }
-
-                        // Фото
-                        ImageLink photoLink = book.getPhotoLink();
-                        if (photoLink != null) {
-                            ImageLink fullImageLink = imageLinksMap.get(photoLink.getImglId());
-                            if (fullImageLink != null && fullImageLink.getImageData() != null) {
-                                ImageData imageData = fullImageLink.getImageData();
-                                ImageDataDTO imageDataDTO = new ImageDataDTO(
-                                        imageData.getImgdId(),
-                                        imageData.getUuid(),
-                                        imageData.getSize(),
-                                        imageData.getMimeType(),
-                                        imageData.getExtension()
-                                );
-                                ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
-                                        fullImageLink.getImglId(),
-                                        imageDataDTO
-                                );
-                                dto.setPhotoLink(imageLinkDTO);
-                            }
-                        }
-
-                        // Авторы
-                        if (book.getAuthors() != null) {
-                            dto.setAuthors(book.getAuthors().stream()
-                                    .map(author -> new AuthorDTO(
-                                            author.getAuthorId(),
-                                            author.getName(),
-                                            author.getBirthDate(),
-                                            author.getDescription(),
-                                            author.getRealName()
-                                    ))
-                                    .collect(Collectors.toList()));
-                        }
-
-                        // Жанры
-                        if (book.getGenres() != null) {
-                            dto.setGenres(book.getGenres().stream()
-                                    .map(genre -> new GenreDTO(
-                                            genre.getGenreId(),
-                                            genre.getName()
-                                    ))
-                                    .collect(Collectors.toList()));
-                        }
-
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
-
-            Map<String, Object> response = new HashMap<>();
+            Map<String, Object> response = pageResponse(page, sort);
             response.put("books", bookDTOs);
             response.put("count", bookDTOs.size());
             response.put("wishlistId", wishlist.getBcolsId());
@@ -435,12 +150,307 @@ public class LibraryService {
 
             log.debug("Found {} books in wishlist for user {}", bookDTOs.size(), userId);
             return new ChangeDTO<>(State.OK,
-                    "Wishlist books retrieved successfully", response);
+                    bookDTOs.isEmpty() && cursor == null ? "Wishlist is empty"
+                            : "Wishlist books retrieved successfully", response);
 
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid library cursor {}", cursor);
+            return new ChangeDTO<>(State.Fail_BadData, "Invalid cursor", null);
         } catch (Exception e) {
             log.error("Error retrieving wishlist books: ", e);
             return new ChangeDTO<>(State.Fail,
                     "Error retrieving wishlist books: " + e.getMessage(), null);
         }
     }
-}
\ No newline at end of file
+
+    public StreamingResponseBody streamVisibleCollections(Integer userId, String sort) {
+        return out -> streamFeed(out, () -> libraryRepository.streamVisibleCollections(
+                userId, sort, FeedCursor.START.title(), FeedCursor.START.seq(), Integer.MAX_VALUE),
+                this::buildCollectionDTOs);
+    }
+
+    public StreamingResponseBody streamVisibleBooks(Integer userId, String sort) {
+        return out -> streamFeed(out, () -> libraryRepository.streamVisibleBooks(
+                userId, sort, FeedCursor.START.title(), FeedCursor.START.seq(), Integer.MAX_VALUE),
+                ids -> buildBookDTOs(ids, true));
+    }
+
+    public StreamingResponseBody streamWishlistBooks(Integer userId, String sort) {
+        return out -> streamFeed(out, () -> libraryRepository.findWishlistByUserId(userId).stream()
+                .findFirst()
+                .map(wishlist -> libraryRepository.streamWishlistBooks(
+                        wishlist.getBcolsId(), sort, FeedCursor.START.title(), FeedCursor.START.seq(), Integer.MAX_VALUE))
+                .orElseGet(Stream::empty),
+                ids -> buildBookDTOs(ids, false));
+    }
+
+    private void streamFeed(OutputStream out, Supplier<Stream<Object[]>> rows,
+                            Function<List<Integer>, ? extends List<?>> hydrate) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<Object[]> feed = rows.get()) {
+                List<Integer> chunk = new ArrayList<>(streamChunkSize);
+                Iterator<Object[]> iterator = feed.iterator();
+                while (iterator.hasNext()) {
+                    chunk.add((Integer) iterator.next()[0]);
+                    if (chunk.size() == streamChunkSize || !iterator.hasNext()) {
+                        for (Object dto : hydrate.apply(chunk)) {
+                            out.write(objectMapper.writeValueAsBytes(dto));
+                            out.write('\n');
+                        }
+                        out.flush();
+                        chunk.clear();
+                        // Не копим уже отданные сущности в контексте персистентности
+                        entityManager.clear();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static FeedPage toPage(List<Object[]> rows, int batch) {
+        boolean hasMore = rows.size() > batch;
+        List<Object[]> page = hasMore ? rows.subList(0, batch) : rows;
+        List<Integer> ids = page.stream()
+                .map(row -> (Integer) row[0])
+                .collect(Collectors.toList());
+        String nextCursor = null;
+        if (hasMore) {
+            Object[] last = page.get(page.size() - 1);
+            nextCursor = new FeedCursor((String) last[1], (Integer) last[2]).encode();
+        }
+        return new FeedPage(ids, hasMore, nextCursor);
+    }
+
+    private static Map<String, Object> pageResponse(FeedPage page, String sort) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("sort", sort);
+        response.put("hasMore", page.hasMore());
+        response.put("nextCursor", page.nextCursor());
+        return response;
+    }
+
+    private List<LibraryCollectionDTO> buildCollectionDTOs(List<Integer> collectionIds) {
+        if (collectionIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Получаем полную информацию о коллекциях
+        List<BookCollection> collections = bookCollectionRepository.findByIdsWithPhotoLinks(collectionIds);
+
+        // Получаем количество книг в каждой коллекции
+        List<Object[]> bookCounts = booksBookCollectionsRepository.findBookCountsByCollectionIds(collectionIds);
+        Map<Integer, Long> bookCountsMap = bookCounts.stream()
+                .collect(Collectors.toMap(
+                        row -> (Integer) row[0],
+                        row -> (Long) row[1]
+                ));
+
+        // Получаем владельцев
+        List<Integer> ownerIds = collections.stream()
+                .map(bc -> bc.getOwner().getUserId())
+                .distinct()
+                .collect(Collectors.toList());
+
+        Map<Integer, User> ownersMap = userRepository.findByIdsWithProfiles(ownerIds).stream()
+                .collect(Collectors.toMap(User::getUserId, u -> u));
+
+        // Получаем изображения коллекций
+        List<Integer> imageIds = collections.stream()
+                .map(BookCollection::getPhotoLink)
+                .filter(Objects::nonNull)
+                .map(ImageLink::getImglId)
+                .collect(Collectors.toList());
+
+        Map<Integer, ImageLink> imageLinksMap;
+        if (!imageIds.isEmpty()) {
+            List<ImageLink> imageLinks = imageLinkRepository.findByIdsWithImageData(imageIds);
+            imageLinksMap = imageLinks.stream()
+                    .collect(Collectors.toMap(ImageLink::getImglId, il -> il));
+        } else {
+            imageLinksMap = new HashMap<>();
+        }
+
+        // Создаем DTO
+        Map<Integer, LibraryCollectionDTO> collectionDTOs = collections.stream()
+                .map(collection -> {
+                    LibraryCollectionDTO dto = new LibraryCollectionDTO();
+                    dto.setBcolsId(collection.getBcolsId());
+                    dto.setTitle(collection.getTitle());
+                    dto.setDescription(collection.getDescription());
+                    dto.setConfidentiality(collection.getConfidentiality().name());
+                    dto.setBookCollectionType(collection.getCollectionType().name());
+
+                    // Владелец
+                    User owner = collection.getOwner();
+                    if (owner != null) {
+                        dto.setOwnerId(owner.getUserId());
+                        User fullOwner = ownersMap.get(owner.getUserId());
+                        if (fullOwner != null && fullOwner.getProfile() != null) {
+                            dto.setOwnerNickname(fullOwner.getProfile().getNickname());
+                        }
+                    }
+
+                    // Количество книг
+                    dto.setBookCount(bookCountsMap.getOrDefault(collection.getBcolsId(), 0L));
+
+                    // Фото
+                    ImageLink photoLink = collection.getPhotoLink();
+                    if (photoLink != null) {
+                        ImageLink fullImageLink = imageLinksMap.get(photoLink.getImglId());
+                        if (fullImageLink != null && fullImageLink.getImageData() != null) {
+                            ImageData imageData = fullImageLink.getImageData();
+                            ImageDataDTO imageDataDTO = new ImageDataDTO(
+                                    imageData.getImgdId(),
+                                    imageData.getUuid(),
+                                    imageData.getSize(),
+                                    imageData.getMimeType(),
+                                    imageData.getExtension(),
+                                    imageData.getVariantWidths(),
+                                    imageData.getVariantFormat()
+                            );
+                            ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
+                                    fullImageLink.getImglId(),
+                                    imageDataDTO
+                            );
+                            dto.setPhotoLink(imageLinkDTO);
+                        }
+                    }
+
+                    return dto;
+                })
+                .collect(Collectors.toMap(LibraryCollectionDTO::getBcolsId, dto -> dto));
+
+        // Порядок задаёт лента
+        return collectionIds.stream()
+                .map(collectionDTOs::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+
+    private List<LibraryBookDTO> buildBookDTOs(List<Integer> bookIds, boolean withCollectionsCount) {
+        if (bookIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Получаем полную информацию о книгах с авторами и жанрами
+        List<Book> books = bookRepository.findAllById(bookIds);
+
+        // Для получения авторов и жанров нужно использовать отдельный запрос
+        // или изменить текущую логику. Сначала получим книги, потом отдельно авторов и жанры.
+
+        // Получаем средние рейтинги
+        List<Object[]> averageRatings = bookReviewRepository.findAverageRatingsByBookIds(bookIds);
+        Map<Integer, Double> averageRatingsMap = averageRatings.stream()
+                .collect(Collectors.toMap(
+                        row -> (Integer) row[0],
+                        row -> (Double) row[1]
+                ));
+
+        // Получаем количество коллекций для книг
+        Map<Integer, Long> collectionsCountMap = new HashMap<>();
+        if (withCollectionsCount) {
+            List<Object[]> collectionsCounts = bbcRepository.findCollectionsCountByBookIds(bookIds);
+            collectionsCounts.forEach(row -> collectionsCountMap.put((Integer) row[0], (Long) row[1]));
+        }
+
+        // Получаем изображения книг
+        List<Integer> imageIds = books.stream()
+                .map(Book::getPhotoLink)
+                .filter(Objects::nonNull)
+                .map(ImageLink::getImglId)
+                .collect(Collectors.toList());
+
+        Map<Integer, ImageLink> imageLinksMap;
+        if (!imageIds.isEmpty()) {
+            List<ImageLink> imageLinks = imageLinkRepository.findByIdsWithImageData(imageIds);
+            imageLinksMap = imageLinks.stream()
+                    .collect(Collectors.toMap(ImageLink::getImglId, il -> il));
+        } else {
+            imageLinksMap = new HashMap<>();
+        }
+
+        // Создаем DTO
+        Map<Integer, LibraryBookDTO> bookDTOs = books.stream()
+                .map(book -> {
+                    LibraryBookDTO dto = new LibraryBookDTO();
+                    dto.setBookId(book.getBookId());
+                    dto.setTitle(book.getTitle());
+                    dto.setSubtitle(book.getSubtitle());
+                    dto.setIsbn(book.getIsbn());
+                    dto.setPageCnt(book.getPageCnt());
+                    dto.setAddedBy(book.getAddedBy() != null ? book.getAddedBy().getUserId() : null);
+
+                    // Средний рейтинг
+                    Double avgRating = averageRatingsMap.get(book.getBookId());
+                    if (avgRating != null) {
+                        dto.setAverageRating(Math.round(avgRating * 100.0) / 100.0);
+                    }
+
+                    // Количество коллекций
+                    if (withCollectionsCount) {
+                        dto.setCollectionsCount(collectionsCountMap.getOrDefault(book.getBookId(), 0L));
+                    }
+
+                    // Фото
+                    ImageLink photoLink = book.getPhotoLink();
+                    if (photoLink != null) {
+                        ImageLink fullImageLink = imageLinksMap.get(photoLink.getImglId());
+                        if (fullImageLink != null && fullImageLink.getImageData() != null) {
+                            ImageData imageData = fullImageLink.getImageData();
+                            ImageDataDTO imageDataDTO = new ImageDataDTO(
+                                    imageData.getImgdId(),
+                                    imageData.getUuid(),
+                                    imageData.getSize(),
+                                    imageData.getMimeType(),
+                                    imageData.getExtension(),
+                                    imageData.getVariantWidths(),
+                                    imageData.getVariantFormat()
+                            );
+                            ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
+                                    fullImageLink.getImglId(),
+                                    imageDataDTO
+                            );
+                            dto.setPhotoLink(imageLinkDTO);
+                        }
+                    }
+
+                    // Авторы (нужно дополнительно загрузить)
+                    if (book.getAuthors() != null) {
+                        dto.setAuthors(book.getAuthors().stream()
+                                .map(author -> new AuthorDTO(
+                                        author.getAuthorId(),
+                                        author.getName(),
+                                        author.getBirthDate(),
+                                        author.getDescription(),
+                                        author.getRealName()
+                                ))
+                                .collect(Collectors.toList()));
+                    }
+
+                    // Жанры (нужно дополнительно загрузить)
+                    if (book.getGenres() != null) {
+                        dto.setGenres(book.getGenres().stream()
+                                .map(genre -> new GenreDTO(
+                                        genre.getGenreId(),
+                                        genre.getName()
+                                ))
+                                .collect(Collectors.toList()));
+                    }
+
+                    return dto;
+                })
+                .collect(Collectors.toMap(LibraryBookDTO::getBookId, dto -> dto));
+
+        // Порядок задаёт лента
+        return bookIds.stream()
+                .map(bookDTOs::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -98,7 +98,9 @@ public class PopularService {
                                             imageData.getUuid(),
                                             imageData.getSize(),
                                             imageData.getMimeType(),
-                                            imageData.getExtension()
+                                            imageData.getExtension(),
+                                            imageData.getVariantWidths(),
+                                            imageData.getVariantFormat()
                                     );
                                     ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
                                             fullImageLink.getImglId(),
@@ -241,7 +243,9 @@ public class PopularService {
                                         imageData.getUuid(),
                                         imageData.getSize(),
                                         imageData.getMimeType(),
-                                        imageData.getExtension()
+                                        imageData.getExtension(),
+                                        imageData.getVariantWidths(),
+                                        imageData.getVariantFormat()
                                 );
                                 ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
                                         fullImageLink.getImglId(),
@@ -367,7 +371,9 @@ public class PopularService {
                                         imageData.getUuid(),
                                         imageData.getSize(),
                                         imageData.getMimeType(),
-                                        imageData.getExtension()
+                                        imageData.getExtension(),
+                                        imageData.getVariantWidths(),
+                                        imageData.getVariantFormat()
                                 );
                                 ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
                                         fullImageLink.getImglId(),
@@ -0,0 +1,98 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.entity.BookReviewStats;
+import com.fuzis.booksbackend.repository.BookReviewStatsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Review count, score sum and 1-10 histogram per book, read from BOOK_REVIEW_STATS (kept up to date
+ * in the review write transactions) and cached so a book page does not touch BOOK_REVIEWS at all.
+ * Entries are dropped when a review of the book changes (again after the commit, so a concurrent
+ * reader cannot cache the old row) and expire after {@code books.review-stats-cache.ttl}.
+ */
+@Component
+public class ReviewStatsCache {
+
+    public static final int MAX_SCORE = 10;
+
+    public record ReviewStats(int count, long sum, int[] histogram) {
+
+        static final ReviewStats EMPTY = new ReviewStats(0, 0, new int[MAX_SCORE]);
+
+        public Double average() {
+            return count > 0 ? (double) sum / count : null;
+        }
+    }
+
+    private record Entry(ReviewStats stats, long loadedAt) {
+    }
+
+    private final BookReviewStatsRepository bookReviewStatsRepository;
+
+    private final Map<Integer, Entry> entries;
+
+    private final long ttlMs;
+
+    public ReviewStatsCache(BookReviewStatsRepository bookReviewStatsRepository,
+                            @Value("${books.review-stats-cache.max-books:50000}") int maxBooks,
+                            @Value("${books.review-stats-cache.ttl:PT5M}") Duration ttl) {
+        this.bookReviewStatsRepository = bookReviewStatsRepository;
+        this.ttlMs = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxBooks;
+            }
+        };
+    }
+
+    public ReviewStats get(Integer bookId) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(bookId);
+        }
+        long now = System.currentTimeMillis();
+        if (entry == null || now - entry.loadedAt() > ttlMs) {
+            ReviewStats stats = bookReviewStatsRepository.findById(bookId)
+                    .map(ReviewStatsCache::toStats)
+                    .orElse(ReviewStats.EMPTY);
+            entry = new Entry(stats, now);
+            synchronized (entries) {
+                entries.put(bookId, entry);
+            }
+        }
+        return entry.stats();
+    }
+
+    /**
+     * Drops the book's entry now and again after the current transaction completes.
+     */
+    public void invalidate(Integer bookId) {
+        evict(bookId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(bookId);
+                }
+            });
+        }
+    }
+
+    private void evict(Integer bookId) {
+        synchronized (entries) {
+            entries.remove(bookId);
+        }
+    }
+
+    private static ReviewStats toStats(BookReviewStats row) {
+        return new ReviewStats(row.getReviewsCount(), row.getScoreSum(), row.getHistogram().clone());
+    }
+}
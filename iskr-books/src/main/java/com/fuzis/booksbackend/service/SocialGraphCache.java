@@ -0,0 +1,215 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.repository.SubscriberRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscription graph of hot users: per user, the sorted ids it is subscribed to and the sorted ids
+ * of its subscribers, so "is X subscribed to Y", the counts and mutual subscribers are answered
+ * with binary searches and merges instead of queries. Lists longer than
+ * {@code subscribers.graph-cache.max-list-ids} are not held (only their size is), and questions
+ * about them go to the database, so a user with millions of subscribers costs nothing here.
+ * <p>
+ * Subscribe/unsubscribe write through to the cached entries after the commit. The cache holds at
+ * most {@code subscribers.graph-cache.max-ids} ids in total, evicting the least recently used users,
+ * and entries expire after {@code subscribers.graph-cache.ttl} to bound staleness across instances.
+ */
+@Component
+public class SocialGraphCache {
+
+    // null вместо массива — список длиннее max-list-ids, в памяти только его размер
+    private record Entry(int[] subscriptions, int subscriptionsCount,
+                         int[] subscribers, int subscribersCount, long loadedAt) {
+
+        long weight() {
+            return 1 + (subscriptions == null ? 0 : subscriptions.length)
+                    + (subscribers == null ? 0 : subscribers.length);
+        }
+    }
+
+    private final SubscriberRepository subscriberRepository;
+
+    // Порядок доступа: первым в обходе идёт давно не использованный пользователь
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final long maxIds;
+
+    private final int maxListIds;
+
+    private final long ttlMs;
+
+    private long heldIds;
+
+    // Счётчик изменений: загрузка, пересёкшаяся с записью, не кладётся в кэш
+    private final AtomicLong writes = new AtomicLong();
+
+    public SocialGraphCache(SubscriberRepository subscriberRepository,
+                            @Value("${subscribers.graph-cache.max-ids:2000000}") long maxIds,
+                            @Value("${subscribers.graph-cache.max-list-ids:10000}") int maxListIds,
+                            @Value("${subscribers.graph-cache.ttl:PT5M}") Duration ttl) {
+        this.subscriberRepository = subscriberRepository;
+        this.maxIds = maxIds;
+        this.maxListIds = maxListIds;
+        this.ttlMs = ttl.toMillis();
+    }
+
+    public boolean isSubscribed(int userId, int userOnId) {
+        int[] subscriptions = entry(userId).subscriptions();
+        if (subscriptions == null) {
+            return subscriberRepository.existsBySubsUser_UserIdAndSubsUserOn_UserId(userId, userOnId);
+        }
+        return Arrays.binarySearch(subscriptions, userOnId) >= 0;
+    }
+
+    public int countSubscriptions(int userId) {
+        return entry(userId).subscriptionsCount();
+    }
+
+    public int countSubscribers(int userId) {
+        return entry(userId).subscribersCount();
+    }
+
+    /**
+     * @return sorted ids of the users subscribed to both users
+     */
+    public int[] mutualSubscribers(int userId, int otherUserId) {
+        int[] a = entry(userId).subscribers();
+        int[] b = entry(otherUserId).subscribers();
+        if (a == null || b == null) {
+            return sorted(subscriberRepository.findMutualSubscriberIds(userId, otherUserId));
+        }
+        int[] result = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    public void subscribed(int userId, int userOnId) {
+        afterCommit(() -> update(userId, userOnId, true));
+    }
+
+    public void unsubscribed(int userId, int userOnId) {
+        afterCommit(() -> update(userId, userOnId, false));
+    }
+
+    private Entry entry(int userId) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(userId);
+        }
+        long now = System.currentTimeMillis();
+        if (entry == null || now - entry.loadedAt() > ttlMs) {
+            long stamp = writes.get();
+            int[] subscriptions = load(subscriberRepository.findSubscriptionIds(userId, Limit.of(maxListIds + 1)));
+            int[] subscribers = load(subscriberRepository.findSubscriberIds(userId, Limit.of(maxListIds + 1)));
+            entry = new Entry(subscriptions,
+                    subscriptions != null ? subscriptions.length : (int) subscriberRepository.countBySubsUser_UserId(userId),
+                    subscribers,
+                    subscribers != null ? subscribers.length : (int) subscriberRepository.countBySubsUserOn_UserId(userId),
+                    now);
+            synchronized (entries) {
+                if (writes.get() == stamp) {
+                    put(userId, entry);
+                }
+            }
+        }
+        return entry;
+    }
+
+    private void update(int userId, int userOnId, boolean add) {
+        int delta = add ? 1 : -1;
+        synchronized (entries) {
+            writes.incrementAndGet();
+            Entry user = entries.get(userId);
+            if (user != null) {
+                put(userId, new Entry(apply(user.subscriptions(), userOnId, add), user.subscriptionsCount() + delta,
+                        user.subscribers(), user.subscribersCount(), user.loadedAt()));
+            }
+            Entry userOn = entries.get(userOnId);
+            if (userOn != null) {
+                put(userOnId, new Entry(userOn.subscriptions(), userOn.subscriptionsCount(),
+                        apply(userOn.subscribers(), userId, add), userOn.subscribersCount() + delta, userOn.loadedAt()));
+            }
+        }
+    }
+
+    // Вызывается под замком entries; вытесняет давно не использованных, пока сумма id не уложится в лимит
+    private void put(int userId, Entry entry) {
+        Entry previous = entries.put(userId, entry);
+        heldIds += entry.weight() - (previous == null ? 0 : previous.weight());
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (heldIds > maxIds && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            if (evicted == entry) {
+                break;
+            }
+            eldest.remove();
+            heldIds -= evicted.weight();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Массивы неизменяемы после публикации — изменения идут через копию
+    private static int[] apply(int[] ids, int id, boolean add) {
+        if (ids == null) {
+            return null;
+        }
+        int pos = Arrays.binarySearch(ids, id);
+        if (add == pos >= 0) {
+            return ids;
+        }
+        if (add) {
+            int at = -pos - 1;
+            int[] result = new int[ids.length + 1];
+            System.arraycopy(ids, 0, result, 0, at);
+            result[at] = id;
+            System.arraycopy(ids, at, result, at + 1, ids.length - at);
+            return result;
+        }
+        int[] result = new int[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, pos);
+        System.arraycopy(ids, pos + 1, result, pos, ids.length - pos - 1);
+        return result;
+    }
+
+    private int[] load(List<Integer> ids) {
+        return ids.size() > maxListIds ? null : sorted(ids);
+    }
+
+    private static int[] sorted(List<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+    }
+}
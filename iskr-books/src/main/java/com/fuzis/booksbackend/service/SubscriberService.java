@@ -16,7 +16,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,6 +29,8 @@ public class SubscriberService {
 
     private final SubscriberRepository subscriberRepository;
     private final UserRepository userRepository;
+    private final SocialGraphCache socialGraphCache;
+    private final DetailCache detailCache;
 
     @Transactional
     public ChangeDTO<Object> subscribe(Integer userId, Integer userOnId) {
@@ -64,6 +68,8 @@ public class SubscriberService {
                     .build();
 
             Subscriber savedSubscriber = subscriberRepository.save(subscriber);
+            socialGraphCache.subscribed(userId, userOnId);
+            detailCache.invalidate(DetailCache.Kind.User, List.of(userId, userOnId));
             log.info("Subscription created successfully: user {} -> user {}", userId, userOnId);
 
             // Возвращаем только необходимые данные, чтобы избежать циклической зависимости
@@ -110,6 +116,8 @@ public class SubscriberService {
 
             // Delete subscription
             subscriberRepository.deleteBySubsUserAndSubsUserOn(subsUserOpt.get(), subsUserOnOpt.get());
+            socialGraphCache.unsubscribed(userId, userOnId);
+            detailCache.invalidate(DetailCache.Kind.User, List.of(userId, userOnId));
             log.info("Subscription deleted successfully: user {} -> user {}", userId, userOnId);
 
             // Возвращаем простой ответ об успехе
@@ -212,17 +220,14 @@ public class SubscriberService {
         try {
             log.debug("Checking if user {} is subscribed to user {}", userId, userOnId);
 
-            Optional<User> subsUserOpt = userRepository.findById(userId);
-            Optional<User> subsUserOnOpt = userRepository.findById(userOnId);
+            boolean isSubscribed = socialGraphCache.isSubscribed(userId, userOnId);
 
-            if (subsUserOpt.isEmpty() || subsUserOnOpt.isEmpty()) {
+            // Существование пользователей проверяем, только если подписки нет
+            if (!isSubscribed && (!userRepository.existsById(userId) || !userRepository.existsById(userOnId))) {
                 return new ChangeDTO<>(State.Fail_NotFound,
                         "One or both users not found", null);
             }
 
-            boolean isSubscribed = subscriberRepository.existsBySubsUserAndSubsUserOn(
-                    subsUserOpt.get(), subsUserOnOpt.get());
-
             Map<String, Object> response = new HashMap<>();
             response.put("userId", userId);
             response.put("userOnId", userOnId);
@@ -249,7 +254,7 @@ public class SubscriberService {
         try {
             log.debug("Counting subscribers for user {}", userId);
 
-            long count = subscriberRepository.countBySubsUserOn_UserId(userId);
+            long count = socialGraphCache.countSubscribers(userId);
 
             Map<String, Object> response = new HashMap<>();
             response.put("userId", userId);
@@ -270,7 +275,7 @@ public class SubscriberService {
         try {
             log.debug("Counting subscriptions for user {}", userId);
 
-            long count = subscriberRepository.countBySubsUser_UserId(userId);
+            long count = socialGraphCache.countSubscriptions(userId);
 
             Map<String, Object> response = new HashMap<>();
             response.put("userId", userId);
@@ -287,6 +292,29 @@ public class SubscriberService {
         }
     }
 
+    public ChangeDTO<Object> getMutualSubscribers(Integer userId, Integer userOnId, Integer limit) {
+        try {
+            log.debug("Getting mutual subscribers of users {} and {}", userId, userOnId);
+
+            int[] mutual = socialGraphCache.mutualSubscribers(userId, userOnId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("userId", userId);
+            response.put("userOnId", userOnId);
+            response.put("count", mutual.length);
+            response.put("userIds", Arrays.stream(mutual).limit(limit).boxed().toList());
+
+            log.debug("Users {} and {} have {} mutual subscribers", userId, userOnId, mutual.length);
+            return new ChangeDTO<>(State.OK,
+                    "Mutual subscribers retrieved successfully", response);
+
+        } catch (Exception e) {
+            log.error("Error retrieving mutual subscribers of users {} and {}: ", userId, userOnId, e);
+            return new ChangeDTO<>(State.Fail,
+                    "Error retrieving mutual subscribers: " + e.getMessage(), null);
+        }
+    }
+
     private ChangeDTO<Object> handleDataIntegrityViolation(DataIntegrityViolationException e, Integer userId, Integer userOnId) {
         String message = e.getMostSpecificCause().getMessage();
 
@@ -25,11 +25,24 @@ public class UserService {
     private final BookCollectionRepository bookCollectionRepository;
     private final BooksBookCollectionsRepository booksBookCollectionsRepository;
     private final ImageLinkRepository imageLinkRepository;
+    private final SocialGraphCache socialGraphCache;
+    private final DetailCache detailCache;
 
-    @Transactional(readOnly = true)
     public ChangeDTO<Object> getUserDetail(Integer userId) {
+        log.debug("Getting user details for ID: {}", userId);
+        return detailCache.get(DetailCache.Kind.User, userId, () -> loadUserDetail(userId));
+    }
+
+    /**
+     * Drops the cached detail of a user whose profile was changed outside this service (accounts).
+     */
+    public ChangeDTO<Object> evictUserDetail(Integer userId) {
+        detailCache.invalidate(DetailCache.Kind.User, userId);
+        return new ChangeDTO<>(State.OK, "User detail evicted", null);
+    }
+
+    private ChangeDTO<Object> loadUserDetail(Integer userId) {
         try {
-            log.debug("Getting user details for ID: {}", userId);
 
             // Получаем пользователя с профилем
             List<User> users = userRepository.findByIdsWithProfiles(List.of(userId));
@@ -53,7 +66,9 @@ public class UserService {
                                 imageData.getUuid(),
                                 imageData.getSize(),
                                 imageData.getMimeType(),
-                                imageData.getExtension()
+                                imageData.getExtension(),
+                                imageData.getVariantWidths(),
+                                imageData.getVariantFormat()
                         );
                         profileImageDTO = new ImageLinkDTO(imageLink.getImglId(), imageDataDTO);
                     }
@@ -61,8 +76,8 @@ public class UserService {
             }
 
             // Считаем количество подписчиков и подписок
-            long subscribersCount = subscriberRepository.countBySubsUserOn_UserId(userId);
-            long subscriptionsCount = subscriberRepository.countBySubsUser_UserId(userId);
+            long subscribersCount = socialGraphCache.countSubscribers(userId);
+            long subscriptionsCount = socialGraphCache.countSubscriptions(userId);
 
             // Считаем количество коллекций пользователя
             long collectionsCount = bookCollectionRepository.countByOwner_UserId(userId);
@@ -238,7 +253,9 @@ public class UserService {
                                         imageData.getUuid(),
                                         imageData.getSize(),
                                         imageData.getMimeType(),
-                                        imageData.getExtension()
+                                        imageData.getExtension(),
+                                        imageData.getVariantWidths(),
+                                        imageData.getVariantFormat()
                                 );
                                 ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
                                         fullImageLink.getImglId(),
@@ -327,7 +344,9 @@ public class UserService {
                                         imageData.getUuid(),
                                         imageData.getSize(),
                                         imageData.getMimeType(),
-                                        imageData.getExtension()
+                                        imageData.getExtension(),
+                                        imageData.getVariantWidths(),
+                                        imageData.getVariantFormat()
                                 );
                                 ImageLinkDTO imageLinkDTO = new ImageLinkDTO(
                                         fullImageLink.getImglId(),
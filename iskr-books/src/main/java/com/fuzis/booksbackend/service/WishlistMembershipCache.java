@@ -0,0 +1,86 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.repository.BooksBookCollectionsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user set of book ids in the wishlist, for the "in wishlist" badge on every book card.
+ * Stored as a sorted int array and probed with a binary search. Entries are dropped when the
+ * wishlist changes (after the commit, so a concurrent reader cannot cache the old state again)
+ * and expire after {@code collections.wishlist-cache.ttl} to bound staleness across instances.
+ */
+@Component
+public class WishlistMembershipCache {
+
+    private record Entry(Integer wishlistId, int[] bookIds, long loadedAt) {
+    }
+
+    private final BooksBookCollectionsRepository booksBookCollectionsRepository;
+
+    private final Map<Integer, Entry> entries;
+
+    private final long ttlMs;
+
+    public WishlistMembershipCache(BooksBookCollectionsRepository booksBookCollectionsRepository,
+                                   @Value("${collections.wishlist-cache.max-users:10000}") int maxUsers,
+                                   @Value("${collections.wishlist-cache.ttl:PT5M}") Duration ttl) {
+        this.booksBookCollectionsRepository = booksBookCollectionsRepository;
+        this.ttlMs = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public boolean contains(Integer userId, Integer wishlistId, Integer bookId) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(userId);
+        }
+        long now = System.currentTimeMillis();
+        if (entry == null || !entry.wishlistId().equals(wishlistId) || now - entry.loadedAt() > ttlMs) {
+            List<Integer> ids = booksBookCollectionsRepository.findBookIdsByCollectionId(wishlistId);
+            int[] bookIds = ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+            entry = new Entry(wishlistId, bookIds, now);
+            synchronized (entries) {
+                entries.put(userId, entry);
+            }
+        }
+        return Arrays.binarySearch(entry.bookIds(), bookId) >= 0;
+    }
+
+    /**
+     * Drops the user's entry now and again after the current transaction commits.
+     */
+    public void invalidate(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(Integer userId) {
+        synchronized (entries) {
+            entries.remove(userId);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.fuzis.booksbackend.transfer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityEventDTO {
+    private Long eventId;
+    private String activityType;
+    private Integer actorId;
+    private String actorUsername;
+    private LocalDateTime createdAt;
+    private Integer collectionId;
+    private String collectionTitle;
+    private Integer bookId;
+    private String bookTitle;
+    private Integer reviewId;
+    private Integer score;
+}
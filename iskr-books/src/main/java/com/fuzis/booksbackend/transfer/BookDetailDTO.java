@@ -25,4 +25,5 @@ public class BookDetailDTO {
     private Long collectionsCount; // Количество добавлений в коллекции
     private Double averageRating; // Средний рейтинг
     private Integer reviewsCount; // Количество отзывов
+    private List<Integer> ratingHistogram; // Количество оценок 1..10
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.fuzis.booksbackend.transfer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportErrorDTO {
+    private Integer row;
+    private String isbn;
+    private String title;
+    private String error;
+}
@@ -0,0 +1,18 @@
+package com.fuzis.booksbackend.transfer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+    private Integer total;
+    private Integer imported;
+    private Integer failed;
+    private List<BookImportErrorDTO> errors;
+    private Boolean errorsTruncated;
+}
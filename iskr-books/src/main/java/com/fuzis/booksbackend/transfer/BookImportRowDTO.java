@@ -0,0 +1,39 @@
+package com.fuzis.booksbackend.transfer;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportRowDTO {
+    @NotBlank(message = "Title is required")
+    @Size(max = 1024, message = "Title must not exceed 1024 characters")
+    private String title;
+
+    @Size(max = 1024, message = "Subtitle must not exceed 1024 characters")
+    private String subtitle;
+
+    @Size(max = 17, message = "ISBN must not exceed 17 characters")
+    private String isbn;
+
+    private String description;
+
+    @NotNull(message = "Page count is required")
+    @Min(value = 1, message = "Page count must be at least 1")
+    private Integer pageCnt;
+
+    // Имена авторов и жанров, как они записаны в справочниках
+    private List<String> authors;
+
+    private List<String> genres;
+}
@@ -0,0 +1,16 @@
+package com.fuzis.booksbackend.transfer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookMembershipDTO {
+    private Integer bookId;
+    private Boolean inWishlist;
+    private List<Integer> collectionIds;
+}
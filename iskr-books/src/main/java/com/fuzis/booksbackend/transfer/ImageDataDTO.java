@@ -13,4 +13,6 @@ public class ImageDataDTO {
     private Integer size;
     private String mimeType;
     private String extension;
+    private Integer[] variantWidths;
+    private String variantFormat;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.fuzis.booksbackend.transfer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendedBookDTO {
+    private Integer bookId;
+    private String title;
+    private String subtitle;
+    private String isbn;
+    private Integer pageCnt;
+    private Double averageRating;
+    private ImageLinkDTO photoLink;
+    private Float score; // Косинусная близость к исходной книге
+}
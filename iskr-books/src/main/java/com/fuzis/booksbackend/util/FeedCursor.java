@@ -0,0 +1,33 @@
+package com.fuzis.booksbackend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in a library feed: the sort key of the last row sent and its
+ * tie-breaking id. The first page starts before every row ('' sorts first, ids start at 1).
+ */
+public record FeedCursor(String title, Integer seq) {
+
+    public static final FeedCursor START = new FeedCursor("", 0);
+
+    public String encode() {
+        String raw = seq + "|" + title;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static FeedCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int split = raw.indexOf('|');
+        if (split < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new FeedCursor(raw.substring(split + 1), Integer.valueOf(raw.substring(0, split)));
+    }
+}
@@ -0,0 +1,116 @@
+package com.fuzis.booksbackend.repository;
+
+import com.fuzis.booksbackend.entity.Book;
+import com.fuzis.booksbackend.entity.BookCollection;
+import com.fuzis.booksbackend.entity.BooksBookCollections;
+import com.fuzis.booksbackend.entity.User;
+import com.fuzis.booksbackend.entity.enumerate.CollectionType;
+import com.fuzis.booksbackend.entity.enumerate.Confidentiality;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        // Без application.yml: он импортирует конфигурацию из Consul
+        "spring.config.name=repository-test",
+        "spring.cloud.consul.config.import-check.enabled=false",
+        "spring.jpa.properties.hibernate.hbm2ddl.create_namespaces=true"
+})
+class BooksBookCollectionsRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BooksBookCollectionsRepository repository;
+
+    private Book popular;
+    private Book single;
+    private Book unlisted;
+    private Book other;
+
+    @BeforeEach
+    void setUp() {
+        User owner = entityManager.persist(User.builder()
+                .username("owner")
+                .registeredDate(LocalDateTime.now())
+                .build());
+        BookCollection first = collection(owner, "first");
+        BookCollection second = collection(owner, "second");
+        BookCollection third = collection(owner, "third");
+
+        popular = book("popular");
+        single = book("single");
+        unlisted = book("unlisted");
+        other = book("other");
+
+        link(popular, first);
+        link(popular, second);
+        link(popular, third);
+        link(single, second);
+        link(other, first);
+        link(other, third);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void countsCollectionsOfRequestedBooksOnly() {
+        Map<Integer, Long> counts = counts(List.of(popular.getBookId(), single.getBookId(), unlisted.getBookId()));
+
+        assertEquals(Map.of(popular.getBookId(), 3L, single.getBookId(), 1L), counts);
+    }
+
+    @Test
+    void repeatedIdsAreCountedOnce() {
+        Map<Integer, Long> counts = counts(List.of(other.getBookId(), other.getBookId()));
+
+        assertEquals(Map.of(other.getBookId(), 2L), counts);
+    }
+
+    @Test
+    void bookInNoCollectionHasNoRow() {
+        assertTrue(repository.findCollectionsCountByBookIds(List.of(unlisted.getBookId())).isEmpty());
+    }
+
+    private Map<Integer, Long> counts(List<Integer> bookIds) {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Object[] row : repository.findCollectionsCountByBookIds(bookIds)) {
+            counts.put((Integer) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private BookCollection collection(User owner, String title) {
+        return entityManager.persist(BookCollection.builder()
+                .owner(owner)
+                .title(title)
+                .confidentiality(Confidentiality.Public)
+                .collectionType(CollectionType.Standard)
+                .build());
+    }
+
+    private Book book(String title) {
+        return entityManager.persist(Book.builder()
+                .title(title)
+                .pageCnt(100)
+                .build());
+    }
+
+    private void link(Book book, BookCollection collection) {
+        entityManager.persist(BooksBookCollections.builder()
+                .book(book)
+                .bookCollection(collection)
+                .build());
+    }
+}
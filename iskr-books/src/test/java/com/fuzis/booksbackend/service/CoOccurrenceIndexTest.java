@@ -0,0 +1,176 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.repository.BookRecommendationRepository.BookNeighbours;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class CoOccurrenceIndexTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(2);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdownNow();
+    }
+
+    @Test
+    void duplicatesAreDroppedAndSingletonOrOversizedBasketsAreNotScored() {
+        CoOccurrenceIndex index = index(3, new int[][]{
+                {1, 1, 2, 2},
+                {2, 1, 3},
+                {3, 2, 3},
+                {4, 7},
+                {5, 9, 9},
+                {6, 1, 4, 5, 8}
+        });
+
+        assertArrayEquals(new int[]{1, 2, 3}, index.books());
+        BookNeighbours one = neighbours(index, 1, 10, 1);
+        // Повтор книги 2 в корзине 1 и корзина 6 сверх лимита не учитываются: у каждой книги по две корзины
+        assertArrayEquals(new int[]{2, 3}, one.similarIds());
+        assertArrayEquals(new float[]{0.5f, 0.5f}, one.scores(), 1e-6f);
+        assertArrayEquals(new int[0], neighbours(index, 4, 10, 1).similarIds());
+        assertArrayEquals(new int[0], neighbours(index, 9, 10, 1).similarIds());
+    }
+
+    @Test
+    void keepsTopNByScoreWithSmallerIdFirstOnTies() {
+        CoOccurrenceIndex index = index(10, new int[][]{
+                {1, 1, 5, 6, 7},
+                {2, 1, 5, 6, 7},
+                {3, 1, 4}
+        });
+
+        BookNeighbours one = neighbours(index, 1, 2, 1);
+        assertArrayEquals(new int[]{5, 6}, one.similarIds());
+        assertArrayEquals(new int[]{5, 6, 7, 4}, neighbours(index, 1, 10, 1).similarIds());
+        assertArrayEquals(new int[]{5, 6, 7}, neighbours(index, 1, 10, 2).similarIds());
+    }
+
+    @Test
+    void mergedIndexScoresLikeFullBuild() {
+        Random random = new Random(42);
+        int[][] old = randomBaskets(random, 0, 300);
+        int[][] added = randomBaskets(random, 200, 400);
+
+        CoOccurrenceIndex merged = index(20, old).merge(index(20, added));
+        CoOccurrenceIndex full = index(20, concat(old, added));
+
+        assertArrayEquals(full.books(), merged.books());
+        assertNeighboursEqual(full, merged, full.books());
+        // Повторное слияние тех же строк ничего не меняет
+        assertNeighboursEqual(full, merged.merge(index(20, added)), full.books());
+    }
+
+    @Test
+    void affectedBooksIncludeNeighboursWhoseDegreeChanged() {
+        CoOccurrenceIndex old = index(10, new int[][]{
+                {1, 1, 2},
+                {2, 2, 3},
+                {3, 4, 5}
+        });
+        CoOccurrenceIndex delta = index(10, new int[][]{{1, 6}});
+        CoOccurrenceIndex merged = old.merge(delta);
+
+        // Корзина 1 изменилась, у книги 2 вырос только счётчик, а через него поменялся score книги 3
+        assertArrayEquals(new int[]{1, 2, 3, 6}, merged.affectedBy(delta));
+
+        int[] unaffected = {4, 5};
+        assertNeighboursEqual(old, merged, unaffected);
+    }
+
+    @Test
+    void everyBookOutsideAffectedSetKeepsItsNeighbours() {
+        Random random = new Random(7);
+        int[][] old = randomBaskets(random, 0, 300);
+        int[][] added = randomBaskets(random, 250, 260);
+        CoOccurrenceIndex before = index(20, old);
+        CoOccurrenceIndex delta = index(20, added);
+        CoOccurrenceIndex after = before.merge(delta);
+
+        boolean[] affected = new boolean[1000];
+        for (int book : after.affectedBy(delta)) {
+            affected[book] = true;
+        }
+        for (int book : before.books()) {
+            if (!affected[book]) {
+                assertNeighboursEqual(before, after, new int[]{book});
+            }
+        }
+    }
+
+    private static CoOccurrenceIndex index(int maxBasketSize, int[][] baskets) {
+        CoOccurrenceIndex.Builder builder = new CoOccurrenceIndex.Builder(maxBasketSize);
+        for (int[] basket : sorted(baskets)) {
+            for (int i = 1; i < basket.length; i++) {
+                builder.add(basket[0], basket[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    private static BookNeighbours neighbours(CoOccurrenceIndex index, int book, int topN, int minCoOccurrence) {
+        return index.neighbours(new int[]{book}, topN, minCoOccurrence, POOL)[0];
+    }
+
+    private static void assertNeighboursEqual(CoOccurrenceIndex expected, CoOccurrenceIndex actual, int[] books) {
+        BookNeighbours[] want = expected.neighbours(books, 5, 1, POOL);
+        BookNeighbours[] got = actual.neighbours(books, 5, 1, POOL);
+        for (int i = 0; i < books.length; i++) {
+            assertArrayEquals(want[i].similarIds(), got[i].similarIds(), "book " + books[i]);
+            assertArrayEquals(want[i].scores(), got[i].scores(), 1e-6f, "book " + books[i]);
+        }
+    }
+
+    // Корзины вида {id, книги...}; строки упорядочены по корзине и книге, как их отдаёт репозиторий
+    private static int[][] sorted(int[][] baskets) {
+        int[][] rows = baskets.clone();
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = rows[i].clone();
+            Arrays.sort(rows[i], 1, rows[i].length);
+        }
+        Arrays.sort(rows, (a, b) -> Integer.compare(a[0], b[0]));
+        return rows;
+    }
+
+    private static int[][] randomBaskets(Random random, int firstId, int lastId) {
+        int[][] baskets = new int[lastId - firstId][];
+        for (int id = firstId; id < lastId; id++) {
+            int[] basket = new int[2 + random.nextInt(8)];
+            basket[0] = id;
+            for (int i = 1; i < basket.length; i++) {
+                basket[i] = random.nextInt(1000);
+            }
+            baskets[id - firstId] = basket;
+        }
+        return baskets;
+    }
+
+    private static int[][] concat(int[][] a, int[][] b) {
+        int[][] rows = new int[a.length + b.length][];
+        System.arraycopy(a, 0, rows, 0, a.length);
+        System.arraycopy(b, 0, rows, a.length, b.length);
+        // Корзины с одним id сливаются в одну, как при чтении всей таблицы
+        Map<Integer, List<Integer>> byId = new TreeMap<>();
+        for (int[] row : rows) {
+            for (int i = 1; i < row.length; i++) {
+                byId.computeIfAbsent(row[0], k -> new ArrayList<>()).add(row[i]);
+            }
+        }
+        return byId.entrySet().stream()
+                .map(e -> IntStream.concat(IntStream.of(e.getKey()),
+                        e.getValue().stream().mapToInt(Integer::intValue)).toArray())
+                .toArray(int[][]::new);
+    }
+}
@@ -0,0 +1,203 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.transfer.ChangeDTO;
+import com.fuzis.booksbackend.transfer.state.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class DetailCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void servesRepeatedRequestsFromCache() {
+        DetailCache cache = cache(100);
+
+        ChangeDTO<Object> first = cache.get(DetailCache.Kind.Book, 1, loader("a"));
+        ChangeDTO<Object> second = cache.get(DetailCache.Kind.Book, 1, loader("b"));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, counter("books.detail.cache.requests", "result", "hit"));
+    }
+
+    @Test
+    void loadRacingInvalidateIsNotCached() {
+        DetailCache cache = cache(100);
+
+        // Запись случилась, пока загрузка читала старые данные
+        ChangeDTO<Object> stale = cache.get(DetailCache.Kind.Book, 1, () -> {
+            cache.invalidate(DetailCache.Kind.Book, 1);
+            return loader("old").get();
+        });
+        ChangeDTO<Object> fresh = cache.get(DetailCache.Kind.Book, 1, loader("new"));
+
+        assertEquals("old", stale.getKey());
+        assertEquals("new", fresh.getKey());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateBumpsAgainAfterTransactionCompletes() {
+        DetailCache cache = cache(100);
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidate(DetailCache.Kind.User, 5);
+
+        // Между записью и коммитом другой поток успел закэшировать старое значение
+        cache.get(DetailCache.Kind.User, 5, loader("before commit"));
+        afterCompletion();
+
+        assertEquals("after commit", cache.get(DetailCache.Kind.User, 5, loader("after commit")).getKey());
+    }
+
+    @Test
+    void invalidateAllMakesOnlyThatKindStale() {
+        DetailCache cache = cache(100);
+        cache.get(DetailCache.Kind.Book, 1, loader("book 1"));
+        cache.get(DetailCache.Kind.Book, 2, loader("book 2"));
+        cache.get(DetailCache.Kind.User, 1, loader("user 1"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidateAll(DetailCache.Kind.Book);
+        assertEquals("book 1 v2", cache.get(DetailCache.Kind.Book, 1, loader("book 1 v2")).getKey());
+        afterCompletion();
+
+        // Эпоха сменилась ещё раз после коммита: перечитывается и то, что загрузили между ними
+        assertEquals("book 1 v3", cache.get(DetailCache.Kind.Book, 1, loader("book 1 v3")).getKey());
+        assertEquals("book 2 v2", cache.get(DetailCache.Kind.Book, 2, loader("book 2 v2")).getKey());
+        assertEquals("user 1", cache.get(DetailCache.Kind.User, 1, loader("user 1 v2")).getKey());
+    }
+
+    @Test
+    void oneOffEntryIsRejectedInFavourOfFrequentOnes() {
+        // Окно на одну запись, основной сегмент на девятнадцать
+        DetailCache cache = cache(20);
+        for (int id = 1; id <= 19; id++) {
+            for (int i = 0; i < 5; i++) {
+                cache.get(DetailCache.Kind.Book, id, loader("hot " + id));
+            }
+        }
+
+        // Разовые запросы по очереди выходят из окна, но вытеснить горячие записи им не дают
+        for (int id = 100; id <= 102; id++) {
+            cache.get(DetailCache.Kind.Book, id, loader("one-off " + id));
+        }
+
+        assertEquals(2, counter("books.detail.cache.evictions", "cause", "rejected"));
+        assertEquals(0, counter("books.detail.cache.evictions", "cause", "size"));
+        for (int id = 1; id <= 19; id++) {
+            cache.get(DetailCache.Kind.Book, id, loader("reloaded"));
+        }
+        assertEquals(22, loads.get());
+        assertEquals("one-off 102", cache.get(DetailCache.Kind.Book, 102, loader("reloaded")).getKey());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        DetailCache cache = cache(100);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ChangeDTO<Object>> first = CompletableFuture.supplyAsync(() ->
+                cache.get(DetailCache.Kind.Collection, 3, () -> {
+                    loading.countDown();
+                    await(release);
+                    return loader("shared").get();
+                }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Thread> waiterThread = new CompletableFuture<>();
+        CompletableFuture<ChangeDTO<Object>> second = CompletableFuture.supplyAsync(() -> {
+            waiterThread.complete(Thread.currentThread());
+            return cache.get(DetailCache.Kind.Collection, 3, loader("own"));
+        });
+        Thread waiter = waiterThread.get(5, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (waiter.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertEquals("shared", first.get(5, TimeUnit.SECONDS).getKey());
+        assertSame(first.get(), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("books.detail.cache.coalesced").counter().count());
+    }
+
+    @Test
+    void sketchCountsUpToFifteenAndAges() {
+        DetailCache.FrequencySketch sketch = new DetailCache.FrequencySketch(16);
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(7);
+        }
+        assertEquals(15, sketch.frequency(7));
+        assertEquals(0, sketch.frequency(8));
+
+        // Старение наступает на 160-м добавлении; 15 из них уже пришлись на ключ 7
+        for (int i = 0; i < 145; i++) {
+            sketch.increment(1000 + i);
+        }
+        assertTrue(sketch.frequency(7) <= 7);
+    }
+
+    private DetailCache cache(int maxEntries) {
+        return new DetailCache(mock(PlatformTransactionManager.class), meterRegistry, maxEntries,
+                Duration.ofMinutes(10), Duration.ofSeconds(5));
+    }
+
+    private Supplier<ChangeDTO<Object>> loader(String value) {
+        return () -> {
+            loads.incrementAndGet();
+            return new ChangeDTO<>(State.OK, "", value);
+        };
+    }
+
+    private double counter(String name, String tag, String value) {
+        return meterRegistry.get(name).tag(tag, value).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    private static void afterCompletion() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
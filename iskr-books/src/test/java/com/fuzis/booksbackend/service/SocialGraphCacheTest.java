@@ -0,0 +1,102 @@
+package com.fuzis.booksbackend.service;
+
+import com.fuzis.booksbackend.repository.SubscriberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SocialGraphCacheTest {
+
+    private static final int CELEBRITY = 1;
+
+    private SubscriberRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(SubscriberRepository.class);
+        when(repository.findSubscriptionIds(anyInt(), any(Limit.class))).thenReturn(List.of());
+        when(repository.findSubscriberIds(anyInt(), any(Limit.class))).thenReturn(List.of());
+    }
+
+    @Test
+    void largeListIsCountedInDatabaseAndNotHeld() {
+        when(repository.findSubscriberIds(eq(CELEBRITY), any(Limit.class)))
+                .thenReturn(IntStream.rangeClosed(100, 104).boxed().toList());
+        when(repository.countBySubsUserOn_UserId(CELEBRITY)).thenReturn(1_000_000L);
+        when(repository.findSubscriberIds(eq(2), any(Limit.class))).thenReturn(List.of(100, 103));
+        when(repository.findMutualSubscriberIds(CELEBRITY, 2)).thenReturn(List.of(103, 100));
+        SocialGraphCache cache = new SocialGraphCache(repository, 1000, 4, Duration.ofMinutes(5));
+
+        assertEquals(1_000_000, cache.countSubscribers(CELEBRITY));
+        assertArrayEquals(new int[]{100, 103}, cache.mutualSubscribers(CELEBRITY, 2));
+        verify(repository).findMutualSubscriberIds(CELEBRITY, 2);
+    }
+
+    @Test
+    void largeSubscriptionListIsCheckedInDatabase() {
+        when(repository.findSubscriptionIds(eq(2), any(Limit.class)))
+                .thenReturn(IntStream.rangeClosed(10, 20).boxed().toList());
+        when(repository.existsBySubsUser_UserIdAndSubsUserOn_UserId(2, 15)).thenReturn(true);
+        SocialGraphCache cache = new SocialGraphCache(repository, 1000, 4, Duration.ofMinutes(5));
+
+        assertTrue(cache.isSubscribed(2, 15));
+        verify(repository).existsBySubsUser_UserIdAndSubsUserOn_UserId(2, 15);
+    }
+
+    @Test
+    void writesKeepCountOfLargeListAndIdsOfSmallOne() {
+        when(repository.findSubscriberIds(eq(CELEBRITY), any(Limit.class)))
+                .thenReturn(IntStream.rangeClosed(100, 104).boxed().toList());
+        when(repository.countBySubsUserOn_UserId(CELEBRITY)).thenReturn(500L);
+        SocialGraphCache cache = new SocialGraphCache(repository, 1000, 4, Duration.ofMinutes(5));
+        cache.countSubscribers(CELEBRITY);
+        cache.countSubscriptions(7);
+
+        cache.subscribed(7, CELEBRITY);
+
+        assertEquals(501, cache.countSubscribers(CELEBRITY));
+        assertTrue(cache.isSubscribed(7, CELEBRITY));
+        cache.unsubscribed(7, CELEBRITY);
+        assertEquals(500, cache.countSubscribers(CELEBRITY));
+        assertFalse(cache.isSubscribed(7, CELEBRITY));
+        verify(repository, times(1)).countBySubsUserOn_UserId(CELEBRITY);
+        verify(repository, never()).existsBySubsUser_UserIdAndSubsUserOn_UserId(anyInt(), anyInt());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUsersByIdsHeld() {
+        // Каждый пользователь весит 1 + 3 подписчика = 4 id; лимит 10 вмещает двоих
+        when(repository.findSubscriberIds(anyInt(), any(Limit.class))).thenReturn(List.of(100, 101, 102));
+        SocialGraphCache cache = new SocialGraphCache(repository, 10, 4, Duration.ofMinutes(5));
+
+        cache.countSubscribers(1);
+        cache.countSubscribers(2);
+        cache.countSubscribers(1);
+        cache.countSubscribers(3);
+
+        cache.countSubscribers(1);
+        cache.countSubscribers(3);
+        verify(repository, times(1)).findSubscriberIds(eq(1), any(Limit.class));
+        verify(repository, times(1)).findSubscriberIds(eq(3), any(Limit.class));
+
+        cache.countSubscribers(2);
+        verify(repository, times(2)).findSubscriberIds(eq(2), any(Limit.class));
+    }
+}
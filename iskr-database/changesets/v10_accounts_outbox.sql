@@ -0,0 +1,14 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE TABLE ACCOUNTS.OUTBOX_MESSAGES(
+    om_id BIGSERIAL PRIMARY KEY,
+    message_id VARCHAR(64) NOT NULL UNIQUE,
+    exchange VARCHAR(255) NOT NULL,
+    routing_key VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+CREATE INDEX OUTBOX_MESSAGES_NEXT_ATTEMPT_INDEX ON ACCOUNTS.OUTBOX_MESSAGES(next_attempt_at);
@@ -0,0 +1,3 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP TABLE ACCOUNTS.OUTBOX_MESSAGES;
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP INDEX ACCOUNTS.TOKENS_REDEEMED_AT_INDEX;
+DROP INDEX ACCOUNTS.TOKENS_TILL_DATE_INDEX;
+ALTER TABLE ACCOUNTS.TOKENS DROP COLUMN redeemed_at;
@@ -0,0 +1,7 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+ALTER TABLE ACCOUNTS.TOKENS
+    ADD COLUMN redeemed_at TIMESTAMP WITH TIME ZONE;
+CREATE INDEX TOKENS_TILL_DATE_INDEX ON ACCOUNTS.TOKENS(till_date);
+CREATE INDEX TOKENS_REDEEMED_AT_INDEX ON ACCOUNTS.TOKENS(redeemed_at) WHERE redeemed_at IS NOT NULL;
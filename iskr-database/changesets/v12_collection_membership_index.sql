@@ -0,0 +1,4 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE INDEX BOOKS_BOOK_COLLECTIONS_COLLECTION_BOOK_INDEX ON BOOKS.BOOKS_BOOK_COLLECTIONS(bcols_id, book_id);
@@ -0,0 +1,3 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP INDEX BOOKS.BOOKS_BOOK_COLLECTIONS_COLLECTION_BOOK_INDEX;
@@ -0,0 +1,4 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE INDEX BOOK_COLLECTIONS_OWNER_INDEX ON BOOKS.BOOK_COLLECTIONS(owner_id);
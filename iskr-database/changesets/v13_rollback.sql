@@ -0,0 +1,3 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP INDEX BOOKS.BOOK_COLLECTIONS_OWNER_INDEX;
@@ -0,0 +1,4 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP INDEX BOOKS.SUBSCRIBERS_USER_ON_INDEX;
+DROP INDEX BOOKS.SUBSCRIBERS_USER_INDEX;
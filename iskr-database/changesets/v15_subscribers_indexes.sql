@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE INDEX SUBSCRIBERS_USER_INDEX ON BOOKS.SUBSCRIBERS(subs_user_id, subs_user_on_id);
+CREATE INDEX SUBSCRIBERS_USER_ON_INDEX ON BOOKS.SUBSCRIBERS(subs_user_on_id, subs_user_id);
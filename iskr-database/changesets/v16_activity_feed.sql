@@ -0,0 +1,28 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE TABLE BOOKS.ACTIVITY_EVENTS(
+    event_id BIGSERIAL PRIMARY KEY,
+    actor_id INTEGER NOT NULL,
+    activity_type VARCHAR(50) NOT NULL,
+    bcols_id INTEGER,
+    book_id INTEGER,
+    rvw_id INTEGER,
+    fanned_out BOOLEAN NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    FOREIGN KEY (actor_id) REFERENCES ACCOUNTS.USERS(user_id),
+    FOREIGN KEY (bcols_id) REFERENCES BOOKS.BOOK_COLLECTIONS(bcols_id) ON DELETE CASCADE,
+    FOREIGN KEY (book_id) REFERENCES BOOKS.BOOKS(book_id) ON DELETE CASCADE,
+    FOREIGN KEY (rvw_id) REFERENCES BOOKS.BOOK_REVIEWS(rvw_id) ON DELETE CASCADE
+);
+CREATE INDEX ACTIVITY_EVENTS_PULL_INDEX ON BOOKS.ACTIVITY_EVENTS(actor_id, event_id) WHERE NOT fanned_out;
+CREATE INDEX ACTIVITY_EVENTS_BCOLS_INDEX ON BOOKS.ACTIVITY_EVENTS(bcols_id);
+CREATE INDEX ACTIVITY_EVENTS_BOOK_INDEX ON BOOKS.ACTIVITY_EVENTS(book_id);
+CREATE INDEX ACTIVITY_EVENTS_RVW_INDEX ON BOOKS.ACTIVITY_EVENTS(rvw_id);
+CREATE TABLE BOOKS.ACTIVITY_TIMELINES(
+    user_id INTEGER NOT NULL,
+    event_id BIGINT NOT NULL,
+    PRIMARY KEY (user_id, event_id),
+    FOREIGN KEY (event_id) REFERENCES BOOKS.ACTIVITY_EVENTS(event_id) ON DELETE CASCADE
+);
+CREATE INDEX ACTIVITY_TIMELINES_EVENT_INDEX ON BOOKS.ACTIVITY_TIMELINES(event_id);
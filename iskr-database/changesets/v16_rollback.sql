@@ -0,0 +1,4 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP TABLE BOOKS.ACTIVITY_TIMELINES;
+DROP TABLE BOOKS.ACTIVITY_EVENTS;
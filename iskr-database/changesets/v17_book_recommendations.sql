@@ -0,0 +1,12 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE TABLE BOOKS.BOOK_RECOMMENDATIONS(
+    book_id INTEGER NOT NULL,
+    kind VARCHAR(20) NOT NULL,
+    similar_ids INTEGER[] NOT NULL,
+    scores REAL[] NOT NULL,
+    computed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (book_id, kind),
+    FOREIGN KEY (book_id) REFERENCES BOOKS.BOOKS(book_id) ON DELETE CASCADE
+);
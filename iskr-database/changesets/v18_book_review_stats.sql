@@ -0,0 +1,19 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE TABLE BOOKS.BOOK_REVIEW_STATS(
+    book_id INTEGER PRIMARY KEY,
+    reviews_count INTEGER NOT NULL DEFAULT 0,
+    score_sum BIGINT NOT NULL DEFAULT 0,
+    histogram INTEGER[] NOT NULL DEFAULT '{0,0,0,0,0,0,0,0,0,0}',
+    FOREIGN KEY (book_id) REFERENCES BOOKS.BOOKS(book_id) ON DELETE CASCADE
+);
+INSERT INTO BOOKS.BOOK_REVIEW_STATS(book_id, reviews_count, score_sum, histogram)
+SELECT book_id, COUNT(*), SUM(score),
+       ARRAY[COUNT(*) FILTER (WHERE score = 1), COUNT(*) FILTER (WHERE score = 2),
+             COUNT(*) FILTER (WHERE score = 3), COUNT(*) FILTER (WHERE score = 4),
+             COUNT(*) FILTER (WHERE score = 5), COUNT(*) FILTER (WHERE score = 6),
+             COUNT(*) FILTER (WHERE score = 7), COUNT(*) FILTER (WHERE score = 8),
+             COUNT(*) FILTER (WHERE score = 9), COUNT(*) FILTER (WHERE score = 10)]::INTEGER[]
+FROM BOOKS.BOOK_REVIEWS
+GROUP BY book_id;
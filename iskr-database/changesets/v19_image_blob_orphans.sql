@@ -0,0 +1,4 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE INDEX IMAGE_BLOBS_ORPHAN_INDEX ON IMAGES.IMAGE_BLOBS(digest) WHERE ref_count = 0;
@@ -0,0 +1,3 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP INDEX IMAGES.IMAGE_BLOBS_ORPHAN_INDEX;
@@ -0,0 +1,6 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+ALTER TABLE IMAGES.IMAGE_DATAS
+    ADD COLUMN variant_widths INTEGER[],
+    ADD COLUMN variant_format VARCHAR(10);
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+ALTER TABLE IMAGES.IMAGE_DATAS
+    DROP COLUMN variant_format,
+    DROP COLUMN variant_widths;
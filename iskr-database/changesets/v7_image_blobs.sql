@@ -0,0 +1,14 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+CREATE TABLE IMAGES.IMAGE_BLOBS(
+    digest CHAR(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    CHECK (ref_count >= 0)
+);
+ALTER TABLE IMAGES.IMAGE_DATAS
+    ADD COLUMN digest CHAR(64),
+    ADD FOREIGN KEY (digest) REFERENCES IMAGES.IMAGE_BLOBS(digest);
+CREATE INDEX IMAGE_DATAS_DIGEST_INDEX ON IMAGES.IMAGE_DATAS(digest);
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP INDEX IMAGES.IMAGE_DATAS_DIGEST_INDEX;
+ALTER TABLE IMAGES.IMAGE_DATAS DROP COLUMN digest;
+DROP TABLE IMAGES.IMAGE_BLOBS;
@@ -0,0 +1,6 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+ALTER TABLE IMAGES.IMAGE_DATAS
+    ADD COLUMN width INTEGER,
+    ADD COLUMN height INTEGER;
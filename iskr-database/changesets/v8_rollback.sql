@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+ALTER TABLE IMAGES.IMAGE_DATAS
+    DROP COLUMN height,
+    DROP COLUMN width;
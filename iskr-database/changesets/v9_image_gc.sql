@@ -0,0 +1,7 @@
+-- liquibase formatted sql
+
+-- changeset fuzis:1
+ALTER TABLE IMAGES.IMAGE_DATAS
+    ADD COLUMN created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW();
+CREATE INDEX IMAGE_LINKS_IMGD_INDEX ON IMAGES.IMAGE_LINKS(imgd_id);
+CREATE INDEX COLLECTION_PHOTO_LINK_INDEX ON BOOKS.BOOK_COLLECTIONS(photo_link);
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+-- changeset fuzis:1
+DROP INDEX BOOKS.COLLECTION_PHOTO_LINK_INDEX;
+DROP INDEX IMAGES.IMAGE_LINKS_IMGD_INDEX;
+ALTER TABLE IMAGES.IMAGE_DATAS DROP COLUMN created_at;
@@ -70,17 +70,49 @@ export interface WishlistResponse {
   wishlistId: number;
 }
 
+// Ленты библиотеки отдаются страницами; nextCursor равен null на последней
+interface LibraryPage {
+  count: number;
+  hasMore: boolean;
+  nextCursor: string | null;
+}
+
+const PAGE_SIZE = 500;
+
+const fetchAllPages = async <P extends LibraryPage, I>(
+  url: string,
+  items: (page: P) => I[],
+  errorMessage: string,
+): Promise<{ first: ApiResponse<P>['data']; items: I[] }> => {
+  let first: ApiResponse<P>['data'] | null = null;
+  const all: I[] = [];
+  let cursor: string | null = null;
+  do {
+    const params: Record<string, string | number> = { batch: PAGE_SIZE };
+    if (cursor) {
+      params.cursor = cursor;
+    }
+    const response = await api.get<ApiResponse<P>>(url, { params });
+    const data = response.data.data;
+    if (data.state !== 'OK') {
+      throw new Error(data.message || errorMessage);
+    }
+    if (!first) {
+      first = data;
+    }
+    all.push(...items(data.key));
+    cursor = data.key.nextCursor ?? null;
+  } while (cursor);
+  return { first: first!, items: all };
+};
+
 export const libraryAPI = {
   // Получение книг в библиотеке пользователя
   getLibraryBooks: async (): Promise<LibraryBook[]> => {
     try {
-      const response = await api.get<ApiResponse<{ books: LibraryBook[]; count: number }>>('/v1/library-books');
-      
-      if (response.data.data.state === 'OK') {
-        return response.data.data.key.books;
-      }
-      
-      throw new Error(response.data.data.message || 'Failed to fetch library books');
+      const { items } = await fetchAllPages<{ books: LibraryBook[] } & LibraryPage, LibraryBook>(
+        '/v1/library-books', page => page.books, 'Failed to fetch library books');
+      return items;
     } catch (error) {
       console.error('Error fetching library books:', error);
       throw error;
@@ -90,14 +122,9 @@ export const libraryAPI = {
   // Получение коллекций в библиотеке пользователя
   getLibraryCollections: async (): Promise<LibraryCollection[]> => {
     try {
-      const response = await api.get<ApiResponse<{ collections: LibraryCollection[]; count: number }>>('/v1/library-collections');
-      
-      if (response.data.data.state === 'OK') {
-        // Исключаем вишлист из обычных коллекций
-        return response.data.data.key.collections
-      }
-      
-      throw new Error(response.data.data.message || 'Failed to fetch library collections');
+      const { items } = await fetchAllPages<{ collections: LibraryCollection[] } & LibraryPage, LibraryCollection>(
+        '/v1/library-collections', page => page.collections, 'Failed to fetch library collections');
+      return items;
     } catch (error) {
       console.error('Error fetching library collections:', error);
       throw error;
@@ -107,20 +134,15 @@ export const libraryAPI = {
   // Получение вишлиста
   getWishlist: async (): Promise<{ books: LibraryBook[]; wishlistId?: number }> => {
     try {
-      const response = await api.get<ApiResponse<WishlistResponse>>('/v1/library-wishlist');
-      
-      if (response.data.data.state === 'OK') {
-        const key = response.data.data.key;
-        
-        // Проверяем, есть ли вишлист
-        if (key.count === 0 && response.data.data.message === 'No wishlist found for user') {
-          return { books: [], wishlistId: undefined };
-        }
-        
-        return { books: key.books, wishlistId: key.wishlistId };
+      const { first, items } = await fetchAllPages<WishlistResponse & LibraryPage, LibraryBook>(
+        '/v1/library-wishlist', page => page.books, 'Failed to fetch wishlist');
+
+      // Проверяем, есть ли вишлист
+      if (first.key.count === 0 && first.message === 'No wishlist found for user') {
+        return { books: [], wishlistId: undefined };
       }
-      
-      throw new Error(response.data.data.message || 'Failed to fetch wishlist');
+
+      return { books: items, wishlistId: first.key.wishlistId };
     } catch (error) {
       console.error('Error fetching wishlist:', error);
       throw error;
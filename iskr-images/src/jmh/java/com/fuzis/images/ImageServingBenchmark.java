@@ -0,0 +1,155 @@
+package com.fuzis.images;
+
+import com.fuzis.images.util.ImageResponseWriter;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of {@link ImageResponseWriter} against Tomcat's own static {@link DefaultServlet},
+ * both serving the same files on one embedded Tomcat to sixteen concurrent HTTP clients.
+ * The JUnit test runs a short JMH session and prints requests per second for each file size.
+ * Not part of {@code mvn test}; run it with {@code mvn -Pbenchmark test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class ImageServingBenchmark {
+
+    @Param({"20480", "524288"})
+    public int size;
+
+    private Path dir;
+
+    private Tomcat tomcat;
+
+    private HttpClient client;
+
+    private HttpRequest staticRequest;
+
+    private HttpRequest writerRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("image-serving");
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        Files.write(dir.resolve(size + ".webp"), data);
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createDirectories(dir.resolve("tomcat")).toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", dir.toString());
+
+        Tomcat.addServlet(context, "static", new DefaultServlet());
+        context.addServletMappingDecoded("/", "static");
+
+        ImageResponseWriter writer = new ImageResponseWriter(48 * 1024);
+        Path root = dir;
+        Tomcat.addServlet(context, "images", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                writer.write(req, resp, root.resolve(req.getPathInfo().substring(1)), "image/webp", "\"bench\"");
+            }
+        });
+        context.addServletMappingDecoded("/images/*", "images");
+
+        tomcat.getConnector();
+        tomcat.start();
+        String base = "http://localhost:" + tomcat.getConnector().getLocalPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        staticRequest = HttpRequest.newBuilder(URI.create(base + "/" + size + ".webp")).build();
+        writerRequest = HttpRequest.newBuilder(URI.create(base + "/images/" + size + ".webp")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Benchmark
+    public int staticServlet() throws Exception {
+        return send(staticRequest);
+    }
+
+    @Benchmark
+    public int writer() throws Exception {
+        return send(writerRequest);
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    @Test
+    void writerKeepsUpWithStaticServing() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ImageServingBenchmark.class.getName())
+                .forks(1)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Double> rps = new HashMap<>();
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark();
+            name = name.substring(name.lastIndexOf('.') + 1) + " " + result.getParams().getParam("size");
+            rps.put(name, result.getPrimaryResult().getScore());
+        }
+        for (String size : new String[]{"20480", "524288"}) {
+            double staticRps = rps.get("staticServlet " + size);
+            double writerRps = rps.get("writer " + size);
+            System.out.printf("%7s B: static %8.0f req/s, writer %8.0f req/s%n", size, staticRps, writerRps);
+        }
+
+        assertEquals(4, rps.size());
+        for (String size : new String[]{"20480", "524288"}) {
+            assertTrue(rps.get("writer " + size) > rps.get("staticServlet " + size) / 2);
+        }
+    }
+}
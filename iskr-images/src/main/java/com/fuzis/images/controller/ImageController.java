@@ -1,25 +1,40 @@
 package com.fuzis.images.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fuzis.images.entity.ImageLink;
 import com.fuzis.images.service.ImageService;
 import com.fuzis.images.transfer.ChangeDTO;
+import com.fuzis.images.transfer.ImageFile;
+import com.fuzis.images.transfer.SelectDTO;
+import com.fuzis.images.transfer.state.State;
 import com.fuzis.images.util.HttpUtil;
+import com.fuzis.images.util.ImageResponseWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/v1/images")
 public class ImageController {
 
     private final ImageService imageService;
     private final HttpUtil httpUtil;
+    private final ImageResponseWriter imageResponseWriter;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public ImageController(ImageService imageService, HttpUtil httpUtil) {
+    public ImageController(ImageService imageService, HttpUtil httpUtil, ImageResponseWriter imageResponseWriter,
+                           ObjectMapper objectMapper) {
         this.imageService = imageService;
         this.httpUtil = httpUtil;
+        this.imageResponseWriter = imageResponseWriter;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/upload")
@@ -28,4 +43,24 @@ public class ImageController {
             @RequestParam(value = "X-User-Id", required = false) Integer uploaderId) {
         return httpUtil.handleServiceResponse(imageService.uploadImage(file, uploaderId));
     }
+
+    /**
+     * Writes the file straight to the response; errors get the usual JSON envelope.
+     */
+    @GetMapping("/{uuid}")
+    public void getImage(
+            @PathVariable("uuid") String uuid,
+            @RequestParam(value = "w", required = false) Integer width,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        SelectDTO<ImageFile> result = imageService.resolveImage(uuid, width);
+        if (result.getState() != State.OK) {
+            response.setStatus(httpUtil.statusOf(result.getState()).value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), result);
+            return;
+        }
+        ImageFile file = result.getData();
+        imageResponseWriter.write(request, response, file.path(), file.mimeType(), file.etag());
+    }
 }
\ No newline at end of file
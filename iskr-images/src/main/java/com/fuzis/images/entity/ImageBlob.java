@@ -0,0 +1,30 @@
+package com.fuzis.images.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+
+@Entity
+@Table(name = "IMAGE_BLOBS", schema = "IMAGES")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageBlob {
+    @Id
+    @Column(name = "digest", length = 64)
+    private String digest;
+
+    @Column(name = "size", nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private ZonedDateTime createdAt;
+}
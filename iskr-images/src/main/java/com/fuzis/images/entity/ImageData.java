@@ -6,6 +6,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.ZonedDateTime;
+
 @Entity
 @Table(name = "IMAGE_DATAS", schema = "IMAGES")
 @Data
@@ -32,4 +34,22 @@ public class ImageData {
 
     @Column(name = "extension", nullable = false, length = 10)
     private String extension;
+
+    @Column(name = "digest", length = 64)
+    private String digest;
+
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private ZonedDateTime createdAt;
+
+    @Column(name = "variant_widths")
+    private Integer[] variantWidths;
+
+    @Column(name = "variant_format", length = 10)
+    private String variantFormat;
 }
\ No newline at end of file
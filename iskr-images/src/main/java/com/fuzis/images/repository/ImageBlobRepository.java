@@ -0,0 +1,59 @@
+package com.fuzis.images.repository;
+
+import com.fuzis.images.entity.ImageBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    /**
+     * Registers one more reference to the blob, creating the row on first use.
+     * Returns the reference count after the increment, so 1 means the content is new.
+     */
+    @Transactional
+    @Query(value = "INSERT INTO IMAGES.IMAGE_BLOBS(digest, size, ref_count) VALUES (:digest, :size, 1) " +
+            "ON CONFLICT (digest) DO UPDATE SET ref_count = IMAGES.IMAGE_BLOBS.ref_count + 1 " +
+            "RETURNING ref_count", nativeQuery = true)
+    int acquire(@Param("digest") String digest, @Param("size") long size);
+
+    /**
+     * Records a blob file nothing references, e.g. written by an upload that rolled back, so the collector
+     * deletes it. Runs in its own transaction since it is called after the upload's one has completed.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO IMAGES.IMAGE_BLOBS(digest, size, ref_count) VALUES (:digest, :size, 0) " +
+            "ON CONFLICT (digest) DO NOTHING", nativeQuery = true)
+    void registerOrphan(@Param("digest") String digest, @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = CASE WHEN b.refCount > :count THEN b.refCount - :count ELSE 0 END WHERE b.digest = :digest")
+    int release(@Param("digest") String digest, @Param("count") int count);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<ImageBlob> findByDigestInAndRefCountLessThanEqual(Collection<String> digests, int refCount);
+
+    /**
+     * Unreferenced blobs left over by an earlier collector run or a rolled back upload, locked like
+     * {@link #findByDigestInAndRefCountLessThanEqual}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ImageBlob b WHERE b.refCount = 0")
+    List<ImageBlob> findOrphans(Limit limit);
+
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.size), 0) FROM ImageBlob b")
+    List<Object[]> countAndTotalSize();
+}
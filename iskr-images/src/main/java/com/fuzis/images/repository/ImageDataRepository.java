@@ -2,9 +2,51 @@ package com.fuzis.images.repository;
 
 import com.fuzis.images.entity.ImageData;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.List;
 
 @Repository
 public interface ImageDataRepository extends JpaRepository<ImageData, Integer> {
     ImageData findByUuid(String uuid);
-}
\ No newline at end of file
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageData d SET d.variantWidths = :widths, d.variantFormat = :format WHERE d.imgdId = :id")
+    int updateVariants(@Param("id") Integer imgdId,
+                       @Param("widths") Integer[] widths,
+                       @Param("format") String format);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageData d SET d.variantWidths = :widths, d.variantFormat = :format WHERE d.digest = :digest")
+    int updateVariantsByDigest(@Param("digest") String digest,
+                               @Param("widths") Integer[] widths,
+                               @Param("format") String format);
+
+    ImageData findFirstByDigestAndVariantWidthsIsNotNull(String digest);
+
+    List<ImageData> findTop100ByDigestIsNullAndImgdIdGreaterThanOrderByImgdIdAsc(Integer imgdId);
+
+    /**
+     * Images older than the cutoff that no book, collection or user profile points at through any
+     * of their links. Rows locked by a concurrent collector run are skipped.
+     */
+    @Transactional
+    @Query(value = "SELECT d.imgd_id FROM IMAGES.IMAGE_DATAS d " +
+            "WHERE d.imgd_id > :after AND d.created_at < :cutoff " +
+            "AND NOT EXISTS (SELECT 1 FROM IMAGES.IMAGE_LINKS l WHERE l.imgd_id = d.imgd_id AND (" +
+            "EXISTS (SELECT 1 FROM BOOKS.BOOKS b WHERE b.photo_link = l.imgl_id) " +
+            "OR EXISTS (SELECT 1 FROM BOOKS.BOOK_COLLECTIONS c WHERE c.photo_link = l.imgl_id) " +
+            "OR EXISTS (SELECT 1 FROM ACCOUNTS.USER_PROFILES p WHERE p.user_imgl_id = l.imgl_id))) " +
+            "ORDER BY d.imgd_id LIMIT :limit " +
+            "FOR UPDATE OF d SKIP LOCKED", nativeQuery = true)
+    List<Integer> lockUnreachable(@Param("after") int after,
+                                  @Param("cutoff") ZonedDateTime cutoff,
+                                  @Param("limit") int limit);
+}
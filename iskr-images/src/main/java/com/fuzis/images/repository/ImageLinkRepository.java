@@ -2,8 +2,19 @@ package com.fuzis.images.repository;
 
 import com.fuzis.images.entity.ImageLink;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
 
 @Repository
 public interface ImageLinkRepository extends JpaRepository<ImageLink, Integer> {
-}
\ No newline at end of file
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ImageLink l WHERE l.imageData.imgdId IN :ids")
+    int deleteByImageDataIds(@Param("ids") Collection<Integer> imgdIds);
+}
@@ -0,0 +1,279 @@
+package com.fuzis.images.service;
+
+import com.fuzis.images.entity.ImageData;
+import com.fuzis.images.repository.ImageDataRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates fixed-width derivatives next to the original blob (see {@link ImageStorageService})
+ * on a bounded worker pool and records the produced widths on {@link ImageData}.
+ * When the pool is saturated the job is dropped; the image simply has no variants and
+ * clients keep using the original.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private final ImageDataRepository imageDataRepository;
+    private final ImageStorageService imageStorageService;
+
+    private final Timer derivativeTimer;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+
+    @Value("${images.variants.widths:64,160,320,640}")
+    private int[] widths;
+
+    @Value("${images.variants.format:webp}")
+    private String format;
+
+    @Value("${images.variants.quality:0.8}")
+    private float quality;
+
+    @Value("${images.variants.threads:2}")
+    private int threads;
+
+    @Value("${images.variants.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private String effectiveFormat;
+
+    private final ConcurrentHashMap<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    public ImageDerivativeService(ImageDataRepository imageDataRepository,
+                                  ImageStorageService imageStorageService,
+                                  MeterRegistry meterRegistry) {
+        this.imageDataRepository = imageDataRepository;
+        this.imageStorageService = imageStorageService;
+        this.derivativeTimer = Timer.builder("images.derivatives.duration")
+                .description("Time spent generating all variants of one image")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("images.derivatives.rejected")
+                .description("Derivative jobs dropped because the worker queue was full")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("images.derivatives.failed")
+                .register(meterRegistry);
+        meterRegistry.gauge("images.derivatives.queue", this,
+                s -> s.executor == null ? 0 : s.executor.getQueue().size());
+    }
+
+    @PostConstruct
+    public void init() {
+        widths = Arrays.stream(widths).filter(w -> w > 0).sorted().distinct().toArray();
+        effectiveFormat = format.toLowerCase();
+        if (!ImageIO.getImageWritersByFormatName(effectiveFormat).hasNext()) {
+            log.warn("No ImageIO writer for '{}', falling back to jpg for image variants", effectiveFormat);
+            effectiveFormat = "jpg";
+        }
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "image-derivatives-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public int[] getWidths() {
+        return widths;
+    }
+
+    public String getFormat() {
+        return effectiveFormat;
+    }
+
+    public void submit(ImageData imageData) {
+        try {
+            executor.execute(() -> generate(imageData, imageStorageService.originalPath(imageData)));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Derivative queue is full, image {} is left without variants", imageData.getUuid());
+        }
+    }
+
+    public boolean isConfiguredWidth(int width) {
+        return Arrays.binarySearch(widths, width) >= 0;
+    }
+
+    /**
+     * Renders a single variant synchronously, for the read path when the background job has not
+     * produced it (yet). Concurrent requests for the same variant share one rendering.
+     * Returns the original when it is not wider than the requested width.
+     */
+    public Path generateVariant(ImageData imageData, Path original, int width) throws IOException {
+        Path target = imageStorageService.variantPath(imageData, width, effectiveFormat);
+        CompletableFuture<Path> own = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(target, own);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+        try {
+            Path result = target;
+            if (!Files.exists(target)) {
+                BufferedImage source = ImageIO.read(original.toFile());
+                if (source == null) {
+                    throw new IOException("Cannot decode image " + imageData.getUuid());
+                }
+                if (source.getWidth() > width) {
+                    write(scale(source, width), target);
+                } else {
+                    // Never upscale, the original is already the best fit
+                    result = original;
+                }
+            }
+            own.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(target, own);
+        }
+    }
+
+    private void generate(ImageData imageData, Path original) {
+        derivativeTimer.record(() -> {
+            try {
+                // Width is known from the upload header, so images smaller than every variant are never decoded
+                if (imageData.getWidth() != null && (widths.length == 0 || imageData.getWidth() <= widths[0])) {
+                    updateVariants(imageData, new Integer[0]);
+                    return;
+                }
+                BufferedImage source = ImageIO.read(original.toFile());
+                if (source == null) {
+                    log.warn("Cannot decode image {}, skipping variants", imageData.getUuid());
+                    return;
+                }
+                List<Integer> produced = new ArrayList<>(widths.length);
+                // Largest first so each smaller variant is scaled from the previous one, not the full original
+                BufferedImage current = source;
+                for (int i = widths.length - 1; i >= 0; i--) {
+                    int width = widths[i];
+                    if (width >= source.getWidth()) {
+                        continue;
+                    }
+                    current = scale(current, width);
+                    write(current, imageStorageService.variantPath(imageData, width, effectiveFormat));
+                    produced.add(0, width);
+                }
+                updateVariants(imageData, produced.toArray(new Integer[0]));
+            } catch (Exception e) {
+                failedCounter.increment();
+                log.error("Failed to generate variants for image {}", imageData.getUuid(), e);
+            }
+        });
+    }
+
+    private void updateVariants(ImageData imageData, Integer[] producedWidths) {
+        if (imageData.getDigest() != null) {
+            // Variants belong to the blob, so every row sharing it gets them
+            imageDataRepository.updateVariantsByDigest(imageData.getDigest(), producedWidths, effectiveFormat);
+        } else {
+            imageDataRepository.updateVariants(imageData.getImgdId(), producedWidths, effectiveFormat);
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int targetWidth) {
+        int targetHeight = Math.max(1, Math.round((float) source.getHeight() * targetWidth / source.getWidth()));
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        // Step down by halves: a single bilinear pass from a large source drops too many pixels
+        do {
+            w = Math.max(targetWidth, w / 2);
+            h = Math.max(targetHeight, h / 2);
+            BufferedImage next = new BufferedImage(w, h, hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                if (!hasAlpha()) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, w, h);
+                }
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private boolean hasAlpha() {
+        return !"jpg".equals(effectiveFormat);
+    }
+
+    private void write(BufferedImage image, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(effectiveFormat);
+        ImageWriter writer = writers.next();
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (param.canWriteCompressed()) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    String[] types = param.getCompressionTypes();
+                    if (types != null && types.length > 0) {
+                        param.setCompressionType(Arrays.asList(types).contains("Lossy") ? "Lossy" : types[0]);
+                    }
+                    param.setCompressionQuality(quality);
+                }
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // No-op after the move; removes the partial file if encoding or the move failed
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.fuzis.images.service;
+
+import com.fuzis.images.entity.ImageBlob;
+import com.fuzis.images.entity.ImageData;
+import com.fuzis.images.repository.ImageBlobRepository;
+import com.fuzis.images.repository.ImageDataRepository;
+import com.fuzis.images.repository.ImageLinkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes images nothing points at any more: no BOOKS.photo_link, BOOK_COLLECTIONS.photo_link or
+ * USER_PROFILES.user_imgl_id references any of their links. Images younger than the grace period
+ * are left alone, since an upload is only attached to a book or profile by a later request.
+ * <p>
+ * Each batch runs in its own transaction. Rows are deleted (a reference added concurrently fails the
+ * batch on the foreign key instead of losing the image) and blob references are released; no file is
+ * touched before that commits. Blobs that dropped to zero are then purged in a second transaction,
+ * which locks their rows, deletes the files and then the rows, so an upload of the same content waits
+ * for it and writes the file again. A purge that fails after deleting files only leaves rows without
+ * references behind; every run starts by purging such rows, as well as the ones uploads that rolled
+ * back leave for files they had already written.
+ */
+@Service
+@EnableScheduling
+public class ImageGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageGarbageCollector.class);
+
+    private final ImageDataRepository imageDataRepository;
+    private final ImageLinkRepository imageLinkRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStorageService imageStorageService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter reclaimedBytes;
+    private final Counter deletedImages;
+    private final Counter deletedBlobs;
+    private final Timer runTimer;
+    private final AtomicLong storedObjects = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    @Value("${images.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${images.gc.grace-period:24h}")
+    private Duration gracePeriod;
+
+    @Value("${images.gc.batch-size:200}")
+    private int batchSize;
+
+    @Value("${images.gc.max-batches:25}")
+    private int maxBatches;
+
+    public ImageGarbageCollector(ImageDataRepository imageDataRepository,
+                                 ImageLinkRepository imageLinkRepository,
+                                 ImageBlobRepository imageBlobRepository,
+                                 ImageStorageService imageStorageService,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry) {
+        this.imageDataRepository = imageDataRepository;
+        this.imageLinkRepository = imageLinkRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.imageStorageService = imageStorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.reclaimedBytes = Counter.builder("images.gc.reclaimed.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.deletedImages = Counter.builder("images.gc.deleted.images").register(meterRegistry);
+        this.deletedBlobs = Counter.builder("images.gc.deleted.blobs").register(meterRegistry);
+        this.runTimer = Timer.builder("images.gc.duration").register(meterRegistry);
+        meterRegistry.gauge("images.storage.objects", storedObjects);
+        meterRegistry.gauge("images.storage.bytes", storedBytes);
+    }
+
+    @Scheduled(initialDelayString = "${images.gc.initial-delay:PT1M}", fixedDelayString = "${images.gc.interval:PT10M}")
+    public void collect() {
+        if (enabled) {
+            runTimer.record(this::run);
+        }
+        refreshStorageStats();
+    }
+
+    private void run() {
+        ZonedDateTime cutoff = ZonedDateTime.now().minus(gracePeriod);
+        int after = 0;
+        long images = 0;
+        long bytes = 0;
+        try {
+            Long orphanBytes = transactionTemplate.execute(status -> purge(imageBlobRepository.findOrphans(Limit.of(batchSize))));
+            bytes += orphanBytes != null ? orphanBytes : 0;
+        } catch (Exception e) {
+            logger.warn("Purging unreferenced image blobs failed", e);
+        }
+        for (int i = 0; i < maxBatches; i++) {
+            BatchResult result;
+            try {
+                int from = after;
+                result = transactionTemplate.execute(status -> collectBatch(from, cutoff));
+            } catch (Exception e) {
+                // Most likely a reference was added to one of the candidates; the next run sees it as reachable
+                logger.warn("Image GC batch after id {} failed, stopping this run", after, e);
+                break;
+            }
+            if (result == null || result.lastId() == null) {
+                break;
+            }
+            after = result.lastId();
+            images += result.images();
+            try {
+                bytes += purgeReleased(result.releasedDigests());
+                bytes += deleteLegacyFiles(result.legacy());
+            } catch (Exception e) {
+                // The blob rows are still there with no references, the next run purges them
+                logger.warn("Deleting files of collected images after id {} failed", after, e);
+            }
+        }
+        if (images > 0) {
+            logger.info("Image GC removed {} images and reclaimed {} bytes", images, bytes);
+        }
+    }
+
+    private record BatchResult(Integer lastId, int images, Set<String> releasedDigests, List<ImageData> legacy) {
+    }
+
+    private BatchResult collectBatch(int after, ZonedDateTime cutoff) {
+        List<Integer> ids = imageDataRepository.lockUnreachable(after, cutoff, batchSize);
+        if (ids.isEmpty()) {
+            return new BatchResult(null, 0, Set.of(), List.of());
+        }
+        List<ImageData> images = imageDataRepository.findAllById(ids);
+
+        imageLinkRepository.deleteByImageDataIds(ids);
+        imageDataRepository.deleteAllByIdInBatch(ids);
+
+        Map<String, Integer> released = new HashMap<>();
+        List<ImageData> legacy = new ArrayList<>();
+        for (ImageData imageData : images) {
+            if (imageData.getDigest() != null) {
+                released.merge(imageData.getDigest(), 1, Integer::sum);
+            }
+            // Migrated images keep their old flat files until the migration is told to delete them
+            legacy.add(imageData);
+        }
+        released.forEach(imageBlobRepository::release);
+
+        deletedImages.increment(images.size());
+        return new BatchResult(ids.get(ids.size() - 1), images.size(), released.keySet(), legacy);
+    }
+
+    /**
+     * Deletes the files and rows of the given blobs that have no references left, returning the bytes freed.
+     */
+    private long purgeReleased(Collection<String> digests) {
+        if (digests.isEmpty()) {
+            return 0;
+        }
+        Long bytes = transactionTemplate.execute(status ->
+                purge(imageBlobRepository.findByDigestInAndRefCountLessThanEqual(digests, 0)));
+        return bytes != null ? bytes : 0;
+    }
+
+    /**
+     * Must run in the transaction that locked the rows.
+     */
+    private long purge(List<ImageBlob> dead) {
+        if (dead.isEmpty()) {
+            return 0;
+        }
+        long bytes = 0;
+        try {
+            for (ImageBlob blob : dead) {
+                bytes += imageStorageService.deleteBlob(blob.getDigest());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        imageBlobRepository.deleteAllInBatch(dead);
+        deletedBlobs.increment(dead.size());
+        reclaimedBytes.increment(bytes);
+        return bytes;
+    }
+
+    private long deleteLegacyFiles(List<ImageData> legacy) throws IOException {
+        long bytes = 0;
+        for (ImageData imageData : legacy) {
+            bytes += imageStorageService.deleteLegacy(imageData);
+        }
+        reclaimedBytes.increment(bytes);
+        return bytes;
+    }
+
+    private void refreshStorageStats() {
+        try {
+            Object[] row = imageBlobRepository.countAndTotalSize().get(0);
+            storedObjects.set(((Number) row[0]).longValue());
+            storedBytes.set(((Number) row[1]).longValue());
+        } catch (Exception e) {
+            logger.warn("Failed to refresh image storage stats", e);
+        }
+    }
+}
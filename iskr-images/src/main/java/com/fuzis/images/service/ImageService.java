@@ -2,26 +2,40 @@ package com.fuzis.images.service;
 
 import com.fuzis.images.entity.ImageData;
 import com.fuzis.images.entity.ImageLink;
+import com.fuzis.images.repository.ImageBlobRepository;
 import com.fuzis.images.repository.ImageDataRepository;
 import com.fuzis.images.repository.ImageLinkRepository;
 import com.fuzis.images.transfer.ChangeDTO;
+import com.fuzis.images.transfer.ImageFile;
+import com.fuzis.images.transfer.SelectDTO;
 import com.fuzis.images.transfer.state.State;
+import com.fuzis.images.util.ImageProbe;
 import com.fuzis.images.util.TokenGenerator;
-import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 @Service
 public class ImageService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ImageService.class);
+
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F-]{36}");
+
     private static final Set<String> ALLOWED_MIME_TYPES = Set.of(
             "image/jpeg", "image/png", "image/gif", "image/webp", "image/bmp"
     );
@@ -31,26 +45,31 @@ public class ImageService {
     private final ImageDataRepository imageDataRepository;
     private final ImageLinkRepository imageLinkRepository;
     private final TokenGenerator tokenGenerator;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ImageStorageService imageStorageService;
+    private final ImageBlobRepository imageBlobRepository;
+    private final TransactionTemplate transactionTemplate;
 
-    @Value("${data_path}")
-    private String dataPath;
+    @Value("${images.upload.max-pixels:40000000}")
+    private long maxPixels;
 
-    private Path uploadDir;
+    @Value("${images.serving.resize-fallback:true}")
+    private boolean resizeFallback;
 
     public ImageService(ImageDataRepository imageDataRepository,
                         ImageLinkRepository imageLinkRepository,
-                        TokenGenerator tokenGenerator) {
+                        TokenGenerator tokenGenerator,
+                        ImageDerivativeService imageDerivativeService,
+                        ImageStorageService imageStorageService,
+                        ImageBlobRepository imageBlobRepository,
+                        TransactionTemplate transactionTemplate) {
         this.imageDataRepository = imageDataRepository;
         this.imageLinkRepository = imageLinkRepository;
         this.tokenGenerator = tokenGenerator;
-    }
-
-    @PostConstruct
-    public void init() throws IOException {
-        this.uploadDir = Paths.get(dataPath);
-        if (!Files.exists(uploadDir)) {
-            Files.createDirectories(uploadDir);
-        }
+        this.imageDerivativeService = imageDerivativeService;
+        this.imageStorageService = imageStorageService;
+        this.imageBlobRepository = imageBlobRepository;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public ChangeDTO<ImageLink> uploadImage(MultipartFile file, Integer uploaderId) {
@@ -64,69 +83,138 @@ public class ImageService {
             return new ChangeDTO<>(State.Fail_BadData, "File size exceeds 15 MB limit", null);
         }
 
-        // Проверка MIME-типа
-        String mimeType = file.getContentType();
-        if (mimeType == null || !ALLOWED_MIME_TYPES.contains(mimeType.toLowerCase())) {
-            return new ChangeDTO<>(State.Fail_BadData, "Unsupported file type. Allowed: JPEG, PNG, GIF, WebP, BMP", null);
-        }
-
-        // Получение расширения файла
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1).toLowerCase();
-        } else {
-            // Если расширение не указано, определяем по MIME-типу
-            extension = getExtensionFromMimeType(mimeType);
-            if (extension.isEmpty()) {
-                return new ChangeDTO<>(State.Fail_BadData, "Cannot determine file extension", null);
+        try {
+            // Один проход по содержимому: тип по сигнатуре, размеры из заголовка и хеш
+            ImageStorageService.InspectedUpload inspected;
+            try (InputStream in = file.getInputStream()) {
+                inspected = imageStorageService.inspect(in);
+            }
+            if (inspected == null || !ALLOWED_MIME_TYPES.contains(inspected.image().mimeType())) {
+                return new ChangeDTO<>(State.Fail_BadData, "Unsupported file type. Allowed: JPEG, PNG, GIF, WebP, BMP", null);
+            }
+            ImageProbe.Result image = inspected.image();
+            if ((long) image.width() * image.height() > maxPixels) {
+                return new ChangeDTO<>(State.Fail_BadData, "Image dimensions exceed " + maxPixels + " pixels", null);
             }
-        }
 
-        try {
-            // Генерация UUID для имени файла
-            String uuid = tokenGenerator.getTokenKey();
-            String filename = uuid + "." + extension;
-            Path filePath = uploadDir.resolve(filename);
+            ImageLink imageLink = transactionTemplate.execute(status -> register(inspected, file, uploaderId));
+            return new ChangeDTO<>(State.OK, "Image uploaded successfully", imageLink);
 
-            // Сохранение файла на диск
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | UncheckedIOException e) {
+            return new ChangeDTO<>(State.Fail, "Failed to save image: " + e.getMessage(), null);
+        } catch (Exception e) {
+            return new ChangeDTO<>(State.Fail, "Unexpected error: " + e.getMessage(), null);
+        }
+    }
 
-            // Сохранение метаданных в БД
-            ImageData imageData = ImageData.builder()
-                    .uuid(uuid)
-                    .uploaderId(uploaderId)
-                    .size((int) file.getSize())
-                    .mimeType(mimeType)
-                    .extension(extension)
-                    .build();
+    private ImageLink register(ImageStorageService.InspectedUpload inspected, MultipartFile file, Integer uploaderId) {
+        long size = file.getSize();
+        // Ссылка на блоб берётся до переноса файла, чтобы сборщик мусора не удалил его между проверкой и вставкой
+        boolean newContent = imageBlobRepository.acquire(inspected.digest(), size) == 1;
 
-            imageData = imageDataRepository.save(imageData);
+        // Перенос файла в хранилище; одинаковые файлы хранятся один раз.
+        // Файл кладётся под блокировкой строки блоба, взятой acquire, поэтому сборщик не удалит его до коммита
+        boolean placed;
+        try {
+            placed = imageStorageService.place(inspected.digest(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (placed) {
+            // При откате файл остаётся без ссылок: отдаём его сборщику мусора, а не удаляем сами,
+            // потому что параллельная загрузка того же содержимого могла уже на него рассчитывать
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        try {
+                            imageBlobRepository.registerOrphan(inspected.digest(), size);
+                        } catch (Exception e) {
+                            logger.warn("Failed to register orphaned blob {}", inspected.digest(), e);
+                        }
+                    }
+                }
+            });
+        }
 
-            // Создание записи в IMAGE_LINKS
-            ImageLink imageLink = ImageLink.builder()
-                    .imageData(imageData)
-                    .build();
+        // Сохранение метаданных в БД
+        ImageData.ImageDataBuilder builder = ImageData.builder()
+                .uuid(tokenGenerator.getTokenKey())
+                .uploaderId(uploaderId)
+                .size((int) size)
+                .mimeType(inspected.image().mimeType())
+                .extension(inspected.image().extension())
+                .digest(inspected.digest())
+                .width(inspected.image().width())
+                .height(inspected.image().height());
+        ImageData sibling = newContent ? null : imageDataRepository.findFirstByDigestAndVariantWidthsIsNotNull(inspected.digest());
+        if (sibling != null) {
+            builder.variantWidths(sibling.getVariantWidths()).variantFormat(sibling.getVariantFormat());
+        }
 
-            imageLink = imageLinkRepository.save(imageLink);
+        ImageData imageData = imageDataRepository.save(builder.build());
+
+        // Создание записи в IMAGE_LINKS
+        ImageLink imageLink = imageLinkRepository.save(ImageLink.builder()
+                .imageData(imageData)
+                .build());
+
+        // Генерация превью в фоне, после коммита, чтобы задача видела запись
+        if (sibling == null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    imageDerivativeService.submit(imageData);
+                }
+            });
+        }
+        return imageLink;
+    }
 
-            return new ChangeDTO<>(State.OK, "Image uploaded successfully", imageLink);
+    public SelectDTO<ImageFile> resolveImage(String uuid, Integer width) {
+        if (!UUID_PATTERN.matcher(uuid).matches()) {
+            return new SelectDTO<>(State.Fail_BadData, null, "Invalid image id");
+        }
+        if (width != null && width <= 0) {
+            return new SelectDTO<>(State.Fail_BadData, null, "Width must be positive");
+        }
+        ImageData imageData = imageDataRepository.findByUuid(uuid);
+        if (imageData == null) {
+            return new SelectDTO<>(State.Fail_NotFound, null, "Image not found");
+        }
+        Path original = imageStorageService.originalPath(imageData);
+        if (!Files.exists(original)) {
+            return new SelectDTO<>(State.Fail_NotFound, null, "Image file is missing");
+        }
+        ImageFile originalFile = new ImageFile(original, imageData.getMimeType(), "\"" + uuid + "\"");
+        if (width == null) {
+            return new SelectDTO<>(State.OK, originalFile, null);
+        }
 
+        if (imageData.getVariantWidths() != null && Arrays.asList(imageData.getVariantWidths()).contains(width)) {
+            Path variant = imageStorageService.variantPath(imageData, width, imageData.getVariantFormat());
+            if (Files.exists(variant)) {
+                return new SelectDTO<>(State.OK, variantFile(imageData, variant, width, imageData.getVariantFormat()), null);
+            }
+        }
+        // Only the configured widths may be rendered on demand, arbitrary sizes would let clients fill the disk
+        if (!resizeFallback || !imageDerivativeService.isConfiguredWidth(width)) {
+            return new SelectDTO<>(State.OK, originalFile, null);
+        }
+        try {
+            Path rendered = imageDerivativeService.generateVariant(imageData, original, width);
+            if (rendered.equals(original)) {
+                return new SelectDTO<>(State.OK, originalFile, null);
+            }
+            return new SelectDTO<>(State.OK, variantFile(imageData, rendered, width, imageDerivativeService.getFormat()), null);
         } catch (IOException e) {
-            return new ChangeDTO<>(State.Fail, "Failed to save image: " + e.getMessage(), null);
-        } catch (Exception e) {
-            return new ChangeDTO<>(State.Fail, "Unexpected error: " + e.getMessage(), null);
+            logger.warn("On-the-fly resize of image {} to {}px failed, serving original", uuid, width, e);
+            return new SelectDTO<>(State.OK, originalFile, null);
         }
     }
 
-    private String getExtensionFromMimeType(String mimeType) {
-        return switch (mimeType.toLowerCase()) {
-            case "image/jpeg" -> "jpg";
-            case "image/png" -> "png";
-            case "image/gif" -> "gif";
-            case "image/webp" -> "webp";
-            case "image/bmp" -> "bmp";
-            default -> "";
-        };
+    private ImageFile variantFile(ImageData imageData, Path path, int width, String format) {
+        String mimeType = "jpg".equals(format) ? "image/jpeg" : "image/" + format;
+        return new ImageFile(path, mimeType, "\"" + imageData.getUuid() + "-w" + width + "\"");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.fuzis.images.service;
+
+import com.fuzis.images.entity.ImageData;
+import com.fuzis.images.repository.ImageBlobRepository;
+import com.fuzis.images.repository.ImageDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * One-off move of images stored in the old flat {@code <uuid>.<ext>} layout into the blob store.
+ * Enable with {@code images.storage.migrate=true}; it runs on startup and is safe to interrupt and rerun:
+ * the blob is linked in and the row is switched in one transaction, and only then is the
+ * old file removed, so a row never points at a file that does not exist.
+ * <p>
+ * The old files are only removed with {@code images.storage.migrate.delete-legacy=true}: as long as
+ * anything still serves {@code /images/<uuid>.<ext>} from disk they must stay where they are.
+ */
+@Component
+@ConditionalOnProperty(name = "images.storage.migrate", havingValue = "true")
+public class ImageStorageMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageStorageMigration.class);
+
+    private final ImageDataRepository imageDataRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStorageService imageStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean deleteLegacy;
+
+    public ImageStorageMigration(ImageDataRepository imageDataRepository,
+                                 ImageBlobRepository imageBlobRepository,
+                                 ImageStorageService imageStorageService,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${images.storage.migrate.delete-legacy:false}") boolean deleteLegacy) {
+        this.imageDataRepository = imageDataRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.imageStorageService = imageStorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.deleteLegacy = deleteLegacy;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = 0;
+        int missing = 0;
+        int failed = 0;
+        int lastId = 0;
+        List<ImageData> batch;
+        while (!(batch = imageDataRepository.findTop100ByDigestIsNullAndImgdIdGreaterThanOrderByImgdIdAsc(lastId)).isEmpty()) {
+            for (ImageData imageData : batch) {
+                lastId = imageData.getImgdId();
+                Path legacy = imageStorageService.legacyOriginalPath(imageData);
+                if (!Files.exists(legacy)) {
+                    missing++;
+                    continue;
+                }
+                try {
+                    migrate(imageData, legacy);
+                    migrated++;
+                } catch (Exception e) {
+                    failed++;
+                    logger.error("Failed to migrate image {}", imageData.getUuid(), e);
+                }
+            }
+        }
+        logger.info("Image storage migration finished: {} migrated, {} without a file, {} failed", migrated, missing, failed);
+    }
+
+    private void migrate(ImageData imageData, Path legacy) throws IOException {
+        ImageStorageService.StoredBlob blob = imageStorageService.hash(legacy);
+
+        // The reference is taken before the file is linked in, so the collector cannot drop the blob in between
+        transactionTemplate.executeWithoutResult(status -> {
+            imageBlobRepository.acquire(blob.digest(), blob.size());
+            try {
+                imageStorageService.adopt(legacy, blob.digest());
+                ImageData migrated = ImageData.builder()
+                        .uuid(imageData.getUuid())
+                        .digest(blob.digest())
+                        .build();
+                if (imageData.getVariantWidths() != null) {
+                    for (Integer width : imageData.getVariantWidths()) {
+                        Path oldVariant = imageStorageService.legacyVariantPath(imageData, width, imageData.getVariantFormat());
+                        Path newVariant = imageStorageService.variantPath(migrated, width, imageData.getVariantFormat());
+                        if (Files.exists(oldVariant) && !Files.exists(newVariant)) {
+                            imageStorageService.link(oldVariant, newVariant);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            imageData.setDigest(blob.digest());
+            imageDataRepository.save(imageData);
+        });
+
+        if (deleteLegacy) {
+            imageStorageService.deleteLegacy(imageData);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.fuzis.images.service;
+
+import com.fuzis.images.entity.ImageData;
+import com.fuzis.images.util.ImageProbe;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Content-addressed blob store. Every distinct content is kept once under
+ * {@code blobs/ab/cd/<sha256>} (two shard levels from the digest prefix), and its variants sit next
+ * to it as {@code <sha256>_<width>.<format>}. Rows uploaded before the blob store existed have no
+ * digest and still resolve to the old flat {@code <uuid>.<ext>} layout until migrated.
+ */
+@Service
+public class ImageStorageService {
+
+    public record StoredBlob(String digest, long size) {
+    }
+
+    public record InspectedUpload(String digest, ImageProbe.Result image) {
+    }
+
+    @Value("${data_path}")
+    private String dataPath;
+
+    private Path root;
+    private Path blobRoot;
+    private Path tmpDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(dataPath);
+        blobRoot = Files.createDirectories(root.resolve("blobs"));
+        tmpDir = Files.createDirectories(root.resolve("tmp"));
+    }
+
+    /**
+     * The single read pass over an upload: the header is probed for format and dimensions while
+     * the whole content is hashed. Returns null as soon as the header is not a supported image,
+     * without reading the rest.
+     */
+    public InspectedUpload inspect(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        DigestInputStream hashing = new DigestInputStream(new BufferedInputStream(in, 64 * 1024), digest);
+        ImageProbe.Result image = ImageProbe.probe(hashing);
+        if (image == null) {
+            return null;
+        }
+        hashing.transferTo(OutputStream.nullOutputStream());
+        return new InspectedUpload(HexFormat.of().formatHex(digest.digest()), image);
+    }
+
+    /**
+     * Moves an inspected upload into its blob path unless that content is already stored.
+     * With the multipart location inside {@code data_path} the container renames its spooled part
+     * instead of copying it, so the upload is written to disk exactly once.
+     */
+    public boolean place(String digest, MultipartFile file) throws IOException {
+        Path target = blobPath(digest);
+        if (Files.exists(target)) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        Path tmp = tmpDir.resolve("upload-" + UUID.randomUUID());
+        try {
+            file.transferTo(tmp.toFile());
+            // Same digest means same bytes, so losing a race to another writer is harmless
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return true;
+    }
+
+    /**
+     * Hashes an existing file, used to move files from the old flat layout into the blob store.
+     */
+    public StoredBlob hash(Path source) throws IOException {
+        MessageDigest digest = sha256();
+        long size;
+        try (DigestInputStream hashing = new DigestInputStream(Files.newInputStream(source), digest)) {
+            size = hashing.transferTo(OutputStream.nullOutputStream());
+        }
+        return new StoredBlob(HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    /**
+     * Makes an existing file available under its blob path without removing the source,
+     * using a hard link where the filesystem allows it.
+     */
+    public void adopt(Path source, String digest) throws IOException {
+        Path target = blobPath(digest);
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            link(source, target);
+        }
+    }
+
+    public void link(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+            // already in place
+        } catch (UnsupportedOperationException | IOException e) {
+            Path tmp = Files.createTempFile(tmpDir, "adopt-", ".tmp");
+            try {
+                Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * Deletes a blob and all its variants, returning the number of bytes freed.
+     */
+    public long deleteBlob(String digest) throws IOException {
+        Path blob = blobPath(digest);
+        if (!Files.isDirectory(blob.getParent())) {
+            return 0;
+        }
+        long freed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(blob.getParent(), digest + "*")) {
+            for (Path file : files) {
+                freed += deleteCounting(file);
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Deletes an image still stored in the old flat layout together with its variants.
+     */
+    public long deleteLegacy(ImageData imageData) throws IOException {
+        long freed = deleteCounting(legacyOriginalPath(imageData));
+        if (imageData.getVariantWidths() != null) {
+            for (Integer width : imageData.getVariantWidths()) {
+                freed += deleteCounting(legacyVariantPath(imageData, width, imageData.getVariantFormat()));
+            }
+        }
+        return freed;
+    }
+
+    private static long deleteCounting(Path file) throws IOException {
+        try {
+            long size = Files.size(file);
+            Files.delete(file);
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    public Path blobPath(String digest) {
+        return blobRoot.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+    }
+
+    public Path originalPath(ImageData imageData) {
+        if (imageData.getDigest() != null) {
+            return blobPath(imageData.getDigest());
+        }
+        return legacyOriginalPath(imageData);
+    }
+
+    public Path variantPath(ImageData imageData, int width, String format) {
+        if (imageData.getDigest() != null) {
+            return blobPath(imageData.getDigest()).resolveSibling(variantFilename(imageData.getDigest(), width, format));
+        }
+        return legacyVariantPath(imageData, width, format);
+    }
+
+    public Path legacyOriginalPath(ImageData imageData) {
+        return root.resolve(imageData.getUuid() + "." + imageData.getExtension());
+    }
+
+    public Path legacyVariantPath(ImageData imageData, int width, String format) {
+        return root.resolve(variantFilename(imageData.getUuid(), width, format));
+    }
+
+    private static String variantFilename(String key, int width, String format) {
+        return key + "_" + width + "." + format;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.fuzis.images.transfer;
+
+import java.nio.file.Path;
+
+/**
+ * A resolved file on disk ready to be streamed, with the validator it is served under.
+ */
+public record ImageFile(Path path, String mimeType, String etag) {
+}
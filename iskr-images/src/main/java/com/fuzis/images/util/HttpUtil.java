@@ -1,6 +1,7 @@
 package com.fuzis.images.util;
 
 import com.fuzis.images.transfer.IStateDTO;
+import com.fuzis.images.transfer.state.State;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
@@ -9,14 +10,18 @@ import org.springframework.stereotype.Component;
 public class HttpUtil
 {
     public <T extends IStateDTO> ResponseEntity<T> handleServiceResponse(T res){
-        return switch (res.getState()) {
-            case OK -> new ResponseEntity<>(res, HttpStatus.OK);
-            case Fail_BadData -> new ResponseEntity<>(res, HttpStatus.BAD_REQUEST);
-            case Fail_NotFound -> new ResponseEntity<>(res, HttpStatus.NOT_FOUND);
-            case Fail_Conflict -> new ResponseEntity<>(res, HttpStatus.CONFLICT);
-            case Fail -> new ResponseEntity<>(res, HttpStatus.INTERNAL_SERVER_ERROR);
-            case Fail_Not_Implemented ->  new ResponseEntity<>(res, HttpStatus.NOT_IMPLEMENTED);
-            case Fail_Expired -> new ResponseEntity<>(res, HttpStatus.GONE);
+        return new ResponseEntity<>(res, statusOf(res.getState()));
+    }
+
+    public HttpStatus statusOf(State state){
+        return switch (state) {
+            case OK -> HttpStatus.OK;
+            case Fail_BadData -> HttpStatus.BAD_REQUEST;
+            case Fail_NotFound -> HttpStatus.NOT_FOUND;
+            case Fail_Conflict -> HttpStatus.CONFLICT;
+            case Fail -> HttpStatus.INTERNAL_SERVER_ERROR;
+            case Fail_Not_Implemented -> HttpStatus.NOT_IMPLEMENTED;
+            case Fail_Expired -> HttpStatus.GONE;
         };
     }
 }
@@ -0,0 +1,202 @@
+package com.fuzis.images.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Identifies an image from its magic bytes and reads its dimensions from the header, consuming
+ * only as much of the stream as the header needs. Bytes are consumed with {@code read}, never
+ * {@code skip}, so a wrapping {@link java.security.DigestInputStream} still sees all of them.
+ */
+public final class ImageProbe {
+
+    public record Result(String mimeType, String extension, int width, int height) {
+    }
+
+    private ImageProbe() {
+    }
+
+    /**
+     * Returns null when the stream does not start with a supported format or its header is broken.
+     */
+    public static Result probe(InputStream in) throws IOException {
+        try {
+            int b0 = in.read();
+            int b1 = in.read();
+            if (b0 < 0 || b1 < 0) {
+                return null;
+            }
+            if (b0 == 0xFF && b1 == 0xD8) {
+                return jpeg(in);
+            }
+            if (b0 == 0x89 && b1 == 'P') {
+                return png(in);
+            }
+            if (b0 == 'G' && b1 == 'I') {
+                return gif(in);
+            }
+            if (b0 == 'B' && b1 == 'M') {
+                return bmp(in);
+            }
+            if (b0 == 'R' && b1 == 'I') {
+                return webp(in);
+            }
+            return null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static Result png(InputStream in) throws IOException {
+        byte[] h = readFully(in, 22);
+        // rest of the signature, then the IHDR chunk length and type
+        if (h[0] != 'N' || h[1] != 'G' || h[2] != 0x0D || h[3] != 0x0A || h[4] != 0x1A || h[5] != 0x0A
+                || h[10] != 'I' || h[11] != 'H' || h[12] != 'D' || h[13] != 'R') {
+            return null;
+        }
+        return result("image/png", "png", int32be(h, 14), int32be(h, 18));
+    }
+
+    private static Result gif(InputStream in) throws IOException {
+        byte[] h = readFully(in, 8);
+        if (h[0] != 'F' || h[1] != '8' || (h[2] != '7' && h[2] != '9') || h[3] != 'a') {
+            return null;
+        }
+        return result("image/gif", "gif", uint16le(h, 4), uint16le(h, 6));
+    }
+
+    private static Result bmp(InputStream in) throws IOException {
+        byte[] h = readFully(in, 24);
+        int dibSize = int32le(h, 12);
+        if (dibSize == 12) {
+            return result("image/bmp", "bmp", uint16le(h, 16), uint16le(h, 18));
+        }
+        // negative height means a top-down bitmap
+        return result("image/bmp", "bmp", int32le(h, 16), Math.abs(int32le(h, 20)));
+    }
+
+    private static Result webp(InputStream in) throws IOException {
+        byte[] h = readFully(in, 18);
+        if (h[0] != 'F' || h[1] != 'F' || h[6] != 'W' || h[7] != 'E' || h[8] != 'B' || h[9] != 'P') {
+            return null;
+        }
+        String chunk = new String(h, 10, 4, StandardCharsets.US_ASCII);
+        switch (chunk) {
+            case "VP8 " -> {
+                byte[] f = readFully(in, 10);
+                if ((f[3] & 0xFF) != 0x9D || (f[4] & 0xFF) != 0x01 || (f[5] & 0xFF) != 0x2A) {
+                    return null;
+                }
+                return result("image/webp", "webp", uint16le(f, 6) & 0x3FFF, uint16le(f, 8) & 0x3FFF);
+            }
+            case "VP8L" -> {
+                byte[] f = readFully(in, 5);
+                if ((f[0] & 0xFF) != 0x2F) {
+                    return null;
+                }
+                int bits = int32le(f, 1);
+                return result("image/webp", "webp", (bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+            }
+            case "VP8X" -> {
+                byte[] f = readFully(in, 10);
+                return result("image/webp", "webp", uint24le(f, 4) + 1, uint24le(f, 7) + 1);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static Result jpeg(InputStream in) throws IOException {
+        while (true) {
+            int b = readByte(in);
+            if (b != 0xFF) {
+                return null;
+            }
+            int marker;
+            do {
+                marker = readByte(in);
+            } while (marker == 0xFF);
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // end of image or start of scan before any frame header
+                return null;
+            }
+            byte[] len = readFully(in, 2);
+            int length = uint16be(len, 0);
+            if (length < 2) {
+                return null;
+            }
+            boolean frameHeader = marker >= 0xC0 && marker <= 0xCF
+                    && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (frameHeader) {
+                byte[] sof = readFully(in, 5);
+                return result("image/jpeg", "jpg", uint16be(sof, 3), uint16be(sof, 1));
+            }
+            discard(in, length - 2);
+        }
+    }
+
+    private static Result result(String mimeType, String extension, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        return new Result(mimeType, extension, width, height);
+    }
+
+    private static byte[] readFully(InputStream in, int n) throws IOException {
+        byte[] buf = new byte[n];
+        int off = 0;
+        while (off < n) {
+            int r = in.read(buf, off, n - off);
+            if (r < 0) {
+                throw new EOFException();
+            }
+            off += r;
+        }
+        return buf;
+    }
+
+    private static void discard(InputStream in, int n) throws IOException {
+        byte[] scratch = new byte[Math.min(n, 8192)];
+        while (n > 0) {
+            int r = in.read(scratch, 0, Math.min(n, scratch.length));
+            if (r < 0) {
+                throw new EOFException();
+            }
+            n -= r;
+        }
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static int uint16be(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 8) | (b[off + 1] & 0xFF);
+    }
+
+    private static int int32be(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    private static int uint16le(byte[] b, int off) {
+        return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8);
+    }
+
+    private static int uint24le(byte[] b, int off) {
+        return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16);
+    }
+
+    private static int int32le(byte[] b, int off) {
+        return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24);
+    }
+}
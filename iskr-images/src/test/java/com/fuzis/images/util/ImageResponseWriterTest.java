@@ -0,0 +1,107 @@
+package com.fuzis.images.util;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serves a file through {@link ImageResponseWriter} on an embedded Tomcat and checks validators and ranges.
+ */
+class ImageResponseWriterTest {
+
+    private static final String ETAG = "\"test\"";
+
+    @TempDir
+    static Path dir;
+
+    private static Tomcat tomcat;
+
+    private static HttpClient client;
+
+    private static String base;
+
+    private static byte[] file;
+
+    @BeforeAll
+    static void start() throws Exception {
+        file = new byte[20 * 1024];
+        new Random(42).nextBytes(file);
+        Files.write(dir.resolve("20480.webp"), file);
+
+        Path baseDir = Files.createDirectories(dir.resolve("tomcat"));
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", dir.toString());
+
+        ImageResponseWriter writer = new ImageResponseWriter(48 * 1024);
+        Tomcat.addServlet(context, "images", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                writer.write(req, resp, dir.resolve(req.getPathInfo().substring(1)), "image/webp", ETAG);
+            }
+        });
+        context.addServletMappingDecoded("/images/*", "images");
+
+        tomcat.getConnector();
+        tomcat.start();
+        base = "http://localhost:" + tomcat.getConnector().getLocalPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    void servesFileWithValidators() throws Exception {
+        HttpResponse<byte[]> full = get(null, null);
+        assertEquals(200, full.statusCode());
+        assertArrayEquals(file, full.body());
+        assertEquals(ETAG, full.headers().firstValue("ETag").orElseThrow());
+        assertTrue(full.headers().firstValue("Cache-Control").orElseThrow().contains("immutable"));
+
+        assertEquals(304, get("If-None-Match", ETAG).statusCode());
+    }
+
+    @Test
+    void servesSatisfiableRangesOnly() throws Exception {
+        HttpResponse<byte[]> partial = get("Range", "bytes=100-199");
+        assertEquals(206, partial.statusCode());
+        assertEquals("bytes 100-199/20480", partial.headers().firstValue("Content-Range").orElseThrow());
+        byte[] expected = new byte[100];
+        System.arraycopy(file, 100, expected, 0, 100);
+        assertArrayEquals(expected, partial.body());
+
+        assertEquals(416, get("Range", "bytes=30000-").statusCode());
+    }
+
+    private HttpResponse<byte[]> get(String header, String value) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + "/images/20480.webp"));
+        if (header != null) {
+            request.header(header, value);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
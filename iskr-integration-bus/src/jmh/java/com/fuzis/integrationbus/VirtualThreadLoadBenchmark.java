@@ -0,0 +1,222 @@
+package com.fuzis.integrationbus;
+
+import com.fuzis.integrationbus.configuration.ResilienceConfiguration;
+import com.fuzis.integrationbus.util.CallCancellation;
+import com.fuzis.integrationbus.util.CircuitBreaker;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.http.HttpComponent;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput and p99 of the bus request path on platform threads against virtual threads.
+ * Each request goes through an embedded Tomcat, the circuit breaker and a Camel {@code http}
+ * call to a backend that answers after {@link #BACKEND_LATENCY_MS}, the way SDCall reaches a
+ * service. Platform mode caps the bus at a fixed Tomcat pool; virtual mode runs Tomcat and Camel
+ * on virtual threads, as {@code spring.threads.virtual.enabled} does. The clients outnumber the
+ * platform pool, so that pool is what the comparison measures. Clients, pool and backend share
+ * one JVM, so the scenario is scaled to a quarter of Tomcat's default 200 threads to keep the CPU
+ * out of the measurement.
+ * The JUnit test runs a short JMH session and prints both figures for each mode.
+ * Not part of {@code mvn test}; run it with {@code mvn -Pbenchmark test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(VirtualThreadLoadBenchmark.CLIENTS)
+public class VirtualThreadLoadBenchmark {
+
+    static final int CLIENTS = 100;
+
+    private static final int PLATFORM_POOL_SIZE = 50;
+
+    private static final long BACKEND_LATENCY_MS = 200;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private Tomcat backend;
+
+    private CamelContext camelContext;
+
+    private Tomcat tomcat;
+
+    private CloseableHttpClient client;
+
+    private String url;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        boolean virtual = threads.equals("virtual");
+        // each parameter runs in its own fork, and Camel reads the flag when it first creates a pool
+        System.setProperty("camel.threads.virtual.enabled", Boolean.toString(virtual));
+
+        backend = tomcat(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                try {
+                    // stands in for the backend or Keycloak round-trip
+                    Thread.sleep(BACKEND_LATENCY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                resp.setContentType("application/json");
+                resp.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+            }
+        }, true);
+        String backendUrl = "http://localhost:" + backend.getConnector().getLocalPort();
+
+        camelContext = new DefaultCamelContext();
+        HttpComponent http = camelContext.getComponent("http", HttpComponent.class);
+        // Camel's default of 20 connections per route would cap both modes below the platform pool
+        http.setMaxTotalConnections(CLIENTS * 2);
+        http.setConnectionsPerRoute(CLIENTS * 2);
+        CallCancellation.install(http);
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:sd-call")
+                        .toD(backendUrl + "/v1/${header.X-Service-Request}?bridgeEndpoint=true&throwExceptionOnFailure=false");
+            }
+        });
+        camelContext.start();
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                new ResilienceConfiguration.Policy(50, 20, 50, 80, 3000, 15000, 5, 64, 0, false, 50));
+        ProducerTemplate template = camelContext.createProducerTemplate();
+        tomcat = tomcat(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                if (!circuitBreaker.tryAcquirePermission()) {
+                    resp.sendError(503);
+                    return;
+                }
+                long start = System.nanoTime();
+                Exchange exchange = template.request("direct:sd-call",
+                        e -> e.getIn().setHeader("X-Service-Request", req.getPathInfo().substring(1)));
+                boolean failed = exchange.getException() != null;
+                circuitBreaker.onResult(failed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (failed) {
+                    resp.sendError(502);
+                    return;
+                }
+                resp.setContentType("application/json");
+                resp.getOutputStream().write(exchange.getMessage().getBody(byte[].class));
+            }
+        }, virtual);
+        url = "http://localhost:" + tomcat.getConnector().getLocalPort() + "/v1/books/1";
+
+        client = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(CLIENTS * 2)
+                        .setMaxConnPerRoute(CLIENTS * 2)
+                        .build())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        tomcat.stop();
+        tomcat.destroy();
+        camelContext.stop();
+        backend.stop();
+        backend.destroy();
+    }
+
+    private static Tomcat tomcat(HttpServlet servlet, boolean virtual) throws Exception {
+        Tomcat server = new Tomcat();
+        server.setBaseDir(Files.createTempDirectory("bus-load").toString());
+        server.setPort(0);
+        Context context = server.addContext("", null);
+        Tomcat.addServlet(context, "servlet", servlet);
+        context.addServletMappingDecoded("/v1/*", "servlet");
+        server.getConnector().setProperty("maxThreads", Integer.toString(PLATFORM_POOL_SIZE));
+        if (virtual) {
+            server.getConnector().getProtocolHandler().setExecutor(new VirtualThreadExecutor("bus-"));
+        }
+        server.start();
+        return server;
+    }
+
+    @Benchmark
+    public int request() throws IOException {
+        return client.execute(new HttpGet(url), response -> {
+            EntityUtils.consume(response.getEntity());
+            if (response.getCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.getCode());
+            }
+            return response.getCode();
+        });
+    }
+
+    @Test
+    void virtualThreadsOutperformPlatformPool() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(VirtualThreadLoadBenchmark.class.getName())
+                .forks(1)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(3))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(5))
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Double> throughput = new HashMap<>();
+        Map<String, Double> p99 = new HashMap<>();
+        for (RunResult result : results) {
+            String mode = result.getParams().getParam("threads");
+            if (result.getParams().getMode() == Mode.Throughput) {
+                throughput.put(mode, result.getPrimaryResult().getScore() * 1000);
+            } else {
+                p99.put(mode, result.getPrimaryResult().getStatistics().getPercentile(99));
+            }
+        }
+        for (String mode : new String[]{"platform", "virtual"}) {
+            System.out.printf("%-8s %6.0f req/s, p99 %5.0f ms%n", mode, throughput.get(mode), p99.get(mode));
+        }
+
+        assertTrue(throughput.get("virtual") > throughput.get("platform"));
+        assertTrue(p99.get("virtual") < p99.get("platform"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.fuzis.integrationbus;
 
+import com.fuzis.integrationbus.configuration.VirtualThreadsInitializer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
@@ -9,7 +10,9 @@ import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 public class IntegrationBusApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(IntegrationBusApplication.class, args);
+        SpringApplication application = new SpringApplication(IntegrationBusApplication.class);
+        application.addListeners(new VirtualThreadsInitializer());
+        application.run(args);
     }
 
 }
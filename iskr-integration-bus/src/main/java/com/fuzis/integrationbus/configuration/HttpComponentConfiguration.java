@@ -0,0 +1,16 @@
+package com.fuzis.integrationbus.configuration;
+
+import com.fuzis.integrationbus.util.CallCancellation;
+import org.apache.camel.component.http.HttpComponent;
+import org.apache.camel.spi.ComponentCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HttpComponentConfiguration {
+
+    @Bean
+    public ComponentCustomizer httpCallCancellationCustomizer() {
+        return ComponentCustomizer.builder(HttpComponent.class).build(CallCancellation::install);
+    }
+}
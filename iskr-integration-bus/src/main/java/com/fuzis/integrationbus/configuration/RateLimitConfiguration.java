@@ -0,0 +1,42 @@
+package com.fuzis.integrationbus.configuration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission control settings. Per-route quotas live under {@code ratelimit.routes.<routeId>.*}
+ * and fall back to {@code ratelimit.default.*}; both are read from the Consul KV config.
+ */
+@Component
+public class RateLimitConfiguration {
+
+    public record Quota(boolean enabled, int capacity, double refillPerSecond) {}
+
+    private final Environment environment;
+
+    public RateLimitConfiguration(@Autowired Environment environment) {
+        this.environment = environment;
+    }
+
+    public boolean isEnabled() {
+        return environment.getProperty("ratelimit.enabled", Boolean.class, true);
+    }
+
+    public int getMaxConcurrentRequests() {
+        return environment.getProperty("ratelimit.max-concurrent-requests", Integer.class, 512);
+    }
+
+    public Quota getQuota(String routeId) {
+        return new Quota(
+                getProperty(routeId, "enabled", Boolean.class, true),
+                getProperty(routeId, "capacity", Integer.class, 40),
+                getProperty(routeId, "refill-per-second", Double.class, 20.0)
+        );
+    }
+
+    private <T> T getProperty(String routeId, String key, Class<T> type, T defaultValue) {
+        return environment.getProperty("ratelimit.routes." + routeId + "." + key, type,
+                environment.getProperty("ratelimit.default." + key, type, defaultValue));
+    }
+}
@@ -0,0 +1,65 @@
+package com.fuzis.integrationbus.configuration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resilience policies for backend calls made through {@code direct:sd-call}.
+ * Every value can be overridden per service under {@code resilience.services.<X-Service>.*},
+ * otherwise {@code resilience.default.*} and then the built-in defaults are used.
+ */
+@Component
+public class ResilienceConfiguration {
+
+    public record Policy(
+            int windowSize,
+            int minimumCalls,
+            int failureRateThreshold,
+            int slowCallRateThreshold,
+            long slowCallDurationMs,
+            long openStateDurationMs,
+            int halfOpenPermittedCalls,
+            int maxConcurrentCalls,
+            long maxWaitMs,
+            boolean hedgingEnabled,
+            int hedgingMinSamples
+    ) {}
+
+    private final Environment environment;
+
+    public ResilienceConfiguration(@Autowired Environment environment) {
+        this.environment = environment;
+    }
+
+    public Policy getPolicy(String service) {
+        return new Policy(
+                getInt(service, "window-size", 50),
+                getInt(service, "minimum-calls", 20),
+                getInt(service, "failure-rate-threshold", 50),
+                getInt(service, "slow-call-rate-threshold", 80),
+                getLong(service, "slow-call-duration-ms", 3000),
+                getLong(service, "open-state-duration-ms", 15000),
+                getInt(service, "half-open-permitted-calls", 5),
+                getInt(service, "max-concurrent-calls", 64),
+                getLong(service, "max-wait-ms", 0),
+                getBoolean(service, "hedging-enabled", false),
+                getInt(service, "hedging-min-samples", 50)
+        );
+    }
+
+    private int getInt(String service, String key, int defaultValue) {
+        return environment.getProperty("resilience.services." + service + "." + key, Integer.class,
+                environment.getProperty("resilience.default." + key, Integer.class, defaultValue));
+    }
+
+    private long getLong(String service, String key, long defaultValue) {
+        return environment.getProperty("resilience.services." + service + "." + key, Long.class,
+                environment.getProperty("resilience.default." + key, Long.class, defaultValue));
+    }
+
+    private boolean getBoolean(String service, String key, boolean defaultValue) {
+        return environment.getProperty("resilience.services." + service + "." + key, Boolean.class,
+                environment.getProperty("resilience.default." + key, Boolean.class, defaultValue));
+    }
+}
@@ -8,9 +8,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 @EnableScheduling
@@ -20,7 +20,7 @@ public class SDConfiguration
 
     public SDConfiguration(@Autowired DiscoveryClient discoveryClient){
         this.consulDiscoveryClient = discoveryClient;
-        this.discovery = new HashMap<>();
+        this.discovery = new ConcurrentHashMap<>();
     }
 
     @Getter
@@ -0,0 +1,25 @@
+package com.fuzis.integrationbus.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Switches Camel's thread pools to virtual threads together with the servlet container
+ * when {@code spring.threads.virtual.enabled} is set. Camel only reads its flag as a
+ * system property, so it has to be set before the Camel context is created.
+ */
+public class VirtualThreadsInitializer implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    private static final String CAMEL_VIRTUAL_THREADS_PROPERTY = "camel.threads.virtual.enabled";
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        boolean enabled = event.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        System.setProperty(CAMEL_VIRTUAL_THREADS_PROPERTY, Boolean.toString(enabled));
+        log.info("Virtual threads {}", enabled ? "enabled" : "disabled");
+    }
+}
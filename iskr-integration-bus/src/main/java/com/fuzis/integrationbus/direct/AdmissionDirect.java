@@ -0,0 +1,27 @@
+package com.fuzis.integrationbus.direct;
+
+import com.fuzis.integrationbus.processor.AdmissionProcessor;
+import org.apache.camel.builder.RouteBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AdmissionDirect extends RouteBuilder {
+
+    private final AdmissionProcessor admissionProcessor;
+
+    @Autowired
+    public AdmissionDirect(AdmissionProcessor admissionProcessor) {
+        this.admissionProcessor = admissionProcessor;
+    }
+
+    @Override
+    public void configure() throws Exception {
+        // no error handler: rejections are handled by the calling platform-http route
+        from("direct:admission")
+                .routeId("admission-direct")
+                .errorHandler(noErrorHandler())
+                .process(admissionProcessor)
+                .end();
+    }
+}
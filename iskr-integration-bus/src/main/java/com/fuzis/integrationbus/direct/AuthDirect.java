@@ -3,8 +3,10 @@ package com.fuzis.integrationbus.direct;
 import com.fuzis.integrationbus.exception.AuthenticationException;
 import com.fuzis.integrationbus.exception.AuthorizationException;
 import com.fuzis.integrationbus.exception.ServiceFall;
+import com.fuzis.integrationbus.exception.TooManyRequests;
 import com.fuzis.integrationbus.processor.AuthHeaderProcessor;
 import com.fuzis.integrationbus.processor.ParseCookieProcessor;
+import com.fuzis.integrationbus.processor.RateLimitProcessor;
 import org.apache.camel.Exchange;
 import org.apache.camel.builder.RouteBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,10 +19,13 @@ public class AuthDirect extends RouteBuilder {
 
     private final ParseCookieProcessor parseCookieProcessor;
 
+    private final RateLimitProcessor rateLimitProcessor;
+
     @Autowired
-    private AuthDirect(AuthHeaderProcessor authHeaderProcessor, ParseCookieProcessor parseCookieProcessor) {
+    private AuthDirect(AuthHeaderProcessor authHeaderProcessor, ParseCookieProcessor parseCookieProcessor, RateLimitProcessor rateLimitProcessor) {
         this.authHeaderProcessor = authHeaderProcessor;
         this.parseCookieProcessor = parseCookieProcessor;
+        this.rateLimitProcessor = rateLimitProcessor;
     }
 
     @Override
@@ -39,8 +44,13 @@ public class AuthDirect extends RouteBuilder {
                 .handled(true)
                 .to("direct:service-error-handler")
             .end()
+            .onException(TooManyRequests.class)
+                .handled(true)
+                .to("direct:too-many-requests-handler")
+            .end()
             .process(parseCookieProcessor)
             .process(authHeaderProcessor)
+            .process(rateLimitProcessor)
             .log("User authorized, user id: ${header.X-User-ID}")
             .end();
     }
@@ -1,6 +1,7 @@
 package com.fuzis.integrationbus.direct;
 
 import com.fuzis.integrationbus.processor.EnrichProcessor;
+import com.fuzis.integrationbus.processor.InternalHeadersFilterProcessor;
 import com.fuzis.integrationbus.processor.MarshallProcessor;
 import com.fuzis.integrationbus.processor.UnmarshallProcessor;
 import org.apache.camel.Exchange;
@@ -20,10 +21,14 @@ public class FinalizeDirect extends RouteBuilder {
 
     private final UnmarshallProcessor unmarshallProcessor;
 
-    public FinalizeDirect(EnrichProcessor enrichProcessor, MarshallProcessor marshallProcessor,  UnmarshallProcessor unmarshallProcessor) {
+    private final InternalHeadersFilterProcessor internalHeadersFilterProcessor;
+
+    public FinalizeDirect(EnrichProcessor enrichProcessor, MarshallProcessor marshallProcessor,  UnmarshallProcessor unmarshallProcessor,
+                          InternalHeadersFilterProcessor internalHeadersFilterProcessor) {
         this.enrichProcessor = enrichProcessor;
         this.marshallProcessor = marshallProcessor;
         this.unmarshallProcessor = unmarshallProcessor;
+        this.internalHeadersFilterProcessor = internalHeadersFilterProcessor;
     }
 
     @Override
@@ -32,26 +37,7 @@ public class FinalizeDirect extends RouteBuilder {
                 .routeId("finalize-request-direct")
                 .process(unmarshallProcessor)
                 .process(enrichProcessor)
-                .choice()
-                    .when(header("X-Debug").isNotEqualTo("true"))
-                        .removeHeader("X-Email-Verified")
-                        .removeHeader("X-Realm-Roles")
-                        .removeHeader("X-Client-Roles")
-                        .removeHeader("X-User-SSO-ID")
-                        .removeHeader("X-Service-Request")
-                        .removeHeader("X-Service")
-                        .removeHeader("X-Email")
-                        .removeHeader("X-Nickname")
-                        .removeHeader("Authorization")
-                        .removeHeader("Refresh")
-                        .removeHeader("X-Roles-Required")
-                        .removeHeader("X-Include-Body")
-                        .removeHeader("username")
-                        .removeHeader("password")
-                        .removeHeader("Cookie")
-                        .removeHeader("X-Service-Url")
-                        .removeHeader("X-No-Meta")
-                .end()
+                .process(internalHeadersFilterProcessor)
                 .process(marshallProcessor)
                 .end();
     }
@@ -1,20 +1,46 @@
 package com.fuzis.integrationbus.direct;
 
 import com.fuzis.integrationbus.exception.ServiceDiscoveryFailed;
+import com.fuzis.integrationbus.exception.ServiceFall;
+import com.fuzis.integrationbus.exception.TooManyRequests;
+import com.fuzis.integrationbus.processor.HedgedCallProcessor;
+import com.fuzis.integrationbus.processor.RateLimitProcessor;
+import com.fuzis.integrationbus.processor.ResilienceAcquireProcessor;
+import com.fuzis.integrationbus.processor.ResilienceReleaseProcessor;
 import com.fuzis.integrationbus.util.ServiceDiscovery;
+import com.fuzis.integrationbus.util.ServiceResilience;
 import org.apache.camel.Exchange;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.model.dataformat.JsonLibrary;
 import org.springframework.stereotype.Component;
 
+import static org.apache.camel.builder.PredicateBuilder.and;
+
 @Component
 public class SDCall extends RouteBuilder
 {
     private final ServiceDiscovery serviceDiscovery;
 
-    public SDCall(ServiceDiscovery serviceDiscovery)
+    private final ServiceResilience serviceResilience;
+
+    private final ResilienceAcquireProcessor resilienceAcquireProcessor;
+
+    private final ResilienceReleaseProcessor resilienceReleaseProcessor;
+
+    private final HedgedCallProcessor hedgedCallProcessor;
+
+    private final RateLimitProcessor rateLimitProcessor;
+
+    public SDCall(ServiceDiscovery serviceDiscovery, ServiceResilience serviceResilience,
+                  ResilienceAcquireProcessor resilienceAcquireProcessor, ResilienceReleaseProcessor resilienceReleaseProcessor,
+                  HedgedCallProcessor hedgedCallProcessor, RateLimitProcessor rateLimitProcessor)
     {
         this.serviceDiscovery = serviceDiscovery;
+        this.serviceResilience = serviceResilience;
+        this.resilienceAcquireProcessor = resilienceAcquireProcessor;
+        this.resilienceReleaseProcessor = resilienceReleaseProcessor;
+        this.hedgedCallProcessor = hedgedCallProcessor;
+        this.rateLimitProcessor = rateLimitProcessor;
     }
 
     @Override
@@ -25,6 +51,15 @@ public class SDCall extends RouteBuilder
                     .handled(true)
                     .to("direct:error-sd-fail-handler")
                 .end()
+                .onException(ServiceFall.class)
+                    .handled(true)
+                    .to("direct:service-error-handler")
+                .end()
+                .onException(TooManyRequests.class)
+                    .handled(true)
+                    .to("direct:too-many-requests-handler")
+                .end()
+                .process(rateLimitProcessor)
                 .removeHeader(Exchange.HTTP_PATH)
                 .removeHeader(Exchange.HTTP_URI)
                 .removeHeader(Exchange.HTTP_URL)
@@ -40,7 +75,18 @@ public class SDCall extends RouteBuilder
                     .when(header("X-Service").isEqualTo("Images"))
                     .setHeader("X-Service-Url", method(serviceDiscovery, "getImagesUrl"))
                 .end()
-                .toD("${header.X-Service-Url}/${header.X-Service-Request}?bridgeEndpoint=true&throwExceptionOnFailure=false")
+                .process(resilienceAcquireProcessor)
+                .doTry()
+                    .choice()
+                        .when(and(header(Exchange.HTTP_METHOD).isEqualTo("GET"),
+                                method(serviceResilience, "isHedgingApplicable(${header.X-Service})")))
+                            .process(hedgedCallProcessor)
+                        .otherwise()
+                            .toD("${header.X-Service-Url}/${header.X-Service-Request}?bridgeEndpoint=true&throwExceptionOnFailure=false")
+                    .endDoTry()
+                .doFinally()
+                    .process(resilienceReleaseProcessor)
+                .end()
                 .end();
     }
 }
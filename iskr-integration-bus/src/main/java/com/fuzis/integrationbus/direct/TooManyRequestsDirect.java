@@ -0,0 +1,29 @@
+package com.fuzis.integrationbus.direct;
+
+import com.fuzis.integrationbus.processor.ExceptionProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TooManyRequestsDirect extends RouteBuilder {
+
+    private final ExceptionProcessor exceptionProcessor;
+
+    @Autowired
+    public TooManyRequestsDirect(ExceptionProcessor exceptionProcessor) {
+        this.exceptionProcessor = exceptionProcessor;
+    }
+
+    @Override
+    public void configure() throws Exception {
+        from("direct:too-many-requests-handler")
+                .routeId("too-many-requests-direct")
+                .process(exceptionProcessor)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(429))
+                .setHeader("Retry-After", constant(1))
+                .to("direct:finalize-request")
+                .end();
+    }
+}
@@ -0,0 +1,7 @@
+package com.fuzis.integrationbus.exception;
+
+public class ServiceOverloaded extends Exception {
+    public ServiceOverloaded(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.fuzis.integrationbus.exception;
+
+public class TooManyRequests extends Exception {
+    public TooManyRequests(String message) {
+        super(message);
+    }
+}
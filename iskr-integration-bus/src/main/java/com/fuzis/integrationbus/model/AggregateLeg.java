@@ -0,0 +1,14 @@
+package com.fuzis.integrationbus.model;
+
+/**
+ * One backend call of a composite route. {@code request} is a simple-language template
+ * for {@code X-Service-Request}, evaluated against the incoming exchange.
+ */
+public record AggregateLeg(String name, String service, String request, long timeoutMs) {
+
+    public static final long DEFAULT_TIMEOUT_MS = 3000;
+
+    public AggregateLeg(String name, String service, String request) {
+        this(name, service, request, DEFAULT_TIMEOUT_MS);
+    }
+}
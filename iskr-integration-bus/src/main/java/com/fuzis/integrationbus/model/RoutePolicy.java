@@ -0,0 +1,65 @@
+package com.fuzis.integrationbus.model;
+
+import java.util.Arrays;
+
+/**
+ * Per-route request requirements, parsed once when the route is built and attached to
+ * every exchange of that route as the {@link #PROPERTY} exchange property.
+ */
+public final class RoutePolicy {
+
+    public static final String PROPERTY = "RoutePolicy";
+
+    private static final String[] NONE = new String[0];
+
+    private final String[] requiredParams;
+
+    private final String[] forbiddenParams;
+
+    private final String[] requiredRoles;
+
+    private RoutePolicy(String[] requiredParams, String[] forbiddenParams, String[] requiredRoles) {
+        this.requiredParams = requiredParams;
+        this.forbiddenParams = forbiddenParams;
+        this.requiredRoles = requiredRoles;
+    }
+
+    public static RoutePolicy create() {
+        return new RoutePolicy(NONE, NONE, NONE);
+    }
+
+    public RoutePolicy requireParams(String params) {
+        return new RoutePolicy(parse(params), forbiddenParams, requiredRoles);
+    }
+
+    public RoutePolicy forbidParams(String params) {
+        return new RoutePolicy(requiredParams, parse(params), requiredRoles);
+    }
+
+    public RoutePolicy requireRoles(String roles) {
+        return new RoutePolicy(requiredParams, forbiddenParams, parse(roles));
+    }
+
+    public String[] getRequiredParams() {
+        return requiredParams;
+    }
+
+    public String[] getForbiddenParams() {
+        return forbiddenParams;
+    }
+
+    public String[] getRequiredRoles() {
+        return requiredRoles;
+    }
+
+    private static String[] parse(String list) {
+        if (list == null || list.isBlank()) {
+            return NONE;
+        }
+        return Arrays.stream(list.split(","))
+                .map(String::trim)
+                .filter(h -> !h.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+}
@@ -33,7 +33,11 @@ public class UserInfo {
     }
 
     public boolean hasAllRoles(String... roles) {
-        return Arrays.stream(roles)
-                .allMatch(role -> realmRoles.contains(role) || clientRoles.contains(role));
+        for (String role : roles) {
+            if (!hasRole(role)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -0,0 +1,37 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fuzis.integrationbus.util.RateLimiter;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entry point of every platform-http route: takes a slot of the global concurrency limit
+ * for the lifetime of the exchange and marks the request as not yet rate limited.
+ */
+@Component
+public class AdmissionProcessor implements Processor {
+
+    public static final String RATE_LIMIT_PENDING = "RateLimitPending";
+
+    private final RateLimiter rateLimiter;
+
+    @Autowired
+    public AdmissionProcessor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        rateLimiter.admit();
+        exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange exchange) {
+                rateLimiter.release();
+            }
+        });
+        exchange.setProperty(RATE_LIMIT_PENDING, true);
+    }
+}
@@ -0,0 +1,146 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fuzis.integrationbus.model.AggregateLeg;
+import com.fuzis.integrationbus.util.CallCancellation;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.Processor;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.ThreadPoolProfileBuilder;
+import org.apache.camel.spi.ThreadPoolProfile;
+import org.apache.camel.util.concurrent.ThreadPoolRejectedPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fans a request out to several backend GET endpoints through {@code direct:sd-call} concurrently
+ * and merges the answers into one envelope keyed by leg name. A leg that fails or exceeds its
+ * timeout is reported with its status instead of failing the whole response; a timed out leg's
+ * backend request is aborted.
+ * <p>
+ * Legs are handed straight to a thread (no queue), so a leg's timeout never runs out while it waits
+ * for one; when all {@value #LEG_POOL_MAX_SIZE} threads are busy the leg is answered with 503 at once.
+ * With virtual threads enabled Camel gives every leg its own virtual thread.
+ */
+@Component
+public class AggregateCallProcessor {
+
+    private static final int LEG_POOL_SIZE = 8;
+
+    private static final int LEG_POOL_MAX_SIZE = 64;
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final CamelContext camelContext;
+
+    private final ProducerTemplate producerTemplate;
+
+    private final UnmarshallProcessor unmarshallProcessor;
+
+    private final ExecutorService executor;
+
+    @Autowired
+    public AggregateCallProcessor(CamelContext camelContext, UnmarshallProcessor unmarshallProcessor) {
+        this.camelContext = camelContext;
+        this.producerTemplate = camelContext.createProducerTemplate();
+        this.unmarshallProcessor = unmarshallProcessor;
+        ThreadPoolProfile profile = new ThreadPoolProfileBuilder("AggregateLegs")
+                .poolSize(LEG_POOL_SIZE)
+                .maxPoolSize(LEG_POOL_MAX_SIZE)
+                // a thread pool only grows past its core size once the queue is full, so there is none
+                .maxQueueSize(0)
+                .rejectedPolicy(ThreadPoolRejectedPolicy.Abort)
+                .build();
+        this.executor = camelContext.getExecutorServiceManager().newThreadPool(this, "AggregateLegs", profile);
+    }
+
+    public Processor legs(AggregateLeg... legs) {
+        List<Expression> requests = new ArrayList<>(legs.length);
+        for (AggregateLeg leg : legs) {
+            requests.add(camelContext.resolveLanguage("simple").createExpression(leg.request()));
+        }
+        return exchange -> aggregate(exchange, legs, requests);
+    }
+
+    private void aggregate(Exchange exchange, AggregateLeg[] legs, List<Expression> requests) throws Exception {
+        List<CompletableFuture<Exchange>> futures = new ArrayList<>(legs.length);
+        List<CallCancellation> cancellations = new ArrayList<>(legs.length);
+        long start = System.nanoTime();
+        for (int i = 0; i < legs.length; i++) {
+            Exchange legExchange = exchange.copy();
+            legExchange.getIn().setHeader(Exchange.HTTP_METHOD, "GET");
+            legExchange.getIn().setHeader("X-Service", legs[i].service());
+            legExchange.getIn().setHeader("X-Service-Request", requests.get(i).evaluate(exchange, String.class));
+            legExchange.getIn().setBody(null);
+            // the client request is charged once, not once per leg
+            legExchange.removeProperty(AdmissionProcessor.RATE_LIMIT_PENDING);
+            CallCancellation cancellation = CallCancellation.attach(legExchange);
+            cancellations.add(cancellation);
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> cancellation.isCancelled()
+                        ? legExchange
+                        : producerTemplate.send("direct:sd-call", legExchange), executor));
+            } catch (RejectedExecutionException e) {
+                futures.add(null);
+            }
+        }
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        int failed = 0;
+        for (int i = 0; i < legs.length; i++) {
+            long remaining = legs[i].timeoutMs() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Map<String, Object> legResult = new LinkedHashMap<>();
+            if (futures.get(i) == null) {
+                log.warn("Aggregate leg {} rejected, all {} leg threads are busy", legs[i].name(), LEG_POOL_MAX_SIZE);
+                legResult.put("status", 503);
+                legResult.put("error", "Overloaded");
+                results.put(legs[i].name(), legResult);
+                failed++;
+                continue;
+            }
+            try {
+                Exchange result = futures.get(i).get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+                if (result.getException() != null) {
+                    throw result.getException();
+                }
+                unmarshallProcessor.process(result);
+                Integer statusCode = result.getMessage().getHeader(Exchange.HTTP_RESPONSE_CODE, Integer.class);
+                legResult.put("status", statusCode != null ? statusCode : 500);
+                legResult.put("data", result.getMessage().getBody());
+                if (statusCode == null || statusCode != 200) failed++;
+            } catch (TimeoutException e) {
+                cancellations.get(i).cancel();
+                log.warn("Aggregate leg {} timed out after {} ms", legs[i].name(), legs[i].timeoutMs());
+                legResult.put("status", 504);
+                legResult.put("error", "Timed out");
+                failed++;
+            } catch (Exception e) {
+                log.warn("Aggregate leg {} failed: {}", legs[i].name(), e.getMessage());
+                legResult.put("status", 502);
+                legResult.put("error", e.getMessage());
+                failed++;
+            }
+            results.put(legs[i].name(), legResult);
+        }
+
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put("partial", failed > 0);
+        envelope.put("legs", results);
+        exchange.getIn().setBody(envelope);
+        exchange.getIn().setHeader(Exchange.CONTENT_TYPE, "application/json");
+        exchange.getIn().setHeader(Exchange.HTTP_RESPONSE_CODE, failed == legs.length ? 502 : 200);
+    }
+}
@@ -4,6 +4,7 @@ import com.fuzis.integrationbus.exception.NoRequiredHeader;
 import com.fuzis.integrationbus.util.JwtValidator;
 import com.fuzis.integrationbus.exception.AuthenticationException;
 import com.fuzis.integrationbus.exception.AuthorizationException;
+import com.fuzis.integrationbus.model.RoutePolicy;
 import com.fuzis.integrationbus.model.UserInfo;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
@@ -12,8 +13,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-
 
 @Component
 public class AuthHeaderProcessor implements Processor {
@@ -63,14 +62,14 @@ public class AuthHeaderProcessor implements Processor {
     }
 
     private void checkPermissions(Exchange exchange, UserInfo userInfo) throws Exception {
-        String roles = exchange.getIn().getHeader("X-Roles-Required", String.class);
-
-        String[] roleList = Arrays.stream(roles.split(","))
-                .map(String::trim)
-                .filter(h -> !h.isEmpty())
-                .toArray(String[]::new);
+        RoutePolicy policy = exchange.getProperty(RoutePolicy.PROPERTY, RoutePolicy.class);
+        if (policy == null) {
+            // a route that forgot its policy must not become public
+            log.warn("No route policy on {}, denying access", exchange.getFromRouteId());
+            throw new AuthorizationException("No access to this resource");
+        }
 
-        if(!userInfo.hasAllRoles(roleList)){
+        if(!userInfo.hasAllRoles(policy.getRequiredRoles())){
             throw new AuthorizationException("No access to this resource");
         }
     }
@@ -1,46 +1,32 @@
 package com.fuzis.integrationbus.processor;
 
+import com.fuzis.integrationbus.model.RoutePolicy;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Component
 public class CheckParamsProcessor implements Processor {
     @Override
     public void process(Exchange exchange) throws Exception {
-        String requiredHeadersStr = exchange.getIn().getHeader("X-Headers-Required", String.class);
-        String forbiddenHeadersStr = exchange.getIn().getHeader("X-Headers-Forbidden", String.class);
-
-        if (!(requiredHeadersStr == null || requiredHeadersStr.trim().isEmpty())) {
-            List<String> requiredHeaders = Arrays.stream(requiredHeadersStr.split(","))
-                    .map(String::trim)
-                    .filter(h -> !h.isEmpty())
-                    .toList();
+        RoutePolicy policy = exchange.getProperty(RoutePolicy.PROPERTY, RoutePolicy.class);
+        if (policy == null) {
+            return;
+        }
+        Map<String, Object> headers = exchange.getIn().getHeaders();
 
-            for (String header : requiredHeaders) {
-                if (exchange.getIn().getHeader(header) == null) {
-                    throw new IllegalStateException("Missing required header: " + header);
-                }
+        for (String header : policy.getRequiredParams()) {
+            if (headers.get(header) == null) {
+                throw new IllegalStateException("Missing required header: " + header);
             }
         }
 
-        if (!(forbiddenHeadersStr == null || forbiddenHeadersStr.trim().isEmpty())) {
-            List<String> forbiddenHeaders = Arrays.stream(forbiddenHeadersStr.split(","))
-                    .map(String::trim)
-                    .filter(h -> !h.isEmpty())
-                    .toList();
-
-            for (String header : forbiddenHeaders) {
-                if (exchange.getIn().getHeader(header) != null) {
-                    throw new IllegalStateException("Forbidden header: " + header);
-                }
+        for (String header : policy.getForbiddenParams()) {
+            if (headers.get(header) != null) {
+                throw new IllegalStateException("Forbidden header: " + header);
             }
         }
-
-
     }
 }
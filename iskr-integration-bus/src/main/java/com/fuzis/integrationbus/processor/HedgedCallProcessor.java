@@ -0,0 +1,101 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fuzis.integrationbus.util.CallCancellation;
+import com.fuzis.integrationbus.util.ServiceDiscovery;
+import com.fuzis.integrationbus.util.ServiceResilience;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.support.ExchangeHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends an idempotent GET to the resolved instance and, if it has not answered
+ * within the service's p95 latency, sends the same request to a second instance.
+ * The first successful response wins and the other request is cancelled.
+ */
+@Component
+public class HedgedCallProcessor implements Processor {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ProducerTemplate producerTemplate;
+
+    private final ServiceDiscovery serviceDiscovery;
+
+    private final ServiceResilience serviceResilience;
+
+    @Autowired
+    public HedgedCallProcessor(CamelContext camelContext, ServiceDiscovery serviceDiscovery, ServiceResilience serviceResilience) {
+        this.producerTemplate = camelContext.createProducerTemplate();
+        this.serviceDiscovery = serviceDiscovery;
+        this.serviceResilience = serviceResilience;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        String service = exchange.getIn().getHeader("X-Service", String.class);
+        String primaryUrl = exchange.getIn().getHeader("X-Service-Url", String.class);
+        long hedgeDelay = serviceResilience.getHedgeDelayMs(service);
+
+        Exchange primaryCopy = copy(exchange);
+        CallCancellation primaryCancellation = CallCancellation.attach(primaryCopy);
+        CompletableFuture<Exchange> primary = send(exchange, primaryUrl, primaryCopy);
+        Exchange result;
+        try {
+            result = primary.get(hedgeDelay < 0 ? Long.MAX_VALUE : hedgeDelay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            String alternateUrl = serviceDiscovery.getAlternateUrl(service, primaryUrl);
+            if (alternateUrl == null) {
+                result = primary.get();
+            } else {
+                log.debug("Hedging request to {} after {} ms", service, hedgeDelay);
+                serviceResilience.recordHedge(service);
+                Exchange secondaryCopy = copy(exchange);
+                CallCancellation secondaryCancellation = CallCancellation.attach(secondaryCopy);
+                CompletableFuture<Exchange> secondary = send(exchange, alternateUrl, secondaryCopy);
+                result = (Exchange) CompletableFuture.anyOf(primary, secondary).get();
+                boolean primaryFirst = result == primary.getNow(null);
+                CompletableFuture<Exchange> other = primaryFirst ? secondary : primary;
+                if (isFailed(result)) {
+                    Exchange otherResult = other.get();
+                    if (!isFailed(otherResult)) {
+                        result = otherResult;
+                    }
+                } else {
+                    // the loser would only load the backend for an answer nobody reads
+                    (primaryFirst ? secondaryCancellation : primaryCancellation).cancel();
+                }
+            }
+        }
+        // keep the caller's own cancellation, if any, rather than the copy's nested one
+        result.removeProperty(CallCancellation.PROPERTY);
+        ExchangeHelper.copyResults(exchange, result);
+    }
+
+    private Exchange copy(Exchange exchange) {
+        Exchange copy = exchange.copy();
+        // hedging is only used for GET, which carries no payload
+        copy.getIn().setBody(null);
+        return copy;
+    }
+
+    private CompletableFuture<Exchange> send(Exchange exchange, String serviceUrl, Exchange copy) {
+        String uri = serviceUrl + "/" + exchange.getIn().getHeader("X-Service-Request", String.class)
+                + "?bridgeEndpoint=true&throwExceptionOnFailure=false";
+        return producerTemplate.asyncSend(uri, copy);
+    }
+
+    private boolean isFailed(Exchange result) {
+        Integer statusCode = result.getMessage().getHeader(Exchange.HTTP_RESPONSE_CODE, Integer.class);
+        return result.getException() != null || statusCode == null || statusCode >= 500;
+    }
+}
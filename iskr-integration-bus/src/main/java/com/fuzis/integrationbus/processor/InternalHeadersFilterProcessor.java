@@ -0,0 +1,46 @@
+package com.fuzis.integrationbus.processor;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Strips bus-internal and credential headers from the response in one pass,
+ * unless the request asked for them with {@code X-Debug: true}.
+ */
+@Component
+public class InternalHeadersFilterProcessor implements Processor {
+
+    private static final List<String> INTERNAL_HEADERS = List.of(
+            "X-Email-Verified",
+            "X-Realm-Roles",
+            "X-Client-Roles",
+            "X-User-SSO-ID",
+            "X-Service-Request",
+            "X-Service",
+            "X-Email",
+            "X-Nickname",
+            "Authorization",
+            "Refresh",
+            "X-Include-Body",
+            "username",
+            "password",
+            "Cookie",
+            "X-Service-Url",
+            "X-No-Meta"
+    );
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        Map<String, Object> headers = exchange.getIn().getHeaders();
+        if ("true".equals(String.valueOf(headers.get("X-Debug")))) {
+            return;
+        }
+        for (int i = 0; i < INTERNAL_HEADERS.size(); i++) {
+            headers.remove(INTERNAL_HEADERS.get(i));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fuzis.integrationbus.util.RateLimiter;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.http.common.HttpMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Charges the request against its route quota once: by {@code X-User-ID} when it runs after
+ * authentication, by client ip when an anonymous route reaches the backend call.
+ */
+@Component
+public class RateLimitProcessor implements Processor {
+
+    private final RateLimiter rateLimiter;
+
+    @Autowired
+    public RateLimitProcessor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        if (exchange.getProperty(AdmissionProcessor.RATE_LIMIT_PENDING) == null) {
+            return;
+        }
+        exchange.removeProperty(AdmissionProcessor.RATE_LIMIT_PENDING);
+        String userId = exchange.getIn().getHeader("X-User-ID", String.class);
+        if (userId != null) {
+            rateLimiter.consume(exchange.getFromRouteId(), "user", userId);
+        } else {
+            rateLimiter.consume(exchange.getFromRouteId(), "ip", getClientIp(exchange));
+        }
+    }
+
+    private String getClientIp(Exchange exchange) {
+        String realIp = exchange.getIn().getHeader("X-Real-IP", String.class);
+        if (realIp != null && !realIp.isBlank()) {
+            return realIp;
+        }
+        String forwardedFor = exchange.getIn().getHeader("X-Forwarded-For", String.class);
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            int comma = forwardedFor.indexOf(',');
+            return (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+        }
+        if (exchange.getIn() instanceof HttpMessage httpMessage && httpMessage.getRequest() != null) {
+            return httpMessage.getRequest().getRemoteAddr();
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,24 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fuzis.integrationbus.util.ServiceResilience;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ResilienceAcquireProcessor implements Processor {
+
+    private final ServiceResilience serviceResilience;
+
+    @Autowired
+    public ResilienceAcquireProcessor(ServiceResilience serviceResilience) {
+        this.serviceResilience = serviceResilience;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        String service = exchange.getIn().getHeader("X-Service", String.class);
+        exchange.setProperty(ServiceResilience.PERMIT_PROPERTY, serviceResilience.acquire(service));
+    }
+}
@@ -0,0 +1,33 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fuzis.integrationbus.util.ServiceResilience;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ResilienceReleaseProcessor implements Processor {
+
+    private final ServiceResilience serviceResilience;
+
+    @Autowired
+    public ResilienceReleaseProcessor(ServiceResilience serviceResilience) {
+        this.serviceResilience = serviceResilience;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        ServiceResilience.Permit permit = exchange.getProperty(ServiceResilience.PERMIT_PROPERTY, ServiceResilience.Permit.class);
+        if (permit == null) {
+            return;
+        }
+        exchange.removeProperty(ServiceResilience.PERMIT_PROPERTY);
+        Integer statusCode = exchange.getIn().getHeader(Exchange.HTTP_RESPONSE_CODE, Integer.class);
+        boolean failed = exchange.getException() != null
+                || exchange.getProperty(Exchange.EXCEPTION_CAUGHT) != null
+                || statusCode == null
+                || statusCode >= 500;
+        serviceResilience.release(permit, failed);
+    }
+}
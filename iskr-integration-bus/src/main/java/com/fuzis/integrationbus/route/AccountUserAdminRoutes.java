@@ -3,6 +3,8 @@ package com.fuzis.integrationbus.route;
 import com.fuzis.integrationbus.exception.AuthenticationException;
 import com.fuzis.integrationbus.exception.NoRequiredHeader;
 import com.fuzis.integrationbus.exception.ServiceFall;
+import com.fuzis.integrationbus.exception.ServiceOverloaded;
+import com.fuzis.integrationbus.model.RoutePolicy;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
 import org.apache.camel.builder.RouteBuilder;
@@ -22,6 +24,13 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                 .maximumRedeliveries(0)
                 .retryAttemptedLogLevel(LoggingLevel.WARN));
 
+        onException(ServiceOverloaded.class)
+                .handled(true)
+                .to("direct:service-error-handler");
+
+        interceptFrom("platform-http:*")
+                .to("direct:admission");
+
         from("platform-http:/oapi/v1/accounts/admin/description?httpMethodRestrict=PUT")
                 .routeId("accounts-user-put-description-admin-route")
                 .onException(NoRequiredHeader.class)
@@ -36,9 +45,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Description, X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Description,X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -61,9 +69,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Birth-Date,X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Birth-Date,X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -86,9 +93,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Nickname,X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Nickname,X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -111,9 +117,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Email,X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Email,X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -136,9 +141,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Password,X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Password,X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -161,9 +165,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Username,X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Username,X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -186,9 +189,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -210,9 +212,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -234,9 +235,8 @@ public class AccountUserAdminRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Image-Id,X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Image-Id,X-User-Change-ID").requireRoles("profile-watch,profile-change,manage-accounts")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change,manage-accounts"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -3,6 +3,8 @@ package com.fuzis.integrationbus.route;
 import com.fuzis.integrationbus.exception.AuthenticationException;
 import com.fuzis.integrationbus.exception.NoRequiredHeader;
 import com.fuzis.integrationbus.exception.ServiceFall;
+import com.fuzis.integrationbus.exception.ServiceOverloaded;
+import com.fuzis.integrationbus.model.RoutePolicy;
 import com.fuzis.integrationbus.processor.*;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
@@ -54,6 +56,13 @@ public class AccountsUserRoutes extends RouteBuilder {
                 .maximumRedeliveries(0)
                 .retryAttemptedLogLevel(LoggingLevel.WARN));
 
+        onException(ServiceOverloaded.class)
+                .handled(true)
+                .to("direct:service-error-handler");
+
+        interceptFrom("platform-http:*")
+                .to("direct:admission");
+
         from("platform-http:/oapi/v1/accounts/login?httpMethodRestrict=POST")
                 .routeId("login-user-post-route")
                 .onException(NoRequiredHeader.class)
@@ -73,7 +82,7 @@ public class AccountsUserRoutes extends RouteBuilder {
 
         from("platform-http:/oapi/v1/accounts/user?httpMethodRestrict=GET")
                 .routeId("accounts-user-get-route")
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -82,7 +91,7 @@ public class AccountsUserRoutes extends RouteBuilder {
 
         from("platform-http:/oapi/v1/accounts/profile?httpMethodRestrict=GET")
                 .routeId("accounts-profile-get-route")
-                .setHeader("X-Headers-Required", constant("X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-Change-ID")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -91,7 +100,7 @@ public class AccountsUserRoutes extends RouteBuilder {
 
         from("platform-http:/oapi/v1/accounts/verify-email?httpMethodRestrict=POST")
                 .routeId("accounts-verify-email-route")
-                .setHeader("X-Roles-Required", constant("profile-watch"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireRoles("profile-watch")))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Integration"))
@@ -101,7 +110,7 @@ public class AccountsUserRoutes extends RouteBuilder {
 
         from("platform-http:/oapi-inner/v1/accounts/verify-email?httpMethodRestrict=POST")
                 .routeId("accounts-inner-verify-email-route")
-                .setHeader("X-Headers-Required", constant("X-User-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-ID")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -113,7 +122,7 @@ public class AccountsUserRoutes extends RouteBuilder {
         
         from("platform-http:/oapi/v1/accounts/redeem-token?httpMethodRestrict=POST")
                 .routeId("accounts-redeem-token-route")
-                .setHeader("X-Headers-Required", constant("Token"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("Token")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Integration"))
@@ -123,7 +132,7 @@ public class AccountsUserRoutes extends RouteBuilder {
 
         from("platform-http:/oapi-inner/v1/accounts/redeem-token?httpMethodRestrict=POST")
                 .routeId("accounts-inner-redeem-token-route")
-                .setHeader("X-Headers-Required", constant("Token"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("Token")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -147,8 +156,7 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("Email-Verified, X-User-ID"))
-                .setHeader("X-Headers-Forbidden", constant("New-Nickname, New-Username"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("Email-Verified,X-User-ID").forbidParams("New-Nickname,New-Username")))
                 .to("direct:check-params")
                 .process(searchUserProcessor)
                 .process(changeSSOUserDataProcessor)
@@ -156,7 +164,7 @@ public class AccountsUserRoutes extends RouteBuilder {
 
         from("platform-http:/oapi/v1/accounts/reset-password?httpMethodRestrict=POST")
                 .routeId("accounts-reset-password-route")
-                .setHeader("X-Headers-Required", constant("Login"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("Login")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -167,7 +175,7 @@ public class AccountsUserRoutes extends RouteBuilder {
 
         from("platform-http:/oapi/v1/accounts/reset-password-confirm?httpMethodRestrict=POST")
                 .routeId("accounts-reset-password-confirm-route")
-                .setHeader("X-Headers-Required", constant("Token,Password"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("Token,Password")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -191,7 +199,7 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Password, X-User-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Password,X-User-ID")))
                 .to("direct:check-params")
                 .process(searchUserProcessor)
                 .process(changeSSOUserPasswordProcessor)
@@ -211,8 +219,7 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("X-User-ID"))
-                .setHeader("X-Headers-Forbidden", constant("Email-Verified"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-ID").forbidParams("Email-Verified")))
                 .to("direct:check-params")
                 .process(searchUserProcessor)
                 .process(changeSSOUserDataProcessor)
@@ -232,9 +239,8 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Username"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Username").requireRoles("profile-watch,profile-change")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -257,9 +263,8 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Nickname"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Nickname").requireRoles("profile-watch,profile-change")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -282,9 +287,8 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Email"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Email").requireRoles("profile-watch,profile-change")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -307,9 +311,8 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Password"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Password").requireRoles("profile-watch,profile-change")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -332,7 +335,7 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("X-User-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-ID")))
                 .to("direct:check-params")
                 .process(searchUserProcessor)
                 .process(changeSSOUserAccountStateProcessor)
@@ -352,9 +355,8 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Description"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Description").requireRoles("profile-watch,profile-change")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -377,9 +379,8 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Birth-Date"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Birth-Date").requireRoles("profile-watch,profile-change")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -403,7 +404,7 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("X-User-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-ID")))
                 .to("direct:check-params")
                 .process(searchUserProcessor)
                 .process(getSSOUserAccountRoleProcessor)
@@ -425,7 +426,7 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant("profile-watch"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireRoles("profile-watch")))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Integration"))
@@ -447,14 +448,14 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("X-User-ID,Nickname,Email,Username"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-ID,Nickname,Email,Username")))
                 .to("direct:check-params")
                 .process(createSSOUserAccountProcessor)
                 .end();
 
         from("platform-http:/oapi/v1/accounts/user?httpMethodRestrict=POST")
                 .routeId("accounts-create-user-route")
-                .setHeader("X-Headers-Required", constant("Nickname,Username,Email,Password"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("Nickname,Username,Email,Password")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -477,9 +478,8 @@ public class AccountsUserRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("New-Image-Id"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("New-Image-Id").requireRoles("profile-watch,profile-change")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("profile-watch,profile-change"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Accounts"))
@@ -0,0 +1,102 @@
+package com.fuzis.integrationbus.route;
+
+import com.fuzis.integrationbus.exception.AuthenticationException;
+import com.fuzis.integrationbus.exception.ServiceFall;
+import com.fuzis.integrationbus.exception.ServiceOverloaded;
+import com.fuzis.integrationbus.exception.TooManyRequests;
+import com.fuzis.integrationbus.model.AggregateLeg;
+import com.fuzis.integrationbus.model.RoutePolicy;
+import com.fuzis.integrationbus.processor.AggregateCallProcessor;
+import com.fuzis.integrationbus.processor.RateLimitProcessor;
+import org.apache.camel.LoggingLevel;
+import org.apache.camel.builder.RouteBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Composite routes for the heaviest frontend pages: one client round-trip fans out
+ * to several backend endpoints in parallel.
+ */
+@Component
+public class AggregateRoutes extends RouteBuilder {
+
+    private final AggregateCallProcessor aggregateCallProcessor;
+
+    private final RateLimitProcessor rateLimitProcessor;
+
+    @Autowired
+    public AggregateRoutes(AggregateCallProcessor aggregateCallProcessor, RateLimitProcessor rateLimitProcessor) {
+        this.aggregateCallProcessor = aggregateCallProcessor;
+        this.rateLimitProcessor = rateLimitProcessor;
+    }
+
+    @Override
+    public void configure() {
+        errorHandler(defaultErrorHandler()
+                .maximumRedeliveries(0)
+                .retryAttemptedLogLevel(LoggingLevel.WARN));
+
+        onException(ServiceOverloaded.class)
+                .handled(true)
+                .to("direct:service-error-handler");
+
+        onException(TooManyRequests.class)
+                .handled(true)
+                .to("direct:too-many-requests-handler");
+
+        interceptFrom("platform-http:*")
+                .to("direct:admission");
+
+        from("platform-http:/oapi/v1/aggregate/user?httpMethodRestrict=GET")
+                .routeId("aggregate-user-route")
+                .onException(ServiceFall.class)
+                    .handled(true)
+                    .to("direct:service-error-handler")
+                .end()
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userId")))
+                .to("direct:check-params")
+                .process(rateLimitProcessor)
+                .process(aggregateCallProcessor.legs(
+                        new AggregateLeg("profile", "Books", "api/v1/users/${header.userId}"),
+                        new AggregateLeg("subscribers", "Books", "api/v1/users/${header.userId}/subscribers"),
+                        new AggregateLeg("subscriptions", "Books", "api/v1/users/${header.userId}/subscriptions"),
+                        new AggregateLeg("collections", "Books", "api/v1/users/${header.userId}/collections")
+                ))
+                .to("direct:finalize-request");
+
+        from("platform-http:/oapi/v1/aggregate/book?httpMethodRestrict=GET")
+                .routeId("aggregate-book-route")
+                .onException(ServiceFall.class)
+                    .handled(true)
+                    .to("direct:service-error-handler")
+                .end()
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
+                .to("direct:check-params")
+                .process(rateLimitProcessor)
+                .process(aggregateCallProcessor.legs(
+                        new AggregateLeg("book", "Books", "api/v1/books/${header.bookId}"),
+                        new AggregateLeg("reviews", "Books", "api/v1/books/${header.bookId}/reviews")
+                ))
+                .to("direct:finalize-request");
+
+        from("platform-http:/oapi/v1/aggregate/reading?httpMethodRestrict=GET")
+                .routeId("aggregate-reading-route")
+                .onException(ServiceFall.class)
+                    .handled(true)
+                    .to("direct:service-error-handler")
+                .end()
+                .onException(AuthenticationException.class)
+                    .handled(true)
+                    .to("direct:auth-error-handler")
+                .end()
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
+                .to("direct:auth")
+                .setHeader("userId", simple("${header.X-User-ID}"))
+                .process(aggregateCallProcessor.legs(
+                        new AggregateLeg("stats", "Books", "api/v1/reading/stats"),
+                        new AggregateLeg("goals", "Books", "api/v1/reading/goals"),
+                        new AggregateLeg("goalsStats", "Books", "api/v1/reading/goals/stats")
+                ))
+                .to("direct:finalize-request");
+    }
+}
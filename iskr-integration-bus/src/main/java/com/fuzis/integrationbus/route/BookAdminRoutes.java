@@ -2,6 +2,8 @@ package com.fuzis.integrationbus.route;
 
 import com.fuzis.integrationbus.exception.AuthenticationException;
 import com.fuzis.integrationbus.exception.ServiceFall;
+import com.fuzis.integrationbus.exception.ServiceOverloaded;
+import com.fuzis.integrationbus.model.RoutePolicy;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
 import org.apache.camel.builder.RouteBuilder;
@@ -15,6 +17,31 @@ public class BookAdminRoutes extends RouteBuilder {
                 .maximumRedeliveries(0)
                 .retryAttemptedLogLevel(LoggingLevel.WARN));
 
+        onException(ServiceOverloaded.class)
+                .handled(true)
+                .to("direct:service-error-handler");
+
+        interceptFrom("platform-http:*")
+                .to("direct:admission");
+
+        from("platform-http:/oapi/v1/books/import/admin?httpMethodRestrict=POST")
+                .routeId("user-books-import-admin-route")
+                .onException(ServiceFall.class)
+                .handled(true)
+                .to("direct:service-error-handler")
+                .end()
+                .onException(AuthenticationException.class)
+                .handled(true)
+                .to("direct:auth-error-handler")
+                .end()
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireRoles("manage-books")))
+                .to("direct:auth")
+                .setHeader(Exchange.HTTP_METHOD, constant("POST"))
+                .setHeader("X-Service", constant("Books"))
+                .setHeader("userId", simple("${header.X-User-ID}"))
+                .setHeader("X-Service-Request", simple("api/v1/books/import"))
+                .to("direct:sd-call-finalize");
+
         from("platform-http:/oapi/v1/collections/books/admin?httpMethodRestrict=GET")
                 .routeId("user-books-collections-books-admin-route")
                 .onException(ServiceFall.class)
@@ -25,9 +52,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -44,9 +70,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -64,9 +89,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -83,9 +107,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -102,9 +125,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -121,9 +143,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId,bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId,bookId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -140,9 +161,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -159,9 +179,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId,userId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId,userId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -178,9 +197,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId,bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId,bookId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -197,9 +215,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -216,9 +233,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId,X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId,X-User-Change-ID").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -236,9 +252,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId,X-User-Change-ID"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId,X-User-Change-ID").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -256,9 +271,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -276,9 +290,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -297,7 +310,7 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant("manage-books"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireRoles("manage-books")))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -314,9 +327,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("authorId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("authorId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -333,9 +345,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("authorId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("authorId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -352,9 +363,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("genreId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("genreId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -371,9 +381,8 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("genreId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("genreId").requireRoles("manage-books")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant("manage-books"))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -390,7 +399,7 @@ public class BookAdminRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant("manage-books"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireRoles("manage-books")))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -2,6 +2,8 @@ package com.fuzis.integrationbus.route;
 
 import com.fuzis.integrationbus.exception.AuthenticationException;
 import com.fuzis.integrationbus.exception.ServiceFall;
+import com.fuzis.integrationbus.exception.ServiceOverloaded;
+import com.fuzis.integrationbus.model.RoutePolicy;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
 import org.apache.camel.builder.RouteBuilder;
@@ -15,6 +17,13 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .maximumRedeliveries(0)
                 .retryAttemptedLogLevel(LoggingLevel.WARN));
 
+        onException(ServiceOverloaded.class)
+                .handled(true)
+                .to("direct:service-error-handler");
+
+        interceptFrom("platform-http:*")
+                .to("direct:admission");
+
         from("platform-http:/oapi/v1/popular/collections?httpMethodRestrict=GET")
                 .routeId("books-popular-collections-route")
                 .onException(ServiceFall.class)
@@ -54,7 +63,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("userId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userId")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -67,7 +76,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("userId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userId")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -80,7 +89,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("userId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userId")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -93,7 +102,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("userId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userId")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -106,7 +115,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("userId", simple("-1"))
@@ -120,7 +129,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("userId", simple("-1"))
@@ -138,9 +147,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -158,9 +166,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -168,13 +175,32 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .setHeader("X-Service-Request", simple("api/v1/collections/${header.collectionId}"))
                 .to("direct:sd-call-finalize");
 
+        from("platform-http:/oapi/v1/collections/membership?httpMethodRestrict=GET")
+                .routeId("user-books-collections-membership-route")
+                .onException(ServiceFall.class)
+                .handled(true)
+                .to("direct:service-error-handler")
+                .end()
+                .onException(AuthenticationException.class)
+                .handled(true)
+                .to("direct:auth-error-handler")
+                .end()
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookIds")))
+                .to("direct:check-params")
+                .to("direct:auth")
+                .setHeader(Exchange.HTTP_METHOD, constant("GET"))
+                .setHeader("X-Service", constant("Books"))
+                .setHeader("userId", simple("${header.X-User-ID}"))
+                .setHeader("X-Service-Request", simple("api/v1/collections/membership"))
+                .to("direct:sd-call-finalize");
+
         from("platform-http:/oapi/v1/books?httpMethodRestrict=GET")
                 .routeId("user-books-books-route")
                 .onException(ServiceFall.class)
                 .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -187,13 +213,26 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:service-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
                 .setHeader("X-Service-Request", simple("api/v1/books/${header.bookId}/reviews"))
                 .to("direct:sd-call-finalize");
 
+        from("platform-http:/oapi/v1/books/recommendations?httpMethodRestrict=GET")
+                .routeId("user-books-recommendations-books-route")
+                .onException(ServiceFall.class)
+                .handled(true)
+                .to("direct:service-error-handler")
+                .end()
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
+                .to("direct:check-params")
+                .setHeader(Exchange.HTTP_METHOD, constant("GET"))
+                .setHeader("X-Service", constant("Books"))
+                .setHeader("X-Service-Request", simple("api/v1/books/${header.bookId}/recommendations"))
+                .to("direct:sd-call-finalize");
+
         from("platform-http:/oapi/v1/subscribe?httpMethodRestrict=POST")
                 .routeId("user-books-subscribe-route")
                 .onException(ServiceFall.class)
@@ -204,9 +243,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("userOnId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userOnId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -225,9 +263,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("userOnId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userOnId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -246,9 +283,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("userOnId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userOnId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -257,6 +293,45 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .setHeader("X-Service-Request", simple("api/v1/subscribers/is-subscriber"))
                 .to("direct:sd-call-finalize");
 
+        from("platform-http:/oapi/v1/mutual-subscribers?httpMethodRestrict=GET")
+                .routeId("user-books-mutual-subscribers-route")
+                .onException(ServiceFall.class)
+                    .handled(true)
+                    .to("direct:service-error-handler")
+                .end()
+                .onException(AuthenticationException.class)
+                    .handled(true)
+                    .to("direct:auth-error-handler")
+                .end()
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("userOnId")))
+                .to("direct:check-params")
+                .to("direct:auth")
+                .setHeader(Exchange.HTTP_METHOD, constant("GET"))
+                .setHeader("X-Service", constant("Books"))
+                .setHeader("userId", simple("${header.X-User-ID}"))
+                .setBody(constant(""))
+                .setHeader("X-Service-Request", simple("api/v1/subscribers/mutual-subscribers"))
+                .to("direct:sd-call-finalize");
+
+        from("platform-http:/oapi/v1/activity-feed?httpMethodRestrict=GET")
+                .routeId("user-books-activity-feed-route")
+                .onException(ServiceFall.class)
+                    .handled(true)
+                    .to("direct:service-error-handler")
+                .end()
+                .onException(AuthenticationException.class)
+                    .handled(true)
+                    .to("direct:auth-error-handler")
+                .end()
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
+                .to("direct:auth")
+                .setHeader(Exchange.HTTP_METHOD, constant("GET"))
+                .setHeader("X-Service", constant("Books"))
+                .setHeader("userId", simple("${header.X-User-ID}"))
+                .setBody(constant(""))
+                .setHeader("X-Service-Request", simple("api/v1/activity/feed"))
+                .to("direct:sd-call-finalize");
+
         from("platform-http:/oapi/v1/library-collections?httpMethodRestrict=GET")
                 .routeId("user-books-library-collections-route")
                 .onException(ServiceFall.class)
@@ -267,7 +342,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -286,7 +361,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -305,7 +380,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -324,9 +399,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                     .handled(true)
                     .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -344,7 +418,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -362,9 +436,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -382,9 +455,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -402,9 +474,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -422,9 +493,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -442,9 +512,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -462,7 +531,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -480,9 +549,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -500,9 +568,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -520,9 +587,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -540,9 +606,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId,bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId,bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -560,9 +625,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -580,9 +644,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId,userId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId,userId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -600,9 +663,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -620,9 +682,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -640,9 +701,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -660,9 +720,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -680,7 +739,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -698,9 +757,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("collectionId,bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("collectionId,bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -718,7 +776,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -736,7 +794,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -754,9 +812,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -774,7 +831,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -792,9 +849,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -812,7 +868,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -830,9 +886,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -850,9 +905,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -870,9 +924,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("bookId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("bookId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -890,7 +943,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -908,7 +961,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Books"))
@@ -926,9 +979,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("goalId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("goalId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("PUT"))
                 .setHeader("X-Service", constant("Books"))
@@ -946,9 +998,8 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Headers-Required", constant("goalId"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("goalId")))
                 .to("direct:check-params")
-                .setHeader("X-Roles-Required", constant(""))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("DELETE"))
                 .setHeader("X-Service", constant("Books"))
@@ -966,7 +1017,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -984,7 +1035,7 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .handled(true)
                 .to("direct:auth-error-handler")
                 .end()
-                .setHeader("X-Roles-Required", constant(""))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create()))
                 .to("direct:auth")
                 .setHeader(Exchange.HTTP_METHOD, constant("GET"))
                 .setHeader("X-Service", constant("Books"))
@@ -992,6 +1043,17 @@ public class BooksCommonRoutes extends RouteBuilder {
                 .setHeader("X-Service-Request", simple("api/v1/reading/stats"))
                 .to("direct:sd-call-finalize");
 
+        from("platform-http:/oapi-inner/v1/books/users/evict-detail?httpMethodRestrict=POST")
+                .routeId("books-inner-users-evict-detail-route")
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("X-User-ID")))
+                .to("direct:check-params")
+                .setHeader(Exchange.HTTP_METHOD, constant("POST"))
+                .setHeader("X-Service", constant("Books"))
+                .setHeader("X-No-Meta", constant(true))
+                .setHeader("X-Service-Request", simple("api/v1/users/${header.X-User-ID}/detail/evict"))
+                .setBody(constant(""))
+                .to("direct:sd-call-finalize");
+
 
 
     }
@@ -1,5 +1,7 @@
 package com.fuzis.integrationbus.route;
 
+import com.fuzis.integrationbus.exception.ServiceOverloaded;
+import com.fuzis.integrationbus.model.RoutePolicy;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
 import org.apache.camel.builder.RouteBuilder;
@@ -16,9 +18,16 @@ public class SearchRoutes extends RouteBuilder {
                 .maximumRedeliveries(0)
                 .retryAttemptedLogLevel(LoggingLevel.WARN));
 
+        onException(ServiceOverloaded.class)
+                .handled(true)
+                .to("direct:service-error-handler");
+
+        interceptFrom("platform-http:*")
+                .to("direct:admission");
+
         from("platform-http:/oapi/v1/search/query?httpMethodRestrict=POST")
                 .routeId("search-query-route")
-                .setHeader("X-Headers-Required", constant("Query"))
+                .setProperty(RoutePolicy.PROPERTY, constant(RoutePolicy.create().requireParams("Query")))
                 .to("direct:check-params")
                 .setHeader(Exchange.HTTP_METHOD, constant("POST"))
                 .setHeader("X-Service", constant("Search"))
@@ -51,5 +60,14 @@ public class SearchRoutes extends RouteBuilder {
                 })
                 .setHeader(Exchange.CONTENT_TYPE, constant("application/x-www-form-urlencoded"))
                 .to("direct:sd-call-finalize");
+
+        from("platform-http:/oapi-inner/v1/search/reindex?httpMethodRestrict=POST")
+                .routeId("search-inner-reindex-route")
+                .setHeader(Exchange.HTTP_METHOD, constant("POST"))
+                .setHeader("X-Service", constant("Search"))
+                .setHeader("X-No-Meta", constant(true))
+                .setHeader("X-Service-Request", simple("api/v1/search/reindex"))
+                .setBody(constant(""))
+                .to("direct:sd-call-finalize");
     }
 }
@@ -0,0 +1,111 @@
+package com.fuzis.integrationbus.util;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.component.http.HttpActivityListener;
+import org.apache.camel.component.http.HttpComponent;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aborts backend calls that are no longer needed: the losing request of a hedge, or an aggregate
+ * leg past its timeout. Interrupting the calling thread does not stop a blocking socket read, so
+ * the HTTP client's own request is cancelled instead, which closes its connection.
+ * <p>
+ * A cancellation is attached to an exchange as a property; copies of the exchange share it, and
+ * every request the http component sends for any of them registers with it. Cancellations nest:
+ * one attached to an exchange that already carries one is cancelled together with its parent.
+ */
+public final class CallCancellation implements Cancellable {
+
+    public static final String PROPERTY = "CallCancellation";
+
+    private static final String EXCHANGE_ATTRIBUTE = "org.apache.camel.Exchange";
+
+    private final List<Cancellable> dependents = new ArrayList<>();
+
+    private boolean cancelled;
+
+    /**
+     * Gives the exchange its own cancellation, nested under the one it already carries, if any.
+     */
+    public static CallCancellation attach(Exchange exchange) {
+        CallCancellation cancellation = new CallCancellation();
+        CallCancellation parent = exchange.getProperty(PROPERTY, CallCancellation.class);
+        if (parent != null) {
+            parent.register(cancellation);
+        }
+        exchange.setProperty(PROPERTY, cancellation);
+        return cancellation;
+    }
+
+    /**
+     * Makes the http component register every request it sends with the exchange's cancellation.
+     */
+    public static void install(HttpComponent component) {
+        // The component only exposes the exchange to the HTTP client context while a listener is set
+        if (component.getHttpActivityListener() == null) {
+            component.setHttpActivityListener(new NoopActivityListener());
+        }
+        component.setHttpClientConfigurer(builder -> builder.addExecInterceptorFirst("call-cancellation",
+                (request, scope, chain) -> {
+                    if (scope.clientContext.getAttribute(EXCHANGE_ATTRIBUTE) instanceof Exchange exchange
+                            && scope.originalRequest instanceof Cancellable cancellable) {
+                        CallCancellation cancellation = exchange.getProperty(PROPERTY, CallCancellation.class);
+                        if (cancellation != null) {
+                            cancellation.register(cancellable);
+                        }
+                    }
+                    return chain.proceed(request, scope);
+                }));
+    }
+
+    public void register(Cancellable dependent) {
+        synchronized (this) {
+            if (!cancelled) {
+                dependents.add(dependent);
+                return;
+            }
+        }
+        dependent.cancel();
+    }
+
+    public boolean isCancelled() {
+        synchronized (this) {
+            return cancelled;
+        }
+    }
+
+    @Override
+    public boolean cancel() {
+        List<Cancellable> toCancel;
+        synchronized (this) {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            toCancel = new ArrayList<>(dependents);
+            dependents.clear();
+        }
+        toCancel.forEach(Cancellable::cancel);
+        return true;
+    }
+
+    private static class NoopActivityListener implements HttpActivityListener {
+
+        @Override
+        public void onRequestSubmitted(Object source, Exchange exchange, HttpHost host,
+                                       HttpRequest request, HttpEntity entity) {
+        }
+
+        @Override
+        public void onResponseReceived(Object source, Exchange exchange, HttpHost host,
+                                       HttpResponse response, HttpEntity entity, long elapsed) {
+        }
+    }
+}
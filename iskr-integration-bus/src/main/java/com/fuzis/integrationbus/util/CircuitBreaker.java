@@ -0,0 +1,150 @@
+package com.fuzis.integrationbus.util;
+
+import com.fuzis.integrationbus.configuration.ResilienceConfiguration;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Count-based circuit breaker. Opens when the failure rate or the slow-call rate
+ * over the last {@code windowSize} calls crosses the policy thresholds, lets a few
+ * trial calls through after {@code openStateDurationMs} and closes again if they pass.
+ * Guarded by a {@link ReentrantLock} rather than {@code synchronized} so virtual threads do not pin.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final ResilienceConfiguration.Policy policy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int position = 0;
+    private int recorded = 0;
+    private int failedCount = 0;
+    private int slowCount = 0;
+
+    private State state = State.CLOSED;
+    private long openedAt = 0;
+    private int halfOpenStarted = 0;
+    private int halfOpenCompleted = 0;
+    private int halfOpenFailed = 0;
+    private int halfOpenSlow = 0;
+
+    public CircuitBreaker(ResilienceConfiguration.Policy policy) {
+        this.policy = policy;
+        this.failedCalls = new boolean[Math.max(1, policy.windowSize())];
+        this.slowCalls = new boolean[Math.max(1, policy.windowSize())];
+    }
+
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < policy.openStateDurationMs()) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenStarted >= policy.halfOpenPermittedCalls()) {
+                    return false;
+                }
+                halfOpenStarted++;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a permission that was acquired but never used, e.g. when the bulkhead rejected the call.
+     */
+    public void releasePermission() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && halfOpenStarted > 0) {
+                halfOpenStarted--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onResult(boolean failed, long durationMs) {
+        boolean slow = durationMs >= policy.slowCallDurationMs();
+        lock.lock();
+        try {
+            recordResult(failed, slow);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordResult(boolean failed, boolean slow) {
+        if (state == State.HALF_OPEN) {
+            halfOpenCompleted++;
+            if (failed) halfOpenFailed++;
+            if (slow) halfOpenSlow++;
+            if (halfOpenCompleted >= policy.halfOpenPermittedCalls()) {
+                transitionTo(exceedsThresholds(halfOpenFailed, halfOpenSlow, halfOpenCompleted) ? State.OPEN : State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (recorded == failedCalls.length) {
+            if (failedCalls[position]) failedCount--;
+            if (slowCalls[position]) slowCount--;
+        } else {
+            recorded++;
+        }
+        failedCalls[position] = failed;
+        slowCalls[position] = slow;
+        if (failed) failedCount++;
+        if (slow) slowCount++;
+        position = (position + 1) % failedCalls.length;
+
+        if (recorded >= policy.minimumCalls() && exceedsThresholds(failedCount, slowCount, recorded)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private boolean exceedsThresholds(int failed, int slow, int total) {
+        return failed * 100 >= policy.failureRateThreshold() * total
+                || slow * 100 >= policy.slowCallRateThreshold() * total;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        halfOpenStarted = 0;
+        halfOpenCompleted = 0;
+        halfOpenFailed = 0;
+        halfOpenSlow = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        }
+        if (newState == State.CLOSED) {
+            position = 0;
+            recorded = 0;
+            failedCount = 0;
+            slowCount = 0;
+        }
+    }
+}
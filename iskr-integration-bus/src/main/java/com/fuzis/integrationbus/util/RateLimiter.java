@@ -0,0 +1,109 @@
+package com.fuzis.integrationbus.util;
+
+import com.fuzis.integrationbus.configuration.RateLimitConfiguration;
+import com.fuzis.integrationbus.exception.ServiceOverloaded;
+import com.fuzis.integrationbus.exception.TooManyRequests;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gateway admission control: a global in-flight limit shared by all routes plus
+ * per-route token buckets keyed by user id or client ip.
+ */
+@Component
+public class RateLimiter {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final RateLimitConfiguration rateLimitConfiguration;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Map<String, RouteBuckets> routes = new ConcurrentHashMap<>();
+
+    private final Counter shed;
+
+    public RateLimiter(@Autowired RateLimitConfiguration rateLimitConfiguration, @Autowired MeterRegistry meterRegistry) {
+        this.rateLimitConfiguration = rateLimitConfiguration;
+        this.meterRegistry = meterRegistry;
+        this.shed = Counter.builder("integration.bus.admission.shed")
+                .description("Requests rejected because the bus was at its concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("integration.bus.admission.in_flight", inFlight, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    public void admit() throws ServiceOverloaded {
+        if (!rateLimitConfiguration.isEnabled()) {
+            inFlight.incrementAndGet();
+            return;
+        }
+        if (inFlight.incrementAndGet() > rateLimitConfiguration.getMaxConcurrentRequests()) {
+            inFlight.decrementAndGet();
+            shed.increment();
+            throw new ServiceOverloaded("Integration bus is overloaded, try again later");
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void consume(String routeId, String keyType, String key) throws TooManyRequests {
+        if (!rateLimitConfiguration.isEnabled()) {
+            return;
+        }
+        RouteBuckets route = routes.computeIfAbsent(routeId, this::createRouteBuckets);
+        if (!route.quota.enabled()) {
+            return;
+        }
+        TokenBucket bucket = route.buckets.computeIfAbsent(keyType + ":" + key,
+                k -> new TokenBucket(route.quota.capacity(), route.quota.refillPerSecond()));
+        if (!bucket.tryConsume()) {
+            Counter.builder("integration.bus.ratelimit.throttled")
+                    .tag("route", routeId)
+                    .tag("key", keyType)
+                    .register(meterRegistry)
+                    .increment();
+            throw new TooManyRequests("Too many requests, try again later");
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictIdleBuckets() {
+        routes.values().forEach(route -> route.buckets.values().removeIf(TokenBucket::isFull));
+    }
+
+    @EventListener(EnvironmentChangeEvent.class)
+    public void onConfigurationChange() {
+        log.info("Rate limit configuration changed, resetting route quotas");
+        routes.clear();
+    }
+
+    private RouteBuckets createRouteBuckets(String routeId) {
+        return new RouteBuckets(rateLimitConfiguration.getQuota(routeId));
+    }
+
+    private static final class RouteBuckets {
+        private final RateLimitConfiguration.Quota quota;
+        private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        private RouteBuckets(RateLimitConfiguration.Quota quota) {
+            this.quota = quota;
+        }
+    }
+}
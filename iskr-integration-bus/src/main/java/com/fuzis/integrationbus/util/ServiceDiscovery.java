@@ -9,9 +9,10 @@ import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class ServiceDiscovery
@@ -23,15 +24,39 @@ public class ServiceDiscovery
         this.sdConfiguration = sdConfiguration;
     }
 
-    private final Map<String,Integer> round_robin_counter = new HashMap<>();
+    private final Map<String, AtomicInteger> round_robin_counter = new ConcurrentHashMap<>();
 
-    private synchronized Integer getNextCounterVal(String service){
-        if(!round_robin_counter.containsKey(service))round_robin_counter.put(service,0);
-        if (round_robin_counter.get(service) > 1000000){
-            round_robin_counter.put(service,0);
+    // lock-free so that virtual threads never pin a carrier while picking an instance
+    private Integer getNextCounterVal(String service){
+        return round_robin_counter.computeIfAbsent(service, s -> new AtomicInteger())
+                .updateAndGet(val -> val > 1000000 ? 1 : val + 1);
+    }
+
+    private static final Map<String, String> SERVICE_NAMES = Map.of(
+            "Accounts", "AccountsBackend",
+            "Integration", "IntegrationBus",
+            "Search", "SearchService",
+            "Books", "BooksBackend",
+            "Images", "ImageService"
+    );
+
+    /**
+     * Url of an instance of the given {@code X-Service} other than {@code excludeUrl},
+     * or null when the service has no second instance.
+     */
+    public String getAlternateUrl(String service, String excludeUrl) {
+        List<ServiceInstance> list = sdConfiguration.getDiscovery().get(SERVICE_NAMES.get(service));
+        if (list == null || list.size() < 2) {
+            return null;
+        }
+        int start = getNextCounterVal(SERVICE_NAMES.get(service));
+        for (int i = 0; i < list.size(); i++) {
+            String url = list.get((start + i) % list.size()).getUri().toString();
+            if (!url.equals(excludeUrl)) {
+                return url;
+            }
         }
-        round_robin_counter.put(service,round_robin_counter.get(service) + 1);
-        return round_robin_counter.get(service);
+        return null;
     }
 
     private String getServiceUrl(String service) throws ServiceDiscoveryFailed {
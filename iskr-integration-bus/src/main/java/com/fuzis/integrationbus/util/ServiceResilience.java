@@ -0,0 +1,201 @@
+package com.fuzis.integrationbus.util;
+
+import com.fuzis.integrationbus.configuration.ResilienceConfiguration;
+import com.fuzis.integrationbus.exception.ServiceFall;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-service circuit breaker, bulkhead and latency tracking for backend calls.
+ * Guards are keyed by the {@code X-Service} header value and created lazily from
+ * {@link ResilienceConfiguration}.
+ */
+@Component
+public class ServiceResilience {
+
+    public static final String PERMIT_PROPERTY = "ResiliencePermit";
+
+    private static final int LATENCY_WINDOW_SIZE = 256;
+
+    private static final int LATENCY_RECALC_INTERVAL = 32;
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ResilienceConfiguration resilienceConfiguration;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ServiceGuard> guards = new ConcurrentHashMap<>();
+
+    public ServiceResilience(@Autowired ResilienceConfiguration resilienceConfiguration, @Autowired MeterRegistry meterRegistry) {
+        this.resilienceConfiguration = resilienceConfiguration;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Permit acquire(String service) throws ServiceFall {
+        ServiceGuard guard = getGuard(service);
+        if (!guard.breaker.tryAcquirePermission()) {
+            guard.circuitRejected.increment();
+            throw new ServiceFall("Circuit breaker is open for service: " + service);
+        }
+        boolean admitted;
+        try {
+            admitted = guard.policy.maxWaitMs() > 0
+                    ? guard.bulkhead.tryAcquire(guard.policy.maxWaitMs(), TimeUnit.MILLISECONDS)
+                    : guard.bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            guard.breaker.releasePermission();
+            guard.bulkheadRejected.increment();
+            throw new ServiceFall("Too many concurrent calls to service: " + service);
+        }
+        return new Permit(guard, System.nanoTime());
+    }
+
+    public void release(Permit permit, boolean failed) {
+        if (!permit.released.compareAndSet(false, true)) {
+            return;
+        }
+        ServiceGuard guard = permit.guard;
+        long durationNanos = System.nanoTime() - permit.startNanos;
+        guard.bulkhead.release();
+        guard.breaker.onResult(failed, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        guard.latency.record(durationNanos);
+        (failed ? guard.failedCalls : guard.successfulCalls).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Delay after which a hedged request should be sent, or -1 when hedging is
+     * disabled for the service or there are not enough samples for a stable p95.
+     */
+    public long getHedgeDelayMs(String service) {
+        ServiceGuard guard = getGuard(service);
+        if (!guard.policy.hedgingEnabled() || guard.latency.getSamples() < guard.policy.hedgingMinSamples()) {
+            return -1;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(guard.latency.getP95()));
+    }
+
+    public boolean isHedgingApplicable(String service) {
+        return getHedgeDelayMs(service) >= 0;
+    }
+
+    public void recordHedge(String service) {
+        getGuard(service).hedgedCalls.increment();
+    }
+
+    public CircuitBreaker.State getState(String service) {
+        return getGuard(service).breaker.getState();
+    }
+
+    private ServiceGuard getGuard(String service) {
+        return guards.computeIfAbsent(service, this::createGuard);
+    }
+
+    private ServiceGuard createGuard(String service) {
+        ResilienceConfiguration.Policy policy = resilienceConfiguration.getPolicy(service);
+        log.info("Creating resilience guard for service {}: {}", service, policy);
+        ServiceGuard guard = new ServiceGuard(service, policy, meterRegistry);
+        Gauge.builder("integration.bus.circuit.state", guard.breaker, b -> b.getState().ordinal())
+                .description("Circuit breaker state: 0 - closed, 1 - open, 2 - half open")
+                .tag("service", service)
+                .register(meterRegistry);
+        Gauge.builder("integration.bus.bulkhead.available", guard.bulkhead, Semaphore::availablePermits)
+                .tag("service", service)
+                .register(meterRegistry);
+        return guard;
+    }
+
+    public static final class Permit {
+        private final ServiceGuard guard;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(ServiceGuard guard, long startNanos) {
+            this.guard = guard;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static final class ServiceGuard {
+        private final ResilienceConfiguration.Policy policy;
+        private final CircuitBreaker breaker;
+        private final Semaphore bulkhead;
+        private final LatencyWindow latency = new LatencyWindow();
+        private final Counter circuitRejected;
+        private final Counter bulkheadRejected;
+        private final Counter hedgedCalls;
+        private final Timer successfulCalls;
+        private final Timer failedCalls;
+
+        private ServiceGuard(String service, ResilienceConfiguration.Policy policy, MeterRegistry registry) {
+            this.policy = policy;
+            this.breaker = new CircuitBreaker(policy);
+            this.bulkhead = new Semaphore(policy.maxConcurrentCalls());
+            this.circuitRejected = Counter.builder("integration.bus.backend.rejected")
+                    .tag("service", service).tag("reason", "circuit_open").register(registry);
+            this.bulkheadRejected = Counter.builder("integration.bus.backend.rejected")
+                    .tag("service", service).tag("reason", "bulkhead_full").register(registry);
+            this.hedgedCalls = Counter.builder("integration.bus.backend.hedged")
+                    .tag("service", service).register(registry);
+            this.successfulCalls = Timer.builder("integration.bus.backend.calls")
+                    .tag("service", service).tag("outcome", "success").register(registry);
+            this.failedCalls = Timer.builder("integration.bus.backend.calls")
+                    .tag("service", service).tag("outcome", "failure").register(registry);
+        }
+    }
+
+    private static final class LatencyWindow {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] samples = new long[LATENCY_WINDOW_SIZE];
+        private int position = 0;
+        private volatile int count = 0;
+        private int sinceRecalc = 0;
+        private volatile long p95 = 0;
+
+        private void record(long nanos) {
+            long[] snapshot = null;
+            lock.lock();
+            try {
+                samples[position] = nanos;
+                position = (position + 1) % samples.length;
+                if (count < samples.length) count++;
+                if (++sinceRecalc >= LATENCY_RECALC_INTERVAL) {
+                    sinceRecalc = 0;
+                    snapshot = Arrays.copyOf(samples, count);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (snapshot != null) {
+                Arrays.sort(snapshot);
+                p95 = snapshot[(int) Math.ceil(snapshot.length * 0.95) - 1];
+            }
+        }
+
+        private int getSamples() {
+            return count;
+        }
+
+        private long getP95() {
+            return p95;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.fuzis.integrationbus.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Instead of a token count it keeps the theoretical arrival
+ * time of the next request (GCRA), so a take is a single CAS on one long.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+
+    private final long burstNanos;
+
+    private final AtomicLong nextFree;
+
+    public TokenBucket(int capacity, double refillPerSecond) {
+        this.intervalNanos = (long) (1_000_000_000L / refillPerSecond);
+        this.burstNanos = intervalNanos * Math.max(0, capacity - 1);
+        this.nextFree = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    public boolean tryConsume() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = nextFree.get();
+            long base = Math.max(current, now);
+            if (base - now > burstNanos) {
+                return false;
+            }
+            if (nextFree.compareAndSet(current, base + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A bucket that has fully refilled behaves exactly like a new one and can be dropped.
+     */
+    public boolean isFull() {
+        return nextFree.get() - System.nanoTime() <= -burstNanos;
+    }
+}
@@ -0,0 +1,44 @@
+package com.fuzis.integrationbus.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultBootstrapContext;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VirtualThreadsInitializerTest {
+
+    private static final String CAMEL_VIRTUAL_THREADS_PROPERTY = "camel.threads.virtual.enabled";
+
+    private final VirtualThreadsInitializer initializer = new VirtualThreadsInitializer();
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(CAMEL_VIRTUAL_THREADS_PROPERTY);
+    }
+
+    @Test
+    void enablesCamelVirtualThreadsWithSpring() {
+        initializer.onApplicationEvent(event(new MockEnvironment()
+                .withProperty("spring.threads.virtual.enabled", "true")));
+
+        assertEquals("true", System.getProperty(CAMEL_VIRTUAL_THREADS_PROPERTY));
+    }
+
+    @Test
+    void disablesCamelVirtualThreadsByDefault() {
+        System.setProperty(CAMEL_VIRTUAL_THREADS_PROPERTY, "true");
+
+        initializer.onApplicationEvent(event(new MockEnvironment()));
+
+        assertEquals("false", System.getProperty(CAMEL_VIRTUAL_THREADS_PROPERTY));
+    }
+
+    private static ApplicationEnvironmentPreparedEvent event(MockEnvironment environment) {
+        return new ApplicationEnvironmentPreparedEvent(new DefaultBootstrapContext(), new SpringApplication(),
+                new String[0], environment);
+    }
+}
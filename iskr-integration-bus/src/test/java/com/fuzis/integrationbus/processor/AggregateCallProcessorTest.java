@@ -0,0 +1,179 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuzis.integrationbus.model.AggregateLeg;
+import com.fuzis.integrationbus.util.CallCancellation;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.http.HttpComponent;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AggregateCallProcessorTest {
+
+    private HttpServer slowServer;
+
+    private HttpServer fastServer;
+
+    private HttpServer sleepyServer;
+
+    private CamelContext camelContext;
+
+    private final CountDownLatch slowResponseAborted = new CountDownLatch(1);
+
+    private final AtomicInteger chargedLegs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // streams its answer for two seconds; a write fails once the client drops the connection
+        slowServer = server(exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 40; i++) {
+                    body.write(" ".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    Thread.sleep(50);
+                }
+            } catch (IOException e) {
+                slowResponseAborted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        fastServer = server(exchange -> {
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+
+        // answers after 300 ms, like a backend under load
+        sleepyServer = server(exchange -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+
+        camelContext = new DefaultCamelContext();
+        HttpComponent http = camelContext.getComponent("http", HttpComponent.class);
+        http.setConnectionsPerRoute(64);
+        CallCancellation.install(http);
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:sd-call")
+                        .process(exchange -> {
+                            if (exchange.getProperty(AdmissionProcessor.RATE_LIMIT_PENDING) != null) {
+                                chargedLegs.incrementAndGet();
+                            }
+                        })
+                        .process(exchange -> exchange.getIn().setHeader("X-Service-Url",
+                                url(switch (exchange.getIn().getHeader("X-Service", String.class)) {
+                                    case "slow" -> slowServer;
+                                    case "sleepy" -> sleepyServer;
+                                    default -> fastServer;
+                                })))
+                        .toD("${header.X-Service-Url}/${header.X-Service-Request}?bridgeEndpoint=true&throwExceptionOnFailure=false");
+            }
+        });
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+        slowServer.stop(0);
+        fastServer.stop(0);
+        sleepyServer.stop(0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void abortsTimedOutLeg() throws Exception {
+        AggregateCallProcessor processor = new AggregateCallProcessor(camelContext, new UnmarshallProcessor(new ObjectMapper()));
+        Exchange exchange = new DefaultExchange(camelContext);
+
+        processor.legs(
+                new AggregateLeg("book", "fast", "books/1"),
+                new AggregateLeg("reviews", "slow", "reviews/1", 200)
+        ).process(exchange);
+
+        Map<String, Object> envelope = exchange.getIn().getBody(Map.class);
+        Map<String, Object> legs = (Map<String, Object>) envelope.get("legs");
+        assertEquals(true, envelope.get("partial"));
+        assertEquals(200, ((Map<String, Object>) legs.get("book")).get("status"));
+        assertEquals(504, ((Map<String, Object>) legs.get("reviews")).get("status"));
+        assertTrue(slowResponseAborted.await(1, TimeUnit.SECONDS), "timed out leg was not aborted");
+    }
+
+    @Test
+    void legsDoNotInheritPendingRateLimitCharge() throws Exception {
+        AggregateCallProcessor processor = new AggregateCallProcessor(camelContext, new UnmarshallProcessor(new ObjectMapper()));
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.setProperty(AdmissionProcessor.RATE_LIMIT_PENDING, true);
+
+        processor.legs(
+                new AggregateLeg("book", "fast", "books/1"),
+                new AggregateLeg("reviews", "fast", "reviews/1")
+        ).process(exchange);
+
+        assertEquals(0, chargedLegs.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void runsMoreLegsThanCoreThreadsAtOnce() throws Exception {
+        AggregateCallProcessor processor = new AggregateCallProcessor(camelContext, new UnmarshallProcessor(new ObjectMapper()));
+        Exchange exchange = new DefaultExchange(camelContext);
+        // four times the core pool: queued behind eight threads the last legs would start after 900 ms
+        AggregateLeg[] legs = new AggregateLeg[32];
+        for (int i = 0; i < legs.length; i++) {
+            legs[i] = new AggregateLeg("leg" + i, "sleepy", "items/" + i, 1000);
+        }
+
+        processor.legs(legs).process(exchange);
+
+        Map<String, Object> envelope = exchange.getIn().getBody(Map.class);
+        Map<String, Object> results = (Map<String, Object>) envelope.get("legs");
+        assertEquals(false, envelope.get("partial"));
+        for (int i = 0; i < legs.length; i++) {
+            assertEquals(200, ((Map<String, Object>) results.get("leg" + i)).get("status"), "leg" + i);
+        }
+    }
+
+    private static HttpServer server(com.sun.net.httpserver.HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", handler);
+        server.start();
+        return server;
+    }
+
+    private static String url(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
@@ -0,0 +1,62 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fuzis.integrationbus.exception.AuthorizationException;
+import com.fuzis.integrationbus.model.RoutePolicy;
+import com.fuzis.integrationbus.model.UserInfo;
+import com.fuzis.integrationbus.util.JwtValidator;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthHeaderProcessorTest {
+
+    private static final String TOKEN = "Bearer token";
+
+    private final JwtValidator jwtValidator = mock(JwtValidator.class);
+
+    private final AuthHeaderProcessor processor = new AuthHeaderProcessor(jwtValidator, mock(TokenRefreshProcessor.class));
+
+    private Exchange exchange;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(jwtValidator.extractUserInfo(TOKEN)).thenReturn(UserInfo.builder()
+                .subject("sso-1")
+                .userId("1")
+                .realmRoles(List.of("user"))
+                .clientRoles(List.of())
+                .build());
+        exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setHeader("Authorization", TOKEN);
+    }
+
+    @Test
+    void admitsUserWithRequiredRoles() throws Exception {
+        exchange.setProperty(RoutePolicy.PROPERTY, RoutePolicy.create().requireRoles("user"));
+
+        processor.process(exchange);
+
+        assertEquals("1", exchange.getIn().getHeader("X-User-ID"));
+    }
+
+    @Test
+    void rejectsUserWithoutRequiredRoles() {
+        exchange.setProperty(RoutePolicy.PROPERTY, RoutePolicy.create().requireRoles("admin"));
+
+        assertThrows(AuthorizationException.class, () -> processor.process(exchange));
+    }
+
+    @Test
+    void rejectsRouteWithoutPolicy() {
+        assertThrows(AuthorizationException.class, () -> processor.process(exchange));
+    }
+}
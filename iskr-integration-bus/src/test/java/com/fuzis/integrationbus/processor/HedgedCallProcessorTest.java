@@ -0,0 +1,109 @@
+package com.fuzis.integrationbus.processor;
+
+import com.fuzis.integrationbus.configuration.ResilienceConfiguration;
+import com.fuzis.integrationbus.util.CallCancellation;
+import com.fuzis.integrationbus.util.ServiceDiscovery;
+import com.fuzis.integrationbus.util.ServiceResilience;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.component.http.HttpComponent;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HedgedCallProcessorTest {
+
+    private HttpServer slowServer;
+
+    private HttpServer fastServer;
+
+    private CamelContext camelContext;
+
+    private final CountDownLatch slowResponseAborted = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // streams its answer for two seconds; a write fails once the client drops the connection
+        slowServer = server(exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 40; i++) {
+                    body.write("slow".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    Thread.sleep(50);
+                }
+            } catch (IOException e) {
+                slowResponseAborted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        fastServer = server(exchange -> {
+            byte[] body = "fast".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+
+        camelContext = new DefaultCamelContext();
+        CallCancellation.install(camelContext.getComponent("http", HttpComponent.class));
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+        slowServer.stop(0);
+        fastServer.stop(0);
+    }
+
+    @Test
+    void cancelsLosingRequest() throws Exception {
+        ServiceResilience resilience = new ServiceResilience(new ResilienceConfiguration(new MockEnvironment()
+                .withProperty("resilience.default.hedging-enabled", "true")
+                .withProperty("resilience.default.hedging-min-samples", "0")), new SimpleMeterRegistry());
+        ServiceDiscovery discovery = mock(ServiceDiscovery.class);
+        when(discovery.getAlternateUrl("books", url(slowServer))).thenReturn(url(fastServer));
+        HedgedCallProcessor processor = new HedgedCallProcessor(camelContext, discovery, resilience);
+
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setHeader("X-Service", "books");
+        exchange.getIn().setHeader("X-Service-Url", url(slowServer));
+        exchange.getIn().setHeader("X-Service-Request", "books/1");
+        exchange.getIn().setHeader(Exchange.HTTP_METHOD, "GET");
+        processor.process(exchange);
+
+        assertEquals("fast", exchange.getMessage().getBody(String.class));
+        assertTrue(slowResponseAborted.await(1, TimeUnit.SECONDS), "losing request was not aborted");
+    }
+
+    private static HttpServer server(com.sun.net.httpserver.HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", handler);
+        server.start();
+        return server;
+    }
+
+    private static String url(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
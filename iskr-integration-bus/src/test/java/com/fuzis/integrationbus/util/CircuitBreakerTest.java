@@ -0,0 +1,112 @@
+package com.fuzis.integrationbus.util;
+
+import com.fuzis.integrationbus.configuration.ResilienceConfiguration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_STATE_DURATION_MS = 50;
+
+    private final CircuitBreaker breaker = new CircuitBreaker(new ResilienceConfiguration.Policy(
+            10, 4, 50, 80, 1000, OPEN_STATE_DURATION_MS, 2, 8, 0, false, 0));
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        for (int i = 0; i < 3; i++) {
+            call(true, 0);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensWhenFailureRateCrossesThreshold() {
+        call(false, 0);
+        call(false, 0);
+        call(true, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        call(true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void opensWhenSlowCallRateCrossesThreshold() {
+        for (int i = 0; i < 4; i++) {
+            call(false, 1000);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void forgetsCallsThatLeftTheWindow() {
+        call(true, 0);
+        for (int i = 0; i < 10; i++) {
+            call(false, 0);
+        }
+        call(true, 0);
+        call(true, 0);
+        call(true, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        call(true, 0);
+        call(true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void limitsTrialCallsWhenHalfOpen() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_STATE_DURATION_MS + 10);
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.releasePermission();
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void closesWhenTrialCallsPass() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_STATE_DURATION_MS + 10);
+
+        call(false, 0);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        call(false, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // the window starts over after closing
+        call(true, 0);
+        call(true, 0);
+        call(true, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void reopensWhenTrialCallsFail() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_STATE_DURATION_MS + 10);
+
+        call(true, 0);
+        call(false, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(true, 0);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void call(boolean failed, long durationMs) {
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onResult(failed, durationMs);
+    }
+}
@@ -0,0 +1,104 @@
+package com.fuzis.integrationbus.util;
+
+import com.fuzis.integrationbus.configuration.ResilienceConfiguration;
+import com.fuzis.integrationbus.exception.ServiceFall;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceResilienceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ServiceResilience resilience = new ServiceResilience(new ResilienceConfiguration(new MockEnvironment()
+            .withProperty("resilience.default.max-concurrent-calls", "2")
+            .withProperty("resilience.default.minimum-calls", "2")
+            .withProperty("resilience.default.open-state-duration-ms", "60000")
+            .withProperty("resilience.services.slow.max-wait-ms", "100")
+            .withProperty("resilience.services.hedged.hedging-enabled", "true")
+            .withProperty("resilience.services.hedged.hedging-min-samples", "32")), meterRegistry);
+
+    @Test
+    void bulkheadRejectsCallsAboveLimit() throws ServiceFall {
+        ServiceResilience.Permit first = resilience.acquire("books");
+        resilience.acquire("books");
+        assertThrows(ServiceFall.class, () -> resilience.acquire("books"));
+        assertEquals(1, rejected("books", "bulkhead_full"));
+
+        resilience.release(first, false);
+        resilience.acquire("books");
+    }
+
+    @Test
+    void bulkheadIsPerService() throws ServiceFall {
+        resilience.acquire("books");
+        resilience.acquire("books");
+        resilience.acquire("accounts");
+    }
+
+    @Test
+    void bulkheadWaitsForReleaseUpToMaxWait() throws Exception {
+        ServiceResilience.Permit first = resilience.acquire("slow");
+        resilience.acquire("slow");
+
+        long start = System.nanoTime();
+        assertThrows(ServiceFall.class, () -> resilience.acquire("slow"));
+        assertTrue(System.nanoTime() - start >= 90_000_000L);
+
+        Thread releaser = new Thread(() -> {
+            sleep(20);
+            resilience.release(first, false);
+        });
+        releaser.start();
+        resilience.acquire("slow");
+        releaser.join();
+    }
+
+    @Test
+    void doubleReleaseFreesOneSlot() throws ServiceFall {
+        ServiceResilience.Permit first = resilience.acquire("books");
+        resilience.release(first, false);
+        resilience.release(first, false);
+        resilience.acquire("books");
+        resilience.acquire("books");
+        assertThrows(ServiceFall.class, () -> resilience.acquire("books"));
+    }
+
+    @Test
+    void openCircuitRejectsCalls() throws ServiceFall {
+        resilience.release(resilience.acquire("books"), true);
+        resilience.release(resilience.acquire("books"), true);
+
+        assertEquals(CircuitBreaker.State.OPEN, resilience.getState("books"));
+        assertThrows(ServiceFall.class, () -> resilience.acquire("books"));
+        assertEquals(1, rejected("books", "circuit_open"));
+    }
+
+    @Test
+    void hedgingWaitsForEnoughSamples() throws ServiceFall {
+        assertEquals(-1, resilience.getHedgeDelayMs("books"));
+        for (int i = 0; i < 31; i++) {
+            resilience.release(resilience.acquire("hedged"), false);
+        }
+        assertEquals(-1, resilience.getHedgeDelayMs("hedged"));
+        resilience.release(resilience.acquire("hedged"), false);
+        assertTrue(resilience.isHedgingApplicable("hedged"));
+    }
+
+    private double rejected(String service, String reason) {
+        return meterRegistry.get("integration.bus.backend.rejected")
+                .tag("service", service).tag("reason", reason).counter().count();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.fuzis.mailer;
+
+import com.fuzis.mailer.service.EmailTemplateRenderer;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Per-message cost of rendering the verification mail through {@link SpringTemplateEngine} with a
+ * fresh {@link Context} (what EmailService did before) against {@link EmailTemplateRenderer}.
+ * The JUnit test runs a short JMH session with the GC profiler and prints time and bytes per op.
+ * Not part of {@code mvn test}; run it with {@code mvn -Pbenchmark test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmailRenderingBenchmark {
+
+    private static final String TEMPLATE = "verify-email";
+
+    private SpringTemplateEngine engine;
+
+    private EmailTemplateRenderer renderer;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        renderer = new EmailTemplateRenderer(engine);
+        renderer.precompile(TEMPLATE);
+        token = UUID.randomUUID().toString();
+    }
+
+    private Map<String, Object> variables() {
+        Map<String, Object> variables = new HashMap<>(4);
+        variables.put("token", token);
+        variables.put("url", "http://localhost:5000/validate-email/" + token);
+        return variables;
+    }
+
+    @Benchmark
+    public String templateEngine() {
+        Context context = new Context();
+        context.setVariables(variables());
+        return engine.process(TEMPLATE, context);
+    }
+
+    @Benchmark
+    public String precompiled() {
+        return renderer.render(TEMPLATE, variables());
+    }
+
+    @Test
+    void precompiledIsFaster() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(EmailRenderingBenchmark.class.getName())
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(500))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.milliseconds(500))
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Double> time = new HashMap<>();
+        Map<String, Double> alloc = new HashMap<>();
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark();
+            name = name.substring(name.lastIndexOf('.') + 1);
+            time.put(name, result.getPrimaryResult().getScore());
+            alloc.put(name, result.getSecondaryResults().get("gc.alloc.rate.norm").getScore());
+        }
+        for (String name : time.keySet()) {
+            System.out.printf("%-15s %8.2f us/op %10.0f B/op%n", name, time.get(name), alloc.get(name));
+        }
+
+        assertTrue(time.get("precompiled") < time.get("templateEngine"));
+        assertTrue(alloc.get("precompiled") < alloc.get("templateEngine"));
+    }
+}
@@ -1,15 +1,113 @@
 package com.fuzis.mailer.config;
 
+import com.fuzis.mailer.messaging.EmailRetryPublisher;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig
 {
+    @Value("${mailer.listener.concurrency:2}")
+    private int concurrency;
+
+    @Value("${mailer.listener.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${mailer.listener.prefetch:50}")
+    private int prefetch;
+
+    @Value("${mailer.listener.batch-size:20}")
+    private int batchSize;
+
+    @Value("${mailer.listener.batch-receive-timeout-ms:200}")
+    private long batchReceiveTimeoutMs;
+
+    @Value("${mailer.listener.max-in-flight:200}")
+    private int maxInFlight;
+
+    @Value("${rabbitmq.rabbit_messaging_queue_email}")
+    private String emailQueue;
+
+    @Value("${mailer.retry.max-attempts:5}")
+    private int retryMaxAttempts;
+
+    @Value("${mailer.retry.initial-delay:PT5S}")
+    private Duration retryInitialDelay;
+
+    @Value("${mailer.retry.multiplier:4}")
+    private double retryMultiplier;
+
+    @Value("${mailer.retry.max-delay:PT1H}")
+    private Duration retryMaxDelay;
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
+
+    /**
+     * Each consumer collects up to {@code batch-size} messages (or whatever arrived within
+     * {@code batch-receive-timeout-ms}) and hands them over as one list, so a batch goes out
+     * over a single SMTP connection.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory emailListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(concurrency);
+        int consumers = Math.max(concurrency, maxConcurrency);
+        factory.setMaxConcurrentConsumers(consumers);
+        // A batch can only fill up if the broker has pushed at least that many messages,
+        // but all consumers together never hold more than max-in-flight unacked messages
+        int window = Math.max(batchSize, Math.min(prefetch, maxInFlight / consumers));
+        factory.setPrefetchCount(window);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchReceiveTimeoutMs);
+        // The listener acks every message of the batch itself once its outcome is known, so a
+        // failure late in the batch cannot reject messages that were already mailed
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        // Anything the listener rejects goes to the dead-letter exchange of the queue instead of
+        // being redelivered in a tight loop
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    /**
+     * One delay queue per attempt, with the delay growing by {@code mailer.retry.multiplier}.
+     * A single queue with per-message TTLs would hold short delays behind long ones, since
+     * RabbitMQ only expires messages at the head of a queue.
+     */
+    @Bean
+    public Declarables emailRetryQueues() {
+        List<Declarable> queues = new ArrayList<>(retryMaxAttempts);
+        double delay = retryInitialDelay.toMillis();
+        for (int attempt = 1; attempt <= retryMaxAttempts; attempt++) {
+            long ttl = (long) Math.min(delay, retryMaxDelay.toMillis());
+            queues.add(QueueBuilder.durable(EmailRetryPublisher.retryQueueName(emailQueue, attempt))
+                    .ttl((int) ttl)
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(emailQueue)
+                    .build());
+            delay *= retryMultiplier;
+        }
+        return new Declarables(queues);
+    }
 }
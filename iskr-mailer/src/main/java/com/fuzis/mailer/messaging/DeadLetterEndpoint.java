@@ -0,0 +1,83 @@
+package com.fuzis.mailer.messaging;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replay tooling for the email dead-letter queue: {@code GET /actuator/deadletters} shows how many
+ * messages are parked, {@code POST /actuator/deadletters} with {@code {"limit": n}} moves up to n of
+ * them back into the email queue with a fresh retry budget. Not in the default exposure list; add
+ * it to {@code management.endpoints.web.exposure.include} while replaying.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "deadletters")
+public class DeadLetterEndpoint {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final AmqpAdmin amqpAdmin;
+
+    private final String queue;
+
+    private final String deadLetterQueue;
+
+    public DeadLetterEndpoint(RabbitTemplate rabbitTemplate,
+                              AmqpAdmin amqpAdmin,
+                              @Value("${rabbitmq.rabbit_messaging_queue_email}") String queue,
+                              @Value("${mailer.dead-letter.queue:iskr.out_msg_mail.dead}") String deadLetterQueue) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.amqpAdmin = amqpAdmin;
+        this.queue = queue;
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        QueueInformation info = amqpAdmin.getQueueInfo(deadLetterQueue);
+        Map<String, Object> status = new HashMap<>();
+        status.put("queue", deadLetterQueue);
+        status.put("messages", info != null ? info.getMessageCount() : 0);
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> replay(@Nullable Integer limit) {
+        int max = limit != null ? limit : 100;
+        Integer replayed = rabbitTemplate.execute(channel -> {
+            int count = 0;
+            while (count < max) {
+                GetResponse response = channel.basicGet(deadLetterQueue, false);
+                if (response == null) {
+                    break;
+                }
+                AMQP.BasicProperties props = response.getProps();
+                Map<String, Object> headers = props.getHeaders() != null ? new HashMap<>(props.getHeaders()) : new HashMap<>();
+                headers.remove(EmailRetryPublisher.RETRY_COUNT_HEADER);
+                headers.remove("x-death");
+                // Сначала публикуем, потом подтверждаем: при сбое сообщение остаётся в очереди
+                channel.basicPublish("", queue, props.builder().headers(headers).build(), response.getBody());
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                count++;
+            }
+            return count;
+        });
+        log.info("Replayed {} dead-lettered email messages", replayed);
+        Map<String, Object> result = new HashMap<>(status());
+        result.put("replayed", replayed);
+        return result;
+    }
+}
@@ -1,12 +1,23 @@
 package com.fuzis.mailer.messaging;
 
 import com.fuzis.mailer.service.EmailService;
+import com.fuzis.mailer.service.SentMessageRegistry;
+import com.fuzis.mailer.transfer.messaging.DeliveryResult;
 import com.fuzis.mailer.transfer.messaging.EmailDTO;
+import com.rabbitmq.client.Channel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -14,16 +25,99 @@ public class EmailMessageListener {
 
     private final EmailService emailService;
 
-    @RabbitListener(queues = "${rabbitmq.rabbit_messaging_queue_email}")
-    public void handleEmailMessage(EmailDTO emailDTO) {
+    private final MessageConverter messageConverter;
+
+    private final EmailRetryPublisher retryPublisher;
+
+    private final SentMessageRegistry sentMessageRegistry;
+
+    /**
+     * Acks every message individually once it is sent, skipped as a duplicate or rerouted to a retry
+     * or dead-letter queue. Only a message that was not sent and could not be rerouted is rejected,
+     * which dead-letters it through the queue's policy.
+     */
+    @RabbitListener(queues = "${rabbitmq.rabbit_messaging_queue_email}",
+            containerFactory = "emailListenerContainerFactory")
+    public void handleEmailMessages(List<Message> messages, Channel channel) {
+        List<EmailDTO> emails = new ArrayList<>(messages.size());
+        Map<EmailDTO, Message> sources = new IdentityHashMap<>();
+        Map<EmailDTO, String> keys = new IdentityHashMap<>();
+        for (Message message : messages) {
+            EmailDTO emailDTO;
+            try {
+                message.getMessageProperties().setInferredArgumentType(EmailDTO.class);
+                emailDTO = (EmailDTO) messageConverter.fromMessage(message);
+            } catch (Exception e) {
+                // Битое сообщение не должно ронять всю пачку
+                log.error("Unreadable email message {}", message.getMessageProperties().getMessageId(), e);
+                reroute(channel, message, true, e);
+                continue;
+            }
+            String key = SentMessageRegistry.keyOf(message.getMessageProperties().getMessageId(), emailDTO);
+            if (!sentMessageRegistry.begin(key)) {
+                log.info("Skipping duplicate email message for: {}", emailDTO.getEmail());
+                ack(channel, message);
+                continue;
+            }
+            emails.add(emailDTO);
+            sources.put(emailDTO, message);
+            keys.put(emailDTO, key);
+        }
+        if (emails.isEmpty()) {
+            return;
+        }
+        log.info("Received batch of {} email messages", emails.size());
+
+        List<DeliveryResult> results;
         try {
-            log.info("Received email message for: {}, type: {}",
-                    emailDTO.getEmail(), emailDTO.getType());
+            results = emailService.sendBatch(emails);
+        } catch (RuntimeException e) {
+            log.error("Email batch failed", e);
+            for (EmailDTO emailDTO : emails) {
+                sentMessageRegistry.abort(keys.get(emailDTO));
+                nack(channel, sources.get(emailDTO));
+            }
+            return;
+        }
+        for (DeliveryResult result : results) {
+            EmailDTO emailDTO = result.email();
+            Message source = sources.get(emailDTO);
+            if (result.sent()) {
+                sentMessageRegistry.complete(keys.get(emailDTO));
+                ack(channel, source);
+                continue;
+            }
+            sentMessageRegistry.abort(keys.get(emailDTO));
+            log.error("Error processing email message for: {}", emailDTO.getEmail(), result.error());
+            reroute(channel, source, result.permanent(), result.error());
+        }
+    }
 
-            emailService.sendEmail(emailDTO);
-            log.info("Successfully processed email for: {}", emailDTO.getEmail());
+    private void reroute(Channel channel, Message message, boolean permanent, Exception error) {
+        try {
+            retryPublisher.reject(message, permanent, error);
         } catch (Exception e) {
-            log.error("Error processing email message for: {}", emailDTO.getEmail(), e);
+            log.error("Failed to reroute email message {}", message.getMessageProperties().getMessageId(), e);
+            nack(channel, message);
+            return;
+        }
+        ack(channel, message);
+    }
+
+    private void ack(Channel channel, Message message) {
+        try {
+            channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+        } catch (IOException e) {
+            // Канал закрыт: брокер сам вернёт сообщение в очередь, повтор отсеет реестр отправленных
+            log.warn("Failed to ack email message {}", message.getMessageProperties().getMessageId(), e);
+        }
+    }
+
+    private void nack(Channel channel, Message message) {
+        try {
+            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
+        } catch (IOException e) {
+            log.warn("Failed to reject email message {}", message.getMessageProperties().getMessageId(), e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.fuzis.mailer.messaging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports the backlog of the email queue. Polled on a schedule rather than from the gauge itself,
+ * so a scrape never waits on a broker round trip.
+ */
+@Slf4j
+@Component
+@EnableScheduling
+public class EmailQueueMonitor {
+
+    private final AmqpAdmin amqpAdmin;
+
+    private final String queue;
+
+    private final AtomicLong depth = new AtomicLong();
+
+    private final AtomicLong consumers = new AtomicLong();
+
+    public EmailQueueMonitor(AmqpAdmin amqpAdmin,
+                             MeterRegistry meterRegistry,
+                             @Value("${rabbitmq.rabbit_messaging_queue_email}") String queue) {
+        this.amqpAdmin = amqpAdmin;
+        this.queue = queue;
+        meterRegistry.gauge("mailer.queue.depth", depth);
+        meterRegistry.gauge("mailer.queue.consumers", consumers);
+    }
+
+    @Scheduled(fixedDelayString = "${mailer.queue-depth.poll-interval:PT15S}")
+    public void poll() {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(queue);
+            if (info != null) {
+                depth.set(info.getMessageCount());
+                consumers.set(info.getConsumerCount());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read depth of queue {}", queue, e);
+        }
+    }
+}
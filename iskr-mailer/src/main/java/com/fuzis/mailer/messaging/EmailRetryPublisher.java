@@ -0,0 +1,85 @@
+package com.fuzis.mailer.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves failed messages out of the email queue: transient failures into the delay queue of
+ * their next attempt, which dead-letters them back into the email queue once its TTL expires,
+ * and exhausted or permanent failures into the dead-letter exchange.
+ */
+@Slf4j
+@Component
+public class EmailRetryPublisher {
+
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+
+    public static final String LAST_ERROR_HEADER = "x-last-error";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final String queue;
+
+    private final String deadLetterExchange;
+
+    private final int maxAttempts;
+
+    private final Counter retried;
+
+    private final Counter deadLettered;
+
+    public EmailRetryPublisher(RabbitTemplate rabbitTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${rabbitmq.rabbit_messaging_queue_email}") String queue,
+                               @Value("${mailer.dead-letter.exchange:iskr.out_msg_mail.dlx}") String deadLetterExchange,
+                               @Value("${mailer.retry.max-attempts:5}") int maxAttempts) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.queue = queue;
+        this.deadLetterExchange = deadLetterExchange;
+        this.maxAttempts = maxAttempts;
+        this.retried = Counter.builder("mailer.delivery.retried").register(meterRegistry);
+        this.deadLettered = Counter.builder("mailer.delivery.dead_lettered").register(meterRegistry);
+    }
+
+    public static String retryQueueName(String queue, int attempt) {
+        return queue + ".retry." + attempt;
+    }
+
+    public static int retryCount(Message message) {
+        Object value = message.getMessageProperties().getHeader(RETRY_COUNT_HEADER);
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    /**
+     * Schedules the next attempt, or dead-letters the message when it is permanent or out of attempts.
+     */
+    public void reject(Message message, boolean permanent, Exception error) {
+        int attempt = retryCount(message) + 1;
+        MessageProperties properties = message.getMessageProperties();
+        properties.setHeader(LAST_ERROR_HEADER, describe(error));
+        if (permanent || attempt > maxAttempts) {
+            rabbitTemplate.send(deadLetterExchange, queue, message);
+            deadLettered.increment();
+            log.warn("Email message {} dead-lettered after {} attempts", properties.getMessageId(), attempt);
+            return;
+        }
+        properties.setHeader(RETRY_COUNT_HEADER, attempt);
+        // Ждёт в очереди с TTL своей попытки и возвращается в основную очередь через default exchange
+        rabbitTemplate.send("", retryQueueName(queue, attempt), message);
+        retried.increment();
+    }
+
+    private static String describe(Exception error) {
+        if (error == null) {
+            return "unknown";
+        }
+        String text = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return text.length() > 512 ? text.substring(0, 512) : text;
+    }
+}
@@ -1,21 +1,31 @@
 package com.fuzis.mailer.service;
 
+import com.fuzis.mailer.transfer.messaging.DeliveryResult;
 import com.fuzis.mailer.transfer.messaging.EmailDTO;
 import com.fuzis.mailer.transfer.messaging.EmailType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.internet.MimeMessage;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -31,23 +41,162 @@ public class EmailService {
     private JavaMailSender mailSender;
 
     @Autowired
-    private TemplateEngine templateEngine;
+    private EmailTemplateRenderer templateRenderer;
+
+    @Autowired
+    private SmtpTransportPool transportPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer deliveryLatency;
+
+    private Counter sentCounter;
+
+    private Counter failedCounter;
+
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    void init() {
+        deliveryLatency = Timer.builder("mailer.delivery.latency")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        sentCounter = Counter.builder("mailer.delivery.sent").register(meterRegistry);
+        failedCounter = Counter.builder("mailer.delivery.failed").register(meterRegistry);
+        batchSizes = DistributionSummary.builder("mailer.delivery.batch.size").register(meterRegistry);
+        for (EmailType type : EmailType.values()) {
+            if (type != EmailType.None) {
+                templateRenderer.precompile(getTemplateName(type));
+            }
+        }
+    }
 
     public void sendEmail(EmailDTO emailDTO) {
-        try {
-            String templateName = getTemplateName(emailDTO.getType());
-            Map<String, Object> variables = prepareTemplateVariables(emailDTO);
+        DeliveryResult result = sendBatch(List.of(emailDTO)).get(0);
+        if (!result.sent()) {
+            throw new RuntimeException("Failed to send email", result.error());
+        }
+    }
 
-            String subject = getSubject(emailDTO.getType());
-            String htmlContent = generateHtmlContent(templateName, variables);
+    /**
+     * Sends the batch over one pooled SMTP connection. Failures are reported per message: a
+     * rejected recipient does not affect the rest, and a dropped connection is replaced once
+     * before the message it failed on is given up. If the replacement fails too, the rest of the
+     * batch is failed without touching the server again.
+     */
+    public List<DeliveryResult> sendBatch(List<EmailDTO> emails) {
+        batchSizes.record(emails.size());
+        List<DeliveryResult> results = new ArrayList<>(emails.size());
+        List<EmailDTO> pending = new ArrayList<>(emails.size());
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        for (EmailDTO emailDTO : emails) {
+            try {
+                messages.add(buildMessage(emailDTO));
+                pending.add(emailDTO);
+            } catch (Exception e) {
+                failedCounter.increment();
+                results.add(DeliveryResult.failed(emailDTO, true, e));
+            }
+        }
+        if (pending.isEmpty()) {
+            return results;
+        }
 
-            sendHtmlMessage(emailDTO.getEmail(), subject, htmlContent);
+        SmtpTransportPool.PooledTransport transport = null;
+        MessagingException outage = null;
+        try {
+            for (int i = 0; i < pending.size(); i++) {
+                EmailDTO emailDTO = pending.get(i);
+                if (outage != null) {
+                    // Сервер недоступен: остаток пачки сразу уходит на повтор
+                    failedCounter.increment();
+                    results.add(DeliveryResult.failed(emailDTO, false, outage));
+                    continue;
+                }
+                boolean retried = false;
+                while (true) {
+                    try {
+                        if (transport == null) {
+                            transport = transportPool.borrow();
+                        }
+                        long start = System.nanoTime();
+                        transport.send(messages.get(i));
+                        deliveryLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        sentCounter.increment();
+                        results.add(DeliveryResult.sent(emailDTO));
+                        log.info("Email sent successfully to: {}", emailDTO.getEmail());
+                        break;
+                    } catch (SendFailedException e) {
+                        // Сервер отверг письмо; соединение остаётся рабочим. Ответ 4xx (ящик переполнен,
+                        // greylisting) временный — такое письмо уходит на повтор, а не в dead letter
+                        failedCounter.increment();
+                        results.add(DeliveryResult.failed(emailDTO, isPermanent(e), e));
+                        break;
+                    } catch (MessagingException e) {
+                        if (transport != null) {
+                            transportPool.release(transport, true);
+                            transport = null;
+                        }
+                        if (retried) {
+                            failedCounter.increment();
+                            results.add(DeliveryResult.failed(emailDTO, false, e));
+                            outage = e;
+                            break;
+                        }
+                        retried = true;
+                    }
+                }
+            }
+        } finally {
+            if (transport != null) {
+                transportPool.release(transport, false);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A rejection is permanent unless the server answered with a 4xx code for the message or for
+     * every failed recipient. Rejections without a code (e.g. an address the client could not parse)
+     * are permanent.
+     */
+    static boolean isPermanent(SendFailedException e) {
+        boolean transientCode = false;
+        for (Exception next = e; next != null;
+             next = next instanceof MessagingException m ? m.getNextException() : null) {
+            int code = returnCode(next);
+            if (code >= 500) {
+                return true;
+            }
+            if (code >= 400) {
+                transientCode = true;
+            }
+        }
+        return !transientCode;
+    }
 
-            log.info("Email sent successfully to: {}", emailDTO.getEmail());
-        } catch (Exception e) {
-            log.error("Failed to send email to: {}", emailDTO.getEmail(), e);
-            throw new RuntimeException("Failed to send email", e);
+    private static int returnCode(Exception e) {
+        if (e instanceof SMTPSendFailedException failed) {
+            return failed.getReturnCode();
+        }
+        if (e instanceof SMTPAddressFailedException failed) {
+            return failed.getReturnCode();
         }
+        if (e instanceof SMTPSenderFailedException failed) {
+            return failed.getReturnCode();
+        }
+        return -1;
+    }
+
+    private MimeMessage buildMessage(EmailDTO emailDTO) throws MessagingException {
+        String templateName = getTemplateName(emailDTO.getType());
+        Map<String, Object> variables = prepareTemplateVariables(emailDTO);
+
+        String subject = getSubject(emailDTO.getType());
+        String htmlContent = generateHtmlContent(templateName, variables);
+
+        return createHtmlMessage(emailDTO.getEmail(), subject, htmlContent);
     }
 
     private String getTemplateName(EmailType type) {
@@ -67,7 +216,7 @@ public class EmailService {
     }
 
     private Map<String, Object> prepareTemplateVariables(EmailDTO emailDTO) {
-        Map<String, Object> variables = new HashMap<>();
+        Map<String, Object> variables = new HashMap<>(4);
         String token = extractToken(emailDTO);
 
         if (token != null) {
@@ -103,18 +252,16 @@ public class EmailService {
     }
 
     private String generateHtmlContent(String templateName, Map<String, Object> variables) {
-        Context context = new Context();
-        context.setVariables(variables);
-        return templateEngine.process(templateName, context);
+        return templateRenderer.render(templateName, variables);
     }
 
-    private void sendHtmlMessage(String to, String subject, String htmlContent) throws MessagingException {
+    private MimeMessage createHtmlMessage(String to, String subject, String htmlContent) throws MessagingException {
         MimeMessage message = mailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
         helper.setTo(to);
         helper.setSubject(subject);
         helper.setText(htmlContent, true);
         helper.setFrom(emailFrom);
-        mailSender.send(message);
+        return message;
     }
 }
\ No newline at end of file
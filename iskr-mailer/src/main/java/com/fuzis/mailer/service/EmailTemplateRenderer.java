@@ -0,0 +1,139 @@
+package com.fuzis.mailer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.unbescape.html.HtmlEscape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders mail templates without going through Thymeleaf per message. Each template is rendered
+ * once at startup with marker values in place of {@link #SLOTS}; the output is split at the markers
+ * into static segments, and a message is rendered by concatenating those segments with the escaped
+ * values. A template is only precompiled if two renders with different markers split identically
+ * and the result matches a real render, i.e. if its markup does not depend on the values. Anything
+ * else (unknown variables, missing values, templates that failed the check) is rendered by the
+ * {@link TemplateEngine}, whose parsed-template cache keeps the templates hot.
+ */
+@Slf4j
+@Component
+public class EmailTemplateRenderer {
+
+    static final List<String> SLOTS = List.of("token", "url");
+
+    private static final Map<String, Object> PROBE_VALUES = Map.of(
+            "token", "probe-token&<\"'>",
+            "url", "https://probe.example/x?a=1&b=<2>\"'");
+
+    private record CompiledTemplate(String[] segments, int[] slots, int staticLength) {
+
+        String render(Object[] values) {
+            StringBuilder html = new StringBuilder(staticLength + 256);
+            for (int i = 0; i < slots.length; i++) {
+                html.append(segments[i]);
+                html.append(values[slots[i]]);
+            }
+            html.append(segments[slots.length]);
+            return html.toString();
+        }
+    }
+
+    private final TemplateEngine templateEngine;
+
+    private final Map<String, CompiledTemplate> compiled = new ConcurrentHashMap<>();
+
+    public EmailTemplateRenderer(TemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+    }
+
+    /**
+     * Parses the template into the engine cache and, when its markup allows, precompiles it.
+     */
+    public void precompile(String templateName) {
+        try {
+            CompiledTemplate first = compile(templateName);
+            CompiledTemplate second = compile(templateName);
+            Object[] probe = new Object[SLOTS.size()];
+            for (int i = 0; i < probe.length; i++) {
+                probe[i] = HtmlEscape.escapeHtml4Xml(PROBE_VALUES.get(SLOTS.get(i)).toString());
+            }
+            if (first == null
+                    || !Arrays.equals(first.segments(), second.segments())
+                    || !Arrays.equals(first.slots(), second.slots())
+                    || !first.render(probe).equals(process(templateName, PROBE_VALUES))) {
+                log.warn("Template {} depends on its values and will be rendered by Thymeleaf", templateName);
+                return;
+            }
+            compiled.put(templateName, first);
+            log.info("Template {} precompiled into {} segments", templateName, first.segments().length);
+        } catch (Exception e) {
+            log.warn("Failed to precompile template {}", templateName, e);
+        }
+    }
+
+    public String render(String templateName, Map<String, Object> variables) {
+        CompiledTemplate template = compiled.get(templateName);
+        if (template == null || variables.size() != SLOTS.size()) {
+            return process(templateName, variables);
+        }
+        Object[] values = new Object[SLOTS.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = variables.get(SLOTS.get(i));
+            if (value == null) {
+                return process(templateName, variables);
+            }
+            values[i] = HtmlEscape.escapeHtml4Xml(value.toString());
+        }
+        return template.render(values);
+    }
+
+    private String process(String templateName, Map<String, Object> variables) {
+        Context context = new Context();
+        context.setVariables(variables);
+        return templateEngine.process(templateName, context);
+    }
+
+    private CompiledTemplate compile(String templateName) {
+        String nonce = UUID.randomUUID().toString().replace("-", "");
+        Map<String, Object> markers = new HashMap<>();
+        for (int i = 0; i < SLOTS.size(); i++) {
+            markers.put(SLOTS.get(i), "iskrslot" + i + "x" + nonce);
+        }
+        String html = process(templateName, markers);
+
+        List<String> segments = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int staticLength = 0;
+        int from = 0;
+        while (true) {
+            int at = html.indexOf("iskrslot", from);
+            if (at < 0) {
+                break;
+            }
+            int slot = Character.digit(html.charAt(at + "iskrslot".length()), 10);
+            String marker = "iskrslot" + slot + "x" + nonce;
+            if (slot < 0 || slot >= SLOTS.size() || !html.startsWith(marker, at)) {
+                // маркер испорчен шаблоном (обрезан, преобразован) — такой шаблон не компилируем
+                return null;
+            }
+            segments.add(html.substring(from, at));
+            staticLength += at - from;
+            slots.add(slot);
+            from = at + marker.length();
+        }
+        segments.add(html.substring(from));
+        staticLength += html.length() - from;
+        return new CompiledTemplate(
+                segments.toArray(String[]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                staticLength);
+    }
+}
@@ -0,0 +1,100 @@
+package com.fuzis.mailer.service;
+
+import com.fuzis.mailer.transfer.messaging.EmailDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which messages this process already handed to SMTP, so a redelivery it receives (a
+ * channel or listener container recovering before the ack, a replay from the dead-letter queue)
+ * does not mail the same token twice. Bounded by size and age.
+ * <p>
+ * Best effort only: the registry lives in memory, so it is empty after a restart and not shared
+ * between mailer instances. Duplicates are kept rare mainly by acknowledging each message as soon
+ * as its outcome is known, see {@code EmailMessageListener}.
+ */
+@Component
+public class SentMessageRegistry {
+
+    private enum State { IN_FLIGHT, SENT }
+
+    private record Entry(State state, long at) {
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private final int maxEntries;
+
+    private final long ttlMs;
+
+    public SentMessageRegistry(@Value("${mailer.idempotency.max-entries:100000}") int maxEntries,
+                               @Value("${mailer.idempotency.ttl:PT24H}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttl.toMillis();
+    }
+
+    /**
+     * Idempotency key of a message: the AMQP message id when the producer set one, otherwise a
+     * digest of the payload. Every email carries a freshly generated token, so equal payloads
+     * mean the same request.
+     */
+    public static String keyOf(String messageId, EmailDTO email) {
+        if (messageId != null && !messageId.isBlank()) {
+            return messageId;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String payload = email.getType() + "|" + email.getEmail() + "|" + email.getContent();
+            return HexFormat.of().formatHex(digest.digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns false when the key was already sent or is being sent by another consumer.
+     */
+    public synchronized boolean begin(String key) {
+        long now = System.currentTimeMillis();
+        evict(now);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return false;
+        }
+        entries.put(key, new Entry(State.IN_FLIGHT, now));
+        return true;
+    }
+
+    public synchronized void complete(String key) {
+        entries.remove(key);
+        entries.put(key, new Entry(State.SENT, System.currentTimeMillis()));
+    }
+
+    public synchronized void abort(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.state() == State.IN_FLIGHT) {
+            entries.remove(key);
+        }
+    }
+
+    private void evict(long now) {
+        // Insertion order is completion order, so the oldest entries are always at the head
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entries.size() <= maxEntries && now - entry.at() <= ttlMs) {
+                break;
+            }
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.fuzis.mailer.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps authenticated SMTP connections open between batches instead of paying the TCP, TLS and
+ * AUTH handshake for every mail as {@link JavaMailSenderImpl#send} does. Connections are recycled
+ * after {@code mailer.smtp.max-messages-per-connection} messages or when idle longer than
+ * {@code mailer.smtp.max-idle-ms}, before the server drops them on its side.
+ */
+@Slf4j
+@Component
+public class SmtpTransportPool implements DisposableBean {
+
+    public final class PooledTransport {
+        private final Transport transport;
+        private long lastUsed = System.currentTimeMillis();
+        private int sent = 0;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        public void send(MimeMessage message) throws MessagingException {
+            if (message.getSentDate() == null) {
+                message.setSentDate(new java.util.Date());
+            }
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+            sent++;
+        }
+    }
+
+    private final JavaMailSenderImpl mailSender;
+
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    private final Semaphore permits;
+
+    private final long maxIdleMs;
+
+    private final long validateAfterMs;
+
+    private final int maxMessagesPerConnection;
+
+    private final long borrowTimeoutMs;
+
+    public SmtpTransportPool(JavaMailSenderImpl mailSender,
+                             MeterRegistry meterRegistry,
+                             @Value("${mailer.smtp.pool-size:4}") int poolSize,
+                             @Value("${mailer.smtp.max-idle-ms:30000}") long maxIdleMs,
+                             @Value("${mailer.smtp.validate-after-ms:5000}") long validateAfterMs,
+                             @Value("${mailer.smtp.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                             @Value("${mailer.smtp.borrow-timeout-ms:30000}") long borrowTimeoutMs) {
+        this.mailSender = mailSender;
+        this.permits = new Semaphore(poolSize);
+        this.maxIdleMs = maxIdleMs;
+        this.validateAfterMs = validateAfterMs;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        Gauge.builder("mailer.smtp.pool.idle", idle, LinkedBlockingDeque::size).register(meterRegistry);
+        Gauge.builder("mailer.smtp.pool.active", permits, p -> poolSize - p.availablePermits()).register(meterRegistry);
+    }
+
+    public PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection became available in " + borrowTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        try {
+            PooledTransport pooled;
+            // Most recently used first: it is the one least likely to have been closed by the server
+            while ((pooled = idle.pollFirst()) != null) {
+                long idleFor = System.currentTimeMillis() - pooled.lastUsed;
+                if (idleFor > maxIdleMs || (idleFor > validateAfterMs && !pooled.transport.isConnected())) {
+                    close(pooled);
+                    continue;
+                }
+                return pooled;
+            }
+            return new PooledTransport(connect());
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @param broken the connection failed mid-conversation and must not be reused
+     */
+    public void release(PooledTransport pooled, boolean broken) {
+        try {
+            if (broken || pooled.sent >= maxMessagesPerConnection || !pooled.transport.isConnected()) {
+                close(pooled);
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            close(pooled);
+        }
+    }
+
+    private Transport connect() throws MessagingException {
+        String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        String username = mailSender.getUsername();
+        String password = mailSender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) {
+                password = null;
+            }
+        }
+        transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        return transport;
+    }
+
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection", e);
+        }
+    }
+}
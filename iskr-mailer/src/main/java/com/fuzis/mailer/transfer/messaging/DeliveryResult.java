@@ -0,0 +1,16 @@
+package com.fuzis.mailer.transfer.messaging;
+
+/**
+ * Outcome of one message in a batch. {@code permanent} failures (rejected recipient, unknown
+ * email type) will not succeed on a retry.
+ */
+public record DeliveryResult(EmailDTO email, boolean sent, boolean permanent, Exception error) {
+
+    public static DeliveryResult sent(EmailDTO email) {
+        return new DeliveryResult(email, true, false, null);
+    }
+
+    public static DeliveryResult failed(EmailDTO email, boolean permanent, Exception error) {
+        return new DeliveryResult(email, false, permanent, error);
+    }
+}
@@ -0,0 +1,84 @@
+package com.fuzis.mailer.messaging;
+
+import com.fuzis.mailer.service.EmailService;
+import com.fuzis.mailer.service.SentMessageRegistry;
+import com.fuzis.mailer.transfer.messaging.DeliveryResult;
+import com.fuzis.mailer.transfer.messaging.EmailDTO;
+import com.fuzis.mailer.transfer.messaging.EmailType;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailMessageListenerTest {
+
+    private final Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
+
+    private final EmailService emailService = mock(EmailService.class);
+
+    private final EmailRetryPublisher retryPublisher = mock(EmailRetryPublisher.class);
+
+    private final Channel channel = mock(Channel.class);
+
+    private final EmailMessageListener listener = new EmailMessageListener(emailService, converter, retryPublisher,
+            new SentMessageRegistry(100, Duration.ofHours(1)));
+
+    @Test
+    void rejectsOnlyUnsentMessageWhenReroutingFails() throws Exception {
+        Message sent = message(1, "sent@example.com");
+        Message failed = message(2, "failed@example.com");
+        when(emailService.sendBatch(anyList())).thenAnswer(invocation -> {
+            List<EmailDTO> emails = invocation.getArgument(0);
+            return List.of(DeliveryResult.sent(emails.get(0)),
+                    DeliveryResult.failed(emails.get(1), false, new IllegalStateException("timeout")));
+        });
+        doThrow(new IllegalStateException("broker unavailable"))
+                .when(retryPublisher).reject(eq(failed), anyBoolean(), any());
+
+        listener.handleEmailMessages(List.of(sent, failed), channel);
+
+        verify(channel).basicAck(1, false);
+        verify(channel, never()).basicNack(eq(1L), anyBoolean(), anyBoolean());
+        verify(channel).basicNack(2, false, false);
+    }
+
+    @Test
+    void acksReroutedAndDuplicateMessages() throws Exception {
+        Message failed = message(1, "failed@example.com");
+        Message duplicate = message(2, "failed@example.com");
+        duplicate.getMessageProperties().setMessageId("1");
+        when(emailService.sendBatch(anyList())).thenAnswer(invocation -> {
+            List<EmailDTO> emails = invocation.getArgument(0);
+            return List.of(DeliveryResult.failed(emails.get(0), true, new IllegalStateException("rejected")));
+        });
+
+        listener.handleEmailMessages(List.of(failed, duplicate), channel);
+
+        verify(retryPublisher).reject(eq(failed), eq(true), any());
+        verify(channel).basicAck(1, false);
+        verify(channel).basicAck(2, false);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    private Message message(long deliveryTag, String email) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        properties.setMessageId(String.valueOf(deliveryTag));
+        return converter.toMessage(new EmailDTO(email, EmailType.VerifyEmailEmail, "token-" + deliveryTag), properties);
+    }
+}
@@ -0,0 +1,52 @@
+package com.fuzis.mailer.service;
+
+import jakarta.mail.Address;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailServiceTest {
+
+    private static final Address[] NONE = new Address[0];
+
+    @Test
+    void messageRejectedWith4xxIsRetried() {
+        assertFalse(EmailService.isPermanent(sendFailed(451, null)));
+    }
+
+    @Test
+    void messageRejectedWith5xxIsPermanent() {
+        assertTrue(EmailService.isPermanent(sendFailed(554, null)));
+    }
+
+    @Test
+    void recipientRejectedWith4xxIsRetried() throws Exception {
+        SendFailedException e = new SendFailedException("Invalid Addresses");
+        e.setNextException(addressFailed(452));
+        assertFalse(EmailService.isPermanent(e));
+    }
+
+    @Test
+    void recipientRejectedWith5xxIsPermanent() throws Exception {
+        assertTrue(EmailService.isPermanent(sendFailed(451, addressFailed(550))));
+    }
+
+    @Test
+    void rejectionWithoutCodeIsPermanent() {
+        assertTrue(EmailService.isPermanent(new SendFailedException("Invalid Addresses")));
+    }
+
+    private static SendFailedException sendFailed(int code, Exception next) {
+        return new SMTPSendFailedException("DATA", code, code + " rejected", next, NONE, NONE, NONE);
+    }
+
+    private static SMTPAddressFailedException addressFailed(int code) throws Exception {
+        return new SMTPAddressFailedException(new InternetAddress("reader@example.com"), "RCPT TO", code,
+                code + " mailbox unavailable");
+    }
+}
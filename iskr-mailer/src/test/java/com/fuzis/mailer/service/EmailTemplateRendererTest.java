@@ -0,0 +1,43 @@
+package com.fuzis.mailer.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmailTemplateRendererTest {
+
+    private SpringTemplateEngine engine;
+
+    private EmailTemplateRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        renderer = new EmailTemplateRenderer(engine);
+    }
+
+    @Test
+    void precompiledMatchesTemplateEngine() {
+        for (String template : new String[]{"verify-email", "reset-password"}) {
+            renderer.precompile(template);
+            Map<String, Object> variables = Map.of("token", "abc-123", "url", "http://localhost:5000/x/abc-123");
+            Context context = new Context();
+            context.setVariables(variables);
+
+            assertEquals(engine.process(template, context), renderer.render(template, variables));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.fuzis.search.controller;
+
+import com.fuzis.search.service.DataSyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/search")
+@ConditionalOnProperty(name = "sync.enabled", havingValue = "true")
+public class SyncController {
+    private final DataSyncService dataSyncService;
+
+    @Autowired
+    public SyncController(DataSyncService dataSyncService) {
+        this.dataSyncService = dataSyncService;
+    }
+
+    // Внеплановая переиндексация (например, после массового импорта книг)
+    @PostMapping("/reindex")
+    public ResponseEntity<Map<String, Object>> reindex() {
+        dataSyncService.requestSync();
+        return ResponseEntity.ok(Map.of("requested", true));
+    }
+}
@@ -14,6 +14,7 @@ import com.fuzis.search.entity.elasticsearch.UserDocument;
 import com.fuzis.search.repository.*;
 import com.fuzis.search.repository.elasticsearch.SearchDocumentRepository;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -29,6 +30,9 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Service
@@ -73,22 +77,70 @@ public class DataSyncService {
     @Value("${sync.batch-size:1000}")
     private int batchSize;
 
-    private volatile boolean isSyncInProgress = false;
+    private final AtomicBoolean syncInProgress = new AtomicBoolean();
+
+    // Запрос на синхронизацию, который ещё не начал выполняться
+    private final AtomicBoolean syncPending = new AtomicBoolean();
+
+    private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-sync-request");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @PostConstruct
     public void init() {
         createIndexIfNotExists();
     }
 
+    @PreDestroy
+    public void shutdown() {
+        syncExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs a full sync outside the schedule, e.g. after a bulk import. The request is only marked
+     * pending; whichever sync holds the lock when it finishes sees the mark and runs once more, so a
+     * request made during a running sync is never dropped, and requests made meanwhile are merged.
+     */
+    public void requestSync() {
+        syncPending.set(true);
+        syncExecutor.execute(() -> {
+            if (syncPending.get()) {
+                runSync();
+            }
+        });
+    }
+
     @Scheduled(cron = "${sync.cron}")
     public void syncAllData() {
-        if (isSyncInProgress) {
+        if (!runSync()) {
             log.warn("Sync already in progress");
-            return;
         }
+    }
+
+    /**
+     * Syncs until no request is pending; false if another thread holds the lock, in which case
+     * that thread picks up the pending request.
+     */
+    private boolean runSync() {
+        do {
+            if (!syncInProgress.compareAndSet(false, true)) {
+                return false;
+            }
+            try {
+                syncPending.set(false);
+                syncOnce();
+            } finally {
+                syncInProgress.set(false);
+            }
+            // Запрос мог прийти, пока замок был занят: его поток уже ушёл, повторяем сами
+        } while (syncPending.get());
+        return true;
+    }
 
+    private void syncOnce() {
         try {
-            isSyncInProgress = true;
             log.info("Starting Elasticsearch sync");
 
             long startTime = System.currentTimeMillis();
@@ -104,8 +156,6 @@ public class DataSyncService {
 
         } catch (Exception e) {
             log.error("Sync error", e);
-        } finally {
-            isSyncInProgress = false;
         }
     }
 